@@ -7,6 +7,10 @@ import io.activej.launcher.Launcher;
 
 import static io.activej.config.converter.ConfigConverters.ofInteger;
 
+/**
+ * Run with {@code -DByteBufPool.useMagazines=true} to compare shared slabs
+ * with thread-local magazines in front of them.
+ */
 public class ByteBufPoolMultithreadedBenchmark extends Launcher {
 
 	static final class ByteBufPoolAbuser implements Runnable {
@@ -27,6 +31,7 @@ public class ByteBufPoolMultithreadedBenchmark extends Launcher {
 				ByteBuf buf = ByteBufPool.allocate(allocationSize);
 				buf.recycle();
 			}
+			ByteBufPool.flushMagazine();
 			long res = System.currentTimeMillis() - start;
 			System.out.println("Thread #" + number + " ends its job. Time : " + res + " ms.");
 		}
@@ -103,6 +108,15 @@ public class ByteBufPoolMultithreadedBenchmark extends Launcher {
 		long avgRps = Math.round((iterations / avgTime * 1000L * threads));
 		System.out.println("Time: " + timeAllRounds + "ms; Average time: " + avgTime + " ms; Best time: " +
 				bestTime + "ms; Worst time: " + worstTime + "ms; Requests per second: " + avgRps);
+
+		ByteBufPool.ByteBufPoolStats stats = ByteBufPool.getStats();
+		System.out.println("Thread-local magazines: " + (ByteBufPool.USE_MAGAZINES ? "enabled" : "disabled"));
+		if (ByteBufPool.USE_MAGAZINES) {
+			System.out.println("Magazine hit rate: " + String.format("%.4f", stats.getMagazineHitRate()) +
+					"; Refills: " + stats.getMagazineRefills() +
+					"; Spills: " + stats.getMagazineSpills() +
+					"; Transferred items: " + stats.getMagazineTransferredItems());
+		}
 	}
 
 	private long round() throws InterruptedException {
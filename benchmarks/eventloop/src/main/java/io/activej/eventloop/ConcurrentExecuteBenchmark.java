@@ -0,0 +1,67 @@
+package io.activej.eventloop;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a throughput of tasks submitted to a single eventloop from several threads via {@link Eventloop#execute}.
+ * <p>
+ * Each producer submits a batch of tasks and waits for the last one of them to be executed,
+ * so that the eventloop is regularly parked in a selector and has to be woken up.
+ */
+@State(Scope.Benchmark)
+public class ConcurrentExecuteBenchmark {
+	private static final int BATCH_SIZE = 1000;
+	private static final Runnable NOOP = () -> {};
+
+	private Eventloop eventloop;
+	private Thread eventloopThread;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		eventloop = Eventloop.create();
+		eventloop.keepAlive(true);
+		eventloopThread = new Thread(eventloop);
+		eventloopThread.start();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws InterruptedException {
+		eventloop.execute(() -> eventloop.keepAlive(false));
+		eventloopThread.join();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void execute() throws InterruptedException {
+		for (int i = 0; i < BATCH_SIZE - 1; i++) {
+			eventloop.execute(NOOP);
+		}
+		CountDownLatch latch = new CountDownLatch(1);
+		eventloop.execute(latch::countDown);
+		latch.await();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(ConcurrentExecuteBenchmark.class.getSimpleName())
+				.forks(2)
+				.threads(4)
+				.warmupIterations(3)
+				.warmupTime(TimeValue.seconds(1L))
+				.measurementIterations(5)
+				.measurementTime(TimeValue.seconds(2L))
+				.mode(Mode.Throughput)
+				.timeUnit(TimeUnit.MICROSECONDS)
+				.build();
+
+		new Runner(opt).run();
+	}
+}
@@ -0,0 +1,88 @@
+package io.activej.eventloop;
+
+import io.activej.eventloop.schedule.ScheduledQueue;
+import io.activej.eventloop.schedule.ScheduledRunnable;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a binary heap and a timing wheel as queues of scheduled tasks.
+ * <p>
+ * Models a lot of pending request timeouts, most of which are cancelled because
+ * responses arrive in time, while the time goes on and due tasks are polled.
+ */
+@State(Scope.Benchmark)
+public class ScheduledQueueBenchmark {
+	private static final Runnable NOOP = () -> {};
+
+	@Param({"heap", "timingWheel"})
+	String queueType;
+
+	@Param({"1000", "100000"})
+	int pendingTimeouts;
+
+	@Param({"30000"})
+	int maxTimeout;
+
+	private long now;
+	private Random random;
+	private ScheduledQueue queue;
+	private ScheduledRunnable[] pending;
+	private int index;
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		now = 0;
+		random = new Random(0);
+		queue = "heap".equals(queueType) ? ScheduledQueue.ofHeap() : ScheduledQueue.ofTimingWheel(() -> now);
+		pending = new ScheduledRunnable[pendingTimeouts];
+		for (int i = 0; i < pendingTimeouts; i++) {
+			pending[i] = schedule();
+		}
+		index = 0;
+	}
+
+	@Benchmark
+	public void scheduleAndCancel(Blackhole blackhole) {
+		pending[index].cancel();
+		pending[index] = schedule();
+		if (++index == pending.length) {
+			index = 0;
+		}
+		if (index % 100 == 0) {
+			now++;
+			for (ScheduledRunnable task = queue.poll(now); task != null; task = queue.poll(now)) {
+				blackhole.consume(task);
+			}
+		}
+	}
+
+	private ScheduledRunnable schedule() {
+		ScheduledRunnable task = ScheduledRunnable.create(now + 1 + random.nextInt(maxTimeout), NOOP);
+		queue.add(task);
+		return task;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(ScheduledQueueBenchmark.class.getSimpleName())
+				.forks(2)
+				.warmupIterations(3)
+				.warmupTime(TimeValue.seconds(1L))
+				.measurementIterations(5)
+				.measurementTime(TimeValue.seconds(2L))
+				.mode(Mode.AverageTime)
+				.timeUnit(TimeUnit.NANOSECONDS)
+				.build();
+
+		new Runner(opt).run();
+	}
+}
@@ -0,0 +1,129 @@
+package io.activej.http;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.concurrent.TimeUnit;
+
+import static io.activej.http.HttpHeaders.*;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+/**
+ * Parses header lines of a typical browser request into an {@link HttpRequest} the same way
+ * a server connection does, and then reads a few of them, like most servlets do.
+ * <p>
+ * Compares lazily materialized header values with eagerly created {@link HttpHeaderValue} objects,
+ * run with a GC profiler to see allocations per request.
+ */
+@State(Scope.Benchmark)
+public class HeaderParsingBenchmark {
+	private static final String HEADERS = "" +
+			"Host: www.example.com\r\n" +
+			"Connection: keep-alive\r\n" +
+			"Cache-Control: max-age=0\r\n" +
+			"sec-ch-ua: \"Chromium\";v=\"118\", \"Google Chrome\";v=\"118\", \"Not=A?Brand\";v=\"99\"\r\n" +
+			"sec-ch-ua-mobile: ?0\r\n" +
+			"sec-ch-ua-platform: \"Windows\"\r\n" +
+			"Upgrade-Insecure-Requests: 1\r\n" +
+			"User-Agent: Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/118.0.0.0 Safari/537.36\r\n" +
+			"Accept: text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,image/apng,*/*;q=0.8\r\n" +
+			"Sec-Fetch-Site: same-origin\r\n" +
+			"Sec-Fetch-Mode: navigate\r\n" +
+			"Sec-Fetch-User: ?1\r\n" +
+			"Sec-Fetch-Dest: document\r\n" +
+			"Referer: https://www.example.com/catalog?page=2\r\n" +
+			"Accept-Encoding: gzip, deflate, br\r\n" +
+			"Accept-Language: en-US,en;q=0.9,de;q=0.8\r\n" +
+			"Cookie: session=8f2a1c9e4b7d; theme=dark; _ga=GA1.2.1234567890.1697000000\r\n";
+
+	private byte[] array;
+	private int[] lines;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		array = HEADERS.getBytes(ISO_8859_1);
+		String[] split = HEADERS.split("\r\n");
+		lines = new int[split.length * 2];
+		for (int i = 0, off = 0; i < split.length; i++) {
+			lines[i * 2] = off;
+			lines[i * 2 + 1] = off + split[i].length();
+			off += split[i].length() + 2;
+		}
+	}
+
+	@Benchmark
+	public void lazy(Blackhole blackhole) {
+		HttpRequest request = HttpRequest.get("http://www.example.com/");
+		for (int i = 0; i < lines.length; i += 2) {
+			int pos = lines[i];
+			int limit = lines[i + 1];
+			HttpHeader header = parseName(pos, limit);
+			int off = valueOffset(pos + header.size() + 1, limit);
+			request.addHeader(header, array, off, limit - off);
+		}
+		consume(request, blackhole);
+	}
+
+	@Benchmark
+	public void eager(Blackhole blackhole) {
+		HttpRequest request = HttpRequest.get("http://www.example.com/");
+		for (int i = 0; i < lines.length; i += 2) {
+			int pos = lines[i];
+			int limit = lines[i + 1];
+			HttpHeader header = parseName(pos, limit);
+			int off = valueOffset(pos + header.size() + 1, limit);
+			request.addHeader(header, HttpHeaderValue.ofBytes(array, off, limit - off));
+		}
+		consume(request, blackhole);
+	}
+
+	private HttpHeader parseName(int off, int limit) {
+		int pos = off;
+		int hashCode = 1;
+		while (pos < limit) {
+			byte b = array[pos];
+			if (b == ':')
+				break;
+			if (b >= 'A' && b <= 'Z')
+				b += 'a' - 'A';
+			hashCode = 31 * hashCode + b;
+			pos++;
+		}
+		return HttpHeaders.of(array, off, pos - off, hashCode);
+	}
+
+	private int valueOffset(int pos, int limit) {
+		while (pos < limit && array[pos] == ' ') {
+			pos++;
+		}
+		return pos;
+	}
+
+	private static void consume(HttpRequest request, Blackhole blackhole) {
+		blackhole.consume(request.getHeader(HOST));
+		blackhole.consume(request.getHeader(ACCEPT_ENCODING));
+		blackhole.consume(request.getHeader(COOKIE));
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(HeaderParsingBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.forks(2)
+				.warmupIterations(3)
+				.warmupTime(TimeValue.seconds(1L))
+				.measurementIterations(5)
+				.measurementTime(TimeValue.seconds(2L))
+				.mode(Mode.AverageTime)
+				.timeUnit(TimeUnit.NANOSECONDS)
+				.build();
+
+		new Runner(opt).run();
+	}
+}
@@ -0,0 +1,227 @@
+package io.activej.http;
+
+import io.activej.async.callback.Callback;
+import io.activej.config.Config;
+import io.activej.config.ConfigModule;
+import io.activej.eventloop.Eventloop;
+import io.activej.inject.annotation.Inject;
+import io.activej.inject.annotation.Named;
+import io.activej.inject.annotation.Provides;
+import io.activej.inject.module.Module;
+import io.activej.launcher.Launcher;
+import io.activej.promise.Promise;
+import io.activej.promise.SettablePromise;
+import io.activej.service.ServiceGraphModule;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+
+import static io.activej.config.converter.ConfigConverters.*;
+import static io.activej.inject.module.Modules.combine;
+import static java.lang.Math.min;
+
+/**
+ * Compares HTTP/2 (h2c with prior knowledge) against HTTP/1.1 keep-alive connections.
+ * <p>
+ * Both clients send requests to the same server, which accepts both protocols.
+ * HTTP/1.1 client opens a separate connection for each active request,
+ * while HTTP/2 client multiplexes all of them over a single connection.
+ */
+public class Http2WorkloadBenchmark extends Launcher {
+	private static final int KEEP_ALIVE = 30;
+	private static final int TOTAL_REQUESTS = 1_000_000;
+	private static final int WARMUP_ROUNDS = 3;
+	private static final int BENCHMARK_ROUNDS = 5;
+	private static final int ACTIVE_REQUESTS_MAX = 100;
+	private static final int ACTIVE_REQUESTS_MIN = 50;
+
+	private String address;
+	private int totalRequests;
+	private int warmupRounds;
+	private int measureRounds;
+	private int activeRequestsMax;
+	private int activeRequestsMin;
+
+	@Provides
+	@Named("server")
+	Eventloop serverEventloop() { return Eventloop.create(); }
+
+	@Provides
+	@Named("client")
+	Eventloop clientEventloop() { return Eventloop.create(); }
+
+	@Inject
+	@Named("server")
+	Eventloop serverEventloop;
+
+	@Inject
+	@Named("client")
+	Eventloop clientEventloop;
+
+	@Inject
+	Config config;
+
+	@Inject
+	AsyncHttpServer server;
+
+	@Inject
+	@Named("http1")
+	AsyncHttpClient http1Client;
+
+	@Inject
+	@Named("http2")
+	AsyncHttpClient http2Client;
+
+	@Provides
+	AsyncHttpServer server() {
+		return AsyncHttpServer.create(serverEventloop,
+				request ->
+						HttpResponse.ok200().withPlainText("Response!!"))
+				.withHttp2(true)
+				.withHttp2MaxConcurrentStreams(config.get(ofInteger(), "server.http2.maxConcurrentStreams",
+						AsyncHttpServer.HTTP2_MAX_CONCURRENT_STREAMS))
+				.withListenAddresses(config.get(ofList(ofInetSocketAddress()), "address"));
+	}
+
+	@Provides
+	@Named("http1")
+	AsyncHttpClient http1Client() {
+		return AsyncHttpClient.create(clientEventloop)
+				.withKeepAliveTimeout(Duration.ofSeconds(config.get(ofInteger(),
+						"client.keepAlive", KEEP_ALIVE)));
+	}
+
+	@Provides
+	@Named("http2")
+	AsyncHttpClient http2Client() {
+		return AsyncHttpClient.create(clientEventloop)
+				.withHttp2(true)
+				.withKeepAliveTimeout(Duration.ofSeconds(config.get(ofInteger(),
+						"client.keepAlive", KEEP_ALIVE)));
+	}
+
+	@Provides
+	Config config() {
+		return Config.create()
+				.with("address", "0.0.0.0:9001")
+				.with("client.address", "http://127.0.0.1:9001/")
+				.overrideWith(Config.ofSystemProperties("config"));
+	}
+
+	@Override
+	protected Module getModule() {
+		return combine(
+				ServiceGraphModule.create(),
+				ConfigModule.create()
+						.withEffectiveConfigLogger());
+	}
+
+	@Override
+	protected void onStart() {
+		this.address = config.get("client.address");
+		this.totalRequests = config.get(ofInteger(), "benchmark.totalRequests", TOTAL_REQUESTS);
+		this.warmupRounds = config.get(ofInteger(), "benchmark.warmupRounds", WARMUP_ROUNDS);
+		this.measureRounds = config.get(ofInteger(), "benchmark.measureRounds", BENCHMARK_ROUNDS);
+		this.activeRequestsMax = config.get(ofInteger(), "benchmark.activeRequestsMax", ACTIVE_REQUESTS_MAX);
+		this.activeRequestsMin = config.get(ofInteger(), "benchmark.activeRequestsMin", ACTIVE_REQUESTS_MIN);
+	}
+
+	@Override
+	protected void run() throws Exception {
+		long http1Rps = benchmark("HTTP/1.1 keep-alive", http1Client);
+		long http2Rps = benchmark("HTTP/2", http2Client);
+		System.out.println("HTTP/1.1 keep-alive RPS: " + http1Rps + "; HTTP/2 RPS: " + http2Rps);
+	}
+
+	private long benchmark(String name, AsyncHttpClient client) throws Exception {
+		long timeAllRounds = 0;
+		long bestTime = -1;
+		long worstTime = -1;
+
+		System.out.println("Warming up " + name + " ...");
+		for (int i = 0; i < warmupRounds; i++) {
+			long roundTime = round(client);
+			long rps = totalRequests * 1000L / roundTime;
+			System.out.println("Round: " + (i + 1) + "; Round time: " + roundTime + "ms; RPS : " + rps);
+		}
+
+		System.out.println("Start benchmarking " + name + " GET Request");
+		for (int i = 0; i < measureRounds; i++) {
+			long roundTime = round(client);
+			timeAllRounds += roundTime;
+
+			if (bestTime == -1 || roundTime < bestTime) {
+				bestTime = roundTime;
+			}
+
+			if (worstTime == -1 || roundTime > worstTime) {
+				worstTime = roundTime;
+			}
+
+			long rps = totalRequests * 1000L / roundTime;
+			System.out.println("Round: " + (i + 1) + "; Round time: " + roundTime + " ms; RPS : " + rps);
+		}
+
+		double avgTime = (double) timeAllRounds / measureRounds;
+		long requestsPerSecond = (long) (totalRequests / avgTime * 1000);
+		System.out.println(name + " time: " + timeAllRounds + "ms; Average time: " + avgTime + " ms; Best time: " +
+				bestTime + "ms; Worst time: " + worstTime + "ms; Requests per second: " + requestsPerSecond);
+		return requestsPerSecond;
+	}
+
+	private long round(AsyncHttpClient client) throws Exception {
+		return clientEventloop.submit(() -> roundGet(client)).get();
+	}
+
+	int sent;
+	int completed;
+
+	private Promise<Long> roundGet(AsyncHttpClient client) {
+		SettablePromise<Long> promise = new SettablePromise<>();
+
+		Callback<HttpResponse> callback = new Callback<HttpResponse>() {
+			@Override
+			public void accept(HttpResponse result, @Nullable Throwable e) {
+				completed++;
+				int active = sent - completed;
+
+				if (e != null) {
+					promise.trySetException(new FailedRequestException());
+					return;
+				}
+
+				if (completed == totalRequests) {
+					promise.set(null);
+					return;
+				}
+
+				if (active <= activeRequestsMin) {
+					for (int i = 0; i < min(activeRequestsMax - active, totalRequests - sent); i++, sent++) {
+						doGet(client, this);
+					}
+				}
+			}
+		};
+		sent = 0;
+		completed = 0;
+		long start = System.currentTimeMillis();
+
+		for (int i = 0; i < min(activeRequestsMin, totalRequests); i++) {
+			doGet(client, callback);
+			sent++;
+		}
+
+		return promise.map($ -> System.currentTimeMillis() - start);
+	}
+
+	private void doGet(AsyncHttpClient client, Callback<HttpResponse> callback) {
+		client.request(HttpRequest.get(address)).whenComplete(callback);
+	}
+
+	public static void main(String[] args) throws Exception {
+		Launcher benchmark = new Http2WorkloadBenchmark();
+		benchmark.launch(args);
+	}
+
+	private static class FailedRequestException extends Exception {}
+}
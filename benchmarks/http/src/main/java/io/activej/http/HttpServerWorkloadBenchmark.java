@@ -17,8 +17,12 @@ import org.jetbrains.annotations.Nullable;
 import java.time.Duration;
 
 import static io.activej.config.converter.ConfigConverters.*;
+import static io.activej.http.ContentTypes.PLAIN_TEXT_UTF_8;
+import static io.activej.http.HttpHeaderValue.ofContentType;
+import static io.activej.http.HttpHeaders.CONTENT_TYPE;
 import static io.activej.inject.module.Modules.combine;
 import static java.lang.Math.min;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 public class HttpServerWorkloadBenchmark extends Launcher {
 	private static final int KEEP_ALIVE = 30;
@@ -60,11 +64,20 @@ public class HttpServerWorkloadBenchmark extends Launcher {
 	@Inject
 	AsyncHttpClient client;
 
+	/**
+	 * Responses may be created either from a pre-rendered template, or as regular responses,
+	 * which is switched by {@code benchmark.responseTemplate} config property
+	 */
 	@Provides
 	AsyncHttpServer server() {
-		return AsyncHttpServer.create(serverEventloop,
-				request ->
-						HttpResponse.ok200().withPlainText("Response!!"))
+		byte[] body = "Response!!".getBytes(UTF_8);
+		HttpResponseTemplate template = HttpResponseTemplate.create(200)
+				.withHeader(CONTENT_TYPE, ofContentType(PLAIN_TEXT_UTF_8));
+		AsyncServlet servlet = config.get(ofBoolean(), "benchmark.responseTemplate", true) ?
+				request -> template.newResponse().withBody(body) :
+				request -> HttpResponse.ok200().withPlainText("Response!!");
+		return AsyncHttpServer.create(serverEventloop, servlet)
+				.withDateHeader(config.get(ofBoolean(), "benchmark.dateHeader", true))
 				.withListenAddresses(config.get(ofList(ofInetSocketAddress()), "address"));
 	}
 
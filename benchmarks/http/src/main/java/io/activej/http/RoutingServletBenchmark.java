@@ -0,0 +1,113 @@
+package io.activej.http;
+
+import io.activej.promise.Promise;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static io.activej.http.HttpMethod.*;
+
+/**
+ * Compares routing of requests by a {@link RoutingServlet} and by a servlet compiled from it
+ * with {@link RoutingServlet#compile()}, over a route table of a typical REST API.
+ */
+@State(Scope.Benchmark)
+public class RoutingServletBenchmark {
+	private static final String[] RESOURCES = {"users", "accounts", "orders", "products", "categories", "carts",
+			"payments", "invoices", "shipments", "reviews", "coupons", "warehouses", "suppliers", "employees",
+			"departments", "projects", "tasks", "comments", "attachments", "notifications"};
+	private static final Promise<HttpResponse> RESPONSE = Promise.of(HttpResponse.ok200());
+	private static final AsyncServlet SERVLET = request -> RESPONSE;
+
+	private AsyncServlet routingServlet;
+	private AsyncServlet compiledServlet;
+	private HttpRequest[] requests;
+	private int[] positions;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		RoutingServlet servlet = RoutingServlet.create()
+				.map(GET, "/", SERVLET)
+				.map(GET, "/health", SERVLET)
+				.map(GET, "/metrics", SERVLET)
+				.map("/static/*", SERVLET);
+		for (String version : new String[]{"v1", "v2"}) {
+			for (String resource : RESOURCES) {
+				String base = "/api/" + version + "/" + resource;
+				servlet.map(GET, base, SERVLET)
+						.map(POST, base, SERVLET)
+						.map(GET, base + "/search", SERVLET)
+						.map(GET, base + "/:id", SERVLET)
+						.map(PUT, base + "/:id", SERVLET)
+						.map(DELETE, base + "/:id", SERVLET)
+						.map(GET, base + "/:id/history", SERVLET)
+						.map(GET, base + "/:id/comments/:commentId", SERVLET);
+			}
+		}
+		routingServlet = servlet;
+		compiledServlet = servlet.compile();
+
+		List<HttpRequest> requests = new ArrayList<>();
+		for (int i = 0; i < RESOURCES.length; i++) {
+			String base = "http://127.0.0.1/api/" + (i % 2 == 0 ? "v1" : "v2") + "/" + RESOURCES[i];
+			requests.add(HttpRequest.get(base));
+			requests.add(HttpRequest.post(base));
+			requests.add(HttpRequest.get(base + "/search?q=test"));
+			requests.add(HttpRequest.get(base + "/" + (1000 + i)));
+			requests.add(HttpRequest.of(PUT, base + "/" + (2000 + i)));
+			requests.add(HttpRequest.get(base + "/" + (3000 + i) + "/history"));
+			requests.add(HttpRequest.get(base + "/" + (4000 + i) + "/comments/" + i));
+		}
+		requests.add(HttpRequest.get("http://127.0.0.1/health"));
+		requests.add(HttpRequest.get("http://127.0.0.1/static/css/main.css"));
+		requests.add(HttpRequest.get("http://127.0.0.1/api/v3/users"));
+		this.requests = requests.toArray(new HttpRequest[0]);
+		this.positions = new int[this.requests.length];
+		for (int i = 0; i < this.requests.length; i++) {
+			positions[i] = this.requests[i].getPos();
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(143)
+	public void routingServlet(Blackhole blackhole) {
+		route(routingServlet, blackhole);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(143)
+	public void compiledServlet(Blackhole blackhole) {
+		route(compiledServlet, blackhole);
+	}
+
+	private void route(AsyncServlet servlet, Blackhole blackhole) {
+		for (int i = 0; i < requests.length; i++) {
+			HttpRequest request = requests[i];
+			request.setPos(positions[i]);
+			blackhole.consume(servlet.serveAsync(request));
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(RoutingServletBenchmark.class.getSimpleName())
+				.forks(2)
+				.warmupIterations(3)
+				.warmupTime(TimeValue.seconds(1L))
+				.measurementIterations(5)
+				.measurementTime(TimeValue.seconds(2L))
+				.mode(Mode.AverageTime)
+				.timeUnit(TimeUnit.NANOSECONDS)
+				.build();
+
+		new Runner(opt).run();
+	}
+}
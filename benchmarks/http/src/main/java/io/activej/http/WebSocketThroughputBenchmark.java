@@ -0,0 +1,203 @@
+package io.activej.http;
+
+import io.activej.config.Config;
+import io.activej.config.ConfigModule;
+import io.activej.eventloop.Eventloop;
+import io.activej.http.WebSocket.Message;
+import io.activej.inject.annotation.Inject;
+import io.activej.inject.annotation.Named;
+import io.activej.inject.annotation.Provides;
+import io.activej.inject.module.Module;
+import io.activej.launcher.Launcher;
+import io.activej.promise.Promise;
+import io.activej.promise.Promises;
+import io.activej.service.ServiceGraphModule;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.activej.config.converter.ConfigConverters.*;
+import static io.activej.inject.module.Modules.combine;
+
+/**
+ * Measures a throughput of WebSocket text messages which are echoed back by a server,
+ * with and without permessage-deflate extension.
+ * <p>
+ * Each connection writes its messages while concurrently reading echoed ones,
+ * so that a socket write queue is never empty.
+ */
+public class WebSocketThroughputBenchmark extends Launcher {
+	private static final int TOTAL_MESSAGES = 1_000_000;
+	private static final int CONNECTIONS = 10;
+	private static final int MESSAGE_SIZE = 1024;
+	private static final int WARMUP_ROUNDS = 3;
+	private static final int BENCHMARK_ROUNDS = 5;
+
+	private String address;
+	private int totalMessages;
+	private int connections;
+	private int warmupRounds;
+	private int measureRounds;
+	private String text;
+
+	@Provides
+	@Named("server")
+	Eventloop serverEventloop() { return Eventloop.create(); }
+
+	@Provides
+	@Named("client")
+	Eventloop clientEventloop() { return Eventloop.create(); }
+
+	@Inject
+	@Named("server")
+	Eventloop serverEventloop;
+
+	@Inject
+	@Named("client")
+	Eventloop clientEventloop;
+
+	@Inject
+	Config config;
+
+	@Inject
+	AsyncHttpServer server;
+
+	@Inject
+	@Named("plain")
+	AsyncHttpClient plainClient;
+
+	@Inject
+	@Named("deflate")
+	AsyncHttpClient deflateClient;
+
+	@Provides
+	AsyncHttpServer server() {
+		return AsyncHttpServer.create(serverEventloop,
+				WebSocketServlet.create(webSocket -> webSocket.messageReadChannel().streamTo(webSocket.messageWriteChannel())))
+				.withWebSocketDeflate(true)
+				.withListenAddresses(config.get(ofList(ofInetSocketAddress()), "address"));
+	}
+
+	@Provides
+	@Named("plain")
+	AsyncHttpClient plainClient() {
+		return AsyncHttpClient.create(clientEventloop);
+	}
+
+	@Provides
+	@Named("deflate")
+	AsyncHttpClient deflateClient() {
+		return AsyncHttpClient.create(clientEventloop)
+				.withWebSocketDeflate(true);
+	}
+
+	@Provides
+	Config config() {
+		return Config.create()
+				.with("address", "0.0.0.0:9001")
+				.with("client.address", "ws://127.0.0.1:9001/")
+				.overrideWith(Config.ofSystemProperties("config"));
+	}
+
+	@Override
+	protected Module getModule() {
+		return combine(
+				ServiceGraphModule.create(),
+				ConfigModule.create()
+						.withEffectiveConfigLogger());
+	}
+
+	@Override
+	protected void onStart() {
+		this.address = config.get("client.address");
+		this.totalMessages = config.get(ofInteger(), "benchmark.totalMessages", TOTAL_MESSAGES);
+		this.connections = config.get(ofInteger(), "benchmark.connections", CONNECTIONS);
+		this.warmupRounds = config.get(ofInteger(), "benchmark.warmupRounds", WARMUP_ROUNDS);
+		this.measureRounds = config.get(ofInteger(), "benchmark.measureRounds", BENCHMARK_ROUNDS);
+
+		int messageSize = config.get(ofInteger(), "benchmark.messageSize", MESSAGE_SIZE);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; sb.length() < messageSize; i++) {
+			sb.append("{\"id\":").append(i).append(",\"name\":\"item-").append(i % 97).append("\"},");
+		}
+		this.text = sb.substring(0, messageSize);
+	}
+
+	@Override
+	protected void run() throws Exception {
+		long plainMps = benchmark("WebSocket", plainClient);
+		long deflateMps = benchmark("WebSocket with permessage-deflate", deflateClient);
+		System.out.println("WebSocket messages per second: " + plainMps + "; with permessage-deflate: " + deflateMps);
+	}
+
+	private long benchmark(String name, AsyncHttpClient client) throws Exception {
+		long timeAllRounds = 0;
+		long bestTime = -1;
+		long worstTime = -1;
+
+		System.out.println("Warming up " + name + " ...");
+		for (int i = 0; i < warmupRounds; i++) {
+			long roundTime = round(client);
+			long mps = totalMessages * 1000L / roundTime;
+			System.out.println("Round: " + (i + 1) + "; Round time: " + roundTime + "ms; MPS : " + mps);
+		}
+
+		System.out.println("Start benchmarking " + name);
+		for (int i = 0; i < measureRounds; i++) {
+			long roundTime = round(client);
+			timeAllRounds += roundTime;
+
+			if (bestTime == -1 || roundTime < bestTime) {
+				bestTime = roundTime;
+			}
+
+			if (worstTime == -1 || roundTime > worstTime) {
+				worstTime = roundTime;
+			}
+
+			long mps = totalMessages * 1000L / roundTime;
+			System.out.println("Round: " + (i + 1) + "; Round time: " + roundTime + " ms; MPS : " + mps);
+		}
+
+		double avgTime = (double) timeAllRounds / measureRounds;
+		long messagesPerSecond = (long) (totalMessages / avgTime * 1000);
+		System.out.println(name + " time: " + timeAllRounds + "ms; Average time: " + avgTime + " ms; Best time: " +
+				bestTime + "ms; Worst time: " + worstTime + "ms; Messages per second: " + messagesPerSecond +
+				"; MB/s: " + messagesPerSecond * text.length() / (1024 * 1024));
+		return messagesPerSecond;
+	}
+
+	private long round(AsyncHttpClient client) throws Exception {
+		return clientEventloop.submit(() -> roundEcho(client)).get();
+	}
+
+	private Promise<Long> roundEcho(AsyncHttpClient client) {
+		long start = System.currentTimeMillis();
+		List<Promise<Void>> echoes = new ArrayList<>();
+		for (int i = 0; i < connections; i++) {
+			int messages = totalMessages / connections + (i < totalMessages % connections ? 1 : 0);
+			echoes.add(client.webSocketRequest(HttpRequest.get(address))
+					.then(webSocket -> Promises.all(write(webSocket, messages), read(webSocket, messages))
+							.then(() -> webSocket.writeMessage(null))));
+		}
+		return Promises.all(echoes)
+				.map($ -> System.currentTimeMillis() - start);
+	}
+
+	private Promise<Void> write(WebSocket webSocket, int messages) {
+		return Promises.loop(messages, i -> i != 0,
+				i -> webSocket.writeMessage(Message.text(text)).map($ -> i - 1))
+				.toVoid();
+	}
+
+	private Promise<Void> read(WebSocket webSocket, int messages) {
+		return Promises.loop(messages, i -> i != 0,
+				i -> webSocket.readMessage().map($ -> i - 1))
+				.toVoid();
+	}
+
+	public static void main(String[] args) throws Exception {
+		Launcher benchmark = new WebSocketThroughputBenchmark();
+		benchmark.launch(args);
+	}
+}
@@ -0,0 +1,164 @@
+package io.activej.net;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
+import io.activej.common.MemSize;
+import io.activej.config.Config;
+import io.activej.eventloop.Eventloop;
+import io.activej.eventloop.net.SocketSettings;
+import io.activej.inject.annotation.Inject;
+import io.activej.inject.annotation.Provides;
+import io.activej.inject.module.Module;
+import io.activej.launcher.Launcher;
+import io.activej.net.socket.tcp.AsyncTcpSocket;
+import io.activej.net.socket.tcp.AsyncTcpSocketNio;
+import io.activej.promise.Promise;
+import io.activej.promise.Promises;
+import io.activej.promise.SettablePromise;
+import io.activej.service.ServiceGraphModule;
+
+import java.net.InetSocketAddress;
+
+import static io.activej.common.MemSize.kilobytes;
+import static io.activej.common.MemSize.megabytes;
+import static io.activej.config.converter.ConfigConverters.ofInteger;
+import static io.activej.config.converter.ConfigConverters.ofMemSize;
+
+/**
+ * Compares throughput of {@link AsyncTcpSocketNio} which writes
+ * through heap buffers with the one which uses pooled direct buffers.
+ * <p>
+ * Large chunks are written into a socket with a small send buffer, so most of the writes are partial.
+ * With heap buffers, NIO copies the whole remainder of a chunk into its temporary direct buffer on every retry,
+ * while a pooled direct buffer is filled once and is kept until it is written fully.
+ */
+public class TcpSocketBuffersBenchmark extends Launcher {
+	private static final int PORT = 9002;
+	private static final int WARMUP_ROUNDS = 3;
+	private static final int BENCHMARK_ROUNDS = 10;
+
+	private int totalBytes;
+	private int chunkSize;
+	private MemSize sendBufferSize;
+	private int warmupRounds;
+	private int benchmarkRounds;
+
+	@Inject
+	Eventloop eventloop;
+
+	@Inject
+	Config config;
+
+	@Provides
+	Eventloop eventloop() {
+		return Eventloop.create();
+	}
+
+	@Provides
+	Config config() {
+		return Config.create()
+				.overrideWith(Config.ofSystemProperties("config"));
+	}
+
+	@Override
+	protected Module getModule() {
+		return ServiceGraphModule.create();
+	}
+
+	@Override
+	protected void onStart() {
+		this.totalBytes = config.get(ofMemSize(), "benchmark.totalBytes", megabytes(1024)).toInt();
+		this.chunkSize = config.get(ofMemSize(), "benchmark.chunkSize", megabytes(1)).toInt();
+		this.sendBufferSize = config.get(ofMemSize(), "benchmark.sendBufferSize", kilobytes(64));
+		this.warmupRounds = config.get(ofInteger(), "benchmark.warmupRounds", WARMUP_ROUNDS);
+		this.benchmarkRounds = config.get(ofInteger(), "benchmark.benchmarkRounds", BENCHMARK_ROUNDS);
+	}
+
+	@Override
+	protected void run() throws Exception {
+		for (boolean direct : new boolean[]{false, true}) {
+			SocketSettings settings = SocketSettings.createDefault()
+					.withSendBufferSize(sendBufferSize)
+					.withImplDirectBuffers(direct);
+			String mode = direct ? "direct" : "heap";
+
+			System.out.println("Warming up " + mode + " buffers ...");
+			for (int i = 0; i < warmupRounds; i++) {
+				round(settings);
+			}
+
+			long timeAllRounds = 0;
+			for (int i = 0; i < benchmarkRounds; i++) {
+				long roundTime = round(settings);
+				timeAllRounds += roundTime;
+				System.out.println("Round: " + (i + 1) + "; Round time: " + roundTime + "ms; " +
+						"Throughput: " + throughput(roundTime) + " MB/s");
+			}
+			long avgRoundTime = timeAllRounds / benchmarkRounds;
+			System.out.println("Buffers: " + mode + "; Average round time: " + avgRoundTime + "ms; " +
+					"Average throughput: " + throughput(avgRoundTime) + " MB/s");
+			System.out.println();
+		}
+		System.out.println("Pooled direct buffers: " + ByteBufPool.getStats().getDirectPoolItems() +
+				"; Total size: " + ByteBufPool.getStats().getDirectPoolSize() + " bytes");
+	}
+
+	private long throughput(long time) {
+		return time != 0 ? totalBytes * 1000L / time / (1024 * 1024) : 0;
+	}
+
+	private long round(SocketSettings settings) throws Exception {
+		return eventloop.submit(() -> roundGet(settings)).get();
+	}
+
+	private Promise<Long> roundGet(SocketSettings settings) {
+		SettablePromise<Void> received = new SettablePromise<>();
+		SimpleServer server = SimpleServer.create(socket -> drain(socket)
+				.whenComplete(socket::close)
+				.whenComplete((v, e) -> received.trySet(v, e)))
+				.withSocketSettings(settings)
+				.withListenAddress(new InetSocketAddress("localhost", PORT))
+				.withAcceptOnce();
+		try {
+			server.listen();
+		} catch (Exception e) {
+			return Promise.ofException(e);
+		}
+
+		long start = System.currentTimeMillis();
+		return AsyncTcpSocketNio.connect(new InetSocketAddress("localhost", PORT), null, settings)
+				.then(socket -> send(socket)
+						.whenComplete(socket::close))
+				.then(() -> received)
+				.map($ -> System.currentTimeMillis() - start);
+	}
+
+	private Promise<Void> send(AsyncTcpSocket socket) {
+		int[] remaining = {totalBytes};
+		return Promises.<Void>until(null,
+				$ -> {
+					int size = Math.min(chunkSize, remaining[0]);
+					remaining[0] -= size;
+					ByteBuf buf = ByteBufPool.allocate(size);
+					buf.moveTail(size);
+					return socket.write(buf);
+				},
+				$ -> remaining[0] == 0)
+				.then(() -> socket.write(null));
+	}
+
+	private static Promise<Void> drain(AsyncTcpSocket socket) {
+		return Promises.<ByteBuf>until(null,
+				$ -> socket.read()
+						.whenResult(buf -> {
+							if (buf != null) buf.recycle();
+						}),
+				buf -> buf == null)
+				.toVoid();
+	}
+
+	public static void main(String[] args) throws Exception {
+		Launcher benchmark = new TcpSocketBuffersBenchmark();
+		benchmark.launch(args);
+	}
+}
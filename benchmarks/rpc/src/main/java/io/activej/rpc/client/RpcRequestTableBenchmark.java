@@ -0,0 +1,136 @@
+package io.activej.rpc.client;
+
+import io.activej.async.callback.Callback;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Simulates bookkeeping of in-flight requests of a single {@link RpcClientConnection}
+ * at a rate of 1000 requests per millisecond, with a given number of requests in flight and 1 second timeouts.
+ * <p>
+ * Compares boxed hash maps of callbacks and of per-millisecond expiration lists (as they used to be)
+ * with {@link RpcRequestTable} and {@link RpcTimeoutWheel}. Run with a GC profiler to see allocations per request.
+ */
+@State(Scope.Benchmark)
+public class RpcRequestTableBenchmark {
+	private static final int REQUESTS_PER_MILLISECOND = 1000;
+	private static final int TIMEOUT = 1000;
+	private static final Callback<Object> CALLBACK = (result, e) -> {};
+
+	@Param({"100", "10000"})
+	int inFlight;
+
+	// before
+	private static final class ExpirationList {
+		private int size;
+		private int[] cookies;
+
+		ExpirationList(int[] cookies) {
+			this.cookies = cookies;
+		}
+	}
+
+	private Map<Integer, Callback<?>> activeRequestsMap;
+	private Map<Long, ExpirationList> expirationLists;
+	private ArrayDeque<Long> scheduledExpirations;
+
+	// after
+	private RpcRequestTable activeRequestsTable;
+	private RpcTimeoutWheel wheel;
+	private long wheelExpiration;
+	private final IntConsumer expire = this::expire;
+
+	private int cookie;
+	private long now;
+	private Blackhole blackhole;
+
+	@Setup(Level.Iteration)
+	public void setUp(Blackhole blackhole) {
+		this.blackhole = blackhole;
+		activeRequestsMap = new HashMap<>();
+		expirationLists = new HashMap<>();
+		scheduledExpirations = new ArrayDeque<>();
+		activeRequestsTable = new RpcRequestTable(256);
+		wheel = new RpcTimeoutWheel(10, 512, 16, 0);
+		wheelExpiration = 0;
+		cookie = 0;
+		now = 0;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(REQUESTS_PER_MILLISECOND)
+	public void hashMaps() {
+		now++;
+		while (!scheduledExpirations.isEmpty() && scheduledExpirations.peekFirst() <= now) {
+			ExpirationList list = expirationLists.remove(scheduledExpirations.pollFirst());
+			for (int i = 0; i < list.size; i++) {
+				Callback<?> cb = activeRequestsMap.remove(list.cookies[i]);
+				if (cb != null) blackhole.consume(cb);
+			}
+		}
+		for (int i = 0; i < REQUESTS_PER_MILLISECOND; i++) {
+			cookie++;
+			ExpirationList list = expirationLists.computeIfAbsent(now + TIMEOUT, t -> {
+				scheduledExpirations.addLast(t);
+				return new ExpirationList(new int[16]);
+			});
+			if (list.size >= list.cookies.length) {
+				list.cookies = Arrays.copyOf(list.cookies, list.cookies.length * 2);
+			}
+			list.cookies[list.size++] = cookie;
+			activeRequestsMap.put(cookie, CALLBACK);
+
+			blackhole.consume(activeRequestsMap.remove(cookie - inFlight));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(REQUESTS_PER_MILLISECOND)
+	public void tableAndWheel() {
+		now++;
+		if (wheelExpiration != 0 && wheelExpiration <= now) {
+			wheelExpiration = wheel.expire(now, expire);
+		}
+		for (int i = 0; i < REQUESTS_PER_MILLISECOND; i++) {
+			cookie++;
+			long timestamp = wheel.add(cookie, now + TIMEOUT);
+			if (wheelExpiration == 0 || timestamp < wheelExpiration) {
+				wheelExpiration = timestamp;
+			}
+			activeRequestsTable.put(cookie, CALLBACK);
+
+			blackhole.consume(activeRequestsTable.remove(cookie - inFlight));
+		}
+	}
+
+	private void expire(int cookie) {
+		Callback<?> cb = activeRequestsTable.remove(cookie);
+		if (cb != null) blackhole.consume(cb);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(RpcRequestTableBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.forks(2)
+				.warmupIterations(3)
+				.warmupTime(TimeValue.seconds(1L))
+				.measurementIterations(5)
+				.measurementTime(TimeValue.seconds(2L))
+				.mode(Mode.AverageTime)
+				.timeUnit(TimeUnit.NANOSECONDS)
+				.build();
+
+		new Runner(opt).run();
+	}
+}
@@ -23,6 +23,8 @@ import io.activej.common.concurrent.SimpleThreadFactory;
 import io.activej.common.exception.parse.ParseException;
 import io.activej.config.Config;
 import io.activej.eventloop.error.FatalErrorHandler;
+import io.activej.eventloop.idle.IdleStrategies;
+import io.activej.eventloop.idle.IdleStrategy;
 import io.activej.eventloop.inspector.ThrottlingController;
 import io.activej.eventloop.net.DatagramSocketSettings;
 import io.activej.eventloop.net.ServerSocketSettings;
@@ -441,6 +443,10 @@ public final class ConfigConverters {
 								ServerSocketSettings::withReuseAddress,
 								config.get(ofBoolean(), "reuseAddress",
 										defaultValue.hasReuseAddress() ? defaultValue.getReuseAddress() : null)))
+						.andThen(applyIfNotNull(
+								ServerSocketSettings::withReusePort,
+								config.get(ofBoolean(), "reusePort",
+										defaultValue.hasReusePort() ? defaultValue.getReusePort() : null)))
 						.apply(ServerSocketSettings.create(DEFAULT_BACKLOG));
 			}
 		};
@@ -483,6 +489,14 @@ public final class ConfigConverters {
 								SocketSettings::withImplReadBufferSize,
 								config.get(ofMemSize(), "implReadBufferSize",
 										defaultValue.hasReadBufferSize() ? defaultValue.getImplReadBufferSize() : null)))
+						.andThen(applyIfNotNull(
+								SocketSettings::withImplDirectBuffers,
+								config.get(ofBoolean(), "implDirectBuffers",
+										defaultValue.hasImplDirectBuffers() ? defaultValue.getImplDirectBuffers() : null)))
+						.andThen(applyIfNotNull(
+								SocketSettings::withImplAdaptiveReadBuffer,
+								config.get(ofBoolean(), "implAdaptiveReadBuffer",
+										defaultValue.hasImplAdaptiveReadBuffer() ? defaultValue.getImplAdaptiveReadBuffer() : null)))
 						.apply(SocketSettings.create());
 			}
 		};
@@ -553,6 +567,41 @@ public final class ConfigConverters {
 		};
 	}
 
+	public static ConfigConverter<IdleStrategy> ofIdleStrategy() {
+		return new ConfigConverter<IdleStrategy>() {
+			@NotNull
+			@Override
+			public IdleStrategy get(Config config) {
+				switch (config.getValue()) {
+					case "blocking":
+						return IdleStrategies.blocking();
+					case "spin":
+						return IdleStrategies.spin();
+					case "spinThenBlock":
+						return IdleStrategies.spinThenBlock(config.get(ofInteger(), "maxSpins"));
+					case "spinThenYield":
+						return IdleStrategies.spinThenYield(config.get(ofInteger(), "maxSpins"));
+					case "spinThenPark":
+						return IdleStrategies.spinThenPark(
+								config.get(ofInteger(), "maxSpins"),
+								config.get(ofInteger(), "maxYields", 0),
+								config.get(ofDuration(), "minParkPeriod"),
+								config.get(ofDuration(), "maxParkPeriod"));
+					default:
+						throw new IllegalArgumentException("No idle strategy named " + config.getValue() + " exists!");
+				}
+			}
+
+			@Override
+			public IdleStrategy get(Config config, IdleStrategy defaultValue) {
+				if (config.isEmpty()) {
+					return defaultValue;
+				}
+				return get(config);
+			}
+		};
+	}
+
 	public static ConfigConverter<Schedule> ofEventloopTaskSchedule() {
 		return new ConfigConverter<Schedule>() {
 			@NotNull
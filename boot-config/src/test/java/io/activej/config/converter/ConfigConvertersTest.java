@@ -2,6 +2,8 @@ package io.activej.config.converter;
 
 import io.activej.common.MemSize;
 import io.activej.config.Config;
+import io.activej.eventloop.idle.IdleStrategies;
+import io.activej.eventloop.idle.IdleStrategy;
 import io.activej.eventloop.net.DatagramSocketSettings;
 import io.activej.eventloop.net.ServerSocketSettings;
 import io.activej.eventloop.net.SocketSettings;
@@ -67,6 +69,21 @@ public class ConfigConvertersTest {
 		assertFalse(config2.get(ofBoolean(), THIS));
 	}
 
+	@Test
+	public void testIdleStrategyConverter() {
+		Config config = Config.create()
+				.with("spinThenBlock", "spinThenBlock")
+				.with("spinThenBlock.maxSpins", "2");
+
+		IdleStrategy idleStrategy = config.get(ofIdleStrategy(), "spinThenBlock");
+		assertFalse(idleStrategy.idle(0));
+		assertFalse(idleStrategy.idle(1));
+		assertTrue(idleStrategy.idle(2));
+
+		assertSame(IdleStrategies.spin(), Config.ofValue("spin").get(ofIdleStrategy(), THIS));
+		assertSame(IdleStrategies.blocking(), config.get(ofIdleStrategy(), "nonExistingPath", IdleStrategies.blocking()));
+	}
+
 	@Test
 	public void testIntegerConverter() {
 		Map<String, Config> values = new HashMap<>();
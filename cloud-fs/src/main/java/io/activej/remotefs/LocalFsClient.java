@@ -153,6 +153,43 @@ public final class LocalFsClient implements FsClient, EventloopService, Eventloo
 		checkArgument(offset >= 0, "offset < 0");
 		checkArgument(limit >= 0, "limit < 0");
 
+		return openReader(name, offset, limit)
+				.map(consumer -> consumer
+						.withEndOfStream(eos -> eos
+								.thenEx(translateKnownErrors(name))
+								.whenComplete(downloadFinishPromise.recordStats())
+								.whenComplete(toLogger(logger, TRACE, "downloadComplete", name, offset, limit))))
+				.thenEx(translateKnownErrors(name))
+				.whenComplete(toLogger(logger, TRACE, "download", name, offset, limit, this))
+				.whenComplete(downloadBeginPromise.recordStats());
+	}
+
+	/**
+	 * Opens a file for download as a {@link ChannelFileReader} as is,
+	 * so that the file could be transferred directly to a socket with {@link ChannelFileReader#transferTo}
+	 */
+	public Promise<ChannelFileReader> downloadFile(@NotNull String name, long offset, long limit) {
+		checkArgument(offset >= 0, "offset < 0");
+		checkArgument(limit >= 0, "limit < 0");
+
+		return openReader(name, offset, limit)
+				.thenEx(translateKnownErrors(name))
+				.whenComplete(toLogger(logger, TRACE, "downloadFile", name, offset, limit, this))
+				.whenComplete(downloadBeginPromise.recordStats());
+	}
+
+	/**
+	 * Records a completion of a transfer of a file opened with {@link #downloadFile},
+	 * the same way a completion of a {@link #download} is recorded
+	 */
+	Promise<Void> downloadFileComplete(Promise<Void> transfer, @NotNull String name, long offset, long limit) {
+		return transfer
+				.thenEx(translateKnownErrors(name))
+				.whenComplete(downloadFinishPromise.recordStats())
+				.whenComplete(toLogger(logger, TRACE, "downloadComplete", name, offset, limit));
+	}
+
+	private Promise<ChannelFileReader> openReader(@NotNull String name, long offset, long limit) {
 		return resolveAsync(name)
 				.then(path -> {
 					if (!Files.exists(path)) {
@@ -160,17 +197,10 @@ public final class LocalFsClient implements FsClient, EventloopService, Eventloo
 					}
 					return ChannelFileReader.open(executor, path);
 				})
-				.map(consumer -> consumer
+				.map(reader -> reader
 						.withBufferSize(readerBufferSize)
 						.withOffset(offset)
-						.withLimit(limit)
-						.withEndOfStream(eos -> eos
-								.thenEx(translateKnownErrors(name))
-								.whenComplete(downloadFinishPromise.recordStats())
-								.whenComplete(toLogger(logger, TRACE, "downloadComplete", name, offset, limit))))
-				.thenEx(translateKnownErrors(name))
-				.whenComplete(toLogger(logger, TRACE, "download", name, offset, limit, this))
-				.whenComplete(downloadBeginPromise.recordStats());
+						.withLimit(limit));
 	}
 
 	@Override
@@ -18,7 +18,6 @@ package io.activej.remotefs;
 
 import io.activej.common.exception.StacklessException;
 import io.activej.csp.binary.ByteBufsCodec;
-import io.activej.csp.net.Messaging;
 import io.activej.csp.net.MessagingWithBinaryStreaming;
 import io.activej.eventloop.Eventloop;
 import io.activej.jmx.api.attribute.JmxAttribute;
@@ -145,6 +144,14 @@ public final class RemoteFsServer extends AbstractServer<RemoteFsServer> {
 
 						long fixedLimit = Math.max(0, Math.min(meta.getSize() - offset, limit));
 
+						if (client instanceof LocalFsClient) {
+							LocalFsClient localClient = (LocalFsClient) client;
+							return localClient.downloadFile(name, offset, fixedLimit)
+									.then(reader -> messaging.send(new DownloadSize(fixedLimit))
+											.whenException(reader::closeEx)
+											.then(() -> localClient.downloadFileComplete(messaging.sendBinaryFile(reader), name, offset, fixedLimit)))
+									.whenComplete(toLogger(logger, "sending file", meta, offset, fixedLimit, this));
+						}
 						return client.download(name, offset, fixedLimit)
 								.then(supplier -> messaging.send(new DownloadSize(fixedLimit))
 										.whenException(supplier::closeEx)
@@ -179,7 +186,7 @@ public final class RemoteFsServer extends AbstractServer<RemoteFsServer> {
 
 	@FunctionalInterface
 	private interface MessagingHandler<T extends FsCommand> {
-		Promise<Void> onMessage(Messaging<FsCommand, FsResponse> messaging, T item);
+		Promise<Void> onMessage(MessagingWithBinaryStreaming<FsCommand, FsResponse> messaging, T item);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -74,6 +74,19 @@ public final class TestPartialRemoteFs {
 		assertArrayEquals(CONTENT, Files.readAllBytes(clientStorage.resolve(FILE)));
 	}
 
+	@Test
+	public void downloadCompletionIsRecorded() {
+		ByteBuf result = await(ChannelSupplier.ofPromise(client.download(FILE))
+				.toCollector(ByteBufQueue.collector())
+				.whenComplete(server::close));
+		assertArrayEquals(CONTENT, result.asArray());
+
+		// a file is transferred to a socket directly, and its transfer is recorded as a completed download
+		LocalFsClient localClient = (LocalFsClient) server.getClient();
+		assertEquals(0, localClient.getDownloadFinishPromise().getActivePromises());
+		assertNotNull(localClient.getDownloadFinishPromise().getLastCompleteTime());
+	}
+
 	@Test
 	public void ensuredUpload() throws IOException {
 		byte[] data = new byte[10 * (1 << 20)]; // 10 mb
@@ -25,6 +25,7 @@ import io.activej.rpc.protocol.RpcOverloadException;
 public interface IRpcClient {
 	AsyncTimeoutException RPC_TIMEOUT_EXCEPTION = new AsyncTimeoutException(IRpcClient.class, "RPC request has timed out");
 	RpcOverloadException RPC_OVERLOAD_EXCEPTION = new RpcOverloadException(IRpcClient.class, "RPC client is overloaded");
+	RpcOverloadException RPC_SERVER_OVERLOAD_EXCEPTION = new RpcOverloadException(IRpcClient.class, "RPC server is overloaded");
 
 	default <I, O> Promise<O> sendRequest(I request, int timeout) {
 		SettablePromise<O> resultPromise = new SettablePromise<>();
@@ -0,0 +1,399 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.rpc.client;
+
+import io.activej.async.callback.Callback;
+import io.activej.common.api.WithInitializer;
+import io.activej.eventloop.Eventloop;
+import io.activej.eventloop.jmx.EventloopJmxBeanEx;
+import io.activej.eventloop.schedule.ScheduledRunnable;
+import io.activej.jmx.api.attribute.JmxAttribute;
+import io.activej.jmx.stats.EventStats;
+import io.activej.jmx.stats.ValueStats;
+import io.activej.rpc.protocol.RpcException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static io.activej.common.Preconditions.checkArgument;
+import static io.activej.jmx.stats.JmxHistogram.POWERS_OF_TWO;
+
+/**
+ * A decorator of {@link IRpcClient}, which combines requests of given classes into batches.
+ * <p>
+ * Requests of the same class, which share the same batch key and are sent within the same
+ * eventloop tick (or within a given batch window), are combined into a single batch request
+ * by a batch factory. A response to a batch request is split into a list of responses,
+ * which are passed to callbacks of the original requests in the same order.
+ * A server is expected to handle batch requests on its own.
+ * <p>
+ * To batch requests per shard of {@link io.activej.rpc.client.sender.RpcStrategySharding},
+ * a sharding function of the requests should be used as a batch key, and a batch request should
+ * keep the shard, so that a sharding function of the strategy could send a batch to the same shard:
+ * <pre>
+ * RpcBatchingClient.create(eventloop, rpcClient)
+ *     .withBatching(GetRequest.class, shardingFunction::getShard, GetBatchRequest::new, GetBatchResponse::getResponses);
+ * </pre>
+ * Other requests are passed to the decorated client as is.
+ */
+public final class RpcBatchingClient implements IRpcClient, EventloopJmxBeanEx, WithInitializer<RpcBatchingClient> {
+	public static final int DEFAULT_MAX_BATCH_SIZE = 256;
+	public static final Duration DEFAULT_FLUSH_MARGIN = Duration.ofMillis(1);
+	public static final RpcException RESPONSES_MISMATCH_EXCEPTION = new RpcException(RpcBatchingClient.class,
+			"Number of responses does not match number of requests in a batch");
+
+	private final Eventloop eventloop;
+	private final IRpcClient client;
+	private final Map<Class<?>, Batching<?, ?, ?, ?, ?>> batchings = new HashMap<>();
+
+	private Duration batchWindow = Duration.ZERO;
+	private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+	private long flushMargin = DEFAULT_FLUSH_MARGIN.toMillis();
+
+	private List<PendingBatch<?, ?, ?, ?, ?>> pendingBatches = new ArrayList<>();
+	private boolean flushScheduled;
+
+	// jmx
+	private final EventStats batches = EventStats.create(RpcClient.SMOOTHING_WINDOW);
+	private final ValueStats batchSize = ValueStats.create(RpcClient.SMOOTHING_WINDOW).withHistogram(POWERS_OF_TWO);
+
+	private RpcBatchingClient(Eventloop eventloop, IRpcClient client) {
+		this.eventloop = eventloop;
+		this.client = client;
+	}
+
+	public static RpcBatchingClient create(Eventloop eventloop, IRpcClient client) {
+		return new RpcBatchingClient(eventloop, client);
+	}
+
+	/**
+	 * Combines requests of a given class into batches
+	 *
+	 * @param requestClass    class of requests to be batched
+	 * @param batchKey        a function which determines a batch of a request, only requests
+	 *                        with equal batch keys are combined into the same batch
+	 * @param batchFactory    a function which creates a batch request from a batch key and a list of requests
+	 * @param responsesGetter a function which splits a response to a batch request into a list
+	 *                        of responses to the original requests, in the same order
+	 */
+	public <I, K, B, R, O> RpcBatchingClient withBatching(@NotNull Class<I> requestClass,
+			@NotNull Function<? super I, ? extends K> batchKey,
+			@NotNull BiFunction<? super K, List<I>, ? extends B> batchFactory,
+			@NotNull Function<? super R, ? extends List<? extends O>> responsesGetter) {
+		checkArgument(!batchings.containsKey(requestClass), "Batching for this request class is already set");
+		batchings.put(requestClass, new Batching<>(batchKey, batchFactory, responsesGetter));
+		return this;
+	}
+
+	/**
+	 * Sets a time window within which requests are collected into batches.
+	 * By default, a batch is sent at the end of the current eventloop tick.
+	 * <p>
+	 * A batch is sent before the end of its window if one of its requests
+	 * would otherwise expire, see {@link #withFlushMargin(Duration)}
+	 */
+	public RpcBatchingClient withBatchWindow(@NotNull Duration batchWindow) {
+		checkArgument(!batchWindow.isNegative(), "Batch window should not be negative");
+		this.batchWindow = batchWindow;
+		return this;
+	}
+
+	/**
+	 * Sets a time by which a batch is sent ahead of a deadline of its earliest request,
+	 * if that deadline comes before the end of a batch window
+	 */
+	public RpcBatchingClient withFlushMargin(@NotNull Duration flushMargin) {
+		checkArgument(!flushMargin.isNegative(), "Flush margin should not be negative");
+		this.flushMargin = flushMargin.toMillis();
+		return this;
+	}
+
+	/**
+	 * Sets a maximum number of requests in a batch, a full batch is sent immediately
+	 */
+	public RpcBatchingClient withMaxBatchSize(int maxBatchSize) {
+		checkArgument(maxBatchSize > 0, "Max batch size should be positive");
+		this.maxBatchSize = maxBatchSize;
+		return this;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <I, O> void sendRequest(I request, int timeout, Callback<O> cb) {
+		Batching<I, Object, Object, Object, O> batching = (Batching<I, Object, Object, Object, O>) batchings.get(request.getClass());
+		if (batching == null) {
+			client.sendRequest(request, timeout, cb);
+			return;
+		}
+		long now = eventloop.currentTimeMillis();
+		Object key = batching.batchKey.apply(request);
+		PendingBatch<I, Object, Object, Object, O> batch = batching.pending.get(key);
+		if (batch == null) {
+			batch = new PendingBatch<>(batching, key);
+			batching.pending.put(key, batch);
+			if (batchWindow.isZero()) {
+				pendingBatches.add(batch);
+				scheduleFlush();
+			} else {
+				batch.flushTimestamp = now + batchWindow.toMillis();
+			}
+		}
+		long deadline = timeout == Integer.MAX_VALUE ? Long.MAX_VALUE : now + timeout;
+		batch.add(request, deadline, cb);
+		if (batch.requests.size() >= maxBatchSize) {
+			batching.pending.remove(key);
+			send(batch);
+			return;
+		}
+		if (!batchWindow.isZero()) {
+			scheduleFlush(batch, deadline);
+		}
+	}
+
+	private void scheduleFlush() {
+		if (flushScheduled) return;
+		flushScheduled = true;
+		eventloop.postLast(this::flush);
+	}
+
+	/**
+	 * Schedules a batch to be sent at the end of its window, or earlier,
+	 * so that a request with a given deadline does not expire while waiting in it
+	 */
+	private void scheduleFlush(PendingBatch<?, ?, ?, ?, ?> batch, long deadline) {
+		long timestamp = deadline == Long.MAX_VALUE ?
+				batch.flushTimestamp :
+				Math.min(batch.flushTimestamp, deadline - flushMargin);
+		if (batch.scheduledFlush != null) {
+			if (timestamp >= batch.flushTimestamp) return;
+			batch.scheduledFlush.cancel();
+		}
+		batch.flushTimestamp = timestamp;
+		batch.scheduledFlush = eventloop.schedule(timestamp, () -> {
+			batch.scheduledFlush = null;
+			if (!batch.sent) {
+				batch.batching.pending.remove(batch.key);
+				send(batch);
+			}
+		});
+	}
+
+	private void flush() {
+		flushScheduled = false;
+		// callbacks of failed batches may send new requests right away
+		List<PendingBatch<?, ?, ?, ?, ?>> batches = pendingBatches;
+		pendingBatches = new ArrayList<>();
+		for (PendingBatch<?, ?, ?, ?, ?> batch : batches) {
+			if (!batch.sent) {
+				batch.batching.pending.remove(batch.key);
+				send(batch);
+			}
+		}
+	}
+
+	/**
+	 * Sends a batch with a timeout of its latest request, time spent in a batch window is not counted twice.
+	 * Requests which have expired while waiting in a batch window are failed and are not sent,
+	 * other requests are failed on their own deadlines, without failing the whole batch
+	 */
+	private <I, K, B, R, O> void send(PendingBatch<I, K, B, R, O> batch) {
+		batch.sent = true;
+		if (batch.scheduledFlush != null) {
+			batch.scheduledFlush.cancel();
+		}
+		long now = eventloop.currentTimeMillis();
+		List<I> requests = new ArrayList<>(batch.requests.size());
+		SentBatch<O> sentBatch = new SentBatch<>(batch.requests.size());
+		for (int i = 0; i < batch.requests.size(); i++) {
+			long deadline = batch.deadlines[i];
+			if (deadline <= now) {
+				batch.callbacks.get(i).accept(null, RPC_TIMEOUT_EXCEPTION);
+				continue;
+			}
+			requests.add(batch.requests.get(i));
+			sentBatch.add(batch.callbacks.get(i), deadline);
+		}
+		if (requests.isEmpty()) return;
+
+		batches.recordEvent();
+		batchSize.recordValue(requests.size());
+		B batchRequest = batch.batching.batchFactory.apply(batch.key, requests);
+		int timeout = sentBatch.maxDeadline == Long.MAX_VALUE ? Integer.MAX_VALUE : (int) (sentBatch.maxDeadline - now);
+		sentBatch.scheduleExpiration();
+		client.<B, R>sendRequest(batchRequest, timeout, (response, e) -> {
+			if (e == null) {
+				List<? extends O> responses = batch.batching.responsesGetter.apply(response);
+				if (responses.size() == sentBatch.size) {
+					sentBatch.complete(responses);
+					return;
+				}
+				e = RESPONSES_MISMATCH_EXCEPTION;
+			}
+			sentBatch.completeExceptionally(e);
+		});
+	}
+
+	/**
+	 * Callbacks of a batch which has been sent. A batch is sent with a timeout of its latest request,
+	 * and other requests are failed locally once their own deadlines pass.
+	 * Callbacks of completed requests are set to {@code null}
+	 */
+	private final class SentBatch<O> {
+		final List<@Nullable Callback<O>> callbacks;
+		final long[] deadlines;
+		int size;
+		long maxDeadline;
+		@Nullable
+		ScheduledRunnable expiration;
+
+		SentBatch(int capacity) {
+			this.callbacks = new ArrayList<>(capacity);
+			this.deadlines = new long[capacity];
+		}
+
+		void add(Callback<O> cb, long deadline) {
+			callbacks.add(cb);
+			deadlines[size++] = deadline;
+			maxDeadline = Math.max(maxDeadline, deadline);
+		}
+
+		void scheduleExpiration() {
+			long next = Long.MAX_VALUE;
+			for (int i = 0; i < size; i++) {
+				if (callbacks.get(i) != null && deadlines[i] < maxDeadline) {
+					next = Math.min(next, deadlines[i]);
+				}
+			}
+			if (next != Long.MAX_VALUE) {
+				expiration = eventloop.schedule(next, this::expire);
+			}
+		}
+
+		void expire() {
+			expiration = null;
+			long now = eventloop.currentTimeMillis();
+			for (int i = 0; i < size; i++) {
+				Callback<O> cb = callbacks.get(i);
+				if (cb != null && deadlines[i] <= now) {
+					callbacks.set(i, null);
+					cb.accept(null, RPC_TIMEOUT_EXCEPTION);
+				}
+			}
+			scheduleExpiration();
+		}
+
+		void complete(List<? extends O> responses) {
+			if (expiration != null) expiration.cancel();
+			for (int i = 0; i < size; i++) {
+				Callback<O> cb = callbacks.get(i);
+				if (cb != null) {
+					callbacks.set(i, null);
+					cb.accept(responses.get(i), null);
+				}
+			}
+		}
+
+		void completeExceptionally(Throwable e) {
+			if (expiration != null) expiration.cancel();
+			for (int i = 0; i < size; i++) {
+				Callback<O> cb = callbacks.get(i);
+				if (cb != null) {
+					callbacks.set(i, null);
+					cb.accept(null, e);
+				}
+			}
+		}
+	}
+
+	private static final class Batching<I, K, B, R, O> {
+		final Function<? super I, ? extends K> batchKey;
+		final BiFunction<? super K, List<I>, ? extends B> batchFactory;
+		final Function<? super R, ? extends List<? extends O>> responsesGetter;
+		final Map<K, PendingBatch<I, K, B, R, O>> pending = new HashMap<>();
+
+		Batching(Function<? super I, ? extends K> batchKey, BiFunction<? super K, List<I>, ? extends B> batchFactory,
+				Function<? super R, ? extends List<? extends O>> responsesGetter) {
+			this.batchKey = batchKey;
+			this.batchFactory = batchFactory;
+			this.responsesGetter = responsesGetter;
+		}
+	}
+
+	private static final class PendingBatch<I, K, B, R, O> {
+		final Batching<I, K, B, R, O> batching;
+		final K key;
+		final List<I> requests = new ArrayList<>();
+		final List<Callback<O>> callbacks = new ArrayList<>();
+		// deadlines of requests, a batch should not outlive any of its requests
+		long[] deadlines = new long[8];
+		long flushTimestamp;
+		@Nullable
+		ScheduledRunnable scheduledFlush;
+		boolean sent;
+
+		PendingBatch(Batching<I, K, B, R, O> batching, K key) {
+			this.batching = batching;
+			this.key = key;
+		}
+
+		void add(I request, long deadline, Callback<O> cb) {
+			int index = requests.size();
+			if (index == deadlines.length) {
+				deadlines = Arrays.copyOf(deadlines, deadlines.length * 2);
+			}
+			deadlines[index] = deadline;
+			requests.add(request);
+			callbacks.add(cb);
+		}
+	}
+
+	// jmx
+	@NotNull
+	@Override
+	public Eventloop getEventloop() {
+		return eventloop;
+	}
+
+	@JmxAttribute(extraSubAttributes = "totalCount")
+	public EventStats getBatches() {
+		return batches;
+	}
+
+	@JmxAttribute(description = "number of requests in a batch", extraSubAttributes = "histogram")
+	public ValueStats getBatchSize() {
+		return batchSize;
+	}
+
+	@JmxAttribute
+	public int getPendingRequests() {
+		int count = 0;
+		for (Batching<?, ?, ?, ?, ?> batching : batchings.values()) {
+			for (PendingBatch<?, ?, ?, ?, ?> batch : batching.pending.values()) {
+				count += batch.requests.size();
+			}
+		}
+		return count;
+	}
+}
@@ -37,10 +37,12 @@ import io.activej.promise.Promise;
 import io.activej.promise.Promises;
 import io.activej.promise.SettablePromise;
 import io.activej.rpc.client.jmx.RpcConnectStats;
+import io.activej.rpc.client.jmx.RpcHedgingStats;
 import io.activej.rpc.client.jmx.RpcRequestStats;
 import io.activej.rpc.client.sender.RpcSender;
 import io.activej.rpc.client.sender.RpcStrategies;
 import io.activej.rpc.client.sender.RpcStrategy;
+import io.activej.rpc.client.sender.RpcStrategyHedging;
 import io.activej.rpc.protocol.RpcMessage;
 import io.activej.rpc.protocol.RpcStream;
 import io.activej.rpc.server.RpcServer;
@@ -519,6 +521,12 @@ public final class RpcClient implements IRpcClient, EventloopService, WithInitia
 		return generalConnectsStats;
 	}
 
+	@JmxAttribute(name = "hedging", description = "stats of duplicate requests (when hedging strategy is used)")
+	@Nullable
+	public RpcHedgingStats getHedgingStats() {
+		return strategy instanceof RpcStrategyHedging ? ((RpcStrategyHedging) strategy).getStats() : null;
+	}
+
 	@JmxAttribute(description = "request stats distributed by request class")
 	public Map<Class<?>, RpcRequestStats> getRequestsStatsPerClass() {
 		return requestStatsPerClass;
@@ -23,6 +23,7 @@ import io.activej.common.exception.AsyncTimeoutException;
 import io.activej.common.time.Stopwatch;
 import io.activej.datastream.StreamDataAcceptor;
 import io.activej.eventloop.Eventloop;
+import io.activej.eventloop.schedule.ScheduledRunnable;
 import io.activej.jmx.api.JmxRefreshable;
 import io.activej.jmx.api.attribute.JmxAttribute;
 import io.activej.jmx.api.attribute.JmxReducers.JmxReducerSum;
@@ -35,12 +36,15 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 
 import java.net.InetSocketAddress;
-import java.util.*;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
 
 import static io.activej.common.Preconditions.checkState;
 import static io.activej.eventloop.util.RunnableWithContext.wrapContext;
 import static io.activej.rpc.client.IRpcClient.RPC_OVERLOAD_EXCEPTION;
+import static io.activej.rpc.client.IRpcClient.RPC_SERVER_OVERLOAD_EXCEPTION;
 import static io.activej.rpc.client.IRpcClient.RPC_TIMEOUT_EXCEPTION;
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -49,6 +53,11 @@ public final class RpcClientConnection implements RpcStream.Listener, RpcSender,
 	private static final boolean CHECK = Check.isEnabled(RpcClientConnection.class);
 
 	private static final int BUCKET_CAPACITY = ApplicationSettings.getInt(RpcClientConnection.class, "bucketCapacity", 16);
+	private static final int INITIAL_REQUESTS_CAPACITY = ApplicationSettings.getInt(RpcClientConnection.class, "initialRequestsCapacity", 256);
+	private static final Duration TIMEOUT_RESOLUTION = ApplicationSettings.getDuration(RpcClientConnection.class, "timeoutResolution", Duration.ofMillis(10));
+	private static final int TIMEOUT_WHEEL_SIZE = ApplicationSettings.getInt(RpcClientConnection.class, "timeoutWheelSize", 512);
+
+	private static final String OVERLOAD_CLASS_NAME = RpcOverloadException.class.getName();
 
 	private StreamDataAcceptor<RpcMessage> downstreamDataAcceptor = null;
 	private boolean overloaded = false;
@@ -61,20 +70,16 @@ public final class RpcClientConnection implements RpcStream.Listener, RpcSender,
 	private final RpcClient rpcClient;
 	private final RpcStream stream;
 	private final InetSocketAddress address;
-	private final Map<Integer, Callback<?>> activeRequests = new HashMap<>();
-	private final Map<Long, ExpirationList> expirationLists = new HashMap<>();
+	private final RpcRequestTable activeRequests = new RpcRequestTable(INITIAL_REQUESTS_CAPACITY);
+	private final RpcTimeoutWheel expirations;
+	private final IntConsumer expireRequest = this::expireRequest;
+	private final Runnable expire = wrapContext(this, this::expire);
+	@Nullable
+	private ScheduledRunnable expirationTask;
+	private long expirationTimestamp;
 
 	private ArrayList<RpcMessage> initialBuffer = new ArrayList<>();
 
-	private static final class ExpirationList {
-		private int size;
-		private int[] cookies;
-
-		ExpirationList(int[] cookies) {
-			this.cookies = cookies;
-		}
-	}
-
 	private int cookie = 0;
 	private boolean serverClosing;
 
@@ -95,6 +100,8 @@ public final class RpcClientConnection implements RpcStream.Listener, RpcSender,
 		this.stream = stream;
 		this.address = address;
 		this.keepAliveMillis = keepAliveMillis;
+		this.expirations = new RpcTimeoutWheel(TIMEOUT_RESOLUTION.toMillis(), TIMEOUT_WHEEL_SIZE, BUCKET_CAPACITY,
+				eventloop.currentTimeMillis());
 
 		// JMX
 		this.monitoring = false;
@@ -120,33 +127,10 @@ public final class RpcClientConnection implements RpcStream.Listener, RpcSender,
 			}
 
 			if (timeout != Integer.MAX_VALUE) {
-				ExpirationList list = expirationLists.computeIfAbsent(eventloop.currentTimeMillis() + timeout, t -> {
-					ExpirationList l = new ExpirationList(new int[BUCKET_CAPACITY]);
-					eventloop.scheduleBackground(t, wrapContext(this, () -> {
-						expirationLists.remove(t);
-
-						for (int i = 0; i < l.size; i++) {
-							Callback<?> expiredCb = activeRequests.remove(l.cookies[i]);
-							if (expiredCb != null) {
-								// jmx
-								connectionStats.getExpiredRequests().recordEvent();
-								rpcClient.getGeneralRequestsStats().getExpiredRequests().recordEvent();
-
-								expiredCb.accept(null, RPC_TIMEOUT_EXCEPTION);
-							}
-						}
-
-						if (serverClosing && activeRequests.size() == 0) {
-							shutdown();
-						}
-					}));
-					return l;
-				});
-
-				if (list.size >= list.cookies.length) {
-					list.cookies = Arrays.copyOf(list.cookies, list.cookies.length * 2);
+				long timestamp = expirations.add(cookie, eventloop.currentTimeMillis() + timeout);
+				if (expirationTask == null || timestamp < expirationTimestamp) {
+					scheduleExpiration(timestamp);
 				}
-				list.cookies[list.size++] = cookie;
 			}
 
 			activeRequests.put(cookie, cb);
@@ -181,6 +165,37 @@ public final class RpcClientConnection implements RpcStream.Listener, RpcSender,
 		}
 	}
 
+	private void scheduleExpiration(long timestamp) {
+		if (expirationTask != null) {
+			expirationTask.cancel();
+		}
+		expirationTimestamp = timestamp;
+		expirationTask = eventloop.scheduleBackground(timestamp, expire);
+	}
+
+	private void expire() {
+		expirationTask = null;
+		long nextTimestamp = expirations.expire(eventloop.currentTimeMillis(), expireRequest);
+		if (nextTimestamp != 0 && (expirationTask == null || nextTimestamp < expirationTimestamp)) {
+			scheduleExpiration(nextTimestamp);
+		}
+
+		if (serverClosing && activeRequests.size() == 0) {
+			shutdown();
+		}
+	}
+
+	private void expireRequest(int cookie) {
+		Callback<?> expiredCb = activeRequests.remove(cookie);
+		if (expiredCb != null) {
+			// jmx
+			connectionStats.getExpiredRequests().recordEvent();
+			rpcClient.getGeneralRequestsStats().getExpiredRequests().recordEvent();
+
+			expiredCb.accept(null, RPC_TIMEOUT_EXCEPTION);
+		}
+	}
+
 	private <I, O> Callback<O> doJmxMonitoring(I request, int timeout, @NotNull Callback<O> cb) {
 		RpcRequestStats requestStatsPerClass = rpcClient.ensureRequestStatsPerClass(request.getClass());
 		requestStatsPerClass.getTotalRequests().recordEvent();
@@ -216,6 +231,10 @@ public final class RpcClientConnection implements RpcStream.Listener, RpcSender,
 
 	private void processErrorMessage(RpcMessage message) {
 		RpcRemoteException remoteException = (RpcRemoteException) message.getData();
+		if (OVERLOAD_CLASS_NAME.equals(remoteException.getCauseClassName())) {
+			processOverloadMessage(message);
+			return;
+		}
 		// jmx
 		connectionStats.getFailedRequests().recordEvent();
 		rpcClient.getGeneralRequestsStats().getFailedRequests().recordEvent();
@@ -228,6 +247,18 @@ public final class RpcClientConnection implements RpcStream.Listener, RpcSender,
 		}
 	}
 
+	// a request has been rejected by server's concurrency limits
+	private void processOverloadMessage(RpcMessage message) {
+		// jmx
+		connectionStats.getRejectedRequests().recordEvent();
+		rpcClient.getGeneralRequestsStats().getRejectedRequests().recordEvent();
+
+		Callback<?> cb = activeRequests.remove(message.getCookie());
+		if (cb != null) {
+			cb.accept(null, RPC_SERVER_OVERLOAD_EXCEPTION);
+		}
+	}
+
 	private void processControlMessage(RpcControlMessage controlMessage) {
 		if (controlMessage == RpcControlMessage.CLOSE) {
 			rpcClient.removeConnection(address);
@@ -316,12 +347,14 @@ public final class RpcClientConnection implements RpcStream.Listener, RpcSender,
 		closed = true;
 		rpcClient.removeConnection(address);
 
+		if (expirationTask != null) {
+			expirationTask.cancel();
+			expirationTask = null;
+		}
+
 		while (!activeRequests.isEmpty()) {
-			for (Integer cookie : new HashSet<>(activeRequests.keySet())) {
-				Callback<?> cb = activeRequests.remove(cookie);
-				if (cb != null) {
-					cb.accept(null, CONNECTION_CLOSED);
-				}
+			for (Callback<?> cb : activeRequests.removeAll()) {
+				cb.accept(null, CONNECTION_CLOSED);
 			}
 		}
 	}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.rpc.client;
+
+import io.activej.async.callback.Callback;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+import static io.activej.common.Preconditions.checkArgument;
+
+/**
+ * A table of callbacks of in-flight requests, keyed by request cookies.
+ * <p>
+ * As cookies of a connection are sequential, the table is a ring indexed by cookies
+ * themselves, so that cookies are never boxed and each lookup touches a single slot.
+ * A ring grows once it is half full. If a slot is still taken by a request which has outlived
+ * a whole ring of newer ones, this straggler is moved to a separate overflow map.
+ */
+final class RpcRequestTable {
+	private int[] cookies;
+	private Callback<?>[] callbacks;
+	private int mask;
+	private int ringSize;
+
+	private final Map<Integer, Callback<?>> overflow = new HashMap<>();
+
+	RpcRequestTable(int initialCapacity) {
+		checkArgument(initialCapacity > 0 && Integer.bitCount(initialCapacity) == 1, "Capacity should be a power of 2");
+		this.cookies = new int[initialCapacity];
+		this.callbacks = new Callback<?>[initialCapacity];
+		this.mask = initialCapacity - 1;
+	}
+
+	public int size() {
+		return ringSize + overflow.size();
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	public void put(int cookie, @NotNull Callback<?> cb) {
+		int i = cookie & mask;
+		if (callbacks[i] != null) {
+			if (ringSize >= (mask + 1) >>> 1) {
+				resize((mask + 1) * 2);
+				i = cookie & mask;
+			}
+			if (callbacks[i] != null) {
+				overflow.put(cookies[i], callbacks[i]);
+				ringSize--;
+			}
+		}
+		cookies[i] = cookie;
+		callbacks[i] = cb;
+		ringSize++;
+	}
+
+	@Nullable
+	public Callback<?> remove(int cookie) {
+		int i = cookie & mask;
+		Callback<?> cb = callbacks[i];
+		if (cb != null && cookies[i] == cookie) {
+			callbacks[i] = null;
+			ringSize--;
+			return cb;
+		}
+		return overflow.isEmpty() ? null : overflow.remove(cookie);
+	}
+
+	/**
+	 * Removes all of the callbacks from this table
+	 *
+	 * @return removed callbacks
+	 */
+	public List<Callback<?>> removeAll() {
+		List<Callback<?>> removed = new ArrayList<>(size());
+		for (Callback<?> cb : callbacks) {
+			if (cb != null) {
+				removed.add(cb);
+			}
+		}
+		removed.addAll(overflow.values());
+		Arrays.fill(callbacks, null);
+		ringSize = 0;
+		overflow.clear();
+		return removed;
+	}
+
+	private void resize(int capacity) {
+		int[] oldCookies = this.cookies;
+		Callback<?>[] oldCallbacks = this.callbacks;
+		this.cookies = new int[capacity];
+		this.callbacks = new Callback<?>[capacity];
+		this.mask = capacity - 1;
+		// cookies which had distinct slots in a smaller ring have distinct slots in a larger one too
+		for (int i = 0; i < oldCallbacks.length; i++) {
+			if (oldCallbacks[i] != null) {
+				int j = oldCookies[i] & mask;
+				cookies[j] = oldCookies[i];
+				callbacks[j] = oldCallbacks[i];
+			}
+		}
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.rpc.client;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+import static io.activej.common.Preconditions.checkArgument;
+
+/**
+ * A coarse hashed timing wheel of request cookies, which are due to expire.
+ * <p>
+ * Time is split into ticks of a given resolution, and each tick is mapped onto one of
+ * the buckets of a wheel. A cookie is never expired before its deadline, but may be expired
+ * up to one tick later. Deadlines which are further than one revolution of a wheel
+ * stay in their buckets for several revolutions.
+ * <p>
+ * Cookies of completed requests are not removed from a wheel, they are just
+ * skipped by a table of in-flight requests once they expire.
+ */
+final class RpcTimeoutWheel {
+	private final long resolution;
+	private final int initialBucketCapacity;
+	private final Bucket[] buckets;
+	private final int mask;
+
+	private int size;
+	private long processedTick;
+	private int[] expired;
+
+	// requests are sent in batches, which mostly share the same deadline
+	private long lastDeadline = Long.MIN_VALUE;
+	private long lastTick;
+	private Bucket lastBucket;
+
+	private static final class Bucket {
+		private int size;
+		private int[] cookies;
+		private long[] ticks;
+
+		Bucket(int capacity) {
+			this.cookies = new int[capacity];
+			this.ticks = new long[capacity];
+		}
+	}
+
+	RpcTimeoutWheel(long resolution, int wheelSize, int initialBucketCapacity, long currentTimeMillis) {
+		checkArgument(resolution > 0, "Resolution should be positive");
+		checkArgument(wheelSize > 0 && Integer.bitCount(wheelSize) == 1, "Wheel size should be a power of 2");
+		checkArgument(initialBucketCapacity > 0, "Bucket capacity should be positive");
+		this.resolution = resolution;
+		this.initialBucketCapacity = initialBucketCapacity;
+		this.buckets = new Bucket[wheelSize];
+		this.mask = wheelSize - 1;
+		this.processedTick = currentTimeMillis / resolution;
+		this.expired = new int[initialBucketCapacity];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Adds a cookie which should expire at a given timestamp
+	 *
+	 * @return a timestamp of a tick when a cookie will be expired
+	 */
+	public long add(int cookie, long deadline) {
+		long tick;
+		Bucket bucket;
+		if (deadline == lastDeadline) {
+			tick = lastTick;
+			bucket = lastBucket;
+		} else {
+			tick = Math.max((deadline + resolution - 1) / resolution, processedTick + 1);
+			int index = (int) (tick & mask);
+			bucket = buckets[index];
+			if (bucket == null) {
+				bucket = buckets[index] = new Bucket(initialBucketCapacity);
+			}
+			lastDeadline = deadline;
+			lastTick = tick;
+			lastBucket = bucket;
+		}
+		if (bucket.size == bucket.cookies.length) {
+			bucket.cookies = Arrays.copyOf(bucket.cookies, bucket.size * 2);
+			bucket.ticks = Arrays.copyOf(bucket.ticks, bucket.size * 2);
+		}
+		bucket.cookies[bucket.size] = cookie;
+		bucket.ticks[bucket.size] = tick;
+		bucket.size++;
+		size++;
+		return tick * resolution;
+	}
+
+	/**
+	 * Expires all of the cookies which deadlines are due by a given timestamp
+	 *
+	 * @param consumer a consumer of expired cookies, it may add new cookies to this wheel
+	 * @return a timestamp of the next tick, or {@code 0} if this wheel is empty
+	 */
+	public long expire(long currentTimeMillis, IntConsumer consumer) {
+		long currentTick = currentTimeMillis / resolution;
+		// there is no point in visiting the same bucket twice
+		long fromTick = Math.max(processedTick + 1, currentTick - mask);
+		processedTick = currentTick;
+		lastDeadline = Long.MIN_VALUE;
+		for (long tick = fromTick; tick <= currentTick && size != 0; tick++) {
+			Bucket bucket = buckets[(int) (tick & mask)];
+			if (bucket == null || bucket.size == 0) continue;
+			int expiredCount = 0;
+			int kept = 0;
+			for (int i = 0; i < bucket.size; i++) {
+				if (bucket.ticks[i] <= currentTick) {
+					if (expiredCount == expired.length) {
+						expired = Arrays.copyOf(expired, expiredCount * 2);
+					}
+					expired[expiredCount++] = bucket.cookies[i];
+				} else {
+					bucket.cookies[kept] = bucket.cookies[i];
+					bucket.ticks[kept] = bucket.ticks[i];
+					kept++;
+				}
+			}
+			bucket.size = kept;
+			size -= expiredCount;
+			for (int i = 0; i < expiredCount; i++) {
+				consumer.accept(expired[i]);
+			}
+		}
+		return size != 0 ? (currentTick + 1) * resolution : 0;
+	}
+}
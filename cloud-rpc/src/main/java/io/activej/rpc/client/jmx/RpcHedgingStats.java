@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.rpc.client.jmx;
+
+import io.activej.jmx.api.attribute.JmxAttribute;
+import io.activej.jmx.stats.JmxStatsWithReset;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of a hedging strategy. A strategy may be shared by RPC clients in different eventloops,
+ * so the counters are thread-safe.
+ */
+public final class RpcHedgingStats implements JmxStatsWithReset {
+	private final AtomicLong totalRequests = new AtomicLong();
+	private final AtomicLong hedgedRequests = new AtomicLong();
+	private final AtomicLong hedgeWins = new AtomicLong();
+
+	private RpcHedgingStats() {
+	}
+
+	public static RpcHedgingStats create() {
+		return new RpcHedgingStats();
+	}
+
+	public void recordRequest() {
+		totalRequests.incrementAndGet();
+	}
+
+	public void recordHedgedRequest() {
+		hedgedRequests.incrementAndGet();
+	}
+
+	public void recordHedgeWin() {
+		hedgeWins.incrementAndGet();
+	}
+
+	@JmxAttribute(description = "requests which may be hedged")
+	public long getTotalRequests() {
+		return totalRequests.get();
+	}
+
+	@JmxAttribute(description = "duplicate requests sent to another server")
+	public long getHedgedRequests() {
+		return hedgedRequests.get();
+	}
+
+	@JmxAttribute(description = "hedged requests which responded before original ones")
+	public long getHedgeWins() {
+		return hedgeWins.get();
+	}
+
+	@JmxAttribute(description = "ratio of hedged requests to all of the requests which may be hedged")
+	public double getHedgeRate() {
+		long total = totalRequests.get();
+		return total != 0 ? (double) hedgedRequests.get() / total : 0;
+	}
+
+	@JmxAttribute(description = "ratio of hedged requests which responded before original ones")
+	public double getWinRate() {
+		long hedged = hedgedRequests.get();
+		return hedged != 0 ? (double) hedgeWins.get() / hedged : 0;
+	}
+
+	@Override
+	public void resetStats() {
+		totalRequests.set(0);
+		hedgedRequests.set(0);
+		hedgeWins.set(0);
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.activej.rpc.client.sender;
+
+import io.activej.async.callback.Callback;
+import io.activej.rpc.client.RpcClientConnectionPool;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Counts requests of a sub-strategy of a load balancing strategy that are in flight and,
+ * optionally, keeps a peak-sensitive exponentially weighted moving average of their latencies.
+ * <p>
+ * The average jumps to any latency which is higher than a current one,
+ * and decays to lower latencies (as well as to zero, while there are no responses)
+ * with a given decay time.
+ * <p>
+ * Trackers are kept by a strategy rather than by its senders, so that a load of a server
+ * is not lost when senders are re-created as connections come and go.
+ * A strategy may be shared by RPC clients in different eventloops, so it keeps separate trackers
+ * for each of connection pools (that is, for each of clients), and each of trackers is only accessed
+ * from an eventloop of its client.
+ */
+final class LoadTracker {
+	// a cost of a sender which has requests in flight but no latency observed yet
+	private static final double PENALTY = Long.MAX_VALUE >> 16;
+
+	private final LongSupplier nanoTime;
+	private final double decayNanos;
+
+	private int inFlight;
+	private double latency;
+	private long timestamp;
+
+	LoadTracker(LongSupplier nanoTime, double decayNanos) {
+		this.nanoTime = nanoTime;
+		this.decayNanos = decayNanos;
+		this.timestamp = nanoTime.getAsLong();
+	}
+
+	/**
+	 * Creates trackers for each of sub-strategies of a given list
+	 */
+	static LoadTracker[] create(RpcStrategyList list, LongSupplier nanoTime, double decayNanos) {
+		LoadTracker[] trackers = new LoadTracker[list.size()];
+		for (int i = 0; i < trackers.length; i++) {
+			trackers[i] = new LoadTracker(nanoTime, decayNanos);
+		}
+		return trackers;
+	}
+
+	static LoadTracker[] counting(RpcStrategyList list) {
+		return create(list, () -> 0L, 0);
+	}
+
+	<I, O> void sendRequest(RpcSender sender, I request, int timeout, Callback<O> cb) {
+		inFlight++;
+		if (decayNanos == 0) {
+			sender.sendRequest(request, timeout, (O result, Throwable e) -> {
+				inFlight--;
+				cb.accept(result, e);
+			});
+			return;
+		}
+		long start = nanoTime.getAsLong();
+		sender.sendRequest(request, timeout, (O result, Throwable e) -> {
+			inFlight--;
+			long now = nanoTime.getAsLong();
+			observe(now, now - start);
+			cb.accept(result, e);
+		});
+	}
+
+	int getInFlight() {
+		return inFlight;
+	}
+
+	/**
+	 * Returns an expected latency of a next request, which is an average latency
+	 * multiplied by a number of requests which would be in flight
+	 */
+	double getCost() {
+		observe(nanoTime.getAsLong(), 0);
+		if (latency == 0 && inFlight != 0) {
+			return PENALTY + inFlight;
+		}
+		return latency * (inFlight + 1);
+	}
+
+	private void observe(long now, long rtt) {
+		long elapsed = Math.max(now - timestamp, 0);
+		timestamp = now;
+		if (rtt > latency) {
+			latency = rtt;
+		} else {
+			double w = Math.exp(-elapsed / decayNanos);
+			latency = latency * w + rtt * (1.0 - w);
+		}
+	}
+
+	/**
+	 * Trackers of sub-strategies of a strategy, kept for each of connection pools the strategy is used with
+	 */
+	static final class PerPool {
+		private final Map<RpcClientConnectionPool, LoadTracker[]> trackers = new WeakHashMap<>();
+		private final Supplier<LoadTracker[]> factory;
+
+		PerPool(Supplier<LoadTracker[]> factory) {
+			this.factory = factory;
+		}
+
+		synchronized LoadTracker[] get(RpcClientConnectionPool pool) {
+			return trackers.computeIfAbsent(pool, $ -> factory.get());
+		}
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.activej.rpc.client.sender;
+
+import io.activej.async.callback.Callback;
+import io.activej.rpc.client.RpcClientConnectionPool;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A wrapper of a sub-sender of a load balancing strategy,
+ * which reports its requests to a {@link LoadTracker} of the sub-strategy
+ */
+final class LoadTrackingSender implements RpcSender {
+	private final RpcSender sender;
+	private final LoadTracker tracker;
+
+	LoadTrackingSender(RpcSender sender, LoadTracker tracker) {
+		this.sender = sender;
+		this.tracker = tracker;
+	}
+
+	/**
+	 * Creates senders of those sub-strategies of a list which have active connections,
+	 * each of them is tracked by a tracker with the same index
+	 */
+	static List<LoadTrackingSender> listOfSenders(RpcStrategyList list, LoadTracker.PerPool perPool, RpcClientConnectionPool pool) {
+		LoadTracker[] trackers = perPool.get(pool);
+		List<LoadTrackingSender> senders = new ArrayList<>();
+		for (int i = 0; i < list.size(); i++) {
+			RpcSender sender = list.get(i).createSender(pool);
+			if (sender != null) {
+				senders.add(new LoadTrackingSender(sender, trackers[i]));
+			}
+		}
+		return senders;
+	}
+
+	@Override
+	public <I, O> void sendRequest(I request, int timeout, @NotNull Callback<O> cb) {
+		tracker.sendRequest(sender, request, timeout, cb);
+	}
+
+	int getInFlight() {
+		return tracker.getInFlight();
+	}
+
+	double getCost() {
+		return tracker.getCost();
+	}
+}
@@ -85,6 +85,42 @@ public final class RpcStrategies {
 		return RpcStrategyRoundRobin.create(list);
 	}
 
+	public static RpcStrategyLeastOutstanding leastOutstanding(RpcStrategy... senders) {
+		return leastOutstanding(asList(senders));
+	}
+
+	public static RpcStrategyLeastOutstanding leastOutstanding(List<RpcStrategy> senders) {
+		return RpcStrategyLeastOutstanding.create(RpcStrategyList.ofStrategies(senders));
+	}
+
+	public static RpcStrategyLeastOutstanding leastOutstanding(RpcStrategyList list) {
+		return RpcStrategyLeastOutstanding.create(list);
+	}
+
+	public static RpcStrategyPeakEwma peakEwma(RpcStrategy... senders) {
+		return peakEwma(asList(senders));
+	}
+
+	public static RpcStrategyPeakEwma peakEwma(List<RpcStrategy> senders) {
+		return RpcStrategyPeakEwma.create(RpcStrategyList.ofStrategies(senders));
+	}
+
+	public static RpcStrategyPeakEwma peakEwma(RpcStrategyList list) {
+		return RpcStrategyPeakEwma.create(list);
+	}
+
+	public static RpcStrategyPowerOfTwoChoices powerOfTwoChoices(RpcStrategy... senders) {
+		return powerOfTwoChoices(asList(senders));
+	}
+
+	public static RpcStrategyPowerOfTwoChoices powerOfTwoChoices(List<RpcStrategy> senders) {
+		return RpcStrategyPowerOfTwoChoices.create(RpcStrategyList.ofStrategies(senders));
+	}
+
+	public static RpcStrategyPowerOfTwoChoices powerOfTwoChoices(RpcStrategyList list) {
+		return RpcStrategyPowerOfTwoChoices.create(list);
+	}
+
 	public static RpcStrategySharding sharding(ShardingFunction<?> hashFunction,
 			RpcStrategy... senders) {
 		return sharding(hashFunction, asList(senders));
@@ -112,5 +148,16 @@ public final class RpcStrategies {
 	public static RpcStrategyRandomSampling randomSampling() {
 		return RpcStrategyRandomSampling.create();
 	}
-}
 
+	public static RpcStrategyHedging hedging(RpcStrategy... senders) {
+		return hedging(asList(senders));
+	}
+
+	public static RpcStrategyHedging hedging(List<RpcStrategy> senders) {
+		return RpcStrategyHedging.create(RpcStrategyList.ofStrategies(senders));
+	}
+
+	public static RpcStrategyHedging hedging(RpcStrategyList list) {
+		return RpcStrategyHedging.create(list);
+	}
+}
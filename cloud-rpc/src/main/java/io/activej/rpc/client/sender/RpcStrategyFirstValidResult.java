@@ -114,6 +114,15 @@ public final class RpcStrategyFirstValidResult implements RpcStrategy {
 			this.noValidResultException = noValidResultException;
 		}
 
+		boolean isComplete() {
+			return expectedCalls <= 0;
+		}
+
+		void expectOneMoreCall() {
+			assert expectedCalls > 0;
+			expectedCalls++;
+		}
+
 		@Override
 		public void accept(T result, @Nullable Throwable e) {
 			if (e == null) {
@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.rpc.client.sender;
+
+import io.activej.async.callback.Callback;
+import io.activej.eventloop.Eventloop;
+import io.activej.eventloop.schedule.ScheduledRunnable;
+import io.activej.rpc.client.RpcClientConnectionPool;
+import io.activej.rpc.client.jmx.RpcHedgingStats;
+import io.activej.rpc.client.sender.RpcStrategyFirstValidResult.FirstResultCallback;
+import io.activej.rpc.client.sender.RpcStrategyFirstValidResult.ResultValidator;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.*;
+
+import static io.activej.common.Preconditions.checkArgument;
+
+/**
+ * A strategy which protects idempotent requests from tail latencies.
+ * <p>
+ * Each request is sent to one of the sub-senders in a round-robin fashion. If there is no response
+ * for longer than a given percentile of latencies of requests of the same class, a duplicate request
+ * is sent to the next sub-sender, and the first response of the two is passed to a callback.
+ * As there is no way to cancel a request which is already sent, a response which comes second is ignored.
+ * <p>
+ * Duplicate requests are limited by a budget, which is a ratio of requests that may be hedged.
+ * Unused budget is saved up for bursts of slow requests, but only for a limited number of requests.
+ * <p>
+ * Latencies and a budget are kept by a strategy per each of RPC clients, so they survive re-creation
+ * of senders when connections are established or lost. Each of them is only accessed from an eventloop of its client.
+ */
+public final class RpcStrategyHedging implements RpcStrategy {
+	public static final double DEFAULT_PERCENTILE = 95;
+	public static final double DEFAULT_BUDGET = 0.05;
+	public static final Duration DEFAULT_MIN_DELAY = Duration.ofMillis(1);
+
+	static final int LATENCY_WINDOW = 1000;
+	static final int MIN_SAMPLES = 100;
+	static final int BUDGET_WINDOW = 100;
+	private static final int HEDGE_COST = 1_000_000;
+
+	private static final ResultValidator<?> ANY_RESULT = result -> true;
+
+	private final RpcStrategyList list;
+	private final double percentile;
+	private final double budget;
+	private final Duration minDelay;
+	@Nullable
+	private final Set<Class<?>> hedgedRequestTypes;
+	private final RpcHedgingStats stats;
+	private final Map<RpcClientConnectionPool, State> states = new WeakHashMap<>();
+
+	private RpcStrategyHedging(RpcStrategyList list, double percentile, double budget, Duration minDelay,
+			@Nullable Set<Class<?>> hedgedRequestTypes, RpcHedgingStats stats) {
+		this.list = list;
+		this.percentile = percentile;
+		this.budget = budget;
+		this.minDelay = minDelay;
+		this.hedgedRequestTypes = hedgedRequestTypes;
+		this.stats = stats;
+	}
+
+	public static RpcStrategyHedging create(RpcStrategyList list) {
+		return new RpcStrategyHedging(list, DEFAULT_PERCENTILE, DEFAULT_BUDGET, DEFAULT_MIN_DELAY, null,
+				RpcHedgingStats.create());
+	}
+
+	public RpcStrategyHedging withPercentile(double percentile) {
+		checkArgument(percentile > 0 && percentile < 100, "Percentile should be between 0 and 100");
+		return new RpcStrategyHedging(list, percentile, budget, minDelay, hedgedRequestTypes, stats);
+	}
+
+	/**
+	 * Sets a ratio of requests which may be hedged, so that an extra load
+	 * on servers is capped even if all of them respond slowly
+	 */
+	public RpcStrategyHedging withBudget(double budget) {
+		checkArgument(budget >= 0 && budget <= 1, "Budget should be between 0 and 1");
+		return new RpcStrategyHedging(list, percentile, budget, minDelay, hedgedRequestTypes, stats);
+	}
+
+	public RpcStrategyHedging withMinDelay(@NotNull Duration minDelay) {
+		checkArgument(!minDelay.isNegative(), "Minimal delay should not be negative");
+		return new RpcStrategyHedging(list, percentile, budget, minDelay, hedgedRequestTypes, stats);
+	}
+
+	/**
+	 * Restricts hedging to requests of given classes, other requests are sent once.
+	 * By default, all of the requests may be hedged, so they all should be idempotent.
+	 */
+	public RpcStrategyHedging withHedgedRequestTypes(@NotNull Class<?>... requestTypes) {
+		return new RpcStrategyHedging(list, percentile, budget, minDelay, new HashSet<>(Arrays.asList(requestTypes)), stats);
+	}
+
+	public RpcHedgingStats getStats() {
+		return stats;
+	}
+
+	@Override
+	public Set<InetSocketAddress> getAddresses() {
+		return list.getAddresses();
+	}
+
+	@Nullable
+	@Override
+	public RpcSender createSender(RpcClientConnectionPool pool) {
+		List<RpcSender> subSenders = list.listOfSenders(pool);
+		if (subSenders.size() == 0)
+			return null;
+		if (subSenders.size() == 1)
+			return subSenders.get(0);
+		return new Sender(Eventloop.getCurrentEventloop(), subSenders, this, getState(pool));
+	}
+
+	private synchronized State getState(RpcClientConnectionPool pool) {
+		return states.computeIfAbsent(pool, $ -> new State());
+	}
+
+	private static final class State {
+		private final Map<Class<?>, LatencyTracker> latencies = new HashMap<>();
+		private int nextSender;
+		private long balance;
+	}
+
+	private static final class Sender implements RpcSender {
+		private final Eventloop eventloop;
+		private final RpcSender[] subSenders;
+		private final double percentile;
+		private final long minDelay;
+		private final long deposit;
+		private final long maxBalance;
+		@Nullable
+		private final Set<Class<?>> hedgedRequestTypes;
+		private final RpcHedgingStats stats;
+		private final State state;
+
+		Sender(Eventloop eventloop, List<RpcSender> senders, RpcStrategyHedging strategy, State state) {
+			this.eventloop = eventloop;
+			this.subSenders = senders.toArray(new RpcSender[0]);
+			this.percentile = strategy.percentile;
+			this.minDelay = strategy.minDelay.toMillis();
+			this.deposit = (long) (strategy.budget * HEDGE_COST);
+			this.maxBalance = Math.max(deposit * BUDGET_WINDOW, HEDGE_COST);
+			this.hedgedRequestTypes = strategy.hedgedRequestTypes;
+			this.stats = strategy.stats;
+			this.state = state;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public <I, O> void sendRequest(I request, int timeout, @NotNull Callback<O> cb) {
+			int index = state.nextSender % subSenders.length;
+			state.nextSender = (index + 1) % subSenders.length;
+			Class<?> requestClass = request.getClass();
+			if (hedgedRequestTypes != null && !hedgedRequestTypes.contains(requestClass)) {
+				subSenders[index].sendRequest(request, timeout, cb);
+				return;
+			}
+			stats.recordRequest();
+			state.balance = Math.min(state.balance + deposit, maxBalance);
+			LatencyTracker latencyTracker = state.latencies.get(requestClass);
+			if (latencyTracker == null) {
+				latencyTracker = new LatencyTracker(percentile);
+				state.latencies.put(requestClass, latencyTracker);
+			}
+
+			HedgedRequest<I, O> hedgedRequest = new HedgedRequest<>(request, timeout, index, latencyTracker,
+					new FirstResultCallback<>(1, (ResultValidator<O>) ANY_RESULT, cb, null));
+			subSenders[index].sendRequest(request, timeout, hedgedRequest);
+
+			long delay = latencyTracker.getPercentile();
+			if (delay == -1 || hedgedRequest.firstResultCallback.isComplete()) return;
+			delay = Math.max(delay, minDelay);
+			if (delay < timeout) {
+				hedgedRequest.scheduledHedge = eventloop.delayBackground(delay, hedgedRequest);
+			}
+		}
+
+		private final class HedgedRequest<I, O> implements Callback<O>, Runnable {
+			private final I request;
+			private final int timeout;
+			private final int index;
+			private final long sentTimestamp;
+			private final LatencyTracker latencyTracker;
+			private final FirstResultCallback<O> firstResultCallback;
+			@Nullable
+			private ScheduledRunnable scheduledHedge;
+
+			HedgedRequest(I request, int timeout, int index, LatencyTracker latencyTracker, FirstResultCallback<O> firstResultCallback) {
+				this.request = request;
+				this.timeout = timeout;
+				this.index = index;
+				this.sentTimestamp = eventloop.currentTimeMillis();
+				this.latencyTracker = latencyTracker;
+				this.firstResultCallback = firstResultCallback;
+			}
+
+			// a response to an original request
+			@Override
+			public void accept(O result, @Nullable Throwable e) {
+				if (e == null) {
+					latencyTracker.record(eventloop.currentTimeMillis() - sentTimestamp);
+				}
+				if (scheduledHedge != null) {
+					scheduledHedge.cancel();
+					scheduledHedge = null;
+				}
+				firstResultCallback.accept(result, e);
+			}
+
+			@Override
+			public void run() {
+				scheduledHedge = null;
+				int remainingTimeout = timeout - (int) (eventloop.currentTimeMillis() - sentTimestamp);
+				if (firstResultCallback.isComplete() || remainingTimeout <= 0 || state.balance < HEDGE_COST) return;
+				state.balance -= HEDGE_COST;
+				stats.recordHedgedRequest();
+				firstResultCallback.expectOneMoreCall();
+				subSenders[(index + 1) % subSenders.length].sendRequest(request, remainingTimeout, (O result, Throwable e) -> {
+					if (e == null && !firstResultCallback.isComplete()) {
+						stats.recordHedgeWin();
+					}
+					firstResultCallback.accept(result, e);
+				});
+			}
+		}
+	}
+
+	/**
+	 * Keeps latencies of a number of the latest responses, and a percentile of them,
+	 * which is recalculated once in a while
+	 */
+	static final class LatencyTracker {
+		private final double percentile;
+		private final long[] samples = new long[LATENCY_WINDOW];
+		private final long[] sorted = new long[LATENCY_WINDOW];
+		private int position;
+		private int size;
+		private int sinceRecalculation;
+		private long value = -1;
+
+		LatencyTracker(double percentile) {
+			this.percentile = percentile;
+		}
+
+		void record(long latency) {
+			samples[position] = latency;
+			position = (position + 1) % LATENCY_WINDOW;
+			if (size < LATENCY_WINDOW) size++;
+			if (++sinceRecalculation >= MIN_SAMPLES) {
+				sinceRecalculation = 0;
+				System.arraycopy(samples, 0, sorted, 0, size);
+				Arrays.sort(sorted, 0, size);
+				value = sorted[Math.max((int) Math.ceil(percentile / 100 * size) - 1, 0)];
+			}
+		}
+
+		/**
+		 * @return a percentile of recorded latencies, or {@code -1} if there are not enough of them yet
+		 */
+		long getPercentile() {
+			return value;
+		}
+	}
+}
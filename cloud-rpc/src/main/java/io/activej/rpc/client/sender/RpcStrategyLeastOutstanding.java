@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.rpc.client.sender;
+
+import io.activej.async.callback.Callback;
+import io.activej.rpc.client.RpcClientConnectionPool;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A load balancing strategy which sends each request to a sub-sender
+ * with the least number of requests in flight.
+ * <p>
+ * Sub-senders with equal numbers of requests in flight are picked in turn.
+ */
+public final class RpcStrategyLeastOutstanding implements RpcStrategy {
+	private final RpcStrategyList list;
+	private final LoadTracker.PerPool trackers;
+
+	private RpcStrategyLeastOutstanding(RpcStrategyList list) {
+		this.list = list;
+		this.trackers = new LoadTracker.PerPool(() -> LoadTracker.counting(list));
+	}
+
+	public static RpcStrategyLeastOutstanding create(RpcStrategyList list) {
+		return new RpcStrategyLeastOutstanding(list);
+	}
+
+	@Override
+	public Set<InetSocketAddress> getAddresses() {
+		return list.getAddresses();
+	}
+
+	@Nullable
+	@Override
+	public RpcSender createSender(RpcClientConnectionPool pool) {
+		List<LoadTrackingSender> subSenders = LoadTrackingSender.listOfSenders(list, trackers, pool);
+		if (subSenders.size() == 0)
+			return null;
+		if (subSenders.size() == 1)
+			return subSenders.get(0);
+		return new Sender(subSenders);
+	}
+
+	private static final class Sender implements RpcSender {
+		private final LoadTrackingSender[] subSenders;
+		private int nextSender;
+
+		Sender(@NotNull List<LoadTrackingSender> senders) {
+			this.subSenders = senders.toArray(new LoadTrackingSender[0]);
+		}
+
+		@Override
+		public <I, O> void sendRequest(I request, int timeout, @NotNull Callback<O> cb) {
+			int start = nextSender;
+			nextSender = (nextSender + 1) % subSenders.length;
+			LoadTrackingSender best = null;
+			int bestInFlight = Integer.MAX_VALUE;
+			for (int i = 0; i < subSenders.length; i++) {
+				LoadTrackingSender sender = subSenders[(start + i) % subSenders.length];
+				int inFlight = sender.getInFlight();
+				if (inFlight < bestInFlight) {
+					best = sender;
+					bestInFlight = inFlight;
+				}
+			}
+			//noinspection ConstantConditions - there are at least 2 sub-senders
+			best.sendRequest(request, timeout, cb);
+		}
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.rpc.client.sender;
+
+import io.activej.async.callback.Callback;
+import io.activej.rpc.client.RpcClientConnectionPool;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+import static io.activej.common.Preconditions.checkArgument;
+
+/**
+ * A load balancing strategy which sends each request to a sub-sender with the least expected latency.
+ * <p>
+ * An expected latency of a sub-sender is a peak-sensitive moving average of its observed latencies,
+ * multiplied by a number of its requests in flight. The average reacts to a degradation of a sub-sender
+ * immediately, and decays back to lower latencies within a given decay time.
+ * <p>
+ * Latencies and requests in flight are kept by a strategy per each of its sub-strategies
+ * (that is, per server address for a list of addresses) and per each of RPC clients,
+ * so they survive re-creation of senders when connections are established or lost.
+ */
+public final class RpcStrategyPeakEwma implements RpcStrategy {
+	public static final Duration DEFAULT_DECAY_TIME = Duration.ofSeconds(10);
+
+	private final RpcStrategyList list;
+	private final Duration decayTime;
+	private final LongSupplier nanoTime;
+	private final LoadTracker.PerPool trackers;
+
+	private RpcStrategyPeakEwma(RpcStrategyList list, Duration decayTime, LongSupplier nanoTime) {
+		this.list = list;
+		this.decayTime = decayTime;
+		this.nanoTime = nanoTime;
+		this.trackers = new LoadTracker.PerPool(() -> LoadTracker.create(list, nanoTime, decayTime.toNanos()));
+	}
+
+	public static RpcStrategyPeakEwma create(RpcStrategyList list) {
+		return new RpcStrategyPeakEwma(list, DEFAULT_DECAY_TIME, System::nanoTime);
+	}
+
+	public RpcStrategyPeakEwma withDecayTime(@NotNull Duration decayTime) {
+		checkArgument(!decayTime.isNegative() && !decayTime.isZero(), "Decay time should be positive");
+		return new RpcStrategyPeakEwma(list, decayTime, nanoTime);
+	}
+
+	RpcStrategyPeakEwma withNanoTime(@NotNull LongSupplier nanoTime) {
+		return new RpcStrategyPeakEwma(list, decayTime, nanoTime);
+	}
+
+	@Override
+	public Set<InetSocketAddress> getAddresses() {
+		return list.getAddresses();
+	}
+
+	@Nullable
+	@Override
+	public RpcSender createSender(RpcClientConnectionPool pool) {
+		List<LoadTrackingSender> subSenders = LoadTrackingSender.listOfSenders(list, trackers, pool);
+		if (subSenders.size() == 0)
+			return null;
+		if (subSenders.size() == 1)
+			return subSenders.get(0);
+		return new Sender(subSenders);
+	}
+
+	private static final class Sender implements RpcSender {
+		private final LoadTrackingSender[] subSenders;
+		private int nextSender;
+
+		Sender(@NotNull List<LoadTrackingSender> senders) {
+			this.subSenders = senders.toArray(new LoadTrackingSender[0]);
+		}
+
+		@Override
+		public <I, O> void sendRequest(I request, int timeout, @NotNull Callback<O> cb) {
+			int start = nextSender;
+			nextSender = (nextSender + 1) % subSenders.length;
+			LoadTrackingSender best = null;
+			double bestCost = Double.MAX_VALUE;
+			for (int i = 0; i < subSenders.length; i++) {
+				LoadTrackingSender sender = subSenders[(start + i) % subSenders.length];
+				double cost = sender.getCost();
+				if (cost < bestCost) {
+					best = sender;
+					bestCost = cost;
+				}
+			}
+			//noinspection ConstantConditions - there are at least 2 sub-senders
+			best.sendRequest(request, timeout, cb);
+		}
+	}
+}
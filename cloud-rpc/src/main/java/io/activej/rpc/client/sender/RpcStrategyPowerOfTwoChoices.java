@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.rpc.client.sender;
+
+import io.activej.async.callback.Callback;
+import io.activej.rpc.client.RpcClientConnectionPool;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * A load balancing strategy which picks two distinct sub-senders at random for each request,
+ * and sends a request to the one with fewer requests in flight.
+ * <p>
+ * Unlike {@link RpcStrategyLeastOutstanding}, it does not scan all of the sub-senders,
+ * and does not make all of the clients flock to the same least loaded sub-sender.
+ */
+public final class RpcStrategyPowerOfTwoChoices implements RpcStrategy {
+	private final Random random = new Random();
+	private final RpcStrategyList list;
+	private final LoadTracker.PerPool trackers;
+
+	private RpcStrategyPowerOfTwoChoices(RpcStrategyList list) {
+		this.list = list;
+		this.trackers = new LoadTracker.PerPool(() -> LoadTracker.counting(list));
+	}
+
+	public static RpcStrategyPowerOfTwoChoices create(RpcStrategyList list) {
+		return new RpcStrategyPowerOfTwoChoices(list);
+	}
+
+	@Override
+	public Set<InetSocketAddress> getAddresses() {
+		return list.getAddresses();
+	}
+
+	@Nullable
+	@Override
+	public RpcSender createSender(RpcClientConnectionPool pool) {
+		List<LoadTrackingSender> subSenders = LoadTrackingSender.listOfSenders(list, trackers, pool);
+		if (subSenders.size() == 0)
+			return null;
+		if (subSenders.size() == 1)
+			return subSenders.get(0);
+		long randomLong = random.nextLong();
+		return new Sender(subSenders, randomLong != 0L ? randomLong : 2347230858016798896L);
+	}
+
+	private static final class Sender implements RpcSender {
+		private final LoadTrackingSender[] subSenders;
+		private long lastRandomLong;
+
+		Sender(@NotNull List<LoadTrackingSender> senders, long seed) {
+			this.subSenders = senders.toArray(new LoadTrackingSender[0]);
+			this.lastRandomLong = seed;
+		}
+
+		@Override
+		public <I, O> void sendRequest(I request, int timeout, @NotNull Callback<O> cb) {
+			lastRandomLong ^= (lastRandomLong << 21);
+			lastRandomLong ^= (lastRandomLong >>> 35);
+			lastRandomLong ^= (lastRandomLong << 4);
+			long random = lastRandomLong & Long.MAX_VALUE;
+			int first = (int) (random % subSenders.length);
+			int second = (int) ((random >>> 32) % (subSenders.length - 1));
+			if (second >= first) second++;
+
+			LoadTrackingSender sender1 = subSenders[first];
+			LoadTrackingSender sender2 = subSenders[second];
+			(sender2.getInFlight() < sender1.getInFlight() ? sender2 : sender1).sendRequest(request, timeout, cb);
+		}
+	}
+}
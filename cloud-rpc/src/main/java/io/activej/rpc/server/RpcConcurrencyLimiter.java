@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.rpc.server;
+
+import io.activej.jmx.api.JmxRefreshable;
+import io.activej.jmx.api.attribute.JmxAttribute;
+import io.activej.jmx.stats.EventStats;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+
+import static io.activej.common.Preconditions.checkArgument;
+
+/**
+ * Limits a number of requests which are handled concurrently.
+ * <p>
+ * Requests over the limit wait in a bounded queue, and once the queue is full, they are rejected
+ * right away, so that a client gets an overload response instead of waiting for a timeout.
+ * <p>
+ * An adaptive limit is adjusted in TCP Vegas style. A minimal observed latency is treated as
+ * a latency of an unloaded server, and an excess of a measured latency over it is treated
+ * as a sign of requests queueing up inside of a server. A limit grows while the estimated
+ * queue is small, and shrinks once it grows. A minimal latency is taken over a window of the latest
+ * requests, so that the limit follows changes of a server's capacity, but is not raised by a single slow request.
+ * <p>
+ * A limiter is not thread-safe, it should only be used from a single eventloop.
+ */
+public final class RpcConcurrencyLimiter implements JmxRefreshable {
+	public static final int DEFAULT_MAX_QUEUE_SIZE = 0;
+	static final int PROBE_INTERVAL = 1000;
+
+	private int limit;
+	private int minLimit;
+	private int maxLimit;
+	private boolean adaptive;
+	private int maxQueueSize = DEFAULT_MAX_QUEUE_SIZE;
+
+	private int inFlight;
+	private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+	private boolean draining;
+
+	private long minLatency = Long.MAX_VALUE;
+	private long windowMinLatency = Long.MAX_VALUE;
+	private int samples;
+
+	// jmx
+	private final EventStats queuedRequests = EventStats.create(RpcServer.SMOOTHING_WINDOW);
+	private final EventStats rejectedRequests = EventStats.create(RpcServer.SMOOTHING_WINDOW);
+
+	private RpcConcurrencyLimiter(int limit) {
+		this.limit = limit;
+		this.minLimit = limit;
+		this.maxLimit = limit;
+	}
+
+	public static RpcConcurrencyLimiter create(int limit) {
+		checkArgument(limit > 0, "Limit should be positive");
+		return new RpcConcurrencyLimiter(limit);
+	}
+
+	/**
+	 * Makes a limit adaptive, an initial limit is the one this limiter has been created with
+	 */
+	public RpcConcurrencyLimiter withAdaptiveLimit(int minLimit, int maxLimit) {
+		checkArgument(minLimit > 0 && minLimit <= limit && limit <= maxLimit,
+				"Initial limit should be between minimal and maximal limits");
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.adaptive = true;
+		return this;
+	}
+
+	public RpcConcurrencyLimiter withMaxQueueSize(int maxQueueSize) {
+		checkArgument(maxQueueSize >= 0, "Max queue size should not be negative");
+		this.maxQueueSize = maxQueueSize;
+		return this;
+	}
+
+	/**
+	 * Runs a task if a limit allows it, or queues it
+	 *
+	 * @return {@code false} if a task is rejected
+	 */
+	boolean execute(@NotNull Runnable task) {
+		if (inFlight < limit) {
+			inFlight++;
+			task.run();
+			return true;
+		}
+		if (queue.size() < maxQueueSize) {
+			queue.add(task);
+			queuedRequests.recordEvent();
+			return true;
+		}
+		rejectedRequests.recordEvent();
+		return false;
+	}
+
+	boolean isAdaptive() {
+		return adaptive;
+	}
+
+	/**
+	 * Completes a task, and adjusts an adaptive limit according to its latency
+	 */
+	void complete(long latencyNanos) {
+		if (adaptive) {
+			adjustLimit(latencyNanos);
+		}
+		complete();
+	}
+
+	/**
+	 * Completes a task which has not been handled
+	 */
+	void complete() {
+		inFlight--;
+		// a queued task may complete synchronously, so its completion only releases a slot,
+		// and the next task is run by an outer loop instead of recursing into it
+		if (draining) return;
+		draining = true;
+		try {
+			while (inFlight < limit && !queue.isEmpty()) {
+				inFlight++;
+				queue.poll().run();
+			}
+		} finally {
+			draining = false;
+		}
+	}
+
+	private void adjustLimit(long latency) {
+		windowMinLatency = Math.min(windowMinLatency, latency);
+		if (++samples >= PROBE_INTERVAL) {
+			samples = 0;
+			minLatency = windowMinLatency;
+			windowMinLatency = Long.MAX_VALUE;
+		}
+		if (latency < minLatency) {
+			minLatency = latency;
+		}
+		if (latency == 0) return;
+
+		int step = Math.max(1, (int) Math.log10(limit));
+		double estimatedQueue = limit * (1 - (double) minLatency / latency);
+		if (estimatedQueue > 6 * step) {
+			limit = Math.max(minLimit, limit - step);
+		} else if (estimatedQueue < 3 * step && inFlight * 2 >= limit) {
+			// a limit is raised only if it is actually reached
+			limit = Math.min(maxLimit, limit + step);
+		}
+	}
+
+	// jmx
+	@JmxAttribute
+	public int getLimit() {
+		return limit;
+	}
+
+	@JmxAttribute
+	public int getInFlight() {
+		return inFlight;
+	}
+
+	@JmxAttribute
+	public int getQueueSize() {
+		return queue.size();
+	}
+
+	@JmxAttribute(description = "minimal observed latency of handling a request (in microseconds)")
+	public long getMinLatency() {
+		return minLatency != Long.MAX_VALUE ? minLatency / 1000 : 0;
+	}
+
+	@JmxAttribute(extraSubAttributes = "totalCount")
+	public EventStats getQueuedRequests() {
+		return queuedRequests;
+	}
+
+	@JmxAttribute(extraSubAttributes = "totalCount")
+	public EventStats getRejectedRequests() {
+		return rejectedRequests;
+	}
+
+	@Override
+	public void refresh(long timestamp) {
+		queuedRequests.refresh(timestamp);
+		rejectedRequests.refresh(timestamp);
+	}
+}
@@ -34,14 +34,18 @@ import io.activej.promise.SettablePromise;
 import io.activej.rpc.client.RpcClient;
 import io.activej.rpc.protocol.RpcControlMessage;
 import io.activej.rpc.protocol.RpcMessage;
+import io.activej.rpc.protocol.RpcOverloadException;
+import io.activej.rpc.protocol.RpcRemoteException;
 import io.activej.rpc.protocol.RpcStream;
 import io.activej.serializer.BinarySerializer;
 import io.activej.serializer.SerializerBuilder;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.net.InetAddress;
 import java.time.Duration;
 import java.util.*;
+import java.util.function.Supplier;
 
 import static io.activej.common.Preconditions.checkArgument;
 import static io.activej.common.Preconditions.checkState;
@@ -81,12 +85,18 @@ public final class RpcServer extends AbstractServer<RpcServer> {
 	public static final MemSize DEFAULT_INITIAL_BUFFER_SIZE = ChannelSerializer.DEFAULT_INITIAL_BUFFER_SIZE;
 	public static final MemSize DEFAULT_MAX_MESSAGE_SIZE = ChannelSerializer.MAX_SIZE;
 
+	public static final RpcRemoteException OVERLOAD_EXCEPTION = new RpcRemoteException(
+			new RpcOverloadException(RpcServer.class, "RPC server is overloaded"));
+
 	private MemSize initialBufferSize = DEFAULT_INITIAL_BUFFER_SIZE;
 	private MemSize maxMessageSize = DEFAULT_MAX_MESSAGE_SIZE;
 	private boolean compression = false;
 	private Duration autoFlushInterval = Duration.ZERO;
 
 	private final Map<Class<?>, RpcRequestHandler<?, ?>> handlers = new LinkedHashMap<>();
+	private final Map<Class<?>, RpcConcurrencyLimiter> handlerLimiters = new HashMap<>();
+	@Nullable
+	private Supplier<RpcConcurrencyLimiter> connectionLimiterFactory;
 	private ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
 	private SerializerBuilder serializerBuilder = SerializerBuilder.create(classLoader);
 	private List<Class<?>> messageTypes;
@@ -103,6 +113,7 @@ public final class RpcServer extends AbstractServer<RpcServer> {
 	private final Map<InetAddress, EventStats> connectsPerAddress = new HashMap<>();
 	private final EventStats successfulRequests = EventStats.create(SMOOTHING_WINDOW);
 	private final EventStats failedRequests = EventStats.create(SMOOTHING_WINDOW);
+	private final EventStats rejectedRequests = EventStats.create(SMOOTHING_WINDOW);
 	private final ValueStats requestHandlingTime = ValueStats.create(SMOOTHING_WINDOW).withUnit("milliseconds");
 	private final ExceptionStats lastRequestHandlingException = ExceptionStats.create();
 	private final ExceptionStats lastProtocolError = ExceptionStats.create();
@@ -187,13 +198,43 @@ public final class RpcServer extends AbstractServer<RpcServer> {
 		return this;
 	}
 
+	/**
+	 * Limits a number of concurrently handled requests of a specified class, across all of the connections.
+	 * Requests over the limit are queued, and once a queue is full, they are rejected
+	 * with {@link #OVERLOAD_EXCEPTION}.
+	 *
+	 * @param requestClass   a class of requests to be limited
+	 * @param limiterFactory a factory of limiters, a limiter is created for this server,
+	 *                       so that each of worker servers has its own one
+	 * @return server instance with a limit for requests of a concrete type
+	 */
+	public RpcServer withHandlerLimiter(Class<?> requestClass, @NotNull Supplier<RpcConcurrencyLimiter> limiterFactory) {
+		checkArgument(!handlerLimiters.containsKey(requestClass), "Limiter for {} has already been added", requestClass);
+		handlerLimiters.put(requestClass, limiterFactory.get());
+		return this;
+	}
+
+	/**
+	 * Limits a number of concurrently handled requests of each connection.
+	 * Requests over the limit are queued, and once a queue is full, they are rejected
+	 * with {@link #OVERLOAD_EXCEPTION}.
+	 *
+	 * @param limiterFactory a factory of limiters, a limiter is created for each of the connections
+	 * @return server instance with a limit for requests of each connection
+	 */
+	public RpcServer withConnectionLimiter(@NotNull Supplier<RpcConcurrencyLimiter> limiterFactory) {
+		this.connectionLimiterFactory = limiterFactory;
+		return this;
+	}
+
 	// endregion
 
 	@Override
 	protected void serve(AsyncTcpSocket socket, InetAddress remoteAddress) {
 		RpcStream stream = new RpcStream(socket, serializer, initialBufferSize, maxMessageSize,
 				autoFlushInterval, compression, true); // , statsSerializer, statsDeserializer, statsCompressor, statsDecompressor);
-		RpcServerConnection connection = new RpcServerConnection(this, remoteAddress, handlers, stream);
+		RpcServerConnection connection = new RpcServerConnection(this, remoteAddress, handlers, handlerLimiters,
+				connectionLimiterFactory != null ? connectionLimiterFactory.get() : null, stream);
 		stream.setListener(connection);
 		add(connection);
 
@@ -312,6 +353,16 @@ public final class RpcServer extends AbstractServer<RpcServer> {
 		return failedRequests;
 	}
 
+	@JmxAttribute(extraSubAttributes = "totalCount", description = "requests which were rejected because of concurrency limits")
+	public EventStats getRejectedRequests() {
+		return rejectedRequests;
+	}
+
+	@JmxAttribute(description = "concurrency limiters of requests distributed by request class")
+	public Map<Class<?>, RpcConcurrencyLimiter> getHandlerLimiters() {
+		return handlerLimiters;
+	}
+
 	@JmxAttribute(description = "time for handling one request in milliseconds (both successful and failed)")
 	public ValueStats getRequestHandlingTime() {
 		return requestHandlingTime;
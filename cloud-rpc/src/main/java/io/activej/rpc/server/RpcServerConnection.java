@@ -44,8 +44,13 @@ public final class RpcServerConnection implements RpcStream.Listener, JmxRefresh
 	private final RpcServer rpcServer;
 	private final RpcStream stream;
 	private final Map<Class<?>, RpcRequestHandler<?, ?>> handlers;
+	private final Map<Class<?>, RpcConcurrencyLimiter> handlerLimiters;
+	@Nullable
+	private final RpcConcurrencyLimiter connectionLimiter;
+	private final boolean limited;
 
 	private int activeRequests = 1;
+	private boolean closed;
 
 	// jmx
 	private final InetAddress remoteAddress;
@@ -53,13 +58,18 @@ public final class RpcServerConnection implements RpcStream.Listener, JmxRefresh
 	private final ValueStats requestHandlingTime = ValueStats.create(RpcServer.SMOOTHING_WINDOW).withUnit("milliseconds");
 	private final EventStats successfulRequests = EventStats.create(RpcServer.SMOOTHING_WINDOW);
 	private final EventStats failedRequests = EventStats.create(RpcServer.SMOOTHING_WINDOW);
+	private final EventStats rejectedRequests = EventStats.create(RpcServer.SMOOTHING_WINDOW);
 	private boolean monitoring = false;
 
 	RpcServerConnection(RpcServer rpcServer, InetAddress remoteAddress,
-			Map<Class<?>, RpcRequestHandler<?, ?>> handlers, RpcStream stream) {
+			Map<Class<?>, RpcRequestHandler<?, ?>> handlers, Map<Class<?>, RpcConcurrencyLimiter> handlerLimiters,
+			@Nullable RpcConcurrencyLimiter connectionLimiter, RpcStream stream) {
 		this.rpcServer = rpcServer;
 		this.stream = stream;
 		this.handlers = handlers;
+		this.handlerLimiters = handlerLimiters;
+		this.connectionLimiter = connectionLimiter;
+		this.limited = connectionLimiter != null || !handlerLimiters.isEmpty();
 
 		// jmx
 		this.remoteAddress = remoteAddress;
@@ -78,8 +88,41 @@ public final class RpcServerConnection implements RpcStream.Listener, JmxRefresh
 	public void accept(RpcMessage message) {
 		activeRequests++;
 
+		if (!limited) {
+			handle(message, null);
+			return;
+		}
+		RpcConcurrencyLimiter handlerLimiter = handlerLimiters.get(message.getData().getClass());
+		if (connectionLimiter == null) {
+			admit(message, handlerLimiter);
+		} else if (!connectionLimiter.execute(() -> admit(message, handlerLimiter))) {
+			reject(message);
+		}
+	}
+
+	private void admit(RpcMessage message, @Nullable RpcConcurrencyLimiter handlerLimiter) {
+		if (closed) {
+			release(null);
+			return;
+		}
+		if (handlerLimiter == null) {
+			handle(message, null);
+		} else if (!handlerLimiter.execute(() -> handle(message, handlerLimiter))) {
+			if (connectionLimiter != null) {
+				connectionLimiter.complete();
+			}
+			reject(message);
+		}
+	}
+
+	private void handle(RpcMessage message, @Nullable RpcConcurrencyLimiter handlerLimiter) {
+		if (closed) {
+			release(handlerLimiter);
+			return;
+		}
 		int cookie = message.getCookie();
 		long startTime = monitoring ? System.currentTimeMillis() : 0;
+		long startNanos = limited ? System.nanoTime() : 0;
 
 		Object messageData = message.getData();
 		serve(messageData)
@@ -99,6 +142,15 @@ public final class RpcServerConnection implements RpcStream.Listener, JmxRefresh
 						RpcMessage errorMessage = RpcMessage.of(cookie, new RpcRemoteException(e));
 						sendError(errorMessage, messageData, e);
 					}
+					if (limited) {
+						long latency = System.nanoTime() - startNanos;
+						if (handlerLimiter != null) {
+							handlerLimiter.complete(latency);
+						}
+						if (connectionLimiter != null) {
+							connectionLimiter.complete(latency);
+						}
+					}
 					if (--activeRequests == 0) {
 						doClose();
 						stream.sendEndOfStream();
@@ -106,6 +158,29 @@ public final class RpcServerConnection implements RpcStream.Listener, JmxRefresh
 				});
 	}
 
+	/**
+	 * Releases slots of a request which has been queued by limiters,
+	 * but whose connection has been closed before the request could be handled
+	 */
+	private void release(@Nullable RpcConcurrencyLimiter handlerLimiter) {
+		if (handlerLimiter != null) {
+			handlerLimiter.complete();
+		}
+		if (connectionLimiter != null) {
+			connectionLimiter.complete();
+		}
+	}
+
+	private void reject(RpcMessage message) {
+		downstreamDataAcceptor.accept(RpcMessage.of(message.getCookie(), RpcServer.OVERLOAD_EXCEPTION));
+		rejectedRequests.recordEvent();
+		rpcServer.getRejectedRequests().recordEvent();
+		if (--activeRequests == 0) {
+			doClose();
+			stream.sendEndOfStream();
+		}
+	}
+
 	@Override
 	public void onReceiverEndOfStream() {
 		activeRequests--;
@@ -156,6 +231,7 @@ public final class RpcServerConnection implements RpcStream.Listener, JmxRefresh
 	}
 
 	private void doClose() {
+		closed = true;
 		rpcServer.remove(this);
 		downstreamDataAcceptor = $ -> {};
 	}
@@ -185,6 +261,17 @@ public final class RpcServerConnection implements RpcStream.Listener, JmxRefresh
 		return failedRequests;
 	}
 
+	@JmxAttribute
+	public EventStats getRejectedRequests() {
+		return rejectedRequests;
+	}
+
+	@JmxAttribute
+	@Nullable
+	public RpcConcurrencyLimiter getConnectionLimiter() {
+		return connectionLimiter;
+	}
+
 	@JmxAttribute
 	public ValueStats getRequestHandlingTime() {
 		return requestHandlingTime;
@@ -204,6 +291,7 @@ public final class RpcServerConnection implements RpcStream.Listener, JmxRefresh
 	public void refresh(long timestamp) {
 		successfulRequests.refresh(timestamp);
 		failedRequests.refresh(timestamp);
+		rejectedRequests.refresh(timestamp);
 		requestHandlingTime.refresh(timestamp);
 	}
 }
@@ -0,0 +1,280 @@
+package io.activej.rpc.client;
+
+import io.activej.async.callback.Callback;
+import io.activej.eventloop.Eventloop;
+import io.activej.promise.Promise;
+import io.activej.promise.Promises;
+import io.activej.rpc.server.RpcServer;
+import io.activej.serializer.annotations.Deserialize;
+import io.activej.serializer.annotations.Serialize;
+import io.activej.test.rules.ByteBufRule;
+import io.activej.test.rules.EventloopRule;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static io.activej.promise.TestUtils.await;
+import static io.activej.promise.TestUtils.awaitException;
+import static io.activej.rpc.client.IRpcClient.RPC_TIMEOUT_EXCEPTION;
+import static io.activej.rpc.client.sender.RpcStrategies.servers;
+import static io.activej.rpc.client.sender.RpcStrategies.sharding;
+import static io.activej.test.TestUtils.getFreePort;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.*;
+
+public final class RpcBatchingClientTest {
+
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	@ClassRule
+	public static final ByteBufRule byteBufRule = new ByteBufRule();
+
+	public static final class GetRequest {
+		private final int key;
+
+		public GetRequest(int key) {
+			this.key = key;
+		}
+
+		public int getKey() {
+			return key;
+		}
+	}
+
+	public static final class GetBatchRequest {
+		private final int shard;
+		private final List<Integer> keys;
+
+		public GetBatchRequest(@Deserialize("shard") int shard, @Deserialize("keys") List<Integer> keys) {
+			this.shard = shard;
+			this.keys = keys;
+		}
+
+		public GetBatchRequest(Integer shard, List<GetRequest> requests) {
+			this(shard, requests.stream().map(GetRequest::getKey).collect(Collectors.toList()));
+		}
+
+		@Serialize(order = 0)
+		public int getShard() {
+			return shard;
+		}
+
+		@Serialize(order = 1)
+		public List<Integer> getKeys() {
+			return keys;
+		}
+	}
+
+	public static final class GetBatchResponse {
+		private final List<String> values;
+
+		public GetBatchResponse(@Deserialize("values") List<String> values) {
+			this.values = values;
+		}
+
+		@Serialize(order = 0)
+		public List<String> getValues() {
+			return values;
+		}
+	}
+
+	@Test
+	public void testBatchesPerShard() throws IOException {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+		int port1 = getFreePort();
+		int port2 = getFreePort();
+		List<GetBatchRequest> batches1 = new ArrayList<>();
+		List<GetBatchRequest> batches2 = new ArrayList<>();
+		RpcServer server1 = createServer(eventloop, port1, batches1);
+		RpcServer server2 = createServer(eventloop, port2, batches2);
+		server1.listen();
+		server2.listen();
+
+		RpcClient rpcClient = RpcClient.create(eventloop)
+				.withMessageTypes(GetBatchRequest.class, GetBatchResponse.class)
+				.withStrategy(sharding(request -> ((GetBatchRequest) request).getShard(),
+						servers(new InetSocketAddress(port1), new InetSocketAddress(port2))));
+		RpcBatchingClient client = RpcBatchingClient.create(eventloop, rpcClient)
+				.withBatching(GetRequest.class, request -> request.getKey() % 2, GetBatchRequest::new, GetBatchResponse::getValues);
+
+		List<String> values = await(rpcClient.start()
+				.then(() -> Promises.toList(IntStream.range(0, 10)
+						.mapToObj(i -> client.<GetRequest, String>sendRequest(new GetRequest(i), 1000))))
+				.whenComplete(rpcClient::stop)
+				.whenComplete(server1::close)
+				.whenComplete(server2::close));
+
+		assertEquals(asList("0:0", "1:1", "0:2", "1:3", "0:4", "1:5", "0:6", "1:7", "0:8", "1:9"), values);
+		assertEquals(1, batches1.size());
+		assertEquals(asList(0, 2, 4, 6, 8), batches1.get(0).getKeys());
+		assertEquals(1, batches2.size());
+		assertEquals(asList(1, 3, 5, 7, 9), batches2.get(0).getKeys());
+		assertEquals(2, client.getBatches().getTotalCount());
+	}
+
+	@Test
+	public void testMaxBatchSize() {
+		List<Object> sent = new ArrayList<>();
+		RpcBatchingClient client = RpcBatchingClient.create(Eventloop.getCurrentEventloop(), new EchoClient(sent))
+				.withBatching(GetRequest.class, request -> 0, GetBatchRequest::new,
+						(GetBatchRequest batch) -> batch.getKeys().stream().map(String::valueOf).collect(Collectors.toList()))
+				.withMaxBatchSize(3);
+
+		List<String> values = await(Promises.toList(IntStream.range(0, 7)
+				.mapToObj(i -> client.<GetRequest, String>sendRequest(new GetRequest(i)))));
+
+		assertEquals(asList("0", "1", "2", "3", "4", "5", "6"), values);
+		assertEquals(3, sent.size());
+		assertEquals(asList(0, 1, 2), ((GetBatchRequest) sent.get(0)).getKeys());
+		assertEquals(asList(3, 4, 5), ((GetBatchRequest) sent.get(1)).getKeys());
+		assertEquals(singletonList(6), ((GetBatchRequest) sent.get(2)).getKeys());
+	}
+
+	@Test
+	public void testRequestsWithoutBatching() {
+		List<Object> sent = new ArrayList<>();
+		RpcBatchingClient client = RpcBatchingClient.create(Eventloop.getCurrentEventloop(), new EchoClient(sent))
+				.withBatching(GetRequest.class, request -> 0, GetBatchRequest::new, GetBatchResponse::getValues);
+
+		assertEquals("request", await(client.sendRequest("request")));
+		assertEquals(singletonList("request"), sent);
+		assertEquals(0, client.getBatches().getTotalCount());
+	}
+
+	@Test
+	public void testResponsesMismatch() {
+		RpcBatchingClient client = RpcBatchingClient.create(Eventloop.getCurrentEventloop(), new EchoClient(new ArrayList<>()))
+				.withBatching(GetRequest.class, request -> 0, GetBatchRequest::new,
+						(GetBatchRequest batch) -> singletonList("value"));
+
+		Throwable e = awaitException(Promises.toList(
+				client.<GetRequest, String>sendRequest(new GetRequest(1)),
+				client.<GetRequest, String>sendRequest(new GetRequest(2))));
+		assertSame(RpcBatchingClient.RESPONSES_MISMATCH_EXCEPTION, e);
+	}
+
+	@Test
+	public void testBatchIsSentBeforeItsEarliestRequestExpires() {
+		List<Object> sent = new ArrayList<>();
+		List<Integer> timeouts = new ArrayList<>();
+		RpcBatchingClient client = RpcBatchingClient.create(Eventloop.getCurrentEventloop(), new EchoClient(sent, timeouts))
+				.withBatching(GetRequest.class, request -> 0, GetBatchRequest::new,
+						(GetBatchRequest batch) -> batch.getKeys().stream().map(String::valueOf).collect(Collectors.toList()))
+				.withBatchWindow(Duration.ofSeconds(10))
+				.withFlushMargin(Duration.ofMillis(10));
+
+		long start = System.currentTimeMillis();
+		List<String> values = await(Promises.toList(
+				client.<GetRequest, String>sendRequest(new GetRequest(1), 1000),
+				client.<GetRequest, String>sendRequest(new GetRequest(2), 50),
+				client.<GetRequest, String>sendRequest(new GetRequest(3), 2000)));
+
+		// a batch does not wait for the end of its window, which is longer than a timeout of its second request
+		assertEquals(asList("1", "2", "3"), values);
+		assertTrue(System.currentTimeMillis() - start < 1000);
+		assertEquals(1, sent.size());
+		assertEquals(asList(1, 2, 3), ((GetBatchRequest) sent.get(0)).getKeys());
+		// a batch is sent with the remaining time of its latest request
+		int timeout = timeouts.get(0);
+		assertTrue(timeout > 1000 && timeout <= 2000);
+	}
+
+	@Test
+	public void testRequestsExpireOnTheirOwnDeadlines() {
+		List<Object> sent = new ArrayList<>();
+		RpcBatchingClient client = RpcBatchingClient.create(Eventloop.getCurrentEventloop(), new EchoClient(sent, new ArrayList<>(), 100))
+				.withBatching(GetRequest.class, request -> 0, GetBatchRequest::new,
+						(GetBatchRequest batch) -> batch.getKeys().stream().map(String::valueOf).collect(Collectors.toList()));
+
+		List<Object> results = new ArrayList<>();
+		await(Promises.all(Stream.of(
+				client.<GetRequest, String>sendRequest(new GetRequest(1), 1000),
+				client.<GetRequest, String>sendRequest(new GetRequest(2), 10),
+				client.<GetRequest, String>sendRequest(new GetRequest(3)))
+				.map(promise -> promise.thenEx((value, e) -> {
+					results.add(e == null ? value : e);
+					return Promise.complete();
+				}))));
+
+		// a request with a short timeout does not make the whole batch time out
+		assertEquals(asList(RPC_TIMEOUT_EXCEPTION, "1", "3"), results);
+		assertEquals(1, sent.size());
+		assertEquals(asList(1, 2, 3), ((GetBatchRequest) sent.get(0)).getKeys());
+	}
+
+	@Test
+	public void testExpiredRequestsAreNotSent() {
+		List<Object> sent = new ArrayList<>();
+		RpcBatchingClient client = RpcBatchingClient.create(Eventloop.getCurrentEventloop(), new EchoClient(sent))
+				.withBatching(GetRequest.class, request -> 0, GetBatchRequest::new,
+						(GetBatchRequest batch) -> batch.getKeys().stream().map(String::valueOf).collect(Collectors.toList()))
+				.withBatchWindow(Duration.ofMillis(100));
+
+		List<Object> results = new ArrayList<>();
+		await(Promises.all(Stream.of(
+				client.<GetRequest, String>sendRequest(new GetRequest(1), 0),
+				client.<GetRequest, String>sendRequest(new GetRequest(2), 1000))
+				.map(promise -> promise.thenEx((value, e) -> {
+					results.add(e == null ? value : e);
+					return Promise.complete();
+				}))));
+
+		assertEquals(asList(RPC_TIMEOUT_EXCEPTION, "2"), results);
+		assertEquals(1, sent.size());
+		assertEquals(singletonList(2), ((GetBatchRequest) sent.get(0)).getKeys());
+	}
+
+	private static RpcServer createServer(Eventloop eventloop, int port, List<GetBatchRequest> batches) {
+		return RpcServer.create(eventloop)
+				.withMessageTypes(GetBatchRequest.class, GetBatchResponse.class)
+				.withHandler(GetBatchRequest.class, batch -> {
+					batches.add(batch);
+					return Promise.of(new GetBatchResponse(batch.getKeys().stream()
+							.map(key -> batch.getShard() + ":" + key)
+							.collect(Collectors.toList())));
+				})
+				.withListenPort(port);
+	}
+
+	private static final class EchoClient implements IRpcClient {
+		private final List<Object> sent;
+		private final List<Integer> timeouts;
+		private final long delay;
+
+		EchoClient(List<Object> sent) {
+			this(sent, new ArrayList<>());
+		}
+
+		EchoClient(List<Object> sent, List<Integer> timeouts) {
+			this(sent, timeouts, 0);
+		}
+
+		EchoClient(List<Object> sent, List<Integer> timeouts, long delay) {
+			this.sent = sent;
+			this.timeouts = timeouts;
+			this.delay = delay;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public <I, O> void sendRequest(I request, int timeout, Callback<O> cb) {
+			sent.add(request);
+			timeouts.add(timeout);
+			if (delay == 0) {
+				cb.accept((O) request, null);
+			} else {
+				Eventloop.getCurrentEventloop().delay(delay, () -> cb.accept((O) request, null));
+			}
+		}
+	}
+}
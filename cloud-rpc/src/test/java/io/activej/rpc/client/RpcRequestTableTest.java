@@ -0,0 +1,84 @@
+package io.activej.rpc.client;
+
+import io.activej.async.callback.Callback;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public final class RpcRequestTableTest {
+
+	@Test
+	public void testSequentialCookies() {
+		RpcRequestTable table = new RpcRequestTable(4);
+		Map<Integer, Callback<?>> expected = new HashMap<>();
+		for (int cookie = 1; cookie <= 1000; cookie++) {
+			Callback<?> cb = (result, e) -> {};
+			table.put(cookie, cb);
+			expected.put(cookie, cb);
+			if (cookie % 3 == 0) {
+				assertSame(expected.remove(cookie - 2), table.remove(cookie - 2));
+			}
+		}
+		assertEquals(expected.size(), table.size());
+		assertNull(table.remove(1));
+		assertNull(table.remove(1001));
+		for (Map.Entry<Integer, Callback<?>> entry : expected.entrySet()) {
+			assertSame(entry.getValue(), table.remove(entry.getKey()));
+		}
+		assertTrue(table.isEmpty());
+	}
+
+	@Test
+	public void testSparseCookies() {
+		RpcRequestTable table = new RpcRequestTable(16);
+		Random random = new Random(0);
+		Map<Integer, Callback<?>> expected = new HashMap<>();
+		for (int i = 0; i < 10_000; i++) {
+			// sparse keys with equal low bits, including negative ones after cookie overflow
+			int cookie = (random.nextInt(64) << 20) | (random.nextBoolean() ? Integer.MIN_VALUE : 0);
+			if (expected.containsKey(cookie)) {
+				assertSame(expected.remove(cookie), table.remove(cookie));
+			} else {
+				Callback<?> cb = (result, e) -> {};
+				table.put(cookie, cb);
+				expected.put(cookie, cb);
+			}
+			assertEquals(expected.size(), table.size());
+		}
+		for (Map.Entry<Integer, Callback<?>> entry : expected.entrySet()) {
+			assertSame(entry.getValue(), table.remove(entry.getKey()));
+		}
+		assertTrue(table.isEmpty());
+	}
+
+	@Test
+	public void testStraggler() {
+		RpcRequestTable table = new RpcRequestTable(8);
+		Callback<?> straggler = (result, e) -> {};
+		table.put(0, straggler);
+		for (int cookie = 1; cookie <= 100; cookie++) {
+			table.put(cookie, (result, e) -> {});
+			assertNotNull(table.remove(cookie));
+		}
+		assertEquals(1, table.size());
+		assertNull(table.remove(8));
+		assertSame(straggler, table.remove(0));
+		assertTrue(table.isEmpty());
+	}
+
+	@Test
+	public void testRemoveAll() {
+		RpcRequestTable table = new RpcRequestTable(8);
+		Set<Callback<?>> expected = new HashSet<>();
+		for (int cookie = 0; cookie < 20; cookie++) {
+			Callback<?> cb = (result, e) -> {};
+			table.put(cookie, cb);
+			expected.add(cb);
+		}
+		assertEquals(expected, new HashSet<>(table.removeAll()));
+		assertTrue(table.isEmpty());
+		assertNull(table.remove(5));
+	}
+}
@@ -0,0 +1,68 @@
+package io.activej.rpc.client;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class RpcTimeoutWheelTest {
+
+	@Test
+	public void testExpiration() {
+		RpcTimeoutWheel wheel = new RpcTimeoutWheel(10, 8, 2, 1000);
+		assertEquals(1010, wheel.add(1, 1001));
+		assertEquals(1010, wheel.add(2, 1010));
+		assertEquals(1020, wheel.add(3, 1011));
+		// more than one revolution ahead
+		assertEquals(1200, wheel.add(4, 1200));
+		assertEquals(4, wheel.size());
+
+		assertEquals(emptyList(), expire(wheel, 1009));
+		assertEquals(asList(1, 2), expire(wheel, 1010));
+		assertEquals(asList(3), expire(wheel, 1025));
+		assertEquals(emptyList(), expire(wheel, 1199));
+		assertEquals(asList(4), expire(wheel, 1200));
+		assertTrue(wheel.isEmpty());
+	}
+
+	@Test
+	public void testLongPause() {
+		RpcTimeoutWheel wheel = new RpcTimeoutWheel(10, 8, 2, 0);
+		for (int i = 0; i < 100; i++) {
+			wheel.add(i, i * 10L);
+		}
+		List<Integer> expired = expire(wheel, 10_000);
+		assertEquals(100, expired.size());
+		assertTrue(wheel.isEmpty());
+
+		// deadlines in the past are expired on the next tick
+		assertEquals(10_010, wheel.add(100, 5_000));
+		assertEquals(asList(100), expire(wheel, 10_010));
+	}
+
+	@Test
+	public void testAddWhileExpiring() {
+		RpcTimeoutWheel wheel = new RpcTimeoutWheel(10, 8, 2, 0);
+		wheel.add(1, 10);
+		List<Integer> expired = new ArrayList<>();
+		long next = wheel.expire(10, cookie -> {
+			expired.add(cookie);
+			wheel.add(cookie + 1, 90);
+		});
+		assertEquals(asList(1), expired);
+		assertEquals(20, next);
+		assertEquals(asList(2), expire(wheel, 90));
+		assertTrue(wheel.isEmpty());
+	}
+
+	private static List<Integer> expire(RpcTimeoutWheel wheel, long timestamp) {
+		List<Integer> expired = new ArrayList<>();
+		wheel.expire(timestamp, expired::add);
+		return expired;
+	}
+}
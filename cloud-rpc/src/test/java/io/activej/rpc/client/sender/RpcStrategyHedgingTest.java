@@ -0,0 +1,159 @@
+package io.activej.rpc.client.sender;
+
+import io.activej.async.callback.Callback;
+import io.activej.eventloop.Eventloop;
+import io.activej.rpc.client.jmx.RpcHedgingStats;
+import io.activej.rpc.client.sender.helper.RpcClientConnectionPoolStub;
+import io.activej.rpc.client.sender.helper.RpcMessageDataStub;
+import io.activej.rpc.client.sender.helper.RpcMessageDataStubWithKey;
+import io.activej.rpc.client.sender.helper.RpcSenderPendingStub;
+import io.activej.test.rules.EventloopRule;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+
+import static io.activej.rpc.client.sender.Callbacks.ignore;
+import static io.activej.rpc.client.sender.RpcStrategies.hedging;
+import static io.activej.rpc.client.sender.RpcStrategies.servers;
+import static io.activej.rpc.client.sender.RpcStrategyHedging.MIN_SAMPLES;
+import static io.activej.test.TestUtils.getFreePort;
+import static org.junit.Assert.assertEquals;
+
+@SuppressWarnings("ConstantConditions")
+public class RpcStrategyHedgingTest {
+
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	private static final String HOST = "localhost";
+
+	private static final InetSocketAddress ADDRESS_1 = new InetSocketAddress(HOST, getFreePort());
+	private static final InetSocketAddress ADDRESS_2 = new InetSocketAddress(HOST, getFreePort());
+
+	private final RpcClientConnectionPoolStub pool = new RpcClientConnectionPoolStub();
+	private final RpcSenderPendingStub connection1 = new RpcSenderPendingStub();
+	private final RpcSenderPendingStub connection2 = new RpcSenderPendingStub();
+
+	@Before
+	public void setUp() {
+		pool.put(ADDRESS_1, connection1);
+		pool.put(ADDRESS_2, connection2);
+	}
+
+	@Test
+	public void itShouldHedgeSlowRequest() {
+		RpcStrategyHedging strategy = hedging(servers(ADDRESS_1, ADDRESS_2))
+				.withMinDelay(Duration.ofMillis(10));
+		RpcSender sender = strategy.createSender(pool);
+		warmUp(sender);
+
+		int[] responses = new int[1];
+		sender.sendRequest(new RpcMessageDataStub(), 1000, (Callback<Object>) (result, e) -> responses[0]++);
+		runFor(50);
+		assertEquals(MIN_SAMPLES / 2 + 1, connection1.getRequests());
+		assertEquals(MIN_SAMPLES / 2 + 1, connection2.getRequests());
+
+		// a duplicate request responds first, a response to the original one is ignored
+		connection2.completeAll();
+		connection1.completeAll();
+		assertEquals(1, responses[0]);
+
+		RpcHedgingStats stats = strategy.getStats();
+		assertEquals(MIN_SAMPLES + 1, stats.getTotalRequests());
+		assertEquals(1, stats.getHedgedRequests());
+		assertEquals(1, stats.getHedgeWins());
+	}
+
+	@Test
+	public void itShouldKeepLatenciesWhenSenderIsRecreated() {
+		RpcStrategyHedging strategy = hedging(servers(ADDRESS_1, ADDRESS_2))
+				.withMinDelay(Duration.ofMillis(10));
+		warmUp(strategy.createSender(pool));
+
+		// a connection is re-established, which re-creates a sender
+		RpcSender sender = strategy.createSender(pool);
+		sender.sendRequest(new RpcMessageDataStub(), 1000, ignore());
+		runFor(50);
+		assertEquals(1, strategy.getStats().getHedgedRequests());
+	}
+
+	@Test
+	public void itShouldKeepLatenciesOfEachClientSeparately() {
+		RpcStrategyHedging strategy = hedging(servers(ADDRESS_1, ADDRESS_2))
+				.withMinDelay(Duration.ofMillis(10));
+		warmUp(strategy.createSender(pool));
+
+		// latencies of another client are not known yet
+		RpcClientConnectionPoolStub anotherPool = new RpcClientConnectionPoolStub();
+		anotherPool.put(ADDRESS_1, new RpcSenderPendingStub());
+		anotherPool.put(ADDRESS_2, new RpcSenderPendingStub());
+		strategy.createSender(anotherPool).sendRequest(new RpcMessageDataStub(), 1000, ignore());
+		runFor(50);
+		assertEquals(0, strategy.getStats().getHedgedRequests());
+	}
+
+	@Test
+	public void itShouldNotHedgeFastRequests() {
+		RpcStrategyHedging strategy = hedging(servers(ADDRESS_1, ADDRESS_2))
+				.withMinDelay(Duration.ofMillis(10));
+		RpcSender sender = strategy.createSender(pool);
+		warmUp(sender);
+
+		int[] responses = new int[1];
+		sender.sendRequest(new RpcMessageDataStub(), 1000, (Callback<Object>) (result, e) -> responses[0]++);
+		connection1.completeAll();
+		runFor(50);
+		assertEquals(1, responses[0]);
+		assertEquals(MIN_SAMPLES / 2, connection2.getRequests());
+		assertEquals(0, strategy.getStats().getHedgedRequests());
+	}
+
+	@Test
+	public void itShouldNotExceedBudget() {
+		RpcStrategyHedging strategy = hedging(servers(ADDRESS_1, ADDRESS_2))
+				.withBudget(0.05)
+				.withMinDelay(Duration.ofMillis(10));
+		RpcSender sender = strategy.createSender(pool);
+		warmUp(sender);
+
+		// a budget of 5% of 100 requests has been saved up during a warm-up
+		for (int i = 0; i < 20; i++) {
+			sender.sendRequest(new RpcMessageDataStub(), 1000, ignore());
+		}
+		runFor(50);
+		assertEquals(5, strategy.getStats().getHedgedRequests());
+		assertEquals(MIN_SAMPLES + 20 + 5, connection1.getRequests() + connection2.getRequests());
+	}
+
+	@Test
+	public void itShouldHedgeOnlyGivenRequestTypes() {
+		RpcStrategyHedging strategy = hedging(servers(ADDRESS_1, ADDRESS_2))
+				.withHedgedRequestTypes(RpcMessageDataStubWithKey.class)
+				.withMinDelay(Duration.ofMillis(10));
+		RpcSender sender = strategy.createSender(pool);
+		warmUp(sender);
+
+		sender.sendRequest(new RpcMessageDataStub(), 1000, ignore());
+		runFor(50);
+		assertEquals(MIN_SAMPLES + 1, connection1.getRequests() + connection2.getRequests());
+		assertEquals(0, strategy.getStats().getTotalRequests());
+	}
+
+	// hedges are scheduled as background tasks, which do not keep an eventloop running
+	private static void runFor(long millis) {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+		eventloop.delay(millis, () -> {});
+		eventloop.run();
+	}
+
+	private void warmUp(RpcSender sender) {
+		for (int i = 0; i < MIN_SAMPLES; i++) {
+			sender.sendRequest(new RpcMessageDataStub(), 1000, ignore());
+			connection1.completeAll();
+			connection2.completeAll();
+		}
+	}
+}
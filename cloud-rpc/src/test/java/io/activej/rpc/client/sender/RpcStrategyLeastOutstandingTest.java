@@ -0,0 +1,118 @@
+package io.activej.rpc.client.sender;
+
+import io.activej.rpc.client.sender.helper.RpcClientConnectionPoolStub;
+import io.activej.rpc.client.sender.helper.RpcMessageDataStub;
+import io.activej.rpc.client.sender.helper.RpcSenderPendingStub;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+
+import static io.activej.rpc.client.sender.Callbacks.ignore;
+import static io.activej.rpc.client.sender.RpcStrategies.*;
+import static io.activej.test.TestUtils.getFreePort;
+import static org.junit.Assert.*;
+
+@SuppressWarnings("ConstantConditions")
+public class RpcStrategyLeastOutstandingTest {
+
+	private static final String HOST = "localhost";
+
+	private static final InetSocketAddress ADDRESS_1 = new InetSocketAddress(HOST, getFreePort());
+	private static final InetSocketAddress ADDRESS_2 = new InetSocketAddress(HOST, getFreePort());
+	private static final InetSocketAddress ADDRESS_3 = new InetSocketAddress(HOST, getFreePort());
+
+	@Test
+	public void itShouldSendRequestsToLeastLoadedSubSender() {
+		RpcClientConnectionPoolStub pool = new RpcClientConnectionPoolStub();
+		RpcSenderPendingStub connection1 = new RpcSenderPendingStub();
+		RpcSenderPendingStub connection2 = new RpcSenderPendingStub();
+		RpcSenderPendingStub connection3 = new RpcSenderPendingStub();
+		pool.put(ADDRESS_1, connection1);
+		pool.put(ADDRESS_2, connection2);
+		pool.put(ADDRESS_3, connection3);
+		RpcSender sender = leastOutstanding(servers(ADDRESS_1, ADDRESS_2, ADDRESS_3)).createSender(pool);
+		Object data = new RpcMessageDataStub();
+
+		for (int i = 0; i < 30; i++) {
+			sender.sendRequest(data, 50, ignore());
+			// the first server is fast, the second one is degraded, the third one is stuck
+			connection1.completeAll();
+			if (i % 3 == 0 && connection2.getPending() != 0) connection2.completeOldest();
+		}
+
+		assertEquals(1, connection3.getRequests());
+		assertTrue(connection2.getRequests() <= 10);
+		assertTrue(connection1.getRequests() >= 19);
+	}
+
+	@Test
+	public void itShouldSpreadRequestsEvenlyWhenLoadIsEqual() {
+		RpcClientConnectionPoolStub pool = new RpcClientConnectionPoolStub();
+		RpcSenderPendingStub connection1 = new RpcSenderPendingStub();
+		RpcSenderPendingStub connection2 = new RpcSenderPendingStub();
+		pool.put(ADDRESS_1, connection1);
+		pool.put(ADDRESS_2, connection2);
+		RpcSender sender = leastOutstanding(servers(ADDRESS_1, ADDRESS_2, ADDRESS_3)).createSender(pool);
+
+		for (int i = 0; i < 10; i++) {
+			sender.sendRequest(new RpcMessageDataStub(), 50, ignore());
+			connection1.completeAll();
+			connection2.completeAll();
+		}
+
+		assertEquals(5, connection1.getRequests());
+		assertEquals(5, connection2.getRequests());
+	}
+
+	@Test
+	public void itShouldKeepRequestsInFlightWhenSenderIsRecreated() {
+		RpcClientConnectionPoolStub pool = new RpcClientConnectionPoolStub();
+		RpcSenderPendingStub connection1 = new RpcSenderPendingStub();
+		RpcSenderPendingStub connection2 = new RpcSenderPendingStub();
+		pool.put(ADDRESS_1, connection1);
+		pool.put(ADDRESS_2, connection2);
+		RpcStrategyLeastOutstanding strategy = leastOutstanding(servers(ADDRESS_1, ADDRESS_2, ADDRESS_3));
+		RpcSender sender = strategy.createSender(pool);
+
+		// the first server is stuck with a request in flight
+		sender.sendRequest(new RpcMessageDataStub(), 50, ignore());
+		sender.sendRequest(new RpcMessageDataStub(), 50, ignore());
+		connection2.completeAll();
+
+		// a third server connects, which re-creates a sender
+		pool.put(ADDRESS_3, new RpcSenderPendingStub());
+		sender = strategy.createSender(pool);
+		for (int i = 0; i < 10; i++) {
+			sender.sendRequest(new RpcMessageDataStub(), 50, ignore());
+			connection2.completeAll();
+		}
+
+		assertEquals(1, connection1.getRequests());
+	}
+
+	@Test
+	public void itShouldKeepRequestsInFlightOfEachClientSeparately() {
+		RpcStrategyLeastOutstanding strategy = leastOutstanding(servers(ADDRESS_1, ADDRESS_2));
+		RpcClientConnectionPoolStub pool1 = new RpcClientConnectionPoolStub();
+		RpcSenderPendingStub connection11 = new RpcSenderPendingStub();
+		pool1.put(ADDRESS_1, connection11);
+		pool1.put(ADDRESS_2, new RpcSenderPendingStub());
+		RpcClientConnectionPoolStub pool2 = new RpcClientConnectionPoolStub();
+		RpcSenderPendingStub connection21 = new RpcSenderPendingStub();
+		pool2.put(ADDRESS_1, connection21);
+		pool2.put(ADDRESS_2, new RpcSenderPendingStub());
+
+		// a request of the first client is in flight, which does not affect the second client
+		strategy.createSender(pool1).sendRequest(new RpcMessageDataStub(), 50, ignore());
+		strategy.createSender(pool2).sendRequest(new RpcMessageDataStub(), 50, ignore());
+
+		assertEquals(1, connection11.getRequests());
+		assertEquals(1, connection21.getRequests());
+	}
+
+	@Test
+	public void itShouldNotBeCreatedWhenThereAreNoActiveSubSenders() {
+		RpcClientConnectionPoolStub pool = new RpcClientConnectionPoolStub();
+		assertNull(leastOutstanding(servers(ADDRESS_1, ADDRESS_2)).createSender(pool));
+	}
+}
@@ -0,0 +1,132 @@
+package io.activej.rpc.client.sender;
+
+import io.activej.rpc.client.sender.helper.RpcClientConnectionPoolStub;
+import io.activej.rpc.client.sender.helper.RpcMessageDataStub;
+import io.activej.rpc.client.sender.helper.RpcSenderPendingStub;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+
+import static io.activej.rpc.client.sender.Callbacks.ignore;
+import static io.activej.rpc.client.sender.RpcStrategies.*;
+import static io.activej.test.TestUtils.getFreePort;
+import static org.junit.Assert.assertEquals;
+
+@SuppressWarnings("ConstantConditions")
+public class RpcStrategyPeakEwmaTest {
+
+	private static final String HOST = "localhost";
+
+	private static final InetSocketAddress ADDRESS_1 = new InetSocketAddress(HOST, getFreePort());
+	private static final InetSocketAddress ADDRESS_2 = new InetSocketAddress(HOST, getFreePort());
+
+	private long nanos;
+
+	@Test
+	public void itShouldPreferSubSenderWithLowerLatency() {
+		RpcClientConnectionPoolStub pool = new RpcClientConnectionPoolStub();
+		RpcSenderPendingStub fast = new RpcSenderPendingStub();
+		RpcSenderPendingStub slow = new RpcSenderPendingStub();
+		pool.put(ADDRESS_1, fast);
+		pool.put(ADDRESS_2, slow);
+		RpcSender sender = peakEwma(servers(ADDRESS_1, ADDRESS_2))
+				.withDecayTime(Duration.ofSeconds(1))
+				.withNanoTime(() -> nanos)
+				.createSender(pool);
+
+		// one request to each of the servers, the second one responds 20 times slower
+		send(sender);
+		send(sender);
+		nanos += 1_000_000;
+		fast.completeAll();
+		nanos += 19_000_000;
+		slow.completeAll();
+		assertEquals(1, fast.getRequests());
+		assertEquals(1, slow.getRequests());
+
+		// with ~1 ms latency, up to 20 requests in flight are still cheaper than a single request to a slow server
+		for (int i = 0; i < 20; i++) {
+			send(sender);
+		}
+		assertEquals(21, fast.getRequests());
+		assertEquals(1, slow.getRequests());
+		send(sender);
+		assertEquals(2, slow.getRequests());
+	}
+
+	@Test
+	public void itShouldReactToDegradationImmediately() {
+		RpcClientConnectionPoolStub pool = new RpcClientConnectionPoolStub();
+		RpcSenderPendingStub connection1 = new RpcSenderPendingStub();
+		RpcSenderPendingStub connection2 = new RpcSenderPendingStub();
+		pool.put(ADDRESS_1, connection1);
+		pool.put(ADDRESS_2, connection2);
+		RpcSender sender = peakEwma(servers(ADDRESS_1, ADDRESS_2))
+				.withNanoTime(() -> nanos)
+				.createSender(pool);
+
+		// both servers respond within 1 ms for a while
+		for (int i = 0; i < 100; i++) {
+			send(sender);
+			nanos += 1_000_000;
+			connection1.completeAll();
+			connection2.completeAll();
+		}
+		int requests1 = connection1.getRequests();
+
+		// then a single response of the first server takes 100 ms
+		send(sender);
+		send(sender);
+		nanos += 1_000_000;
+		connection2.completeAll();
+		nanos += 99_000_000;
+		connection1.completeAll();
+
+		int requests2 = connection2.getRequests();
+		for (int i = 0; i < 10; i++) {
+			send(sender);
+			nanos += 1_000_000;
+			connection2.completeAll();
+		}
+		assertEquals(requests1 + 1, connection1.getRequests());
+		assertEquals(requests2 + 10, connection2.getRequests());
+	}
+
+	@Test
+	public void itShouldKeepLatenciesWhenSenderIsRecreated() {
+		RpcClientConnectionPoolStub pool = new RpcClientConnectionPoolStub();
+		RpcSenderPendingStub fast = new RpcSenderPendingStub();
+		RpcSenderPendingStub slow = new RpcSenderPendingStub();
+		pool.put(ADDRESS_1, fast);
+		pool.put(ADDRESS_2, slow);
+		RpcStrategyPeakEwma strategy = peakEwma(servers(ADDRESS_1, ADDRESS_2))
+				.withDecayTime(Duration.ofSeconds(1))
+				.withNanoTime(() -> nanos);
+		RpcSender sender = strategy.createSender(pool);
+
+		send(sender);
+		send(sender);
+		nanos += 1_000_000;
+		fast.completeAll();
+		nanos += 19_000_000;
+		slow.completeAll();
+
+		// a slow server reconnects, which re-creates a sender
+		pool.remove(ADDRESS_2);
+		strategy.createSender(pool);
+		RpcSenderPendingStub reconnected = new RpcSenderPendingStub();
+		pool.put(ADDRESS_2, reconnected);
+		sender = strategy.createSender(pool);
+
+		for (int i = 0; i < 10; i++) {
+			send(sender);
+		}
+		assertEquals(11, fast.getRequests());
+		assertEquals(0, reconnected.getRequests());
+	}
+
+	private static void send(RpcSender sender) {
+		sender.sendRequest(new RpcMessageDataStub(), 1000, ignore());
+	}
+}
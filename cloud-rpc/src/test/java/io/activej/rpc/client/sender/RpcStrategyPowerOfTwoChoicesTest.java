@@ -0,0 +1,73 @@
+package io.activej.rpc.client.sender;
+
+import io.activej.rpc.client.sender.helper.RpcClientConnectionPoolStub;
+import io.activej.rpc.client.sender.helper.RpcMessageDataStub;
+import io.activej.rpc.client.sender.helper.RpcSenderPendingStub;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+
+import static io.activej.rpc.client.sender.Callbacks.ignore;
+import static io.activej.rpc.client.sender.RpcStrategies.*;
+import static io.activej.test.TestUtils.getFreePort;
+import static org.junit.Assert.*;
+
+@SuppressWarnings("ConstantConditions")
+public class RpcStrategyPowerOfTwoChoicesTest {
+
+	private static final String HOST = "localhost";
+
+	private static final InetSocketAddress ADDRESS_1 = new InetSocketAddress(HOST, getFreePort());
+	private static final InetSocketAddress ADDRESS_2 = new InetSocketAddress(HOST, getFreePort());
+	private static final InetSocketAddress ADDRESS_3 = new InetSocketAddress(HOST, getFreePort());
+	private static final InetSocketAddress ADDRESS_4 = new InetSocketAddress(HOST, getFreePort());
+
+	@Test
+	public void itShouldAvoidStuckSubSender() {
+		RpcClientConnectionPoolStub pool = new RpcClientConnectionPoolStub();
+		RpcSenderPendingStub[] connections = new RpcSenderPendingStub[4];
+		InetSocketAddress[] addresses = {ADDRESS_1, ADDRESS_2, ADDRESS_3, ADDRESS_4};
+		for (int i = 0; i < 4; i++) {
+			connections[i] = new RpcSenderPendingStub();
+			pool.put(addresses[i], connections[i]);
+		}
+		RpcSender sender = powerOfTwoChoices(servers(addresses)).createSender(pool);
+
+		for (int i = 0; i < 1000; i++) {
+			sender.sendRequest(new RpcMessageDataStub(), 50, ignore());
+			// the last server never responds
+			for (int j = 0; j < 3; j++) {
+				connections[j].completeAll();
+			}
+		}
+
+		// once a stuck server has a request in flight, it is picked only against another stuck server
+		assertEquals(1, connections[3].getRequests());
+		for (int j = 0; j < 3; j++) {
+			assertTrue(connections[j].getRequests() > 250);
+		}
+	}
+
+	@Test
+	public void itShouldTrackTheOnlySubSender() {
+		RpcClientConnectionPoolStub pool = new RpcClientConnectionPoolStub();
+		RpcSenderPendingStub connection1 = new RpcSenderPendingStub();
+		pool.put(ADDRESS_1, connection1);
+		RpcStrategyPowerOfTwoChoices strategy = powerOfTwoChoices(servers(ADDRESS_1, ADDRESS_2));
+		RpcSender sender = strategy.createSender(pool);
+		for (int i = 0; i < 3; i++) {
+			sender.sendRequest(new RpcMessageDataStub(), 50, ignore());
+		}
+
+		// requests sent while the first server was the only one are still in flight
+		RpcSenderPendingStub connection2 = new RpcSenderPendingStub();
+		pool.put(ADDRESS_2, connection2);
+		sender = strategy.createSender(pool);
+		for (int i = 0; i < 3; i++) {
+			sender.sendRequest(new RpcMessageDataStub(), 50, ignore());
+		}
+
+		assertEquals(3, connection1.getRequests());
+		assertEquals(3, connection2.getRequests());
+	}
+}
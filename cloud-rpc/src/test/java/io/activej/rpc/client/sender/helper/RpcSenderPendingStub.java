@@ -0,0 +1,39 @@
+package io.activej.rpc.client.sender.helper;
+
+import io.activej.async.callback.Callback;
+import io.activej.rpc.client.sender.RpcSender;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+
+/**
+ * A sender stub which keeps callbacks of requests until they are completed explicitly
+ */
+public final class RpcSenderPendingStub implements RpcSender {
+	private final ArrayDeque<Callback<?>> pending = new ArrayDeque<>();
+	private int requests;
+
+	public int getRequests() {
+		return requests;
+	}
+
+	public int getPending() {
+		return pending.size();
+	}
+
+	@Override
+	public <I, O> void sendRequest(I request, int timeout, @NotNull Callback<O> cb) {
+		requests++;
+		pending.add(cb);
+	}
+
+	public void completeOldest() {
+		pending.remove().accept(null, null);
+	}
+
+	public void completeAll() {
+		while (!pending.isEmpty()) {
+			completeOldest();
+		}
+	}
+}
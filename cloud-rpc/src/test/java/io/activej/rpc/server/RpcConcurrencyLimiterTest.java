@@ -0,0 +1,252 @@
+package io.activej.rpc.server;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.eventloop.Eventloop;
+import io.activej.net.socket.tcp.AsyncTcpSocket;
+import io.activej.promise.Promise;
+import io.activej.promise.Promises;
+import io.activej.promise.SettablePromise;
+import io.activej.rpc.client.RpcClient;
+import io.activej.rpc.protocol.RpcMessage;
+import io.activej.rpc.protocol.RpcStream;
+import io.activej.serializer.BinarySerializer;
+import io.activej.serializer.SerializerBuilder;
+import io.activej.serializer.annotations.Deserialize;
+import io.activej.serializer.annotations.Serialize;
+import io.activej.test.rules.ByteBufRule;
+import io.activej.test.rules.EventloopRule;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static io.activej.common.MemSize.kilobytes;
+
+import static io.activej.promise.TestUtils.await;
+import static io.activej.rpc.client.IRpcClient.RPC_SERVER_OVERLOAD_EXCEPTION;
+import static io.activej.rpc.client.sender.RpcStrategies.server;
+import static io.activej.test.TestUtils.getFreePort;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.*;
+
+public final class RpcConcurrencyLimiterTest {
+
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	@ClassRule
+	public static final ByteBufRule byteBufRule = new ByteBufRule();
+
+	public static final class Request {
+		private final int id;
+
+		public Request(@Deserialize("id") int id) {
+			this.id = id;
+		}
+
+		@Serialize(order = 0)
+		public int getId() {
+			return id;
+		}
+	}
+
+	@Test
+	public void testLimitAndQueue() {
+		RpcConcurrencyLimiter limiter = RpcConcurrencyLimiter.create(2).withMaxQueueSize(1);
+		List<Integer> started = new ArrayList<>();
+
+		assertTrue(limiter.execute(() -> started.add(1)));
+		assertTrue(limiter.execute(() -> started.add(2)));
+		assertTrue(limiter.execute(() -> started.add(3)));
+		assertFalse(limiter.execute(() -> started.add(4)));
+		assertEquals(asList(1, 2), started);
+		assertEquals(1, limiter.getQueueSize());
+
+		limiter.complete();
+		assertEquals(asList(1, 2, 3), started);
+		assertEquals(2, limiter.getInFlight());
+		assertEquals(1, limiter.getQueuedRequests().getTotalCount());
+		assertEquals(1, limiter.getRejectedRequests().getTotalCount());
+	}
+
+	@Test
+	public void testSynchronouslyCompletedQueuedTasksDoNotRecurse() {
+		RpcConcurrencyLimiter limiter = RpcConcurrencyLimiter.create(1).withMaxQueueSize(1_000_000);
+		int[] completed = {0};
+
+		assertTrue(limiter.execute(() -> {}));
+		for (int i = 0; i < 1_000_000; i++) {
+			assertTrue(limiter.execute(() -> {
+				completed[0]++;
+				limiter.complete();
+			}));
+		}
+
+		limiter.complete();
+		assertEquals(1_000_000, completed[0]);
+		assertEquals(0, limiter.getInFlight());
+		assertEquals(0, limiter.getQueueSize());
+	}
+
+	@Test
+	public void testAdaptiveLimit() {
+		RpcConcurrencyLimiter limiter = RpcConcurrencyLimiter.create(10).withAdaptiveLimit(5, 100);
+
+		// latencies do not depend on a load, so a limit grows up to a maximum
+		for (int i = 0; i < 100; i++) {
+			runAtLimit(limiter, 1_000_000);
+		}
+		assertEquals(100, limiter.getLimit());
+
+		// latencies become 5 times higher, so 80% of requests in flight are considered to be queued up,
+		// and a limit shrinks until there are no more than 6 of such requests
+		for (int i = 0; i < 10; i++) {
+			runAtLimit(limiter, 5_000_000);
+		}
+		assertEquals(7, limiter.getLimit());
+	}
+
+	@Test
+	public void testMinLatencyIsTakenOverWindow() {
+		RpcConcurrencyLimiter limiter = RpcConcurrencyLimiter.create(10).withAdaptiveLimit(1, 100);
+
+		// the last request of a window is slow, which does not raise a minimal latency
+		for (int i = 0; i < RpcConcurrencyLimiter.PROBE_INTERVAL; i++) {
+			assertTrue(limiter.execute(() -> {}));
+			limiter.complete(i % 10 == 0 ? 1_000_000 : 5_000_000);
+		}
+		assertEquals(1000, limiter.getMinLatency());
+
+		// a server becomes slower, and a minimal latency follows it after a window
+		for (int i = 0; i < RpcConcurrencyLimiter.PROBE_INTERVAL; i++) {
+			assertTrue(limiter.execute(() -> {}));
+			limiter.complete(2_000_000);
+		}
+		assertEquals(2000, limiter.getMinLatency());
+	}
+
+	@Test
+	public void testServerRejectsRequests() throws IOException {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+		int port = getFreePort();
+		RpcServer server = RpcServer.create(eventloop)
+				.withMessageTypes(Request.class)
+				.withHandler(Request.class, request -> Promises.delay(10, request))
+				.withHandlerLimiter(Request.class, () -> RpcConcurrencyLimiter.create(1).withMaxQueueSize(1))
+				.withListenPort(port);
+		server.listen();
+
+		RpcClient client = RpcClient.create(eventloop)
+				.withMessageTypes(Request.class)
+				.withStrategy(server(new InetSocketAddress(port)));
+
+		List<Object> results = new ArrayList<>();
+		await(client.start()
+				.then(() -> Promises.all(asList(1, 2, 3).stream()
+						.map(id -> client.<Request, Request>sendRequest(new Request(id), 1000)
+								.thenEx((response, e) -> {
+									results.add(e == null ? response.getId() : e);
+									return Promise.complete();
+								}))))
+				.whenComplete(client::stop)
+				.whenComplete(server::close));
+
+		// the third request is rejected while the first one is handled and the second one is queued
+		assertEquals(asList(RPC_SERVER_OVERLOAD_EXCEPTION, 1, 2), results);
+		assertEquals(1, server.getRejectedRequests().getTotalCount());
+		assertEquals(1, client.getGeneralRequestsStats().getRejectedRequests().getTotalCount());
+	}
+
+	@Test
+	public void testQueuedRequestsOfClosedConnectionAreSkipped() {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+		RpcConcurrencyLimiter limiter = RpcConcurrencyLimiter.create(1).withMaxQueueSize(1);
+		List<Integer> handled = new ArrayList<>();
+		List<SettablePromise<Object>> pending = new ArrayList<>();
+		Map<Class<?>, RpcRequestHandler<?, ?>> handlers = singletonMap(Request.class, (RpcRequestHandler<Request, Object>) request -> {
+			handled.add(request.getId());
+			SettablePromise<Object> promise = new SettablePromise<>();
+			pending.add(promise);
+			return promise;
+		});
+		RpcServer server = RpcServer.create(eventloop);
+		BinarySerializer<RpcMessage> serializer = SerializerBuilder.create()
+				.withSubclasses(RpcMessage.MESSAGE_TYPES, singletonList(Request.class))
+				.build(RpcMessage.class);
+
+		List<RpcMessage> responses = new ArrayList<>();
+		RpcServerConnection connection1 = createConnection(server, serializer, handlers, limiter);
+		RpcServerConnection connection2 = createConnection(server, serializer, handlers, limiter);
+		connection1.onSenderReady(responses::add);
+		connection2.onSenderReady(responses::add);
+
+		connection1.accept(RpcMessage.of(1, new Request(1)));
+		connection2.accept(RpcMessage.of(2, new Request(2)));
+		assertEquals(1, limiter.getQueueSize());
+
+		connection2.onReceiverError(new IOException("Connection reset"));
+		pending.get(0).set("done");
+
+		// a queued request of a closed connection is not handled, and its slot is released right away
+		assertEquals(singletonList(1), handled);
+		assertEquals(0, limiter.getInFlight());
+		assertEquals(0, limiter.getQueueSize());
+		assertEquals(1, responses.size());
+
+		connection1.accept(RpcMessage.of(3, new Request(3)));
+		assertEquals(asList(1, 3), handled);
+	}
+
+	private static RpcServerConnection createConnection(RpcServer server, BinarySerializer<RpcMessage> serializer,
+			Map<Class<?>, RpcRequestHandler<?, ?>> handlers, RpcConcurrencyLimiter limiter) {
+		RpcStream stream = new RpcStream(new IdleSocket(), serializer, kilobytes(1), kilobytes(1),
+				Duration.ZERO, false, true);
+		return new RpcServerConnection(server, InetAddress.getLoopbackAddress(), handlers,
+				singletonMap(Request.class, limiter), null, stream);
+	}
+
+	private static final class IdleSocket implements AsyncTcpSocket {
+		private boolean closed;
+
+		@Override
+		public @NotNull Promise<ByteBuf> read() {
+			return new SettablePromise<>();
+		}
+
+		@Override
+		public @NotNull Promise<Void> write(@Nullable ByteBuf buf) {
+			if (buf != null) buf.recycle();
+			return Promise.complete();
+		}
+
+		@Override
+		public boolean isClosed() {
+			return closed;
+		}
+
+		@Override
+		public void closeEx(@NotNull Throwable e) {
+			closed = true;
+		}
+	}
+
+	private static void runAtLimit(RpcConcurrencyLimiter limiter, long latency) {
+		int tasks = 0;
+		while (limiter.execute(() -> {})) {
+			tasks++;
+		}
+		for (int i = 0; i < tasks; i++) {
+			limiter.complete(latency);
+		}
+	}
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.bytebuf;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A single-threaded cache of {@link ByteBuf ByteBufs} which sits in front of
+ * the shared slabs of {@link ByteBufPool}.
+ * <p>
+ * Each slab is backed by a small local stack (a 'magazine'). Polls and offers
+ * are served from the magazine without any synchronization, and only when a magazine
+ * becomes empty or full, a batch of ByteBufs is transferred from or to the shared
+ * {@link ByteBufConcurrentQueue} of the corresponding slab.
+ * <p>
+ * Instances are not thread-safe and are meant to be owned by a single thread.
+ * Counters are plain fields, they are only read for statistics purposes.
+ */
+final class ByteBufMagazine {
+	private final ByteBufConcurrentQueue[] slabs;
+	private final ByteBuf[][] stacks;
+	private final int[] sizes;
+	private final int capacity;
+	private final int batchSize;
+
+	long localHits;
+	long localMisses;
+	long globalRefills;
+	long globalSpills;
+	long transferredIn;
+	long transferredOut;
+
+	ByteBufMagazine(ByteBufConcurrentQueue[] slabs, int cachedSlabs, int capacity) {
+		this.slabs = slabs;
+		this.stacks = new ByteBuf[cachedSlabs][];
+		this.sizes = new int[cachedSlabs];
+		this.capacity = capacity;
+		this.batchSize = Math.max(1, capacity / 2);
+	}
+
+	@Nullable
+	ByteBuf poll(int slab) {
+		int size = sizes[slab];
+		if (size == 0) {
+			size = refill(slab);
+			if (size == 0) {
+				localMisses++;
+				return null;
+			}
+		} else {
+			localHits++;
+		}
+		ByteBuf[] stack = stacks[slab];
+		ByteBuf buf = stack[--size];
+		stack[size] = null;
+		sizes[slab] = size;
+		return buf;
+	}
+
+	void offer(int slab, @NotNull ByteBuf buf) {
+		ByteBuf[] stack = stacks[slab];
+		if (stack == null) {
+			stack = stacks[slab] = new ByteBuf[capacity];
+		}
+		int size = sizes[slab];
+		if (size == capacity) {
+			size = spill(slab);
+		}
+		stack[size] = buf;
+		sizes[slab] = size + 1;
+	}
+
+	private int refill(int slab) {
+		ByteBuf[] stack = stacks[slab];
+		if (stack == null) {
+			stack = stacks[slab] = new ByteBuf[capacity];
+		}
+		ByteBufConcurrentQueue queue = slabs[slab];
+		int size = 0;
+		while (size < batchSize) {
+			ByteBuf buf = queue.poll();
+			if (buf == null) break;
+			stack[size++] = buf;
+		}
+		if (size != 0) {
+			globalRefills++;
+			transferredIn += size;
+		}
+		sizes[slab] = size;
+		return size;
+	}
+
+	private int spill(int slab) {
+		ByteBuf[] stack = stacks[slab];
+		ByteBufConcurrentQueue queue = slabs[slab];
+		int size = sizes[slab];
+		int newSize = size - batchSize;
+		for (int i = newSize; i < size; i++) {
+			queue.offer(stack[i]);
+			stack[i] = null;
+		}
+		globalSpills++;
+		transferredOut += batchSize;
+		sizes[slab] = newSize;
+		return newSize;
+	}
+
+	/**
+	 * Returns all of the cached ByteBufs back to the shared slabs
+	 */
+	void flush() {
+		for (int slab = 0; slab < stacks.length; slab++) {
+			ByteBuf[] stack = stacks[slab];
+			if (stack == null) continue;
+			ByteBufConcurrentQueue queue = slabs[slab];
+			for (int i = 0; i < sizes[slab]; i++) {
+				queue.offer(stack[i]);
+				stack[i] = null;
+			}
+			sizes[slab] = 0;
+		}
+	}
+
+	/**
+	 * Drops all of the cached ByteBufs and resets the counters
+	 */
+	void clear() {
+		for (int slab = 0; slab < stacks.length; slab++) {
+			stacks[slab] = null;
+			sizes[slab] = 0;
+		}
+		resetStats();
+	}
+
+	void clear(int slab) {
+		if (slab >= stacks.length) return;
+		stacks[slab] = null;
+		sizes[slab] = 0;
+	}
+
+	void resetStats() {
+		localHits = localMisses = globalRefills = globalSpills = transferredIn = transferredOut = 0;
+	}
+
+	/**
+	 * Accumulates counters of another magazine into this one
+	 */
+	void add(ByteBufMagazine other) {
+		localHits += other.localHits;
+		localMisses += other.localMisses;
+		globalRefills += other.globalRefills;
+		globalSpills += other.globalSpills;
+		transferredIn += other.transferredIn;
+		transferredOut += other.transferredOut;
+	}
+
+	int size(int slab) {
+		return slab < sizes.length ? sizes[slab] : 0;
+	}
+
+	int size() {
+		int result = 0;
+		for (int size : sizes) {
+			result += size;
+		}
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "ByteBufMagazine{" +
+				"size=" + size() +
+				", localHits=" + localHits +
+				", localMisses=" + localMisses +
+				", globalRefills=" + globalRefills +
+				", globalSpills=" + globalSpills +
+				'}';
+	}
+}
@@ -21,9 +21,12 @@ import io.activej.common.ApplicationSettings;
 import io.activej.common.MemSize;
 import org.jetbrains.annotations.NotNull;
 
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToLongFunction;
 
 import static io.activej.common.Preconditions.checkArgument;
 import static java.lang.Integer.numberOfLeadingZeros;
@@ -92,6 +95,42 @@ public final class ByteBufPool {
 	static final double WATCHDOG_ERROR_MARGIN = ApplicationSettings.getDouble(ByteBufPool.class, "watchdogErrorMargin", 4.0);
 	private static final double SMOOTHING_COEFF = 1.0 - Math.pow(0.5, (double) WATCHDOG_INTERVAL.toMillis() / WATCHDOG_SMOOTHING_WINDOW.toMillis());
 
+	/**
+	 * Allows to put a thread-local {@link ByteBufMagazine} in front of the shared slabs
+	 * if set at value {@code true}. Each thread then allocates and recycles ByteBufs
+	 * through its own small per-slab stacks, which are refilled from and spilled to
+	 * the shared slabs in batches. By default set at value {@code false}.
+	 * <p>
+	 * Note that ByteBufs cached by a thread are not visible to other threads until spilled,
+	 * and ByteBufs cached by a terminated thread are left to the garbage collector.
+	 */
+	static final boolean USE_MAGAZINES = ApplicationSettings.getBoolean(ByteBufPool.class, "useMagazines", false);
+
+	/**
+	 * Defines the maximum number of ByteBufs that a thread-local magazine stores per slab.
+	 * Half of this amount is transferred to or from a shared slab at once.
+	 */
+	static final int MAGAZINE_CAPACITY = ApplicationSettings.getInt(ByteBufPool.class, "magazineCapacity", 64);
+
+	/**
+	 * Defines the maximum size of ByteBufs which are cached in thread-local magazines.
+	 * Larger ByteBufs are always allocated from and recycled to the shared slabs.
+	 */
+	static final int MAGAZINE_MAX_SIZE = ApplicationSettings.getMemSize(ByteBufPool.class, "magazineMaxSize", MemSize.kilobytes(64)).toInt();
+	private static final int MAGAZINE_SLABS = 33 - numberOfLeadingZeros(MAGAZINE_MAX_SIZE - 1);
+
+	/**
+	 * Defines the maximum size of pooled direct {@link ByteBuffer ByteBuffers}.
+	 * Larger direct buffers are allocated on demand and are left to the garbage collector once recycled.
+	 */
+	static final int DIRECT_MAX_SIZE = ApplicationSettings.getMemSize(ByteBufPool.class, "directMaxSize", MemSize.megabytes(1)).toInt();
+
+	/**
+	 * Defines the maximum number of direct {@link ByteBuffer ByteBuffers} that a thread caches per slab.
+	 * Direct buffers which are recycled into a full slab are left to the garbage collector.
+	 */
+	static final int DIRECT_CACHE_CAPACITY = ApplicationSettings.getInt(ByteBufPool.class, "directCacheCapacity", 16);
+
 	/**
 	 * {@code ByteBufConcurrentStack} allows to work with slabs and their ByteBufs.
 	 * Basically, it is a singly linked list with basic stack operations:
@@ -106,8 +145,29 @@ public final class ByteBufPool {
 	static final AtomicInteger[] created;
 	static final AtomicInteger[] reused;
 
+	static final AtomicInteger[] directCreated;
+
 	private static final ByteBufPoolStats stats = new ByteBufPoolStats();
 
+	private static final Set<ByteBufMagazine> magazines = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+	private static final ByteBufMagazine flushedMagazinesStats = new ByteBufMagazine(new ByteBufConcurrentQueue[0], 0, 0);
+	private static final ThreadLocal<ByteBufMagazine> MAGAZINE = ThreadLocal.withInitial(() -> {
+		ByteBufMagazine magazine = new ByteBufMagazine(ByteBufPool.slabs, MAGAZINE_SLABS, MAGAZINE_CAPACITY);
+		magazines.add(magazine);
+		return magazine;
+	});
+
+	/**
+	 * Thread-local slabs of direct {@link ByteBuffer ByteBuffers} which are used as I/O buffers
+	 * to avoid copying of heap buffers into temporary direct buffers by NIO channels.
+	 */
+	private static final Set<DirectBufferCache> directCaches = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+	private static final ThreadLocal<DirectBufferCache> DIRECT_CACHE = ThreadLocal.withInitial(() -> {
+		DirectBufferCache cache = new DirectBufferCache(NUMBER_OF_SLABS, DIRECT_CACHE_CAPACITY);
+		directCaches.add(cache);
+		return cache;
+	});
+
 	/**
 	 * Stores information about ByteBufs for stats.
 	 * <p>
@@ -167,10 +227,12 @@ public final class ByteBufPool {
 		slabStats = new SlabStats[NUMBER_OF_SLABS];
 		created = new AtomicInteger[NUMBER_OF_SLABS];
 		reused = new AtomicInteger[NUMBER_OF_SLABS];
+		directCreated = new AtomicInteger[NUMBER_OF_SLABS];
 		for (int i = 0; i < NUMBER_OF_SLABS; i++) {
 			slabs[i] = new ByteBufConcurrentQueue();
 			created[i] = new AtomicInteger();
 			reused[i] = new AtomicInteger();
+			directCreated[i] = new AtomicInteger();
 		}
 		if (USE_WATCHDOG) {
 			for (int i = 0; i < NUMBER_OF_SLABS; i++) {
@@ -218,8 +280,9 @@ public final class ByteBufPool {
 			}
 		}
 		int index = 32 - numberOfLeadingZeros(size - 1); // index==32 for size==0
-		ByteBufConcurrentQueue queue = slabs[index];
-		ByteBuf buf = queue.poll();
+		ByteBuf buf = USE_MAGAZINES && index < MAGAZINE_SLABS ?
+				MAGAZINE.get().poll(index) :
+				slabs[index].poll();
 		if (buf != null) {
 			if (ByteBuf.CHECK_RECYCLE && buf.refs != -1) throw onByteBufRecycled(buf);
 			buf.tail = 0;
@@ -254,6 +317,7 @@ public final class ByteBufPool {
 		int slab = 32 - numberOfLeadingZeros(buf.array.length - 1);
 		ByteBufConcurrentQueue queue = slabs[slab];
 		queue.clear();
+		if (USE_MAGAZINES) MAGAZINE.get().clear(slab);
 		return new AssertionError("Attempt to use recycled ByteBuf" +
 				(REGISTRY ? ByteBufPool.getByteBufTrace(buf) : ""));
 	}
@@ -304,13 +368,78 @@ public final class ByteBufPool {
 	 */
 	static void recycle(@NotNull ByteBuf buf) {
 		int slab = 32 - numberOfLeadingZeros(buf.array.length - 1);
-		ByteBufConcurrentQueue queue = slabs[slab];
 		if (CLEAR_ON_RECYCLE) Arrays.fill(buf.array(), (byte) 0);
 		if (REGISTRY) {
 			recycleRegistry.put(buf, buildRegistryEntry(buf));
 			allocateRegistry.remove(buf);
 		}
-		queue.offer(buf);
+		if (USE_MAGAZINES && slab < MAGAZINE_SLABS) {
+			MAGAZINE.get().offer(slab, buf);
+		} else {
+			slabs[slab].offer(buf);
+		}
+	}
+
+	/**
+	 * Returns ByteBufs cached in a magazine of the current thread back to the shared slabs.
+	 * It is advised to call this method before a thread which used {@link ByteBufPool} terminates,
+	 * so that cached ByteBufs may be reused by other threads.
+	 * <p>
+	 * Does nothing if thread-local magazines are disabled.
+	 */
+	public static void flushMagazine() {
+		if (!USE_MAGAZINES) return;
+		ByteBufMagazine magazine = MAGAZINE.get();
+		magazine.flush();
+		synchronized (magazines) {
+			flushedMagazinesStats.add(magazine);
+			magazine.resetStats();
+		}
+	}
+
+	/**
+	 * Allocates a direct byte buffer from the pool with size of
+	 * <code>ceil(log<sub>2</sub>(size))<sup>2</sup></code>
+	 * (rounds up to the nearest power of 2) bytes.
+	 * <p>
+	 * Direct buffers are meant to be used as intermediate buffers for I/O
+	 * operations on NIO channels. Returned buffer is cleared, its position is 0
+	 * and its limit is equal to its capacity.
+	 * Buffer should be returned to the pool via {@link #recycleDirect(ByteBuffer)}
+	 *
+	 * @param size returned buffer capacity is guaranteed to be bigger or equal to requested size
+	 * @return direct byte buffer from this pool
+	 */
+	@NotNull
+	public static ByteBuffer allocateDirect(int size) {
+		assert size >= 0 : "Allocating ByteBuffer with negative size";
+		if (size > DIRECT_MAX_SIZE) {
+			return ByteBuffer.allocateDirect(size);
+		}
+		int index = 32 - numberOfLeadingZeros(size - 1); // index==32 for size==0
+		ByteBuffer buffer = DIRECT_CACHE.get().poll(index);
+		if (buffer != null) {
+			((Buffer) buffer).clear();
+			return buffer;
+		}
+		if (STATS) directCreated[index].incrementAndGet();
+		return ByteBuffer.allocateDirect(index == 32 ? 0 : 1 << index);
+	}
+
+	/**
+	 * Returns a direct byte buffer which was previously allocated via {@link #allocateDirect(int)}
+	 * to the appropriate slab of the current thread.
+	 * <p>
+	 * Buffers which do not fit into any slab, or whose slab is full, are not pooled.
+	 *
+	 * @param buffer the direct buffer to be recycled
+	 */
+	public static void recycleDirect(@NotNull ByteBuffer buffer) {
+		assert buffer.isDirect() : "Attempt to recycle non-direct ByteBuffer";
+		int capacity = buffer.capacity();
+		if (capacity > DIRECT_MAX_SIZE || (capacity & (capacity - 1)) != 0) return;
+		int index = capacity == 0 ? 32 : 31 - numberOfLeadingZeros(capacity);
+		DIRECT_CACHE.get().offer(index, buffer);
 	}
 
 	@NotNull
@@ -404,12 +533,21 @@ public final class ByteBufPool {
 
 	/**
 	 * Clears all of the slabs and stats.
+	 * Only a magazine and direct buffers of the current thread are cleared.
 	 */
 	public static void clear() {
+		DIRECT_CACHE.get().clear();
+		if (USE_MAGAZINES) {
+			MAGAZINE.get().clear();
+			synchronized (magazines) {
+				flushedMagazinesStats.resetStats();
+			}
+		}
 		for (int i = 0; i < ByteBufPool.NUMBER_OF_SLABS; i++) {
 			slabs[i].clear();
 			created[i].set(0);
 			reused[i].set(0);
+			directCreated[i].set(0);
 			if (USE_WATCHDOG) slabStats[i].clear();
 		}
 		allocateRegistry.clear();
@@ -438,6 +576,26 @@ public final class ByteBufPool {
 
 		List<Entry> queryUnrecycledBufs(int limit);
 
+		long getMagazineHits();
+
+		long getMagazineMisses();
+
+		double getMagazineHitRate();
+
+		long getMagazineRefills();
+
+		long getMagazineSpills();
+
+		long getMagazineTransferredItems();
+
+		int getMagazineItems();
+
+		int getDirectCreatedItems();
+
+		int getDirectPoolItems();
+
+		long getDirectPoolSize();
+
 		void clear();
 
 		void clearRegistry();
@@ -471,14 +629,14 @@ public final class ByteBufPool {
 
 		@Override
 		public int getPoolItems() {
-			return stream(slabs).mapToInt(ByteBufConcurrentQueue::size).sum();
+			return stream(slabs).mapToInt(ByteBufConcurrentQueue::size).sum() + getMagazineItems();
 		}
 
 		public String getPoolItemsString() {
 			StringBuilder sb = new StringBuilder();
 			for (int i = 0; i < ByteBufPool.NUMBER_OF_SLABS; ++i) {
 				int createdItems = created[i].get();
-				int poolItems = slabs[i].size();
+				int poolItems = slabs[i].size() + getMagazineItems(i);
 				if (createdItems != poolItems) {
 					sb.append(String.format("Slab %d (%d) ", i, (1 << i)))
 							.append(" created: ").append(createdItems)
@@ -493,7 +651,7 @@ public final class ByteBufPool {
 			long result = 0;
 			for (int i = 0; i < slabs.length - 1; i++) {
 				long slabSize = 1L << i;
-				result += slabSize * slabs[i].size();
+				result += slabSize * (slabs[i].size() + getMagazineItems(i));
 			}
 			return result;
 		}
@@ -539,7 +697,7 @@ public final class ByteBufPool {
 				int idx = (i + 32) % slabs.length;
 				long slabSize = idx == 32 ? 0 : 1L << idx;
 				ByteBufConcurrentQueue slab = slabs[idx];
-				int count = slab.size();
+				int count = slab.size() + getMagazineItems(idx);
 				String slabInfo = slabSize + "," +
 						(STATS ? created[idx] : "-") + "," +
 						(STATS ? reused[idx] : "-") + "," +
@@ -558,6 +716,88 @@ public final class ByteBufPool {
 			return result;
 		}
 
+		@Override
+		public long getMagazineHits() {
+			return sumMagazines(magazine -> magazine.localHits);
+		}
+
+		@Override
+		public long getMagazineMisses() {
+			return sumMagazines(magazine -> magazine.localMisses);
+		}
+
+		@Override
+		public double getMagazineHitRate() {
+			long hits = getMagazineHits();
+			long total = hits + getMagazineMisses() + getMagazineRefills();
+			return total == 0 ? 0.0 : (double) hits / total;
+		}
+
+		@Override
+		public long getMagazineRefills() {
+			return sumMagazines(magazine -> magazine.globalRefills);
+		}
+
+		@Override
+		public long getMagazineSpills() {
+			return sumMagazines(magazine -> magazine.globalSpills);
+		}
+
+		@Override
+		public long getMagazineTransferredItems() {
+			return sumMagazines(magazine -> magazine.transferredIn + magazine.transferredOut);
+		}
+
+		@Override
+		public int getMagazineItems() {
+			return (int) sumMagazines(ByteBufMagazine::size);
+		}
+
+		private int getMagazineItems(int slab) {
+			return (int) sumMagazines(magazine -> magazine.size(slab));
+		}
+
+		@Override
+		public int getDirectCreatedItems() {
+			return stream(directCreated).mapToInt(AtomicInteger::get).sum();
+		}
+
+		@Override
+		public int getDirectPoolItems() {
+			return (int) sumDirectCaches(DirectBufferCache::size);
+		}
+
+		@Override
+		public long getDirectPoolSize() {
+			long result = 0;
+			for (int i = 0; i < NUMBER_OF_SLABS - 1; i++) {
+				int slab = i;
+				result += (1L << i) * sumDirectCaches(cache -> cache.size(slab));
+			}
+			return result;
+		}
+
+		private long sumDirectCaches(ToLongFunction<DirectBufferCache> fn) {
+			synchronized (directCaches) {
+				long result = 0;
+				for (DirectBufferCache cache : directCaches) {
+					result += fn.applyAsLong(cache);
+				}
+				return result;
+			}
+		}
+
+		private long sumMagazines(ToLongFunction<ByteBufMagazine> fn) {
+			if (!USE_MAGAZINES) return 0;
+			synchronized (magazines) {
+				long result = fn.applyAsLong(flushedMagazinesStats);
+				for (ByteBufMagazine magazine : magazines) {
+					result += fn.applyAsLong(magazine);
+				}
+				return result;
+			}
+		}
+
 		@Override
 		public void clear() {
 			ByteBufPool.clear();
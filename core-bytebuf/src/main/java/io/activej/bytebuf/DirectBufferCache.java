@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.bytebuf;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A single-threaded cache of direct {@link ByteBuffer ByteBuffers} which is used by {@link ByteBufPool}.
+ * <p>
+ * Each slab is a small bounded stack, so that polls and offers neither synchronize nor allocate.
+ * Direct buffers are mostly allocated and recycled by the same eventloop thread within a single I/O operation,
+ * hence only a few buffers per slab are ever needed. Buffers which do not fit into a full stack
+ * are left to the garbage collector.
+ * <p>
+ * Instances are not thread-safe and are meant to be owned by a single thread.
+ * Sizes are only read by other threads for statistics purposes.
+ */
+final class DirectBufferCache {
+	private final ByteBuffer[][] stacks;
+	private final int[] sizes;
+	private final int capacity;
+
+	DirectBufferCache(int slabs, int capacity) {
+		this.stacks = new ByteBuffer[slabs][];
+		this.sizes = new int[slabs];
+		this.capacity = capacity;
+	}
+
+	@Nullable
+	ByteBuffer poll(int slab) {
+		int size = sizes[slab];
+		if (size == 0) return null;
+		ByteBuffer[] stack = stacks[slab];
+		ByteBuffer buffer = stack[--size];
+		stack[size] = null;
+		sizes[slab] = size;
+		return buffer;
+	}
+
+	void offer(int slab, @NotNull ByteBuffer buffer) {
+		ByteBuffer[] stack = stacks[slab];
+		if (stack == null) {
+			if (capacity == 0) return;
+			stack = stacks[slab] = new ByteBuffer[capacity];
+		}
+		int size = sizes[slab];
+		if (size == capacity) return;
+		stack[size] = buffer;
+		sizes[slab] = size + 1;
+	}
+
+	/**
+	 * Drops all of the cached buffers
+	 */
+	void clear() {
+		for (int slab = 0; slab < stacks.length; slab++) {
+			stacks[slab] = null;
+			sizes[slab] = 0;
+		}
+	}
+
+	int size(int slab) {
+		return sizes[slab];
+	}
+
+	int size() {
+		int result = 0;
+		for (int size : sizes) {
+			result += size;
+		}
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "DirectBufferCache{size=" + size() + '}';
+	}
+}
@@ -0,0 +1,86 @@
+package io.activej.bytebuf;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.activej.bytebuf.ByteBufTest.initByteBufPool;
+import static org.junit.Assert.*;
+
+public class ByteBufMagazineTest {
+	static {
+		initByteBufPool();
+	}
+
+	private static final int SLAB = 5;
+
+	private ByteBufConcurrentQueue[] slabs;
+	private ByteBufMagazine magazine;
+
+	@Before
+	public void setUp() {
+		slabs = new ByteBufConcurrentQueue[33];
+		for (int i = 0; i < slabs.length; i++) {
+			slabs[i] = new ByteBufConcurrentQueue();
+		}
+		magazine = new ByteBufMagazine(slabs, 17, 8);
+	}
+
+	@Test
+	public void testPollFromEmpty() {
+		assertNull(magazine.poll(SLAB));
+		assertEquals(1, magazine.localMisses);
+		assertEquals(0, magazine.globalRefills);
+	}
+
+	@Test
+	public void testOfferAndPollLocally() {
+		ByteBuf buf = ByteBuf.wrapForWriting(new byte[32]);
+		magazine.offer(SLAB, buf);
+		assertEquals(1, magazine.size(SLAB));
+		assertTrue(slabs[SLAB].isEmpty());
+
+		assertSame(buf, magazine.poll(SLAB));
+		assertEquals(1, magazine.localHits);
+		assertEquals(0, magazine.size());
+	}
+
+	@Test
+	public void testSpillInBatches() {
+		for (int i = 0; i < 9; i++) {
+			magazine.offer(SLAB, ByteBuf.wrapForWriting(new byte[32]));
+		}
+		assertEquals(1, magazine.globalSpills);
+		assertEquals(4, slabs[SLAB].size());
+		assertEquals(5, magazine.size(SLAB));
+	}
+
+	@Test
+	public void testRefillInBatches() {
+		for (int i = 0; i < 6; i++) {
+			slabs[SLAB].offer(ByteBuf.wrapForWriting(new byte[32]));
+		}
+		List<ByteBuf> polled = new ArrayList<>();
+		for (int i = 0; i < 6; i++) {
+			ByteBuf buf = magazine.poll(SLAB);
+			assertNotNull(buf);
+			polled.add(buf);
+		}
+		assertNull(magazine.poll(SLAB));
+		assertEquals(2, magazine.globalRefills);
+		assertEquals(6, magazine.transferredIn);
+		assertEquals(6, polled.stream().distinct().count());
+	}
+
+	@Test
+	public void testFlush() {
+		for (int i = 0; i < 3; i++) {
+			magazine.offer(SLAB, ByteBuf.wrapForWriting(new byte[32]));
+		}
+		magazine.flush();
+		assertEquals(0, magazine.size());
+		assertEquals(3, slabs[SLAB].size());
+	}
+}
@@ -0,0 +1,57 @@
+package io.activej.bytebuf;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class DirectBufferCacheTest {
+	private static final int SLAB = 5;
+
+	private final DirectBufferCache cache = new DirectBufferCache(33, 2);
+
+	@Test
+	public void testPollFromEmpty() {
+		assertNull(cache.poll(SLAB));
+	}
+
+	@Test
+	public void testOfferAndPoll() {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(32);
+		cache.offer(SLAB, buffer);
+		assertEquals(1, cache.size(SLAB));
+
+		assertSame(buffer, cache.poll(SLAB));
+		assertEquals(0, cache.size());
+		assertNull(cache.poll(SLAB));
+	}
+
+	@Test
+	public void testBuffersBeyondCapacityAreDropped() {
+		for (int i = 0; i < 3; i++) {
+			cache.offer(SLAB, ByteBuffer.allocateDirect(32));
+		}
+		assertEquals(2, cache.size(SLAB));
+		assertNotNull(cache.poll(SLAB));
+		assertNotNull(cache.poll(SLAB));
+		assertNull(cache.poll(SLAB));
+	}
+
+	@Test
+	public void testPoolReusesBuffersOfCurrentThread() {
+		ByteBufPool.clear();
+		ByteBuffer buffer = ByteBufPool.allocateDirect(100);
+		assertEquals(128, buffer.capacity());
+		buffer.put((byte) 1);
+		ByteBufPool.recycleDirect(buffer);
+		assertEquals(1, ByteBufPool.getStats().getDirectPoolItems());
+		assertEquals(128, ByteBufPool.getStats().getDirectPoolSize());
+
+		ByteBuffer reused = ByteBufPool.allocateDirect(128);
+		assertSame(buffer, reused);
+		assertEquals(0, reused.position());
+		assertEquals(128, reused.limit());
+		assertEquals(0, ByteBufPool.getStats().getDirectPoolItems());
+	}
+}
@@ -23,6 +23,7 @@ import io.activej.bytebuf.ByteBufPool;
 import io.activej.common.MemSize;
 import io.activej.common.exception.CloseException;
 import io.activej.csp.AbstractChannelSupplier;
+import io.activej.net.socket.tcp.AsyncTcpSocketNio;
 import io.activej.promise.Promise;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
@@ -121,6 +122,39 @@ public final class ChannelFileReader extends AbstractChannelSupplier<ByteBuf> {
 		return position;
 	}
 
+	/**
+	 * Returns the number of bytes which are left to be read from a file,
+	 * limited by a size of the file
+	 */
+	public long getRemaining() throws IOException {
+		return Math.max(0, Math.min(channel.size() - position, limit));
+	}
+
+	/**
+	 * Transfers the rest of a file (up to a limit) directly to a given socket
+	 * with {@link AsyncTcpSocketNio#writeFile}, instead of reading it into buffers.
+	 * The file is closed once it has been transferred, and this supplier should not be used afterwards.
+	 */
+	public Promise<Void> transferTo(AsyncTcpSocketNio socket) {
+		if (isClosed()) return Promise.ofException(getException());
+		long count;
+		try {
+			count = getRemaining();
+		} catch (IOException e) {
+			closeEx(e);
+			return Promise.ofException(e);
+		}
+		return sanitize(socket.writeFile(channel, position, count))
+				.whenResult(() -> {
+					position += count;
+					if (limit != Long.MAX_VALUE) {
+						limit -= count;
+					}
+					close();
+				})
+				.whenException(this::closeEx);
+	}
+
 	@Override
 	protected Promise<ByteBuf> doGet() {
 		if (limit == 0) {
@@ -23,7 +23,9 @@ import io.activej.csp.ChannelSupplier;
 import io.activej.csp.ChannelSuppliers;
 import io.activej.csp.binary.BinaryChannelSupplier;
 import io.activej.csp.binary.ByteBufsCodec;
+import io.activej.csp.file.ChannelFileReader;
 import io.activej.net.socket.tcp.AsyncTcpSocket;
+import io.activej.net.socket.tcp.AsyncTcpSocketNio;
 import io.activej.promise.Promise;
 import org.jetbrains.annotations.NotNull;
 
@@ -119,6 +121,25 @@ public final class MessagingWithBinaryStreaming<I, O> implements Messaging<I, O>
 						}));
 	}
 
+	/**
+	 * Sends the rest of a file as a binary stream.
+	 * <p>
+	 * Over a plain TCP socket the file is transferred directly to the socket,
+	 * otherwise it is streamed as usual
+	 */
+	public Promise<Void> sendBinaryFile(ChannelFileReader reader) {
+		if (!(socket instanceof AsyncTcpSocketNio)) {
+			return reader.streamTo(sendBinaryStream());
+		}
+		return reader.transferTo((AsyncTcpSocketNio) socket)
+				.then(() -> socket.write(null))
+				.whenResult(() -> {
+					writeDone = true;
+					closeIfDone();
+				})
+				.whenException(this::closeEx);
+	}
+
 	@Override
 	public ChannelSupplier<ByteBuf> receiveBinaryStream() {
 		return ChannelSuppliers.concat(ChannelSupplier.ofIterator(bufs.asIterator()), ChannelSupplier.ofSocket(socket))
@@ -18,6 +18,7 @@ package io.activej.eventloop;
 
 import io.activej.async.callback.AsyncComputation;
 import io.activej.async.callback.Callback;
+import io.activej.common.ApplicationSettings;
 import io.activej.common.Check;
 import io.activej.common.api.WithInitializer;
 import io.activej.common.exception.AsyncTimeoutException;
@@ -31,13 +32,17 @@ import io.activej.common.time.Stopwatch;
 import io.activej.eventloop.error.FatalErrorHandler;
 import io.activej.eventloop.error.FatalErrorHandlers;
 import io.activej.eventloop.executor.EventloopExecutor;
+import io.activej.eventloop.idle.IdleStrategies;
+import io.activej.eventloop.idle.IdleStrategy;
 import io.activej.eventloop.inspector.EventloopInspector;
 import io.activej.eventloop.inspector.EventloopStats;
 import io.activej.eventloop.jmx.EventloopJmxBeanEx;
 import io.activej.eventloop.net.DatagramSocketSettings;
 import io.activej.eventloop.net.ServerSocketSettings;
+import io.activej.eventloop.schedule.ScheduledQueue;
 import io.activej.eventloop.schedule.ScheduledRunnable;
 import io.activej.eventloop.schedule.Scheduler;
+import io.activej.eventloop.util.MpscQueue;
 import io.activej.eventloop.util.OptimizedSelectedKeysSet;
 import io.activej.eventloop.util.RunnableWithContext;
 import io.activej.jmx.api.attribute.JmxAttribute;
@@ -56,15 +61,16 @@ import java.nio.channels.spi.SelectorProvider;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 import static io.activej.common.Preconditions.checkArgument;
 import static io.activej.common.Preconditions.checkState;
 import static io.activej.common.Utils.nullToSupplier;
-import static io.activej.eventloop.util.Utils.tryToOptimizeSelector;
+import static io.activej.eventloop.util.Utils.*;
 import static java.util.Collections.emptyIterator;
 
 /**
@@ -98,6 +104,21 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 	public static final AsyncTimeoutException CONNECT_TIMEOUT = new AsyncTimeoutException(Eventloop.class, "Connection timed out");
 	public static final StacklessException NOT_CONNECTED = new StacklessException(Eventloop.class, "Connection key was received but the channel was not connected - this is not possible without some bug in Java NIO");
 	public static final Duration DEFAULT_IDLE_INTERVAL = Duration.ofSeconds(1);
+	public static final boolean DEFAULT_TIMING_WHEEL = ApplicationSettings.getBoolean(Eventloop.class, "timingWheel", false);
+
+	/**
+	 * A selector provider which is used by eventloops with no explicitly set selector provider.
+	 * It is loaded by a class name from {@code Eventloop.selectorProvider} setting, so that a native
+	 * (e.g. epoll-based) provider may be used where it is available.
+	 * If it could not be loaded, a default NIO provider is used.
+	 */
+	@Nullable
+	private static final SelectorProvider DEFAULT_SELECTOR_PROVIDER;
+
+	static {
+		String selectorProviderClass = ApplicationSettings.getString(Eventloop.class, "selectorProvider", null);
+		DEFAULT_SELECTOR_PROVIDER = selectorProviderClass != null ? tryLoadSelectorProvider(selectorProviderClass) : null;
+	}
 
 	@NotNull
 	private static volatile FatalErrorHandler globalFatalErrorHandler = FatalErrorHandlers.ignoreAllErrors();
@@ -112,19 +133,30 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 	/**
 	 * Collection of concurrent tasks which were added from other threads.
 	 */
-	private final ConcurrentLinkedQueue<Runnable> concurrentTasks = new ConcurrentLinkedQueue<>();
+	private final MpscQueue<Runnable> concurrentTasks = new MpscQueue<>();
+
+	/**
+	 * Is set while eventloop thread is blocked in {@link Selector#select(long)}.
+	 * Other threads wake the selector up only if they manage to reset this flag,
+	 * so that a single wakeup is made per select, no matter how many tasks are added.
+	 */
+	private final AtomicBoolean parked = new AtomicBoolean();
+	private final LongAdder wakeups = new LongAdder();
+	private final LongAdder suppressedWakeups = new LongAdder();
 
 	/**
 	 * Collection of scheduled tasks that are scheduled
 	 * to be executed at particular timestamp.
 	 */
-	private final PriorityQueue<ScheduledRunnable> scheduledTasks = new PriorityQueue<>();
+	private ScheduledQueue scheduledTasks;
 
 	/**
 	 * Collection of background tasks,
 	 * if eventloop contains only background tasks, it will be closed.
 	 */
-	private final PriorityQueue<ScheduledRunnable> backgroundTasks = new PriorityQueue<>();
+	private ScheduledQueue backgroundTasks;
+
+	private boolean timingWheel = DEFAULT_TIMING_WHEEL;
 
 	/**
 	 * Amount of concurrent operations in other threads,
@@ -155,6 +187,14 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 	@Nullable
 	private SelectorProvider selectorProvider;
 
+	@NotNull
+	private IdleStrategy idleStrategy = IdleStrategies.blocking();
+
+	/**
+	 * Number of consecutive loops in which there were no selected keys or executed tasks
+	 */
+	private int idleLoops;
+
 	/**
 	 * The thread in which eventloop is running.
 	 */
@@ -195,6 +235,8 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 	private Eventloop(@NotNull CurrentTimeProvider timeProvider) {
 		this.timeProvider = timeProvider;
 		refreshTimestamp();
+		this.scheduledTasks = createScheduledQueue(timingWheel);
+		this.backgroundTasks = createScheduledQueue(timingWheel);
 	}
 
 	public static Eventloop create() {
@@ -236,12 +278,40 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 		return this;
 	}
 
+	/**
+	 * Sets a strategy of what this eventloop does when it has no work to do,
+	 * by default it blocks in a selector.
+	 *
+	 * @see IdleStrategies
+	 */
+	@NotNull
+	public Eventloop withIdleStrategy(@NotNull IdleStrategy idleStrategy) {
+		this.idleStrategy = idleStrategy;
+		return this;
+	}
+
 	@NotNull
 	public Eventloop withIdleInterval(@NotNull Duration idleInterval) {
 		this.idleInterval = idleInterval;
 		return this;
 	}
 
+	/**
+	 * Makes this eventloop keep scheduled and background tasks in a hierarchical timing wheel
+	 * instead of a binary heap. A timing wheel schedules and cancels tasks in O(1), which pays off
+	 * when there are lots of pending timeouts that are mostly cancelled before they expire.
+	 * <p>
+	 * Should be called before any task is scheduled.
+	 */
+	@NotNull
+	public Eventloop withTimingWheel(boolean timingWheel) {
+		checkState(scheduledTasks.isEmpty() && backgroundTasks.isEmpty(), "Some tasks have already been scheduled");
+		this.timingWheel = timingWheel;
+		this.scheduledTasks = createScheduledQueue(timingWheel);
+		this.backgroundTasks = createScheduledQueue(timingWheel);
+		return this;
+	}
+
 	@NotNull
 	public Eventloop withCurrentThread() {
 		CURRENT_EVENTLOOP.set(this);
@@ -292,7 +362,8 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 	private void openSelector() {
 		if (selector == null) {
 			try {
-				selector = nullToSupplier(selectorProvider, SelectorProvider::provider).openSelector();
+				SelectorProvider provider = selectorProvider != null ? selectorProvider : DEFAULT_SELECTOR_PROVIDER;
+				selector = nullToSupplier(provider, SelectorProvider::provider).openSelector();
 			} catch (Exception e) {
 				logger.error("Could not open selector", e);
 				throw new RuntimeException(e);
@@ -392,18 +463,50 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 		assert selector != null;
 		breakEventloop = false;
 		boolean setWasOptimized = !JIGSAW_DETECTED && tryToOptimizeSelector(selector);
+		OptimizedSelectedKeysSet selectedKeys = setWasOptimized ? (OptimizedSelectedKeysSet) selector.selectedKeys() : null;
+		Consumer<SelectionKey> selectAction = null;
+		if (selectedKeys == null && isSelectWithActionSupported()) {
+			// selected keys are collected directly, bypassing a selected-key set of a selector
+			selectedKeys = new OptimizedSelectedKeysSet();
+			selectAction = selectedKeys::add;
+		}
 
 		long timeAfterSelectorSelect;
 		long timeAfterBusinessLogic = 0;
+		int spinLoops = 0;
+		long spinStartNanos = 0;
 		while (isAlive()) {
+			long timeBeforeBlocking = 0;
+			long selectTimeout = getSelectTimeout();
+			boolean spinning = selectTimeout > 0 && !idleStrategy.idle(idleLoops);
+			if (spinning) {
+				selectTimeout = 0;
+			} else if (inspector != null) {
+				if (spinLoops != 0) {
+					inspector.onUpdateSpinStats(spinLoops, (System.nanoTime() - spinStartNanos) / 1000);
+					spinLoops = 0;
+				}
+				inspector.onUpdateSelectorSelectTimeout(selectTimeout);
+				if (selectTimeout > 0) timeBeforeBlocking = refreshTimestampAndGet();
+			}
 			try {
-				long selectTimeout = getSelectTimeout();
-				if (inspector != null) inspector.onUpdateSelectorSelectTimeout(selectTimeout);
-				if (selectTimeout <= 0) {
+				if (selectTimeout > 0) {
+					parked.set(true);
+					// concurrent tasks added before the flag was set would not wake the selector up
+					if (!concurrentTasks.isEmpty()) {
+						selectTimeout = 0;
+					}
+				}
+				if (selectAction != null) {
+					lastSelectedKeys = selectTimeout <= 0 ?
+							selectNowWithAction(selector, selectAction) :
+							selectWithAction(selector, selectAction, selectTimeout);
+				} else if (selectTimeout <= 0) {
 					lastSelectedKeys = selector.selectNow();
 				} else {
 					lastSelectedKeys = selector.select(selectTimeout);
 				}
+				parked.lazySet(false);
 				cancelledKeys = 0;
 			} catch (ClosedChannelException e) {
 				logger.error("Selector is closed, exiting...", e);
@@ -413,22 +516,44 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 			}
 
 			timeAfterSelectorSelect = refreshTimestampAndGet();
-			int keys = setWasOptimized ?
-					optimizedProcessSelectedKeys((OptimizedSelectedKeysSet) selector.selectedKeys()) :
+			int keys = selectedKeys != null ?
+					optimizedProcessSelectedKeys(selectedKeys) :
 					processSelectedKeys(selector.selectedKeys());
 			int concurrentTasks = executeConcurrentTasks();
+			if (inspector != null) updateWakeupsStats();
 			int scheduledTasks = executeScheduledTasks();
 			int backgroundTasks = executeBackgroundTasks();
 			int localTasks = executeLocalTasks();
 
+			boolean taskOrKeyPresent = (keys + concurrentTasks + scheduledTasks + backgroundTasks + localTasks) != 0;
+			if (!taskOrKeyPresent) {
+				if (idleLoops != Integer.MAX_VALUE) idleLoops++;
+			} else {
+				idleLoops = 0;
+			}
+
 			if (inspector != null) {
+				if (spinning && !taskOrKeyPresent) {
+					// idle spins are not reported as separate loops, so that for inspectors
+					// (e.g. throttling controller) the whole spin period looks like a single select
+					if (spinLoops++ == 0) spinStartNanos = System.nanoTime();
+					loop++;
+					tick = 0;
+					continue;
+				}
+				if (spinLoops != 0) {
+					inspector.onUpdateSpinStats(spinLoops, (System.nanoTime() - spinStartNanos) / 1000);
+					spinLoops = 0;
+				}
+				if (timeBeforeBlocking != 0) {
+					inspector.onUpdateBlockedTime(timeAfterSelectorSelect - timeBeforeBlocking);
+				}
 				if (timeAfterBusinessLogic != 0) {
 					long selectorSelectTime = timeAfterSelectorSelect - timeAfterBusinessLogic;
 					inspector.onUpdateSelectorSelectTime(selectorSelectTime);
 				}
 
 				timeAfterBusinessLogic = timestamp;
-				boolean taskOrKeyPresent = (keys + concurrentTasks + scheduledTasks + backgroundTasks + localTasks) != 0;
 				boolean externalTaskPresent = lastExternalTasksCount != 0;
 				long businessLogicTime = timeAfterBusinessLogic - timeAfterSelectorSelect;
 				inspector.onUpdateBusinessLogicTime(taskOrKeyPresent, externalTaskPresent, businessLogicTime);
@@ -454,16 +579,16 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 		return Math.min(getTimeBeforeExecution(scheduledTasks), getTimeBeforeExecution(backgroundTasks));
 	}
 
-	private long getTimeBeforeExecution(PriorityQueue<ScheduledRunnable> taskQueue) {
-		while (!taskQueue.isEmpty()) {
-			ScheduledRunnable first = taskQueue.peek();
-			if (first.isCancelled()) {
-				taskQueue.poll();
-				continue;
-			}
-			return first.getTimestamp() - currentTimeMillis();
+	private long getTimeBeforeExecution(ScheduledQueue taskQueue) {
+		long nextTimestamp = taskQueue.getNextTimestamp();
+		if (nextTimestamp == Long.MAX_VALUE) {
+			return idleInterval.toMillis();
 		}
-		return idleInterval.toMillis();
+		return nextTimestamp - currentTimeMillis();
+	}
+
+	private ScheduledQueue createScheduledQueue(boolean timingWheel) {
+		return timingWheel ? ScheduledQueue.ofTimingWheel(this) : ScheduledQueue.ofHeap();
 	}
 
 	/**
@@ -662,6 +787,15 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 		return concurrentTasks;
 	}
 
+	private void updateWakeupsStats() {
+		int wakeups = (int) this.wakeups.sumThenReset();
+		int suppressedWakeups = (int) this.suppressedWakeups.sumThenReset();
+		if (wakeups != 0 || suppressedWakeups != 0) {
+			assert inspector != null;
+			inspector.onUpdateWakeupsStats(wakeups, suppressedWakeups);
+		}
+	}
+
 	/**
 	 * Executes tasks scheduled for execution at particular timestamps
 	 */
@@ -673,7 +807,7 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 		return executeScheduledTasks(backgroundTasks);
 	}
 
-	private int executeScheduledTasks(PriorityQueue<ScheduledRunnable> taskQueue) {
+	private int executeScheduledTasks(ScheduledQueue taskQueue) {
 		long startTimestamp = timestamp;
 		boolean background = taskQueue == backgroundTasks;
 
@@ -681,17 +815,9 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 		Stopwatch sw = monitoring ? Stopwatch.createUnstarted() : null;
 
 		for (; ; ) {
-			ScheduledRunnable peeked = taskQueue.peek();
+			ScheduledRunnable peeked = taskQueue.poll(currentTimeMillis());
 			if (peeked == null)
 				break;
-			if (peeked.isCancelled()) {
-				taskQueue.poll();
-				continue;
-			}
-			if (peeked.getTimestamp() > currentTimeMillis()) {
-				break;
-			}
-			taskQueue.poll();
 
 			Runnable runnable = peeked.getRunnable();
 			if (sw != null) {
@@ -840,20 +966,42 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 	@NotNull
 	public ServerSocketChannel listen(@Nullable InetSocketAddress address, @NotNull ServerSocketSettings serverSocketSettings, @NotNull Consumer<SocketChannel> acceptCallback) throws IOException {
 		if (CHECK) checkState(inEventloopThread(), "Not in eventloop thread");
-		ServerSocketChannel serverSocketChannel = null;
+		ServerSocketChannel serverSocketChannel = createServerSocketChannel(serverSocketSettings, address);
 		try {
-			serverSocketChannel = ServerSocketChannel.open();
-			serverSocketSettings.applySettings(serverSocketChannel);
-			serverSocketChannel.configureBlocking(false);
-			serverSocketChannel.bind(address, serverSocketSettings.getBacklog());
 			serverSocketChannel.register(ensureSelector(), SelectionKey.OP_ACCEPT, acceptCallback);
 			if (selector != null) {
 				selector.wakeup();
 			}
 			return serverSocketChannel;
 		} catch (IOException e) {
-			if (serverSocketChannel != null) {
-				closeChannel(serverSocketChannel, null);
+			closeChannel(serverSocketChannel, null);
+			throw e;
+		}
+	}
+
+	/**
+	 * Creates a non-blocking {@link ServerSocketChannel} bound to a given address.
+	 * It may be called from any thread, and the channel may be registered in an eventloop later.
+	 *
+	 * @param serverSocketSettings settings from this server channel
+	 * @param address              InetSocketAddress that server will listen to
+	 * @return server channel
+	 * @throws IOException If some I/O error occurs
+	 */
+	@NotNull
+	public static ServerSocketChannel createServerSocketChannel(@NotNull ServerSocketSettings serverSocketSettings,
+			@Nullable InetSocketAddress address) throws IOException {
+		ServerSocketChannel serverSocketChannel = ServerSocketChannel.open();
+		try {
+			serverSocketSettings.applySettings(serverSocketChannel);
+			serverSocketChannel.configureBlocking(false);
+			serverSocketChannel.bind(address, serverSocketSettings.getBacklog());
+			return serverSocketChannel;
+		} catch (IOException e) {
+			try {
+				serverSocketChannel.close();
+			} catch (IOException e2) {
+				e.addSuppressed(e2);
 			}
 			throw e;
 		}
@@ -1000,8 +1148,14 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 	@Override
 	public void execute(@NotNull @Async.Schedule Runnable runnable) {
 		concurrentTasks.offer(runnable);
-		if (selector != null) {
-			selector.wakeup();
+		if (parked.get() && parked.compareAndSet(true, false)) {
+			Selector selector = this.selector;
+			if (selector != null) {
+				selector.wakeup();
+			}
+			wakeups.increment();
+		} else {
+			suppressedWakeups.increment();
 		}
 	}
 
@@ -1039,8 +1193,8 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 	@NotNull
 	private ScheduledRunnable addScheduledTask(long timestamp, Runnable runnable, boolean background) {
 		ScheduledRunnable scheduledTask = ScheduledRunnable.create(timestamp, runnable);
-		PriorityQueue<ScheduledRunnable> taskQueue = background ? backgroundTasks : scheduledTasks;
-		taskQueue.offer(scheduledTask);
+		ScheduledQueue taskQueue = background ? backgroundTasks : scheduledTasks;
+		taskQueue.add(scheduledTask);
 		return scheduledTask;
 	}
 
@@ -1228,11 +1382,21 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 		return BaseInspector.lookup(inspector, EventloopStats.class);
 	}
 
+	@JmxAttribute
+	public boolean getTimingWheel() {
+		return timingWheel;
+	}
+
 	@JmxAttribute
 	public Duration getIdleInterval() {
 		return idleInterval;
 	}
 
+	@NotNull
+	public IdleStrategy getIdleStrategy() {
+		return idleStrategy;
+	}
+
 	@JmxAttribute
 	public void setIdleInterval(Duration idleInterval) {
 		this.idleInterval = idleInterval;
@@ -1264,8 +1428,9 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 		if (!backgroundTasks.isEmpty()) {
 			sb.append(", backgroundTasks=").append(backgroundTasks.size());
 		}
-		if (!concurrentTasks.isEmpty()) {
-			sb.append(", concurrentTasks=").append(concurrentTasks.size());
+		int concurrentTasksSize = concurrentTasks.size();
+		if (concurrentTasksSize != 0) {
+			sb.append(", concurrentTasks=").append(concurrentTasksSize);
 		}
 		int externalTasks = externalTasksCount.get();
 		if (externalTasks != 0) {
@@ -41,6 +41,16 @@ public abstract class ForwardingEventloopInspector implements EventloopInspector
 		if (next != null) next.onUpdateSelectorSelectTimeout(selectorSelectTimeout);
 	}
 
+	@Override
+	public void onUpdateBlockedTime(long blockedTime) {
+		if (next != null) next.onUpdateBlockedTime(blockedTime);
+	}
+
+	@Override
+	public void onUpdateSpinStats(int spinLoops, long spinTimeMicros) {
+		if (next != null) next.onUpdateSpinStats(spinLoops, spinTimeMicros);
+	}
+
 	@Override
 	public void onUpdateSelectedKeyDuration(@NotNull Stopwatch sw) {
 		if (next != null) next.onUpdateSelectedKeyDuration(sw);
@@ -71,6 +81,11 @@ public abstract class ForwardingEventloopInspector implements EventloopInspector
 		if (next != null) next.onUpdateConcurrentTasksStats(newConcurrentTasks, loopTime);
 	}
 
+	@Override
+	public void onUpdateWakeupsStats(int wakeups, int suppressedWakeups) {
+		if (next != null) next.onUpdateWakeupsStats(wakeups, suppressedWakeups);
+	}
+
 	@Override
 	public void onUpdateScheduledTaskDuration(@NotNull Runnable runnable, @Nullable Stopwatch sw, boolean background) {
 		if (next != null) next.onUpdateScheduledTaskDuration(runnable, sw, background);
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.eventloop.idle;
+
+import io.activej.eventloop.Eventloop;
+
+import java.time.Duration;
+import java.util.concurrent.locks.LockSupport;
+
+import static io.activej.common.Preconditions.checkArgument;
+
+/**
+ * Encapsulation of certain idle strategies that determine {@link Eventloop} behaviour when it has no work to do.
+ */
+public final class IdleStrategies {
+	private static final IdleStrategy BLOCKING = idleLoops -> true;
+	private static final IdleStrategy SPIN = idleLoops -> false;
+
+	/**
+	 * Blocks in a selector right away, this is the default strategy
+	 */
+	public static IdleStrategy blocking() {
+		return BLOCKING;
+	}
+
+	/**
+	 * Never blocks, keeps polling a selector.
+	 * Gives the lowest latency, but fully occupies a CPU core
+	 */
+	public static IdleStrategy spin() {
+		return SPIN;
+	}
+
+	/**
+	 * Polls a selector for a given number of idle loops, then blocks in it
+	 */
+	public static IdleStrategy spinThenBlock(int maxSpins) {
+		checkArgument(maxSpins >= 0, "Number of spins cannot be negative");
+		return idleLoops -> idleLoops >= maxSpins;
+	}
+
+	/**
+	 * Polls a selector for a given number of idle loops, then keeps polling it
+	 * yielding a processor to other threads in between
+	 */
+	public static IdleStrategy spinThenYield(int maxSpins) {
+		checkArgument(maxSpins >= 0, "Number of spins cannot be negative");
+		return idleLoops -> {
+			if (idleLoops >= maxSpins) {
+				Thread.yield();
+			}
+			return false;
+		};
+	}
+
+	/**
+	 * Polls a selector for a given number of idle loops, then yields a processor for
+	 * a given number of idle loops, and then parks current thread in between polls.
+	 * A park period starts with {@code minParkPeriod} and is doubled on each idle loop up to {@code maxParkPeriod}.
+	 * <p>
+	 * A parked eventloop is not woken up by I/O events or by tasks from other threads,
+	 * so {@code maxParkPeriod} bounds an extra latency of an idle eventloop
+	 */
+	public static IdleStrategy spinThenPark(int maxSpins, int maxYields, Duration minParkPeriod, Duration maxParkPeriod) {
+		checkArgument(maxSpins >= 0 && maxYields >= 0, "Number of spins and yields cannot be negative");
+		long minParkNanos = minParkPeriod.toNanos();
+		long maxParkNanos = maxParkPeriod.toNanos();
+		checkArgument(minParkNanos > 0 && minParkNanos <= maxParkNanos, "Park periods should be positive, and minimal period should not exceed maximal one");
+		return idleLoops -> {
+			if (idleLoops < maxSpins) {
+				return false;
+			}
+			int parks = idleLoops - maxSpins - maxYields;
+			if (parks < 0) {
+				Thread.yield();
+				return false;
+			}
+			long parkNanos = parks < Long.numberOfLeadingZeros(minParkNanos) - 1 ? minParkNanos << parks : maxParkNanos;
+			LockSupport.parkNanos(Math.min(parkNanos, maxParkNanos));
+			return false;
+		};
+	}
+}
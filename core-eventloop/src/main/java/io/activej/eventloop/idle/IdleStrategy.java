@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.eventloop.idle;
+
+import io.activej.eventloop.Eventloop;
+
+/**
+ * A strategy of what an {@link Eventloop} does when it has no work to do.
+ * <p>
+ * By default, an eventloop blocks in a selector until an I/O event occurs, some task is submitted
+ * from another thread or a scheduled task is due. Latency-critical eventloops may instead
+ * keep polling a selector, trading a CPU core for a lower wakeup latency.
+ *
+ * @see Eventloop#withIdleStrategy
+ * @see IdleStrategies
+ */
+@FunctionalInterface
+public interface IdleStrategy {
+	/**
+	 * Called each time an eventloop is idle, right before it selects keys.
+	 * May spin, yield or park current thread for a while.
+	 *
+	 * @param idleLoops number of consecutive idle loops before this one
+	 * @return {@code true} if an eventloop should block in a selector,
+	 * {@code false} if it should only poll a selector and go on
+	 */
+	boolean idle(int idleLoops);
+}
@@ -28,6 +28,10 @@ public interface EventloopInspector extends BaseInspector<EventloopInspector> {
 
 	void onUpdateSelectorSelectTimeout(long selectorSelectTimeout);
 
+	void onUpdateBlockedTime(long blockedTime);
+
+	void onUpdateSpinStats(int spinLoops, long spinTimeMicros);
+
 	void onUpdateSelectedKeyDuration(@NotNull Stopwatch sw);
 
 	void onUpdateSelectedKeysStats(int lastSelectedKeys, int invalidKeys, int acceptKeys, int connectKeys, int readKeys, int writeKeys, long loopTime);
@@ -40,6 +44,8 @@ public interface EventloopInspector extends BaseInspector<EventloopInspector> {
 
 	void onUpdateConcurrentTasksStats(int newConcurrentTasks, long loopTime);
 
+	void onUpdateWakeupsStats(int wakeups, int suppressedWakeups);
+
 	void onUpdateScheduledTaskDuration(@NotNull Runnable runnable, @Nullable Stopwatch sw, boolean background);
 
 	void onUpdateScheduledTasksStats(int scheduledTasks, long loopTime, boolean background);
@@ -37,6 +37,9 @@ public final class EventloopStats implements EventloopInspector {
 	private final ValueStats selectorSelectTimeout;
 	private final ValueStats selectorSelectTime;
 	private final ValueStats businessLogicTime;
+	private final ValueStats blockedTime;
+	private final ValueStats spinTime;
+	private final EventStats spinLoops;
 	private final Tasks tasks;
 	private final Keys keys;
 	private final ExceptionStats fatalErrors;
@@ -44,6 +47,8 @@ public final class EventloopStats implements EventloopInspector {
 	private final EventStats idleLoops;
 	private final EventStats idleLoopsWaitingExternalTask;
 	private final EventStats selectOverdues;
+	private final EventStats wakeups;
+	private final EventStats suppressedWakeups;
 
 	private EventloopStats() {
 		loops = EventStats.create(DEFAULT_SMOOTHING_WINDOW);
@@ -51,6 +56,9 @@ public final class EventloopStats implements EventloopInspector {
 				.withHistogram(new int[]{-256, -128, -64, -32, -16, -8, -4, -2, -1, 0, 1, 2, 4, 8, 16, 32}).withUnit("milliseconds");
 		selectorSelectTime = ValueStats.create(DEFAULT_SMOOTHING_WINDOW).withHistogram(POWERS_OF_TWO).withUnit("milliseconds");
 		businessLogicTime = ValueStats.create(DEFAULT_SMOOTHING_WINDOW).withHistogram(POWERS_OF_TWO).withUnit("milliseconds");
+		blockedTime = ValueStats.create(DEFAULT_SMOOTHING_WINDOW).withHistogram(POWERS_OF_TWO).withUnit("milliseconds");
+		spinTime = ValueStats.create(DEFAULT_SMOOTHING_WINDOW).withHistogram(POWERS_OF_TWO).withUnit("microseconds");
+		spinLoops = EventStats.create(DEFAULT_SMOOTHING_WINDOW);
 		tasks = new Tasks();
 		keys = new Keys();
 		fatalErrors = ExceptionStats.create();
@@ -58,6 +66,8 @@ public final class EventloopStats implements EventloopInspector {
 		idleLoops = EventStats.create(DEFAULT_SMOOTHING_WINDOW);
 		idleLoopsWaitingExternalTask = EventStats.create(DEFAULT_SMOOTHING_WINDOW);
 		selectOverdues = EventStats.create(DEFAULT_SMOOTHING_WINDOW);
+		wakeups = EventStats.create(DEFAULT_SMOOTHING_WINDOW);
+		suppressedWakeups = EventStats.create(DEFAULT_SMOOTHING_WINDOW);
 	}
 
 	public static EventloopStats create() {
@@ -90,6 +100,17 @@ public final class EventloopStats implements EventloopInspector {
 		if (selectorSelectTimeout < 0) selectOverdues.recordEvent();
 	}
 
+	@Override
+	public void onUpdateBlockedTime(long blockedTime) {
+		this.blockedTime.recordValue((int) blockedTime);
+	}
+
+	@Override
+	public void onUpdateSpinStats(int spinLoops, long spinTimeMicros) {
+		this.spinLoops.recordEvents(spinLoops);
+		this.spinTime.recordValue((int) Math.min(spinTimeMicros, Integer.MAX_VALUE));
+	}
+
 	@Override
 	public void onUpdateSelectedKeyDuration(@NotNull Stopwatch sw) {
 		keys.oneKeyTime.recordValue((int) sw.elapsed(TimeUnit.MICROSECONDS));
@@ -139,6 +160,12 @@ public final class EventloopStats implements EventloopInspector {
 		tasks.concurrent.tasksPerLoop.recordValue(newConcurrentTasks);
 	}
 
+	@Override
+	public void onUpdateWakeupsStats(int wakeups, int suppressedWakeups) {
+		this.wakeups.recordEvents(wakeups);
+		this.suppressedWakeups.recordEvents(suppressedWakeups);
+	}
+
 	@Override
 	public void onUpdateScheduledTaskDuration(@NotNull Runnable runnable, @Nullable Stopwatch sw, boolean background) {
 		if (background) {
@@ -199,6 +226,21 @@ public final class EventloopStats implements EventloopInspector {
 		return businessLogicTime;
 	}
 
+	@JmxAttribute(extraSubAttributes = "histogram")
+	public ValueStats getBlockedTime() {
+		return blockedTime;
+	}
+
+	@JmxAttribute(extraSubAttributes = "histogram")
+	public ValueStats getSpinTime() {
+		return spinTime;
+	}
+
+	@JmxAttribute
+	public EventStats getSpinLoops() {
+		return spinLoops;
+	}
+
 	@JmxAttribute
 	public Tasks getTasks() {
 		return tasks;
@@ -234,6 +276,16 @@ public final class EventloopStats implements EventloopInspector {
 		return selectOverdues;
 	}
 
+	@JmxAttribute
+	public EventStats getWakeups() {
+		return wakeups;
+	}
+
+	@JmxAttribute
+	public EventStats getSuppressedWakeups() {
+		return suppressedWakeups;
+	}
+
 	@SuppressWarnings("unchecked")
 	@Override
 	public <T extends EventloopInspector> @Nullable T lookup(Class<T> type) {
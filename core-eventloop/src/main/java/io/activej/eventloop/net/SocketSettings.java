@@ -43,9 +43,11 @@ public final class SocketSettings {
 	private final int implReadTimeout;
 	private final int implWriteTimeout;
 	private final int implReadBufferSize;
+	private final byte implDirectBuffers;
+	private final byte implAdaptiveReadBuffer;
 
 	// region builders
-	private SocketSettings(int sendBufferSize, int receiveBufferSize, byte keepAlive, byte reuseAddress, byte tcpNoDelay, int implReadTimeout, int implWriteTimeout, int implReadBufferSize) {
+	private SocketSettings(int sendBufferSize, int receiveBufferSize, byte keepAlive, byte reuseAddress, byte tcpNoDelay, int implReadTimeout, int implWriteTimeout, int implReadBufferSize, byte implDirectBuffers, byte implAdaptiveReadBuffer) {
 		this.sendBufferSize = sendBufferSize;
 		this.receiveBufferSize = receiveBufferSize;
 		this.keepAlive = keepAlive;
@@ -54,10 +56,12 @@ public final class SocketSettings {
 		this.implReadTimeout = implReadTimeout;
 		this.implWriteTimeout = implWriteTimeout;
 		this.implReadBufferSize = implReadBufferSize;
+		this.implDirectBuffers = implDirectBuffers;
+		this.implAdaptiveReadBuffer = implAdaptiveReadBuffer;
 	}
 
 	public static SocketSettings create() {
-		return new SocketSettings(0, 0, DEF_BOOL, DEF_BOOL, DEF_BOOL, 0, 0, 0);
+		return new SocketSettings(0, 0, DEF_BOOL, DEF_BOOL, DEF_BOOL, 0, 0, 0, DEF_BOOL, DEF_BOOL);
 	}
 
 	/**
@@ -68,39 +72,62 @@ public final class SocketSettings {
 	 * @return default socket settings
 	 */
 	public static SocketSettings createDefault() {
-		return new SocketSettings(0, 0, DEF_BOOL, DEF_BOOL, TRUE, 0, 0, 0);
+		return new SocketSettings(0, 0, DEF_BOOL, DEF_BOOL, TRUE, 0, 0, 0, DEF_BOOL, DEF_BOOL);
 	}
 
 	public SocketSettings withSendBufferSize(@NotNull MemSize sendBufferSize) {
-		return new SocketSettings(sendBufferSize.toInt(), receiveBufferSize, keepAlive, reuseAddress, tcpNoDelay, implReadTimeout, implWriteTimeout, implReadBufferSize);
+		return new SocketSettings(sendBufferSize.toInt(), receiveBufferSize, keepAlive, reuseAddress, tcpNoDelay, implReadTimeout, implWriteTimeout, implReadBufferSize, implDirectBuffers, implAdaptiveReadBuffer);
 	}
 
 	public SocketSettings withReceiveBufferSize(@NotNull MemSize receiveBufferSize) {
-		return new SocketSettings(sendBufferSize, receiveBufferSize.toInt(), keepAlive, reuseAddress, tcpNoDelay, implReadTimeout, implWriteTimeout, implReadBufferSize);
+		return new SocketSettings(sendBufferSize, receiveBufferSize.toInt(), keepAlive, reuseAddress, tcpNoDelay, implReadTimeout, implWriteTimeout, implReadBufferSize, implDirectBuffers, implAdaptiveReadBuffer);
 	}
 
 	public SocketSettings withKeepAlive(boolean keepAlive) {
-		return new SocketSettings(sendBufferSize, receiveBufferSize, keepAlive ? TRUE : FALSE, reuseAddress, tcpNoDelay, implReadTimeout, implWriteTimeout, implReadBufferSize);
+		return new SocketSettings(sendBufferSize, receiveBufferSize, keepAlive ? TRUE : FALSE, reuseAddress, tcpNoDelay, implReadTimeout, implWriteTimeout, implReadBufferSize, implDirectBuffers, implAdaptiveReadBuffer);
 	}
 
 	public SocketSettings withReuseAddress(boolean reuseAddress) {
-		return new SocketSettings(sendBufferSize, receiveBufferSize, keepAlive, reuseAddress ? TRUE : FALSE, tcpNoDelay, implReadTimeout, implWriteTimeout, implReadBufferSize);
+		return new SocketSettings(sendBufferSize, receiveBufferSize, keepAlive, reuseAddress ? TRUE : FALSE, tcpNoDelay, implReadTimeout, implWriteTimeout, implReadBufferSize, implDirectBuffers, implAdaptiveReadBuffer);
 	}
 
 	public SocketSettings withTcpNoDelay(boolean tcpNoDelay) {
-		return new SocketSettings(sendBufferSize, receiveBufferSize, keepAlive, reuseAddress, tcpNoDelay ? TRUE : FALSE, implReadTimeout, implWriteTimeout, implReadBufferSize);
+		return new SocketSettings(sendBufferSize, receiveBufferSize, keepAlive, reuseAddress, tcpNoDelay ? TRUE : FALSE, implReadTimeout, implWriteTimeout, implReadBufferSize, implDirectBuffers, implAdaptiveReadBuffer);
 	}
 
 	public SocketSettings withImplReadTimeout(@NotNull Duration implReadTimeout) {
-		return new SocketSettings(sendBufferSize, receiveBufferSize, keepAlive, reuseAddress, tcpNoDelay, (int) implReadTimeout.toMillis(), implWriteTimeout, implReadBufferSize);
+		return new SocketSettings(sendBufferSize, receiveBufferSize, keepAlive, reuseAddress, tcpNoDelay, (int) implReadTimeout.toMillis(), implWriteTimeout, implReadBufferSize, implDirectBuffers, implAdaptiveReadBuffer);
 	}
 
 	public SocketSettings withImplWriteTimeout(@NotNull Duration implWriteTimeout) {
-		return new SocketSettings(sendBufferSize, receiveBufferSize, keepAlive, reuseAddress, tcpNoDelay, implReadTimeout, (int) implWriteTimeout.toMillis(), implReadBufferSize);
+		return new SocketSettings(sendBufferSize, receiveBufferSize, keepAlive, reuseAddress, tcpNoDelay, implReadTimeout, (int) implWriteTimeout.toMillis(), implReadBufferSize, implDirectBuffers, implAdaptiveReadBuffer);
 	}
 
 	public SocketSettings withImplReadBufferSize(@NotNull MemSize implReadBufferSize) {
-		return new SocketSettings(sendBufferSize, receiveBufferSize, keepAlive, reuseAddress, tcpNoDelay, implReadTimeout, implWriteTimeout, implReadBufferSize.toInt());
+		return new SocketSettings(sendBufferSize, receiveBufferSize, keepAlive, reuseAddress, tcpNoDelay, implReadTimeout, implWriteTimeout, implReadBufferSize.toInt(), implDirectBuffers, implAdaptiveReadBuffer);
+	}
+
+	/**
+	 * Makes socket write data through pooled direct buffers, which are kept across partial writes,
+	 * so that NIO channels do not copy the same heap buffers into temporary direct buffers
+	 * again on every retry of a backpressured write
+	 *
+	 * @param implDirectBuffers whether direct buffers should be used for writes
+	 * @return new socket settings
+	 */
+	public SocketSettings withImplDirectBuffers(boolean implDirectBuffers) {
+		return new SocketSettings(sendBufferSize, receiveBufferSize, keepAlive, reuseAddress, tcpNoDelay, implReadTimeout, implWriteTimeout, implReadBufferSize, implDirectBuffers ? TRUE : FALSE, implAdaptiveReadBuffer);
+	}
+
+	/**
+	 * Makes socket adjust the size of its read buffer to the amount of data
+	 * actually read, starting from the read buffer size
+	 *
+	 * @param implAdaptiveReadBuffer whether read buffer size should be adaptive
+	 * @return new socket settings
+	 */
+	public SocketSettings withImplAdaptiveReadBuffer(boolean implAdaptiveReadBuffer) {
+		return new SocketSettings(sendBufferSize, receiveBufferSize, keepAlive, reuseAddress, tcpNoDelay, implReadTimeout, implWriteTimeout, implReadBufferSize, implDirectBuffers, implAdaptiveReadBuffer ? TRUE : FALSE);
 	}
 
 	// endregion
@@ -220,4 +247,22 @@ public final class SocketSettings {
 		return implReadBufferSize;
 	}
 
+	public boolean hasImplDirectBuffers() {
+		return implDirectBuffers != DEF_BOOL;
+	}
+
+	public boolean getImplDirectBuffers() {
+		checkState(hasImplDirectBuffers(), "No 'direct buffers' setting is present");
+		return implDirectBuffers != FALSE;
+	}
+
+	public boolean hasImplAdaptiveReadBuffer() {
+		return implAdaptiveReadBuffer != DEF_BOOL;
+	}
+
+	public boolean getImplAdaptiveReadBuffer() {
+		checkState(hasImplAdaptiveReadBuffer(), "No 'adaptive read buffer' setting is present");
+		return implAdaptiveReadBuffer != FALSE;
+	}
+
 }
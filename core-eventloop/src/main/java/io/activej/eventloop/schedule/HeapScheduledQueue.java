@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.eventloop.schedule;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.PriorityQueue;
+
+final class HeapScheduledQueue implements ScheduledQueue {
+	private final PriorityQueue<ScheduledRunnable> queue = new PriorityQueue<>();
+
+	@Override
+	public void add(@NotNull ScheduledRunnable task) {
+		queue.offer(task);
+	}
+
+	@Nullable
+	@Override
+	public ScheduledRunnable poll(long timestamp) {
+		ScheduledRunnable first = peek();
+		if (first == null || first.getTimestamp() > timestamp) {
+			return null;
+		}
+		return queue.poll();
+	}
+
+	@Override
+	public long getNextTimestamp() {
+		ScheduledRunnable first = peek();
+		return first != null ? first.getTimestamp() : Long.MAX_VALUE;
+	}
+
+	@Nullable
+	private ScheduledRunnable peek() {
+		while (!queue.isEmpty()) {
+			ScheduledRunnable first = queue.peek();
+			if (first.isCancelled()) {
+				queue.poll();
+				continue;
+			}
+			return first;
+		}
+		return null;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return queue.isEmpty();
+	}
+
+	@Override
+	public int size() {
+		return queue.size();
+	}
+
+	@Override
+	public String toString() {
+		return "HeapScheduledQueue{size=" + queue.size() + '}';
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.eventloop.schedule;
+
+import io.activej.common.time.CurrentTimeProvider;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A queue of {@link ScheduledRunnable scheduled tasks} which is used by an eventloop
+ * to find out which of the tasks are due to be executed.
+ * <p>
+ * Implementations are not thread-safe and are meant to be used from an eventloop thread only.
+ */
+public interface ScheduledQueue {
+	/**
+	 * Adds a task to this queue
+	 */
+	void add(@NotNull ScheduledRunnable task);
+
+	/**
+	 * Removes and returns a task which is due to be executed at a given timestamp.
+	 * Cancelled tasks are never returned.
+	 *
+	 * @param timestamp current timestamp
+	 * @return a task to be executed, or {@code null} if there are no due tasks
+	 */
+	@Nullable
+	ScheduledRunnable poll(long timestamp);
+
+	/**
+	 * Returns a timestamp at which this queue should be polled next.
+	 * It is never later than the timestamp of the earliest task in this queue.
+	 *
+	 * @return next timestamp or {@link Long#MAX_VALUE} if this queue contains no tasks
+	 */
+	long getNextTimestamp();
+
+	boolean isEmpty();
+
+	int size();
+
+	/**
+	 * Creates a queue backed by a binary heap.
+	 * Tasks are added in O(log n), cancelled tasks are removed lazily.
+	 */
+	static ScheduledQueue ofHeap() {
+		return new HeapScheduledQueue();
+	}
+
+	/**
+	 * Creates a queue backed by a hierarchical timing wheel with 1 millisecond resolution.
+	 * Tasks are added and cancelled in O(1).
+	 *
+	 * @param timeProvider provider of current time, used to align an empty wheel
+	 */
+	static ScheduledQueue ofTimingWheel(@NotNull CurrentTimeProvider timeProvider) {
+		return new TimingWheel(timeProvider);
+	}
+}
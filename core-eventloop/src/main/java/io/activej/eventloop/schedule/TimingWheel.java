@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.eventloop.schedule;
+
+import io.activej.common.time.CurrentTimeProvider;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A hierarchical timing wheel with 1 millisecond resolution.
+ * <p>
+ * There are {@link #LEVELS} wheels of {@link #WHEEL_SIZE} slots each. A slot of the first wheel holds
+ * tasks of a single millisecond, a slot of each next wheel spans a whole turn of the previous one.
+ * When a turn of a wheel is complete, tasks of the corresponding slot of the next wheel are
+ * redistributed (cascaded) to lower wheels. Tasks which are further in the future than
+ * the last wheel can hold are put into the last wheel and get redistributed when its slot is reached.
+ * <p>
+ * Each slot is an intrusive doubly-linked list of {@link ScheduledRunnable ScheduledRunnables},
+ * so that both adding and cancelling of a task is O(1), and cancelled tasks do not stay in a wheel.
+ */
+final class TimingWheel implements ScheduledQueue {
+	static final int WHEEL_BITS = 6;
+	static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+	static final int WHEEL_MASK = WHEEL_SIZE - 1;
+	static final int LEVELS = 4;
+	static final long MAX_DELAY = (1L << (WHEEL_BITS * LEVELS)) - 1;
+
+	private final CurrentTimeProvider timeProvider;
+
+	private final Bucket[][] wheels = new Bucket[LEVELS][WHEEL_SIZE];
+	private final int[] levelSizes = new int[LEVELS];
+	private final Bucket expired = new Bucket(-1);
+
+	/**
+	 * Next millisecond to be processed, all the tasks before it are either executed or in {@link #expired} bucket
+	 */
+	private long currentTime;
+	private int size;
+
+	TimingWheel(CurrentTimeProvider timeProvider) {
+		this.timeProvider = timeProvider;
+	}
+
+	@Override
+	public void add(@NotNull ScheduledRunnable task) {
+		if (task.isCancelled()) return;
+		if (size == 0) {
+			currentTime = timeProvider.currentTimeMillis();
+		}
+		place(task);
+	}
+
+	@Nullable
+	@Override
+	public ScheduledRunnable poll(long timestamp) {
+		if (expired.head == null) {
+			advance(timestamp);
+		}
+		return expired.poll();
+	}
+
+	@Override
+	public long getNextTimestamp() {
+		if (expired.head != null) {
+			return expired.head.getTimestamp();
+		}
+		if (levelSizes[0] != 0) {
+			for (int i = 0; i < WHEEL_SIZE; i++) {
+				Bucket bucket = wheels[0][(int) ((currentTime + i) & WHEEL_MASK)];
+				if (bucket != null && bucket.head != null) {
+					return currentTime + i;
+				}
+			}
+		}
+		return nextEventTime();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	private void place(ScheduledRunnable task) {
+		long timestamp = task.getTimestamp();
+		long delay = timestamp - currentTime;
+		if (delay < 0) {
+			expired.add(task);
+			return;
+		}
+		if (delay > MAX_DELAY) {
+			timestamp = currentTime + MAX_DELAY;
+			delay = MAX_DELAY;
+		}
+		int level = 0;
+		while (level < LEVELS - 1 && delay >= 1L << (WHEEL_BITS * (level + 1))) {
+			level++;
+		}
+		int slot = (int) ((timestamp >> (WHEEL_BITS * level)) & WHEEL_MASK);
+		Bucket bucket = wheels[level][slot];
+		if (bucket == null) {
+			bucket = wheels[level][slot] = new Bucket(level);
+		}
+		bucket.add(task);
+	}
+
+	/**
+	 * Moves all the tasks which are due at a given timestamp into {@link #expired} bucket
+	 */
+	private void advance(long timestamp) {
+		while (currentTime <= timestamp) {
+			long time = nextEventTime();
+			if (time > timestamp) {
+				currentTime = timestamp + 1;
+				return;
+			}
+			currentTime = time;
+			if ((time & WHEEL_MASK) == 0) {
+				cascade(time);
+			}
+			Bucket bucket = wheels[0][(int) (time & WHEEL_MASK)];
+			if (bucket != null) {
+				for (ScheduledRunnable task = bucket.poll(); task != null; task = bucket.poll()) {
+					expired.add(task);
+				}
+			}
+			currentTime = time + 1;
+		}
+	}
+
+	/**
+	 * Returns the earliest time, not before {@link #currentTime}, at which some of the slots should be processed
+	 */
+	private long nextEventTime() {
+		for (int level = 0; level < LEVELS; level++) {
+			if (levelSizes[level] != 0) {
+				long mask = (1L << (WHEEL_BITS * level)) - 1;
+				return (currentTime + mask) & ~mask;
+			}
+		}
+		return Long.MAX_VALUE;
+	}
+
+	private void cascade(long time) {
+		for (int level = 1; level < LEVELS; level++) {
+			int slot = (int) ((time >> (WHEEL_BITS * level)) & WHEEL_MASK);
+			Bucket bucket = wheels[level][slot];
+			if (bucket != null) {
+				for (ScheduledRunnable task = bucket.poll(); task != null; task = bucket.poll()) {
+					place(task);
+				}
+			}
+			if (slot != 0) break;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "TimingWheel{size=" + size + ", currentTime=" + currentTime + '}';
+	}
+
+	final class Bucket {
+		private final int level;
+
+		@Nullable
+		ScheduledRunnable head;
+		@Nullable
+		ScheduledRunnable tail;
+
+		Bucket(int level) {
+			this.level = level;
+		}
+
+		void add(ScheduledRunnable task) {
+			task.bucket = this;
+			task.prev = tail;
+			task.next = null;
+			if (tail == null) {
+				head = task;
+			} else {
+				tail.next = task;
+			}
+			tail = task;
+			if (level >= 0) levelSizes[level]++;
+			size++;
+		}
+
+		void remove(ScheduledRunnable task) {
+			assert task.bucket == this;
+			ScheduledRunnable prev = task.prev;
+			ScheduledRunnable next = task.next;
+			if (prev == null) {
+				head = next;
+			} else {
+				prev.next = next;
+			}
+			if (next == null) {
+				tail = prev;
+			} else {
+				next.prev = prev;
+			}
+			task.bucket = null;
+			task.prev = null;
+			task.next = null;
+			if (level >= 0) levelSizes[level]--;
+			size--;
+		}
+
+		@Nullable
+		ScheduledRunnable poll() {
+			ScheduledRunnable task = head;
+			if (task != null) {
+				remove(task);
+			}
+			return task;
+		}
+	}
+}
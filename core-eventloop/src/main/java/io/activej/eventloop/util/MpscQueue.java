@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.eventloop.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An unbounded lock-free multi-producer single-consumer queue.
+ * <p>
+ * Elements are stored in a linked list of fixed-size array chunks.
+ * Each producer claims a slot with a single atomic increment and then publishes
+ * an element into it, so there is no per-element node allocation and
+ * no CAS retry loops between producers. Chunks which are fully consumed are
+ * left to a garbage collector.
+ * <p>
+ * {@link #offer(Object)} may be called from any thread, while
+ * {@link #poll()} and {@link #isEmpty()} must only be called from a single consumer thread.
+ */
+public final class MpscQueue<T> {
+	private static final int CHUNK_BITS = 10;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	private final AtomicLong producerIndex = new AtomicLong();
+
+	/**
+	 * A hint for producers, never points to a chunk which is after the one of a next free slot
+	 */
+	private final AtomicReference<Chunk<T>> producerChunk;
+
+	// accessed by a consumer thread only
+	private Chunk<T> consumerChunk;
+	private long consumerIndex;
+	private volatile long consumerIndexVolatile;
+
+	public MpscQueue() {
+		Chunk<T> chunk = new Chunk<>(0);
+		producerChunk = new AtomicReference<>(chunk);
+		consumerChunk = chunk;
+	}
+
+	/**
+	 * Adds an element to this queue, may be called from any thread
+	 */
+	public void offer(@NotNull T element) {
+		// a hint is read before a slot is claimed, so that it is not ahead of the slot
+		Chunk<T> chunk = producerChunk.get();
+		long index = producerIndex.getAndIncrement();
+		long base = index & ~CHUNK_MASK;
+		while (chunk.base != base) {
+			Chunk<T> next = chunk.next.get();
+			if (next == null) {
+				Chunk<T> newChunk = new Chunk<>(chunk.base + CHUNK_SIZE);
+				next = chunk.next.compareAndSet(null, newChunk) ? newChunk : chunk.next.get();
+			}
+			chunk = next;
+		}
+		if ((index & CHUNK_MASK) == 0) {
+			advanceProducerChunk(chunk);
+		}
+		chunk.slots.set((int) (index & CHUNK_MASK), element);
+	}
+
+	private void advanceProducerChunk(Chunk<T> chunk) {
+		while (true) {
+			Chunk<T> current = producerChunk.get();
+			if (current.base >= chunk.base || producerChunk.compareAndSet(current, chunk)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Removes and returns a head of this queue, should be called from a consumer thread only
+	 *
+	 * @return a head of this queue, or {@code null} if there are no published elements
+	 */
+	@Nullable
+	public T poll() {
+		int slot = (int) (consumerIndex & CHUNK_MASK);
+		Chunk<T> chunk = consumerChunk;
+		if (slot == 0 && chunk.base != consumerIndex) {
+			chunk = chunk.next.get();
+			if (chunk == null) {
+				return null;
+			}
+		}
+		T element = chunk.slots.get(slot);
+		if (element == null) {
+			return null;
+		}
+		chunk.slots.lazySet(slot, null);
+		consumerChunk = chunk;
+		consumerIndexVolatile = ++consumerIndex;
+		return element;
+	}
+
+	/**
+	 * Checks whether this queue is empty, should be called from a consumer thread only.
+	 * <p>
+	 * Elements which are being added at the moment are also taken into account,
+	 * even if {@link #poll()} does not return them yet
+	 */
+	public boolean isEmpty() {
+		return producerIndex.get() == consumerIndex;
+	}
+
+	/**
+	 * Returns an approximate number of elements in this queue, may be called from any thread
+	 */
+	public int size() {
+		return (int) Math.max(0, producerIndex.get() - consumerIndexVolatile);
+	}
+
+	@Override
+	public String toString() {
+		return "MpscQueue{size=" + size() + '}';
+	}
+
+	private static final class Chunk<T> {
+		final long base;
+		final AtomicReferenceArray<T> slots = new AtomicReferenceArray<>(CHUNK_SIZE);
+		final AtomicReference<Chunk<T>> next = new AtomicReference<>();
+
+		Chunk(long base) {
+			this.base = base;
+		}
+	}
+}
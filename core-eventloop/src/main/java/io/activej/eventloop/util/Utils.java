@@ -16,11 +16,21 @@
 
 package io.activej.eventloop.util;
 
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
+import java.nio.channels.spi.SelectorProvider;
+import java.util.function.Consumer;
 
 /**
  * Is used to replace the inefficient {@link java.util.HashSet} in {@link sun.nio.ch.SelectorImpl}
@@ -29,19 +39,25 @@ import java.nio.channels.Selector;
 public final class Utils {
 	private static final Logger logger = LoggerFactory.getLogger(Utils.class);
 
-	private static Field SELECTED_KEYS_FIELD;
-	private static Field PUBLIC_SELECTED_KEYS_FIELD;
+	/**
+	 * {@code Selector.select(Consumer, long)} and {@code Selector.selectNow(Consumer)}, available since Java 11
+	 */
+	@Nullable
+	private static final MethodHandle SELECT_WITH_ACTION;
+	@Nullable
+	private static final MethodHandle SELECT_NOW_WITH_ACTION;
 
 	static {
+		MethodHandle select = null;
+		MethodHandle selectNow = null;
 		try {
-			Class<?> cls = Class.forName("sun.nio.ch.SelectorImpl", false, Thread.currentThread().getContextClassLoader());
-			SELECTED_KEYS_FIELD = cls.getDeclaredField("selectedKeys");
-			PUBLIC_SELECTED_KEYS_FIELD = cls.getDeclaredField("publicSelectedKeys");
-			SELECTED_KEYS_FIELD.setAccessible(true);
-			PUBLIC_SELECTED_KEYS_FIELD.setAccessible(true);
-		} catch (ClassNotFoundException | NoSuchFieldException e) {
-			logger.warn("Failed reflecting NIO selector fields", e);
+			MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			select = lookup.findVirtual(Selector.class, "select", MethodType.methodType(int.class, Consumer.class, long.class));
+			selectNow = lookup.findVirtual(Selector.class, "selectNow", MethodType.methodType(int.class, Consumer.class));
+		} catch (NoSuchMethodException | IllegalAccessException ignored) {
 		}
+		SELECT_WITH_ACTION = select;
+		SELECT_NOW_WITH_ACTION = selectNow;
 	}
 
 	/**
@@ -52,10 +68,13 @@ public final class Utils {
 	 * @return <code>true</code> on success
 	 */
 	public static boolean tryToOptimizeSelector(Selector selector) {
+		if (SelectedKeysFields.SELECTED_KEYS_FIELD == null || SelectedKeysFields.PUBLIC_SELECTED_KEYS_FIELD == null) {
+			return false;
+		}
 		OptimizedSelectedKeysSet selectedKeys = new OptimizedSelectedKeysSet();
 		try {
-			SELECTED_KEYS_FIELD.set(selector, selectedKeys);
-			PUBLIC_SELECTED_KEYS_FIELD.set(selector, selectedKeys);
+			SelectedKeysFields.SELECTED_KEYS_FIELD.set(selector, selectedKeys);
+			SelectedKeysFields.PUBLIC_SELECTED_KEYS_FIELD.set(selector, selectedKeys);
 			return true;
 
 		} catch (IllegalAccessException e) {
@@ -64,4 +83,118 @@ public final class Utils {
 
 		return false;
 	}
+
+	/**
+	 * Checks whether selector can pass selected keys directly to an action,
+	 * without collecting them into a selected-key set
+	 *
+	 * @return <code>true</code> if running on Java 11 or later
+	 */
+	public static boolean isSelectWithActionSupported() {
+		return SELECT_WITH_ACTION != null;
+	}
+
+	/**
+	 * Calls {@code Selector.select(Consumer, long)}, should only be used
+	 * if {@link #isSelectWithActionSupported()} returns <code>true</code>
+	 */
+	public static int selectWithAction(Selector selector, Consumer<SelectionKey> action, long timeout) throws IOException {
+		assert SELECT_WITH_ACTION != null;
+		try {
+			return (int) SELECT_WITH_ACTION.invokeExact(selector, action, timeout);
+		} catch (IOException | RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	/**
+	 * Calls {@code Selector.selectNow(Consumer)}, should only be used
+	 * if {@link #isSelectWithActionSupported()} returns <code>true</code>
+	 */
+	public static int selectNowWithAction(Selector selector, Consumer<SelectionKey> action) throws IOException {
+		assert SELECT_NOW_WITH_ACTION != null;
+		try {
+			return (int) SELECT_NOW_WITH_ACTION.invokeExact(selector, action);
+		} catch (IOException | RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	/**
+	 * Loads a {@link SelectorProvider} by its class name, so that a native (e.g. epoll-based)
+	 * implementation may be plugged in without a compile-time dependency on it.
+	 * <p>
+	 * A provider is obtained either from a public static no-arg {@code provider()} method
+	 * of a class, or from its public no-arg constructor.
+	 *
+	 * @param className name of a {@link SelectorProvider} class
+	 * @return a selector provider or <code>null</code> if it could not be loaded,
+	 * for example if a native library is not available on this platform
+	 */
+	@Nullable
+	public static SelectorProvider tryLoadSelectorProvider(String className) {
+		SelectorProvider defaultProvider = SelectorProvider.provider();
+		if (defaultProvider.getClass().getName().equals(className)) {
+			// a default provider is not accessible reflectively since Java 16
+			return defaultProvider;
+		}
+		try {
+			Class<?> cls = Class.forName(className, true, Thread.currentThread().getContextClassLoader());
+			Method method = getStaticProviderMethod(cls);
+			Object provider = method != null ? method.invoke(null) : cls.getDeclaredConstructor().newInstance();
+			if (provider instanceof SelectorProvider) {
+				return (SelectorProvider) provider;
+			}
+			logger.warn("{} is not a selector provider, falling back to a default one", className);
+		} catch (Exception | LinkageError e) {
+			logger.warn("Failed loading selector provider {}, falling back to a default one", className, e);
+		}
+		return null;
+	}
+
+	@Nullable
+	private static Method getStaticProviderMethod(Class<?> cls) {
+		try {
+			Method method = cls.getMethod("provider");
+			// SelectorProvider.provider() itself returns a system-wide default provider
+			return method.getDeclaringClass() == cls && Modifier.isStatic(method.getModifiers()) ? method : null;
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Reflects selected keys fields of {@link sun.nio.ch.SelectorImpl} on first use only,
+	 * so that other utilities do not depend on whether these fields may be made accessible.
+	 * Since Java 16 they may not, unless {@code java.base/sun.nio.ch} is opened
+	 */
+	private static final class SelectedKeysFields {
+		@Nullable
+		static final Field SELECTED_KEYS_FIELD;
+		@Nullable
+		static final Field PUBLIC_SELECTED_KEYS_FIELD;
+
+		static {
+			Field selectedKeysField = null;
+			Field publicSelectedKeysField = null;
+			try {
+				Class<?> cls = Class.forName("sun.nio.ch.SelectorImpl", false, Thread.currentThread().getContextClassLoader());
+				selectedKeysField = cls.getDeclaredField("selectedKeys");
+				publicSelectedKeysField = cls.getDeclaredField("publicSelectedKeys");
+				// throws InaccessibleObjectException since Java 16
+				selectedKeysField.setAccessible(true);
+				publicSelectedKeysField.setAccessible(true);
+			} catch (ClassNotFoundException | NoSuchFieldException | RuntimeException e) {
+				logger.warn("Failed reflecting NIO selector fields", e);
+				selectedKeysField = null;
+				publicSelectedKeysField = null;
+			}
+			SELECTED_KEYS_FIELD = selectedKeysField;
+			PUBLIC_SELECTED_KEYS_FIELD = publicSelectedKeysField;
+		}
+	}
 }
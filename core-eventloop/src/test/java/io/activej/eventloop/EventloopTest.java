@@ -1,11 +1,20 @@
 package io.activej.eventloop;
 
 import io.activej.common.ref.Ref;
+import io.activej.eventloop.idle.IdleStrategies;
+import io.activej.eventloop.inspector.EventloopStats;
+import io.activej.eventloop.inspector.ThrottlingController;
 import io.activej.eventloop.util.RunnableWithContext;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import static java.util.Objects.requireNonNull;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public final class EventloopTest {
 	@Test
@@ -32,4 +41,69 @@ public final class EventloopTest {
 		assertEquals(error, errorRef.get());
 		assertEquals(contextString, sb.toString());
 	}
+
+	@Test
+	public void testExecuteFromMultipleThreads() throws InterruptedException {
+		EventloopStats stats = EventloopStats.create();
+		Eventloop eventloop = Eventloop.create().withInspector(stats);
+		eventloop.keepAlive(true);
+		Thread eventloopThread = new Thread(eventloop);
+		eventloopThread.start();
+
+		int producers = 4;
+		int tasksPerProducer = 10_000;
+		CountDownLatch executed = new CountDownLatch(producers * tasksPerProducer);
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < producers; i++) {
+			Thread thread = new Thread(() -> {
+				for (int j = 0; j < tasksPerProducer; j++) {
+					eventloop.execute(executed::countDown);
+					if (j % 1000 == 0) {
+						// lets eventloop park in a selector, so that it has to be woken up
+						try {
+							Thread.sleep(1);
+						} catch (InterruptedException e) {
+							throw new AssertionError(e);
+						}
+					}
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertTrue(executed.await(10, TimeUnit.SECONDS));
+
+		eventloop.execute(() -> eventloop.keepAlive(false));
+		eventloopThread.join();
+
+		long wakeups = stats.getWakeups().getTotalCount();
+		long suppressedWakeups = stats.getSuppressedWakeups().getTotalCount();
+		assertTrue(wakeups + suppressedWakeups >= producers * tasksPerProducer);
+		assertTrue(wakeups > 0);
+	}
+
+	@Test
+	public void testSpinningIdleStrategy() {
+		EventloopStats stats = EventloopStats.create();
+		ThrottlingController throttlingController = ThrottlingController.create(stats);
+		Eventloop eventloop = Eventloop.create().withCurrentThread()
+				.withIdleStrategy(IdleStrategies.spinThenBlock(1000))
+				.withInspector(throttlingController);
+		throttlingController.setEventloop(eventloop);
+
+		Ref<Boolean> executed = new Ref<>(false);
+		eventloop.delay(20, () -> eventloop.delay(20, () -> executed.set(true)));
+		eventloop.run();
+
+		assertTrue(executed.get());
+		assertTrue(stats.getSpinLoops().getTotalCount() >= 1000);
+		assertTrue(stats.getSpinTime().getCount() > 0);
+		assertTrue(stats.getBlockedTime().getCount() > 0);
+		// idle spins are not counted as loops, so loops are only the ones in which scheduled tasks were executed
+		assertTrue(stats.getLoops().getTotalCount() < 10);
+		assertTrue(throttlingController.getRounds() < 10);
+	}
 }
@@ -0,0 +1,100 @@
+package io.activej.eventloop.schedule;
+
+import io.activej.common.ref.RefLong;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public final class TimingWheelTest {
+	private final RefLong now = new RefLong(1_000_000L);
+	private final ScheduledQueue wheel = ScheduledQueue.ofTimingWheel(now::get);
+
+	@Test
+	public void testPollDueTasks() {
+		ScheduledRunnable task1 = schedule(wheel, now.get() + 10);
+		ScheduledRunnable task2 = schedule(wheel, now.get() + 100);
+		ScheduledRunnable task3 = schedule(wheel, now.get() + 100_000);
+		assertEquals(3, wheel.size());
+
+		assertNull(wheel.poll(now.get() + 9));
+		assertSame(task1, wheel.poll(now.get() + 10));
+		assertNull(wheel.poll(now.get() + 99));
+		assertSame(task2, wheel.poll(now.get() + 100));
+		assertNull(wheel.poll(now.get() + 99_999));
+		assertSame(task3, wheel.poll(now.get() + 100_000));
+		assertTrue(wheel.isEmpty());
+	}
+
+	@Test
+	public void testCancel() {
+		ScheduledRunnable task1 = schedule(wheel, now.get() + 10);
+		ScheduledRunnable task2 = schedule(wheel, now.get() + 10_000);
+		task1.cancel();
+		assertEquals(1, wheel.size());
+		task2.cancel();
+		assertTrue(wheel.isEmpty());
+		assertEquals(Long.MAX_VALUE, wheel.getNextTimestamp());
+		assertNull(wheel.poll(now.get() + 20_000));
+	}
+
+	@Test
+	public void testPastTasksAreDueImmediately() {
+		ScheduledRunnable task = schedule(wheel, now.get() - 5);
+		assertEquals(now.get() - 5, wheel.getNextTimestamp());
+		assertSame(task, wheel.poll(now.get()));
+	}
+
+	@Test
+	public void testVeryDistantTasks() {
+		long timestamp = now.get() + TimingWheel.MAX_DELAY * 3;
+		ScheduledRunnable task = schedule(wheel, timestamp);
+		long next = wheel.getNextTimestamp();
+		assertTrue(next <= timestamp);
+		assertNull(wheel.poll(timestamp - 1));
+		assertSame(task, wheel.poll(timestamp));
+	}
+
+	@Test
+	public void testSameOrderAsHeap() {
+		Random random = new Random(0);
+		ScheduledQueue heap = ScheduledQueue.ofHeap();
+		List<ScheduledRunnable> wheelTasks = new ArrayList<>();
+		List<ScheduledRunnable> heapTasks = new ArrayList<>();
+		long start = now.get();
+		for (int i = 0; i < 10_000; i++) {
+			long timestamp = start + random.nextInt(1 << random.nextInt(26));
+			wheelTasks.add(schedule(wheel, timestamp));
+			heapTasks.add(schedule(heap, timestamp));
+		}
+		for (int i = 0; i < wheelTasks.size(); i += 3) {
+			wheelTasks.get(i).cancel();
+			heapTasks.get(i).cancel();
+		}
+
+		long time = start;
+		while (!wheel.isEmpty()) {
+			long next = wheel.getNextTimestamp();
+			assertTrue(next <= heap.getNextTimestamp());
+			time = Math.max(time, next);
+			for (ScheduledRunnable task = wheel.poll(time); task != null; task = wheel.poll(time)) {
+				ScheduledRunnable expected = heap.poll(time);
+				assertNotNull(expected);
+				assertEquals(expected.getTimestamp(), task.getTimestamp());
+				assertEquals(time, task.getTimestamp());
+			}
+			assertNull(heap.poll(time));
+			time++;
+		}
+		assertEquals(Long.MAX_VALUE, heap.getNextTimestamp());
+	}
+
+	private static ScheduledRunnable schedule(ScheduledQueue queue, long timestamp) {
+		ScheduledRunnable task = ScheduledRunnable.create(timestamp, () -> {});
+		queue.add(task);
+		return task;
+	}
+}
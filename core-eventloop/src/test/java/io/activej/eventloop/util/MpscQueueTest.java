@@ -0,0 +1,87 @@
+package io.activej.eventloop.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class MpscQueueTest {
+
+	@Test
+	public void testSingleThread() {
+		MpscQueue<Integer> queue = new MpscQueue<>();
+		assertTrue(queue.isEmpty());
+		assertNull(queue.poll());
+
+		int count = 5000;
+		for (int i = 0; i < count; i++) {
+			queue.offer(i);
+			if (i % 3 == 0) {
+				queue.poll();
+			}
+		}
+		int expected = count - (count + 2) / 3;
+		assertEquals(expected, queue.size());
+
+		Integer previous = -1;
+		for (Integer element = queue.poll(); element != null; element = queue.poll()) {
+			assertTrue(element > previous);
+			previous = element;
+			expected--;
+		}
+		assertEquals(0, expected);
+		assertTrue(queue.isEmpty());
+		assertEquals(0, queue.size());
+	}
+
+	@Test
+	public void testMultipleProducers() throws InterruptedException {
+		MpscQueue<long[]> queue = new MpscQueue<>();
+		int producers = 4;
+		int perProducer = 200_000;
+		CountDownLatch start = new CountDownLatch(1);
+
+		List<Thread> threads = new ArrayList<>();
+		for (int p = 0; p < producers; p++) {
+			int producer = p;
+			Thread thread = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					throw new AssertionError(e);
+				}
+				for (int i = 0; i < perProducer; i++) {
+					queue.offer(new long[]{producer, i});
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		start.countDown();
+
+		long[] lastSeen = new long[producers];
+		for (int p = 0; p < producers; p++) {
+			lastSeen[p] = -1;
+		}
+		int received = 0;
+		while (received < producers * perProducer) {
+			long[] element = queue.poll();
+			if (element == null) {
+				Thread.yield();
+				continue;
+			}
+			int producer = (int) element[0];
+			assertEquals(lastSeen[producer] + 1, element[1]);
+			lastSeen[producer] = element[1];
+			received++;
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertTrue(queue.isEmpty());
+		assertNull(queue.poll());
+	}
+}
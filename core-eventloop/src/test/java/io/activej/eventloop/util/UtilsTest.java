@@ -0,0 +1,63 @@
+package io.activej.eventloop.util;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.spi.SelectorProvider;
+
+import static io.activej.eventloop.util.Utils.*;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class UtilsTest {
+
+	@Test
+	public void testLoadSelectorProvider() {
+		SelectorProvider provider = tryLoadSelectorProvider(SelectorProvider.provider().getClass().getName());
+		assertNotNull(provider);
+		assertSame(SelectorProvider.provider().getClass(), provider.getClass());
+	}
+
+	@Test
+	public void testLoadMissingSelectorProvider() {
+		assertNull(tryLoadSelectorProvider("io.activej.eventloop.util.NoSuchSelectorProvider"));
+		assertNull(tryLoadSelectorProvider(String.class.getName()));
+	}
+
+	@Test
+	public void testOptimizeSelector() throws Exception {
+		// selector internals can not be made accessible since Java 16, which should not be an error
+		try (Selector selector = Selector.open()) {
+			if (tryToOptimizeSelector(selector)) {
+				assertTrue(selector.selectedKeys() instanceof OptimizedSelectedKeysSet);
+			}
+		}
+	}
+
+	@Test
+	public void testSelectWithAction() throws Exception {
+		assumeTrue(isSelectWithActionSupported());
+
+		try (Selector selector = Selector.open()) {
+			Pipe pipe = Pipe.open();
+			pipe.source().configureBlocking(false);
+			SelectionKey key = pipe.source().register(selector, SelectionKey.OP_READ);
+
+			OptimizedSelectedKeysSet selectedKeys = new OptimizedSelectedKeysSet();
+			assertEquals(0, selectNowWithAction(selector, selectedKeys::add));
+			assertEquals(0, selectedKeys.size());
+
+			pipe.sink().write(ByteBuffer.wrap(new byte[]{1}));
+			assertEquals(1, selectWithAction(selector, selectedKeys::add, 1000));
+			assertEquals(1, selectedKeys.size());
+			assertSame(key, selectedKeys.get(0));
+			assertTrue(selector.selectedKeys().isEmpty());
+
+			pipe.sink().close();
+			pipe.source().close();
+		}
+	}
+}
@@ -0,0 +1,1138 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
+import io.activej.bytebuf.ByteBufQueue;
+import io.activej.common.ApplicationSettings;
+import io.activej.common.MemSize;
+import io.activej.common.exception.parse.ParseException;
+import io.activej.csp.AbstractChannelSupplier;
+import io.activej.csp.ChannelSupplier;
+import io.activej.eventloop.Eventloop;
+import io.activej.http.stream.BufsConsumerGzipInflater;
+import io.activej.net.socket.tcp.AsyncTcpSocket;
+import io.activej.promise.Promise;
+import io.activej.promise.SettablePromise;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static io.activej.bytebuf.ByteBufStrings.encodeAscii;
+import static io.activej.eventloop.util.RunnableWithContext.wrapContext;
+import static io.activej.http.HttpHeaderValue.ofBytes;
+import static io.activej.http.HttpHeaderValue.ofDecimal;
+import static io.activej.http.HttpHeaders.*;
+import static io.activej.http.Http2Exception.*;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * A common part of HTTP/2 server and client connections (RFC 7540).
+ * <p>
+ * It reads frames from a socket, keeps track of multiplexed streams,
+ * applies flow control in both directions and encodes and decodes header blocks with HPACK.
+ * Frames to be sent are accumulated in an output buffer, which is written to a socket
+ * once per eventloop tick, so that frames of many streams share a single write.
+ * <p>
+ * Bodies of received messages are exposed as {@link ChannelSupplier channel suppliers},
+ * a peer is granted more flow control credit only as the data is consumed by an application.
+ */
+abstract class AbstractHttp2Connection extends AbstractHttpConnection {
+	static final byte[] PREFACE = encodeAscii("PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n");
+	static final String ALPN_H2 = "h2";
+	static final String ALPN_HTTP_1_1 = "http/1.1";
+
+	static final int HEADER_TABLE_SIZE = ApplicationSettings.getMemSize(AbstractHttp2Connection.class, "headerTableSize", MemSize.kilobytes(4)).toInt();
+	static final int CONNECTION_WINDOW_SIZE = ApplicationSettings.getMemSize(AbstractHttp2Connection.class, "connectionWindowSize", MemSize.megabytes(4)).toInt();
+	static final int MAX_HEADER_BLOCK_SIZE = ApplicationSettings.getMemSize(AbstractHttp2Connection.class, "maxHeaderBlockSize", MemSize.kilobytes(64)).toInt();
+	static final int MAX_HEADER_LIST_SIZE = ApplicationSettings.getMemSize(AbstractHttp2Connection.class, "maxHeaderListSize", MemSize.kilobytes(64)).toInt();
+	static final int MAX_OUTPUT_SIZE = ApplicationSettings.getMemSize(AbstractHttp2Connection.class, "maxOutputSize", MemSize.kilobytes(256)).toInt();
+
+	static final int FRAME_HEADER_SIZE = 9;
+
+	static final byte DATA = 0x0;
+	static final byte HEADERS = 0x1;
+	static final byte PRIORITY = 0x2;
+	static final byte RST_STREAM = 0x3;
+	static final byte SETTINGS = 0x4;
+	static final byte PUSH_PROMISE = 0x5;
+	static final byte PING = 0x6;
+	static final byte GOAWAY = 0x7;
+	static final byte WINDOW_UPDATE = 0x8;
+	static final byte CONTINUATION = 0x9;
+
+	static final byte FLAG_END_STREAM = 0x1;
+	static final byte FLAG_ACK = 0x1;
+	static final byte FLAG_END_HEADERS = 0x4;
+	static final byte FLAG_PADDED = 0x8;
+	static final byte FLAG_PRIORITY = 0x20;
+
+	static final int SETTINGS_HEADER_TABLE_SIZE = 0x1;
+	static final int SETTINGS_ENABLE_PUSH = 0x2;
+	static final int SETTINGS_MAX_CONCURRENT_STREAMS = 0x3;
+	static final int SETTINGS_INITIAL_WINDOW_SIZE = 0x4;
+	static final int SETTINGS_MAX_FRAME_SIZE = 0x5;
+	static final int SETTINGS_MAX_HEADER_LIST_SIZE = 0x6;
+
+	static final int DEFAULT_WINDOW_SIZE = 65535;
+	static final int DEFAULT_MAX_FRAME_SIZE = 16384;
+	static final int MAX_FRAME_SIZE = (1 << 24) - 1;
+
+	static final Http2Exception CONNECTION_CLOSED = new Http2Exception(AbstractHttp2Connection.class, CANCEL, "Connection closed");
+	static final Http2Exception STREAM_CANCELLED = new Http2Exception(AbstractHttp2Connection.class, CANCEL, "Stream cancelled");
+
+	private static final byte[] CONTENT_ENCODING_GZIP_BYTES = encodeAscii("gzip");
+	static final HttpHeader PSEUDO_METHOD = HttpHeaders.of(":method");
+	static final HttpHeader PSEUDO_SCHEME = HttpHeaders.of(":scheme");
+	static final HttpHeader PSEUDO_AUTHORITY = HttpHeaders.of(":authority");
+	static final HttpHeader PSEUDO_PATH = HttpHeaders.of(":path");
+	static final HttpHeader PSEUDO_STATUS = HttpHeaders.of(":status");
+
+	private static final HttpHeader KEEP_ALIVE_HEADER = HttpHeaders.of("Keep-Alive");
+	private static final HttpHeader PROXY_CONNECTION = HttpHeaders.of("Proxy-Connection");
+	static final HttpHeader HTTP2_SETTINGS = HttpHeaders.of("HTTP2-Settings");
+
+	private final HpackEncoder encoder = new HpackEncoder(HEADER_TABLE_SIZE);
+	private final HpackDecoder decoder = new HpackDecoder(HEADER_TABLE_SIZE, MAX_HEADER_LIST_SIZE);
+
+	protected final Map<Integer, Stream> streams = new HashMap<>();
+
+	// local settings
+	protected final int localMaxConcurrentStreams;
+	private final int localInitialWindowSize;
+
+	// settings of a peer
+	protected int peerMaxConcurrentStreams = Integer.MAX_VALUE;
+	private int peerInitialWindowSize = DEFAULT_WINDOW_SIZE;
+	private int peerMaxFrameSize = DEFAULT_MAX_FRAME_SIZE;
+
+	// connection flow control windows
+	private int sendWindow = DEFAULT_WINDOW_SIZE;
+	private int receiveWindow = DEFAULT_WINDOW_SIZE;
+	private int receiveUnacknowledged;
+
+	// a header block which is split into several frames
+	@Nullable
+	private ByteBuf headerBlock;
+	private int headerBlockStreamId;
+	private boolean headerBlockEndStream;
+
+	protected final List<HttpHeader> headerNames = new ArrayList<>();
+	protected final List<byte[]> headerValues = new ArrayList<>();
+	// an error of a malformed header list, which is a stream error rather than a connection one
+	@Nullable
+	protected ParseException headerListError;
+	private final HpackDecoder.HeaderListener headerListener = (header, value) -> {
+		headerNames.add(header);
+		headerValues.add(value);
+	};
+
+	protected boolean goAwaySent;
+	protected boolean goAwayReceived;
+	protected int lastPeerStreamId;
+
+	private ByteBuf output = ByteBuf.empty();
+	private boolean flushPosted;
+	private int pendingWrites;
+	private boolean streamsSuspended;
+	private boolean closingGracefully;
+	@Nullable
+	private Throwable closeException;
+
+	private final ReadConsumer framesConsumer = new ReadConsumer() {
+		@Override
+		public void thenRun() {
+			readFrames();
+		}
+	};
+
+	private final ReadConsumer prefaceConsumer = new ReadConsumer() {
+		@Override
+		public void thenRun() {
+			readPreface();
+		}
+	};
+
+	AbstractHttp2Connection(Eventloop eventloop, AsyncTcpSocket socket, int maxConcurrentStreams, int initialWindowSize) {
+		super(eventloop, socket);
+		this.localMaxConcurrentStreams = maxConcurrentStreams;
+		this.localInitialWindowSize = initialWindowSize;
+	}
+
+	// region HTTP/1.1 callbacks, which are never called
+	@Override
+	protected final void onStartLine(byte[] line, int limit) {
+		throw new AssertionError();
+	}
+
+	@Override
+	protected final void onHeaderBuf(ByteBuf buf) {
+		throw new AssertionError();
+	}
+
+	@Override
+	protected final void onHeader(HttpHeader header, byte[] array, int off, int len) {
+		throw new AssertionError();
+	}
+
+	@Override
+	protected final void onHeadersReceived(@Nullable ByteBuf body, @Nullable ChannelSupplier<ByteBuf> bodySupplier) {
+		throw new AssertionError();
+	}
+
+	@Override
+	protected final void onBodyReceived() {
+		throw new AssertionError();
+	}
+
+	@Override
+	protected final void onBodySent() {
+		throw new AssertionError();
+	}
+
+	@Override
+	protected final void onNoContentLength() {
+		throw new AssertionError();
+	}
+	// endregion
+
+	/**
+	 * Called when a complete header block is received and decoded into {@link #headerNames} and {@link #headerValues}
+	 */
+	protected abstract void onHeaders(int streamId, boolean endStream) throws ParseException;
+
+	/**
+	 * Checks whether a stream is in the 'idle' state, that is, it has not been opened by either side yet
+	 */
+	protected abstract boolean isIdle(int streamId);
+
+	/**
+	 * Called when a stream is closed, either after both sides have ended it or after it was reset
+	 *
+	 * @param e an exception if a stream was reset, or <code>null</code> otherwise
+	 */
+	protected abstract void onStreamClosed(Stream stream, @Nullable Throwable e);
+
+	protected abstract void onGoAway(int lastStreamId);
+
+	protected abstract void onConnectionError(@NotNull Throwable e);
+
+	protected abstract void onConnectionClosed();
+
+	protected void onSettings() {
+	}
+
+	/**
+	 * Sends initial settings of this side and starts reading frames
+	 *
+	 * @param expectPreface whether a client connection preface should be read first
+	 */
+	protected final void start(boolean expectPreface) {
+		int settings = 4;
+		if (HEADER_TABLE_SIZE != HpackEncoder.DEFAULT_TABLE_SIZE) settings++;
+		writeFrameHeader(settings * 6, SETTINGS, (byte) 0, 0);
+		writeSetting(SETTINGS_ENABLE_PUSH, 0);
+		writeSetting(SETTINGS_MAX_CONCURRENT_STREAMS, localMaxConcurrentStreams);
+		writeSetting(SETTINGS_INITIAL_WINDOW_SIZE, localInitialWindowSize);
+		writeSetting(SETTINGS_MAX_HEADER_LIST_SIZE, MAX_HEADER_LIST_SIZE);
+		if (HEADER_TABLE_SIZE != HpackEncoder.DEFAULT_TABLE_SIZE) {
+			writeSetting(SETTINGS_HEADER_TABLE_SIZE, HEADER_TABLE_SIZE);
+		}
+		if (CONNECTION_WINDOW_SIZE > DEFAULT_WINDOW_SIZE) {
+			writeWindowUpdate(0, CONNECTION_WINDOW_SIZE - DEFAULT_WINDOW_SIZE);
+			receiveWindow = CONNECTION_WINDOW_SIZE;
+		}
+		if (expectPreface) {
+			readPreface();
+		} else {
+			readFrames();
+		}
+	}
+
+	protected final void writePreface() {
+		output = ByteBufPool.append(output, PREFACE);
+	}
+
+	protected final boolean isGoingAway() {
+		return goAwaySent || goAwayReceived;
+	}
+
+	/**
+	 * Applies settings from a payload of a {@code SETTINGS} frame
+	 */
+	protected final void applySettings(byte[] array, int offset, int length) throws Http2Exception {
+		for (int i = offset; i + 6 <= offset + length; i += 6) {
+			int id = ((array[i] & 0xFF) << 8) | (array[i + 1] & 0xFF);
+			int value = ((array[i + 2] & 0xFF) << 24) | ((array[i + 3] & 0xFF) << 16) | ((array[i + 4] & 0xFF) << 8) | (array[i + 5] & 0xFF);
+			switch (id) {
+				case SETTINGS_HEADER_TABLE_SIZE:
+					encoder.setMaxTableSize(value < 0 ? Integer.MAX_VALUE : value);
+					break;
+				case SETTINGS_ENABLE_PUSH:
+					if (value != 0 && value != 1) throw new Http2Exception(AbstractHttp2Connection.class, PROTOCOL_ERROR, "Invalid SETTINGS_ENABLE_PUSH");
+					break;
+				case SETTINGS_MAX_CONCURRENT_STREAMS:
+					peerMaxConcurrentStreams = value < 0 ? Integer.MAX_VALUE : value;
+					break;
+				case SETTINGS_INITIAL_WINDOW_SIZE:
+					if (value < 0) throw new Http2Exception(AbstractHttp2Connection.class, FLOW_CONTROL_ERROR, "Invalid SETTINGS_INITIAL_WINDOW_SIZE");
+					int delta = value - peerInitialWindowSize;
+					peerInitialWindowSize = value;
+					for (Stream stream : streams.values()) {
+						if ((long) stream.sendWindow + delta > Integer.MAX_VALUE) {
+							throw new Http2Exception(AbstractHttp2Connection.class, FLOW_CONTROL_ERROR, "Stream flow control window overflow");
+						}
+						stream.sendWindow += delta;
+					}
+					break;
+				case SETTINGS_MAX_FRAME_SIZE:
+					if (value < DEFAULT_MAX_FRAME_SIZE || value > MAX_FRAME_SIZE) {
+						throw new Http2Exception(AbstractHttp2Connection.class, PROTOCOL_ERROR, "Invalid SETTINGS_MAX_FRAME_SIZE");
+					}
+					peerMaxFrameSize = value;
+					break;
+				default:
+					// unknown settings and SETTINGS_MAX_HEADER_LIST_SIZE of a peer, which is advisory, are ignored
+			}
+		}
+	}
+
+	// region reading frames
+	private void readPreface() {
+		int size = min(readQueue.remainingBytes(), PREFACE.length);
+		for (int i = 0; i < size; i++) {
+			if (readQueue.peekByte(i) != PREFACE[i]) {
+				failConnection(new Http2Exception(AbstractHttp2Connection.class, PROTOCOL_ERROR, "Invalid connection preface"));
+				return;
+			}
+		}
+		if (size < PREFACE.length) {
+			socket.read().whenComplete(prefaceConsumer);
+			return;
+		}
+		readQueue.skip(PREFACE.length);
+		readFrames();
+	}
+
+	private void readFrames() {
+		try {
+			while (readQueue.hasRemainingBytes(FRAME_HEADER_SIZE)) {
+				int length = ((readQueue.peekByte(0) & 0xFF) << 16) | ((readQueue.peekByte(1) & 0xFF) << 8) | (readQueue.peekByte(2) & 0xFF);
+				if (length > DEFAULT_MAX_FRAME_SIZE) {
+					throw new Http2Exception(AbstractHttp2Connection.class, FRAME_SIZE_ERROR, "Frame size exceeds SETTINGS_MAX_FRAME_SIZE");
+				}
+				if (!readQueue.hasRemainingBytes(FRAME_HEADER_SIZE + length)) break;
+				byte type = readQueue.peekByte(3);
+				byte flags = readQueue.peekByte(4);
+				int streamId = ((readQueue.peekByte(5) & 0x7F) << 24) | ((readQueue.peekByte(6) & 0xFF) << 16) |
+						((readQueue.peekByte(7) & 0xFF) << 8) | (readQueue.peekByte(8) & 0xFF);
+				readQueue.skip(FRAME_HEADER_SIZE);
+				ByteBuf payload = length == 0 ? ByteBuf.empty() : readQueue.takeExactSize(length);
+				onFrame(type, flags, streamId, payload);
+				if (isClosed()) return;
+			}
+		} catch (ParseException e) {
+			failConnection(e);
+			return;
+		}
+		onFramesRead();
+		if (isClosed()) return;
+		socket.read().whenComplete(framesConsumer);
+	}
+
+	/**
+	 * Called after all the frames which have been read so far are processed
+	 */
+	protected void onFramesRead() {
+	}
+
+	private void onFrame(byte type, byte flags, int streamId, ByteBuf payload) throws ParseException {
+		if (headerBlock != null && type != CONTINUATION) {
+			payload.recycle();
+			throw new Http2Exception(AbstractHttp2Connection.class, PROTOCOL_ERROR, "CONTINUATION frame expected");
+		}
+		if (type == DATA) {
+			onDataFrame(flags, streamId, payload);
+			return;
+		}
+		try {
+			switch (type) {
+				case HEADERS:
+					onHeadersFrame(flags, streamId, payload);
+					break;
+				case CONTINUATION:
+					onContinuationFrame(flags, streamId, payload);
+					break;
+				case PRIORITY:
+					if (streamId == 0) throw protocolError("PRIORITY frame on a connection");
+					break;
+				case RST_STREAM:
+					onRstStreamFrame(streamId, payload);
+					break;
+				case SETTINGS:
+					onSettingsFrame(flags, streamId, payload);
+					break;
+				case PUSH_PROMISE:
+					throw protocolError("Server push is disabled");
+				case PING:
+					onPingFrame(flags, streamId, payload);
+					break;
+				case GOAWAY:
+					onGoAwayFrame(streamId, payload);
+					break;
+				case WINDOW_UPDATE:
+					onWindowUpdateFrame(streamId, payload);
+					break;
+				default:
+					// unknown frame types must be ignored
+			}
+		} finally {
+			payload.recycle();
+		}
+	}
+
+	private void onDataFrame(byte flags, int streamId, ByteBuf payload) throws ParseException {
+		int length = payload.readRemaining();
+		if (streamId == 0) {
+			payload.recycle();
+			throw protocolError("DATA frame on a connection");
+		}
+		if (length > receiveWindow) {
+			payload.recycle();
+			throw new Http2Exception(AbstractHttp2Connection.class, FLOW_CONTROL_ERROR, "Connection flow control window exceeded");
+		}
+		receiveWindow -= length;
+		if ((flags & FLAG_PADDED) != 0) {
+			int padding = length == 0 ? -1 : payload.readByte() & 0xFF;
+			if (padding < 0 || padding > payload.readRemaining()) {
+				payload.recycle();
+				throw protocolError("Invalid padding");
+			}
+			payload.moveTail(-padding);
+		}
+
+		Stream stream = streams.get(streamId);
+		if (stream == null && isIdle(streamId)) {
+			payload.recycle();
+			throw protocolError("DATA frame on an idle stream");
+		}
+		if (stream == null || stream.remoteEnded || length > stream.receiveWindow) {
+			payload.recycle();
+			onConsumed(null, length);
+			if (stream != null) {
+				resetStream(stream, stream.remoteEnded ? STREAM_CLOSED : FLOW_CONTROL_ERROR);
+			}
+			return;
+		}
+		stream.receiveWindow -= length;
+		int overhead = length - payload.readRemaining();
+		if (overhead != 0) {
+			onConsumed(stream, overhead);
+		}
+		if (payload.canRead()) {
+			stream.receive(payload);
+		} else {
+			payload.recycle();
+		}
+		if ((flags & FLAG_END_STREAM) != 0) {
+			onRemoteEnd(stream);
+		}
+	}
+
+	private void onHeadersFrame(byte flags, int streamId, ByteBuf payload) throws ParseException {
+		if (streamId == 0) throw protocolError("HEADERS frame on a connection");
+		if ((flags & FLAG_PADDED) != 0) {
+			int padding = payload.canRead() ? payload.readByte() & 0xFF : -1;
+			if (padding < 0 || padding > payload.readRemaining()) throw protocolError("Invalid padding");
+			payload.moveTail(-padding);
+		}
+		if ((flags & FLAG_PRIORITY) != 0) {
+			if (payload.readRemaining() < 5) throw protocolError("Invalid HEADERS frame");
+			payload.moveHead(5);
+		}
+		headerBlockStreamId = streamId;
+		headerBlockEndStream = (flags & FLAG_END_STREAM) != 0;
+		if ((flags & FLAG_END_HEADERS) != 0) {
+			onHeaderBlock(payload.array(), payload.head(), payload.readRemaining());
+		} else {
+			headerBlock = ByteBufPool.append(ByteBuf.empty(), payload.array(), payload.head(), payload.readRemaining());
+		}
+	}
+
+	private void onContinuationFrame(byte flags, int streamId, ByteBuf payload) throws ParseException {
+		if (headerBlock == null || streamId != headerBlockStreamId) throw protocolError("Unexpected CONTINUATION frame");
+		if (headerBlock.readRemaining() + payload.readRemaining() > MAX_HEADER_BLOCK_SIZE) {
+			throw new Http2Exception(AbstractHttp2Connection.class, ENHANCE_YOUR_CALM, "Header block is too large");
+		}
+		headerBlock = ByteBufPool.append(headerBlock, payload.array(), payload.head(), payload.readRemaining());
+		if ((flags & FLAG_END_HEADERS) != 0) {
+			ByteBuf block = headerBlock;
+			headerBlock = null;
+			try {
+				onHeaderBlock(block.array(), block.head(), block.readRemaining());
+			} finally {
+				block.recycle();
+			}
+		}
+	}
+
+	private void onHeaderBlock(byte[] array, int offset, int length) throws ParseException {
+		headerNames.clear();
+		headerValues.clear();
+		try {
+			headerListError = decoder.decode(array, offset, length, headerListener);
+		} catch (ParseException e) {
+			throw new Http2Exception(AbstractHttp2Connection.class, COMPRESSION_ERROR, e.getMessage());
+		}
+		onHeaders(headerBlockStreamId, headerBlockEndStream);
+	}
+
+	private void onRstStreamFrame(int streamId, ByteBuf payload) throws ParseException {
+		if (streamId == 0) throw protocolError("RST_STREAM frame on a connection");
+		if (payload.readRemaining() != 4) throw frameSizeError();
+		int errorCode = payload.readInt();
+		Stream stream = streams.get(streamId);
+		if (stream != null) {
+			closeStream(stream, new Http2Exception(AbstractHttp2Connection.class, errorCode, "Stream reset by peer, error code: " + errorCode));
+		}
+	}
+
+	private void onSettingsFrame(byte flags, int streamId, ByteBuf payload) throws ParseException {
+		if (streamId != 0) throw protocolError("SETTINGS frame on a stream");
+		if ((flags & FLAG_ACK) != 0) {
+			if (payload.canRead()) throw frameSizeError();
+			return;
+		}
+		if (payload.readRemaining() % 6 != 0) throw frameSizeError();
+		applySettings(payload.array(), payload.head(), payload.readRemaining());
+		writeFrameHeader(0, SETTINGS, FLAG_ACK, 0);
+		resumeStreams();
+		onSettings();
+	}
+
+	private void onPingFrame(byte flags, int streamId, ByteBuf payload) throws ParseException {
+		if (streamId != 0) throw protocolError("PING frame on a stream");
+		if (payload.readRemaining() != 8) throw frameSizeError();
+		if ((flags & FLAG_ACK) == 0) {
+			writeFrameHeader(8, PING, FLAG_ACK, 0);
+			output.put(payload);
+		}
+	}
+
+	private void onGoAwayFrame(int streamId, ByteBuf payload) throws ParseException {
+		if (streamId != 0) throw protocolError("GOAWAY frame on a stream");
+		if (payload.readRemaining() < 8) throw frameSizeError();
+		int lastStreamId = payload.readInt() & 0x7FFFFFFF;
+		goAwayReceived = true;
+		onGoAway(lastStreamId);
+	}
+
+	private void onWindowUpdateFrame(int streamId, ByteBuf payload) throws ParseException {
+		if (payload.readRemaining() != 4) throw frameSizeError();
+		int increment = payload.readInt() & 0x7FFFFFFF;
+		if (streamId == 0) {
+			if (increment == 0) throw protocolError("Zero WINDOW_UPDATE increment");
+			if ((long) sendWindow + increment > Integer.MAX_VALUE) {
+				throw new Http2Exception(AbstractHttp2Connection.class, FLOW_CONTROL_ERROR, "Connection flow control window overflow");
+			}
+			sendWindow += increment;
+			resumeStreams();
+			return;
+		}
+		Stream stream = streams.get(streamId);
+		if (stream == null) return;
+		if (increment == 0 || (long) stream.sendWindow + increment > Integer.MAX_VALUE) {
+			resetStream(stream, increment == 0 ? PROTOCOL_ERROR : FLOW_CONTROL_ERROR);
+			return;
+		}
+		stream.sendWindow += increment;
+		flushStream(stream);
+	}
+
+	private void failConnection(Throwable e) {
+		if (isClosed()) return;
+		goAway(e instanceof Http2Exception ? ((Http2Exception) e).getErrorCode() : PROTOCOL_ERROR);
+		flush();
+		closeWithError(e);
+	}
+
+	private static Http2Exception protocolError(String message) {
+		return new Http2Exception(AbstractHttp2Connection.class, PROTOCOL_ERROR, message);
+	}
+
+	private static Http2Exception frameSizeError() {
+		return new Http2Exception(AbstractHttp2Connection.class, FRAME_SIZE_ERROR, "Invalid frame size");
+	}
+	// endregion
+
+	// region streams
+	protected final Stream openStream(int streamId) {
+		Stream stream = new Stream(streamId, peerInitialWindowSize, localInitialWindowSize);
+		streams.put(streamId, stream);
+		return stream;
+	}
+
+	/**
+	 * Returns a body of a message, received on a given stream
+	 *
+	 * @param gzipped whether a body should be decompressed
+	 */
+	protected final ChannelSupplier<ByteBuf> getBodySupplier(Stream stream, boolean gzipped) {
+		if (!gzipped) {
+			return new BodySupplier(stream, true);
+		}
+		BufsConsumerGzipInflater inflater = BufsConsumerGzipInflater.create();
+		new BodySupplier(stream, false).bindTo(inflater.getInput());
+		ChannelSupplier<ByteBuf> supplier = inflater.getOutput().getSupplier();
+		inflater.getProcessCompletion()
+				.whenComplete(() -> onBodyConsumed(stream));
+		return supplier;
+	}
+
+	/**
+	 * Called after a body of a received message is consumed completely by an application, or when it fails
+	 */
+	protected void onBodyConsumed(Stream stream) {
+	}
+
+	/**
+	 * Checks whether a received header block has {@code Content-Encoding: gzip} header field
+	 */
+	protected final boolean isGzipped() {
+		for (int i = 0; i < headerNames.size(); i++) {
+			if (headerNames.get(i) == CONTENT_ENCODING && Arrays.equals(headerValues.get(i), CONTENT_ENCODING_GZIP_BYTES)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Resets a stream, notifying a peer with a {@code RST_STREAM} frame
+	 */
+	protected final void resetStream(Stream stream, int errorCode) {
+		resetStream(stream, new Http2Exception(AbstractHttp2Connection.class, errorCode, "Stream reset, error code: " + errorCode));
+	}
+
+	protected final void resetStream(Stream stream, Http2Exception e) {
+		if (stream.closed) return;
+		writeFrameHeader(4, RST_STREAM, (byte) 0, stream.id);
+		output.writeInt(e.getErrorCode());
+		closeStream(stream, e);
+	}
+
+	private void onLocalEnd(Stream stream) {
+		stream.localEnded = true;
+		if (stream.remoteEnded) {
+			closeStream(stream, null);
+		} else {
+			onHalfClosedLocal(stream);
+		}
+	}
+
+	/**
+	 * Called when a message is completely sent on a stream, while a message of a peer is still being received
+	 */
+	protected void onHalfClosedLocal(Stream stream) {
+	}
+
+	protected final void onRemoteEnd(Stream stream) {
+		stream.remoteEnded = true;
+		SettablePromise<ByteBuf> take = stream.take;
+		if (take != null) {
+			stream.take = null;
+			take.set(null);
+		}
+		if (stream.localEnded) {
+			closeStream(stream, null);
+		}
+	}
+
+	protected final void closeStream(Stream stream, @Nullable Throwable e) {
+		if (stream.closed) return;
+		stream.closed = true;
+		streams.remove(stream.id);
+		if (e != null) {
+			if (!stream.remoteEnded) {
+				// a body which has been completely received may still be read
+				stream.exception = e;
+				SettablePromise<ByteBuf> take = stream.take;
+				if (take != null) {
+					stream.take = null;
+					take.setException(e);
+				}
+				discardInbound(stream);
+			}
+			stream.outbound.recycle();
+			if (stream.outboundSupplier != null) {
+				ChannelSupplier<ByteBuf> outboundSupplier = stream.outboundSupplier;
+				stream.outboundSupplier = null;
+				outboundSupplier.closeEx(e);
+			}
+		}
+		onStreamClosed(stream, e);
+	}
+
+	/**
+	 * Closes all of the streams with a given exception, should be called when a connection is closed
+	 */
+	protected final void closeStreams(Throwable e) {
+		for (Stream stream : new ArrayList<>(streams.values())) {
+			closeStream(stream, e);
+		}
+		if (headerBlock != null) {
+			headerBlock.recycle();
+			headerBlock = null;
+		}
+	}
+
+	private void discardInbound(Stream stream) {
+		stream.bodyDiscarded = true;
+		int size = stream.inbound.remainingBytes();
+		stream.inbound.recycle();
+		onConsumed(stream, size);
+	}
+
+	/**
+	 * Grants a peer more flow control credit when received data is consumed or discarded
+	 */
+	private void onConsumed(@Nullable Stream stream, int size) {
+		if (size == 0 || isClosed()) return;
+		receiveUnacknowledged += size;
+		if (receiveUnacknowledged >= max(CONNECTION_WINDOW_SIZE, DEFAULT_WINDOW_SIZE) / 2) {
+			writeWindowUpdate(0, receiveUnacknowledged);
+			receiveWindow += receiveUnacknowledged;
+			receiveUnacknowledged = 0;
+		}
+		if (stream != null && !stream.remoteEnded && !stream.closed) {
+			stream.receiveUnacknowledged += size;
+			if (stream.receiveUnacknowledged >= localInitialWindowSize / 2) {
+				writeWindowUpdate(stream.id, stream.receiveUnacknowledged);
+				stream.receiveWindow += stream.receiveUnacknowledged;
+				stream.receiveUnacknowledged = 0;
+			}
+		}
+	}
+	// endregion
+
+	// region writing messages
+	/**
+	 * Sends a message on a given stream, header block should already contain pseudo-header fields
+	 */
+	protected final void writeMessage(Stream stream, HttpMessage message, ByteBuf headerBlock) {
+		ByteBuf body = message.body;
+		ChannelSupplier<ByteBuf> bodyStream = message.bodyStream;
+		message.body = null;
+		message.bodyStream = null;
+
+		if (body != null) {
+			ContentEncoder encoder = message.contentEncoder;
+			if (encoder != null) {
+				body = encoder.encode(body);
+				message.addHeader(CONTENT_ENCODING, encoder.getName());
+			}
+			message.addHeader(CONTENT_LENGTH, ofDecimal(body.readRemaining()));
+			writeHeaders(stream, encodeHeaders(headerBlock, message), !body.canRead());
+			if (body.canRead()) {
+				stream.outbound.add(body);
+				stream.outboundEnded = true;
+				flushStream(stream);
+			} else {
+				body.recycle();
+				onLocalEnd(stream);
+			}
+		} else if (bodyStream != null) {
+			ContentEncoder encoder = message.contentEncoder;
+			if (encoder != null) {
+				message.addHeader(CONTENT_ENCODING, encoder.getName());
+				bodyStream = encoder.encode(bodyStream);
+			}
+			writeHeaders(stream, encodeHeaders(headerBlock, message), false);
+			stream.outboundSupplier = bodyStream;
+			flushStream(stream);
+		} else {
+			if (message.isContentLengthExpected()) {
+				message.addHeader(CONTENT_LENGTH, ofDecimal(0));
+			}
+			writeHeaders(stream, encodeHeaders(headerBlock, message), true);
+			onLocalEnd(stream);
+		}
+	}
+
+	protected final ByteBuf beginHeaderBlock() {
+		return encoder.beginHeaderBlock(ByteBufPool.allocate(256));
+	}
+
+	protected final ByteBuf encodeHeader(ByteBuf headerBlock, byte[] name, byte[] value) {
+		return encoder.encode(headerBlock, name, value, true);
+	}
+
+	private ByteBuf encodeHeaders(ByteBuf headerBlock, HttpMessage message) {
+		message.headers.materialize();
+		Object[] kvPairs = message.headers.kvPairs;
+		for (int i = 0; i < kvPairs.length - 1; i += 2) {
+			HttpHeader header = (HttpHeader) kvPairs[i];
+			if (header == null || isConnectionSpecific(header)) continue;
+			HttpHeaderValue value = (HttpHeaderValue) kvPairs[i + 1];
+			ByteBuf valueBuf = ByteBufPool.allocate(value.estimateSize());
+			value.writeTo(valueBuf);
+			headerBlock = encoder.encode(headerBlock, toLowerCase(header), valueBuf.asArray(), header != AUTHORIZATION);
+		}
+		return headerBlock;
+	}
+
+	static boolean isPseudoHeader(HttpHeader header) {
+		return header.length != 0 && header.bytes[header.offset] == ':';
+	}
+
+	private static boolean isConnectionSpecific(HttpHeader header) {
+		return header == CONNECTION || header == TRANSFER_ENCODING || header == HOST ||
+				header.equals(KEEP_ALIVE_HEADER) || header.equals(PROXY_CONNECTION) ||
+				header.equals(UPGRADE) || header.equals(HTTP2_SETTINGS);
+	}
+
+	private static byte[] toLowerCase(HttpHeader header) {
+		if (header.lowerCaseBytes != null) return header.lowerCaseBytes;
+		byte[] name = new byte[header.length];
+		for (int i = 0; i < name.length; i++) {
+			byte b = header.bytes[header.offset + i];
+			name[i] = b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+		}
+		return name;
+	}
+
+	private void writeHeaders(Stream stream, ByteBuf headerBlock, boolean endStream) {
+		int length = headerBlock.readRemaining();
+		byte type = HEADERS;
+		byte flags = endStream ? FLAG_END_STREAM : 0;
+		do {
+			int frameLength = min(length, peerMaxFrameSize);
+			length -= frameLength;
+			writeFrameHeader(frameLength, type, length == 0 ? (byte) (flags | FLAG_END_HEADERS) : flags, stream.id);
+			output.put(headerBlock.array(), headerBlock.head(), frameLength);
+			headerBlock.moveHead(frameLength);
+			type = CONTINUATION;
+			flags = 0;
+		} while (length != 0);
+		headerBlock.recycle();
+	}
+
+	/**
+	 * Writes as much of pending data of a stream as flow control allows,
+	 * and then pulls more of it from a body stream
+	 */
+	private void flushStream(Stream stream) {
+		while (!stream.closed && !stream.localEnded) {
+			while (stream.outbound.hasRemaining()) {
+				int length = min(min(stream.outbound.remainingBytes(), peerMaxFrameSize), min(stream.sendWindow, sendWindow));
+				if (length <= 0) return; // resumed on WINDOW_UPDATE
+				boolean endStream = stream.outboundEnded && length == stream.outbound.remainingBytes();
+				writeFrameHeader(length, DATA, endStream ? FLAG_END_STREAM : 0, stream.id);
+				stream.outbound.drainTo(output, length);
+				stream.sendWindow -= length;
+				sendWindow -= length;
+				if (endStream) {
+					onLocalEnd(stream);
+					return;
+				}
+			}
+			if (stream.outboundEnded) {
+				writeFrameHeader(0, DATA, FLAG_END_STREAM, stream.id);
+				onLocalEnd(stream);
+				return;
+			}
+			ChannelSupplier<ByteBuf> outboundSupplier = stream.outboundSupplier;
+			if (outboundSupplier == null || stream.pulling) return;
+			if (pendingWrites != 0 || output.readRemaining() >= MAX_OUTPUT_SIZE) {
+				streamsSuspended = true; // resumed when a socket is written
+				return;
+			}
+			Promise<ByteBuf> promise = outboundSupplier.get();
+			if (!promise.isResult()) {
+				stream.pulling = true;
+				promise.whenComplete((buf, e) -> {
+					stream.pulling = false;
+					if (onPulled(stream, buf, e)) {
+						flushStream(stream);
+					}
+				});
+				return;
+			}
+			if (!onPulled(stream, promise.getResult(), null)) return;
+		}
+	}
+
+	private boolean onPulled(Stream stream, @Nullable ByteBuf buf, @Nullable Throwable e) {
+		if (stream.closed || isClosed()) {
+			if (buf != null) buf.recycle();
+			return false;
+		}
+		if (e != null) {
+			stream.outboundSupplier = null;
+			resetStream(stream, INTERNAL_ERROR);
+			return false;
+		}
+		if (buf != null) {
+			stream.outbound.add(buf);
+		} else {
+			stream.outboundEnded = true;
+			stream.outboundSupplier = null;
+		}
+		return true;
+	}
+
+	private void resumeStreams() {
+		for (Stream stream : new ArrayList<>(streams.values())) {
+			flushStream(stream);
+		}
+	}
+	// endregion
+
+	@Override
+	protected final void onClosedWithError(@NotNull Throwable e) {
+		closeException = e;
+		onConnectionError(e);
+	}
+
+	@Override
+	protected final void onClosed() {
+		closeStreams(closeException != null ? closeException : CONNECTION_CLOSED);
+		onConnectionClosed();
+		// a socket is about to be closed, a best effort is made to notify a peer
+		goAway(closeException == null ? NO_ERROR : INTERNAL_ERROR);
+		ByteBuf buf = output;
+		output = ByteBuf.empty();
+		if (buf.canRead()) {
+			socket.write(buf);
+		} else {
+			buf.recycle();
+		}
+	}
+
+	/**
+	 * Sends a {@code GOAWAY} frame and closes this connection as soon as all the pending data is written
+	 */
+	protected final void closeGracefully() {
+		closingGracefully = true;
+		goAway(NO_ERROR);
+		if (!flushPosted && pendingWrites == 0) {
+			close();
+		}
+	}
+
+	// region writing frames
+	protected final void goAway(int errorCode) {
+		if (goAwaySent) return;
+		goAwaySent = true;
+		writeFrameHeader(8, GOAWAY, (byte) 0, 0);
+		output.writeInt(lastPeerStreamId);
+		output.writeInt(errorCode);
+	}
+
+	private void writeSetting(int id, int value) {
+		output.writeByte((byte) (id >>> 8));
+		output.writeByte((byte) id);
+		output.writeInt(value);
+	}
+
+	private void writeWindowUpdate(int streamId, int increment) {
+		writeFrameHeader(4, WINDOW_UPDATE, (byte) 0, streamId);
+		output.writeInt(increment);
+	}
+
+	/**
+	 * Writes a frame header and ensures that an output buffer has enough room for a payload of the frame
+	 */
+	private void writeFrameHeader(int length, byte type, byte flags, int streamId) {
+		output = ByteBufPool.ensureWriteRemaining(output, FRAME_HEADER_SIZE + length);
+		output.writeByte((byte) (length >>> 16));
+		output.writeByte((byte) (length >>> 8));
+		output.writeByte((byte) length);
+		output.writeByte(type);
+		output.writeByte(flags);
+		output.writeInt(streamId);
+		if (!flushPosted) {
+			flushPosted = true;
+			eventloop.post(wrapContext(this, this::flush));
+		}
+	}
+
+	protected final void flush() {
+		flushPosted = false;
+		if (isClosed()) {
+			output.recycle();
+			output = ByteBuf.empty();
+			return;
+		}
+		if (!output.canRead()) {
+			if (closingGracefully && pendingWrites == 0) close();
+			return;
+		}
+		ByteBuf buf = output;
+		output = ByteBuf.empty();
+		pendingWrites++;
+		socket.write(buf)
+				.whenComplete(($, e) -> {
+					pendingWrites--;
+					if (isClosed()) return;
+					if (e != null) {
+						closeWithError(e);
+						return;
+					}
+					if (pendingWrites != 0) return;
+					if (closingGracefully) {
+						if (!flushPosted) close();
+						return;
+					}
+					if (streamsSuspended) {
+						streamsSuspended = false;
+						resumeStreams();
+					}
+				});
+	}
+	// endregion
+
+	@Override
+	public String toString() {
+		return ", streams=" + streams.size() +
+				", sendWindow=" + sendWindow +
+				", receiveWindow=" + receiveWindow +
+				", goAwaySent=" + goAwaySent +
+				", goAwayReceived=" + goAwayReceived +
+				super.toString();
+	}
+
+	/**
+	 * A state of a single HTTP/2 stream
+	 */
+	protected final class Stream {
+		final int id;
+
+		int sendWindow;
+		int receiveWindow;
+		int receiveUnacknowledged;
+
+		boolean localEnded;
+		boolean remoteEnded;
+		boolean closed;
+		@Nullable
+		Throwable exception;
+
+		final ByteBufQueue inbound = new ByteBufQueue();
+		@Nullable
+		SettablePromise<ByteBuf> take;
+		boolean bodyDiscarded;
+		boolean bodyConsumed;
+
+		final ByteBufQueue outbound = new ByteBufQueue();
+		boolean outboundEnded;
+		@Nullable
+		ChannelSupplier<ByteBuf> outboundSupplier;
+		boolean pulling;
+
+		/**
+		 * A request which is served on a server, or a response which is received by a client
+		 */
+		@Nullable
+		HttpMessage message;
+		@Nullable
+		SettablePromise<HttpResponse> promise;
+
+		Stream(int id, int sendWindow, int receiveWindow) {
+			this.id = id;
+			this.sendWindow = sendWindow;
+			this.receiveWindow = receiveWindow;
+		}
+
+		void receive(ByteBuf buf) {
+			if (bodyDiscarded) {
+				int size = buf.readRemaining();
+				buf.recycle();
+				onConsumed(this, size);
+				return;
+			}
+			SettablePromise<ByteBuf> take = this.take;
+			if (take != null) {
+				this.take = null;
+				onConsumed(this, buf.readRemaining());
+				take.set(buf);
+				return;
+			}
+			inbound.add(buf);
+		}
+
+		@Override
+		public String toString() {
+			return "Stream{id=" + id + ", localEnded=" + localEnded + ", remoteEnded=" + remoteEnded + ", closed=" + closed + '}';
+		}
+	}
+
+	private final class BodySupplier extends AbstractChannelSupplier<ByteBuf> {
+		private final Stream stream;
+		private final boolean notifyConsumed;
+
+		BodySupplier(Stream stream, boolean notifyConsumed) {
+			this.stream = stream;
+			this.notifyConsumed = notifyConsumed;
+		}
+
+		@Override
+		protected Promise<ByteBuf> doGet() {
+			ByteBuf buf = stream.inbound.poll();
+			if (buf != null) {
+				onConsumed(stream, buf.readRemaining());
+				return Promise.of(buf);
+			}
+			if (stream.remoteEnded) {
+				if (notifyConsumed) {
+					// an end of stream is processed by a consumer first
+					eventloop.post(() -> onBodyConsumed(stream));
+				}
+				return Promise.of(null);
+			}
+			if (stream.exception != null) return Promise.ofException(stream.exception);
+			SettablePromise<ByteBuf> take = new SettablePromise<>();
+			stream.take = take;
+			return take;
+		}
+
+		@Override
+		protected void onClosed(@NotNull Throwable e) {
+			if (notifyConsumed) {
+				eventloop.post(() -> onBodyConsumed(stream));
+			}
+			SettablePromise<ByteBuf> take = stream.take;
+			if (take != null) {
+				stream.take = null;
+				take.setException(e);
+			}
+			if (!stream.bodyDiscarded) {
+				discardInbound(stream);
+			}
+			if (!stream.remoteEnded && !isClosed()) {
+				resetStream(stream, STREAM_CANCELLED);
+			}
+		}
+	}
+}
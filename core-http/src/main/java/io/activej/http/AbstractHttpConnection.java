@@ -30,9 +30,11 @@ import io.activej.csp.ChannelOutput;
 import io.activej.csp.ChannelSupplier;
 import io.activej.csp.ChannelSuppliers;
 import io.activej.csp.binary.BinaryChannelSupplier;
+import io.activej.csp.file.ChannelFileReader;
 import io.activej.eventloop.Eventloop;
 import io.activej.http.stream.*;
 import io.activej.net.socket.tcp.AsyncTcpSocket;
+import io.activej.net.socket.tcp.AsyncTcpSocketNio;
 import io.activej.promise.Promise;
 import org.intellij.lang.annotations.MagicConstant;
 import org.jetbrains.annotations.NotNull;
@@ -148,6 +150,13 @@ public abstract class AbstractHttpConnection {
 
 	protected abstract void onClosedWithError(@NotNull Throwable e);
 
+	/**
+	 * Called when a peer shuts down its output while a connection waits for a next portion of a message
+	 */
+	protected void onReadEndOfStream() {
+		close();
+	}
+
 	protected final boolean isClosed() {
 		return flags < 0;
 	}
@@ -407,7 +416,8 @@ public abstract class AbstractHttpConnection {
 		if (httpMessage.body != null) {
 			ByteBuf body = httpMessage.body;
 			httpMessage.body = null;
-			if ((httpMessage.flags & HttpMessage.USE_GZIP) == 0) {
+			ContentEncoder encoder = httpMessage.contentEncoder;
+			if (encoder == null) {
 				httpMessage.addHeader(CONTENT_LENGTH, ofDecimal(body.readRemaining()));
 				ByteBuf buf = ByteBufPool.allocate(httpMessage.estimateSize() + body.readRemaining());
 				httpMessage.writeTo(buf);
@@ -415,13 +425,13 @@ public abstract class AbstractHttpConnection {
 				body.recycle();
 				return buf;
 			} else {
-				ByteBuf gzippedBody = GzipProcessorUtils.toGzip(body);
-				httpMessage.addHeader(CONTENT_ENCODING, ofBytes(CONTENT_ENCODING_GZIP));
-				httpMessage.addHeader(CONTENT_LENGTH, ofDecimal(gzippedBody.readRemaining()));
-				ByteBuf buf = ByteBufPool.allocate(httpMessage.estimateSize() + gzippedBody.readRemaining());
+				ByteBuf encodedBody = encoder.encode(body);
+				httpMessage.addHeader(CONTENT_ENCODING, encoder.getName());
+				httpMessage.addHeader(CONTENT_LENGTH, ofDecimal(encodedBody.readRemaining()));
+				ByteBuf buf = ByteBufPool.allocate(httpMessage.estimateSize() + encodedBody.readRemaining());
 				httpMessage.writeTo(buf);
-				buf.put(gzippedBody);
-				gzippedBody.recycle();
+				buf.put(encodedBody);
+				encodedBody.recycle();
 				return buf;
 			}
 		}
@@ -443,11 +453,16 @@ public abstract class AbstractHttpConnection {
 		assert bodyStream != null;
 		httpMessage.bodyStream = null;
 
-		if ((httpMessage.flags & HttpMessage.USE_GZIP) != 0) {
-			httpMessage.addHeader(CONTENT_ENCODING, ofBytes(CONTENT_ENCODING_GZIP));
-			BufsConsumerGzipDeflater deflater = BufsConsumerGzipDeflater.create();
-			bodyStream.bindTo(deflater.getInput());
-			bodyStream = deflater.getOutput().getSupplier();
+		ContentEncoder encoder = httpMessage.contentEncoder;
+		if (encoder != null) {
+			httpMessage.addHeader(CONTENT_ENCODING, encoder.getName());
+			bodyStream = encoder.encode(bodyStream);
+		}
+
+		if (bodyStream instanceof ChannelFileReader && socket instanceof AsyncTcpSocketNio &&
+				httpMessage.headers.get(CONTENT_LENGTH) != null) {
+			writeFile(httpMessage, (ChannelFileReader) bodyStream, (AsyncTcpSocketNio) socket);
+			return;
 		}
 
 		if (httpMessage.headers.get(CONTENT_LENGTH) == null) {
@@ -475,6 +490,29 @@ public abstract class AbstractHttpConnection {
 				});
 	}
 
+	/**
+	 * Writes a body which is read from a file directly from the file to a socket,
+	 * so that the body is neither read into buffers nor copied.
+	 * Bodies are streamed as usual over SSL sockets or with gzip compression
+	 */
+	private void writeFile(HttpMessage httpMessage, ChannelFileReader reader, AsyncTcpSocketNio socket) {
+		ByteBuf buf = ByteBufPool.allocate(httpMessage.estimateSize());
+		httpMessage.writeTo(buf);
+		socket.write(buf)
+				.then(() -> reader.transferTo(socket))
+				.whenComplete(($, e) -> {
+					if (e != null) {
+						reader.closeEx(e);
+					}
+					if (isClosed()) return;
+					if (e == null) {
+						onBodySent();
+					} else {
+						closeWithError(e);
+					}
+				});
+	}
+
 	private void writeStream(ChannelSupplier<ByteBuf> supplier) {
 		supplier.streamTo(ChannelConsumer.of(
 				buf -> socket.write(buf)
@@ -490,7 +528,7 @@ public abstract class AbstractHttpConnection {
 		poolTimestamp = eventloop.currentTimeMillis();
 	}
 
-	private abstract class ReadConsumer implements Callback<ByteBuf> {
+	protected abstract class ReadConsumer implements Callback<ByteBuf> {
 		@Override
 		public void accept(ByteBuf buf, Throwable e) {
 			assert !isClosed() || e != null;
@@ -503,7 +541,7 @@ public abstract class AbstractHttpConnection {
 						closeWithError(e1);
 					}
 				} else {
-					close();
+					onReadEndOfStream();
 				}
 			} else {
 				closeWithError(e);
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.common.exception.parse.ParseException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+import static io.activej.bytebuf.ByteBufStrings.*;
+import static io.activej.common.Preconditions.checkArgument;
+import static io.activej.http.HttpUtils.parseQ;
+import static io.activej.http.HttpUtils.skipSpaces;
+
+/**
+ * This is a value class for the Accept-Encoding header value.
+ */
+public final class AcceptEncoding {
+	public static final int DEFAULT_Q = 100;
+	public static final String ANY = "*";
+	private static final byte[] Q_KEY = encodeAscii("q");
+
+	private final String coding;
+	private final int q;
+
+	private AcceptEncoding(String coding, int q) {
+		this.coding = coding;
+		this.q = q;
+	}
+
+	public static AcceptEncoding of(@NotNull String coding) {
+		return new AcceptEncoding(coding.toLowerCase(), DEFAULT_Q);
+	}
+
+	public static AcceptEncoding of(@NotNull String coding, int q) {
+		checkArgument(q >= 0 && q <= 100, "Cannot create AcceptEncoding with 'q' that is outside of bounds [0, 100]");
+		return new AcceptEncoding(coding.toLowerCase(), q);
+	}
+
+	/**
+	 * Returns a content coding in lower case, or {@link #ANY}
+	 */
+	public String getCoding() {
+		return coding;
+	}
+
+	public int getQ() {
+		return q;
+	}
+
+	static void parse(byte[] bytes, int pos, int len, List<AcceptEncoding> list) throws ParseException {
+		try {
+			int end = pos + len;
+
+			while (pos < end) {
+				// parsing content coding
+				pos = skipSpaces(bytes, pos, end);
+				int start = pos;
+				while (pos < end && !(bytes[pos] == ';' || bytes[pos] == ',' || bytes[pos] == ' ')) {
+					pos++;
+				}
+				String coding = decodeAscii(bytes, start, pos - start).toLowerCase();
+				pos = skipSpaces(bytes, pos, end);
+
+				int q = DEFAULT_Q;
+				while (pos < end && bytes[pos] == ';') {
+					pos = skipSpaces(bytes, pos + 1, end);
+					start = pos;
+					while (pos < end && !(bytes[pos] == '=' || bytes[pos] == ';' || bytes[pos] == ',')) {
+						pos++;
+					}
+					if (pos < end && bytes[pos] == '=') {
+						boolean isQ = equalsLowerCaseAscii(Q_KEY, bytes, start, pos - start);
+						start = ++pos;
+						while (pos < end && !(bytes[pos] == ';' || bytes[pos] == ',' || bytes[pos] == ' ')) {
+							pos++;
+						}
+						if (isQ) {
+							q = parseQ(bytes, start, pos - start);
+						}
+						pos = skipSpaces(bytes, pos, end);
+					}
+				}
+
+				if (!coding.isEmpty()) {
+					list.add(new AcceptEncoding(coding, q));
+				}
+				if (pos < end && bytes[pos] == ',') {
+					pos++;
+				}
+			}
+		} catch (RuntimeException e) {
+			throw new ParseException(AcceptEncoding.class, "Failed to parse accept-encoding", e);
+		}
+	}
+
+	/**
+	 * Selects an encoder with the highest quality value among acceptable ones,
+	 * the encoders which come first are preferred among the ones with equal quality values
+	 *
+	 * @param accepted content codings accepted by a client
+	 * @param encoders available encoders in order of preference
+	 * @return a selected encoder, or {@code null} if none of encoders is acceptable
+	 */
+	@Nullable
+	static ContentEncoder select(List<AcceptEncoding> accepted, ContentEncoder[] encoders) {
+		ContentEncoder selected = null;
+		int selectedQ = 0;
+		for (ContentEncoder encoder : encoders) {
+			int q = qualityOf(accepted, encoder.getName());
+			if (q > selectedQ) {
+				selected = encoder;
+				selectedQ = q;
+			}
+		}
+		return selected;
+	}
+
+	/**
+	 * Checks whether a content coding is acceptable, that is, it has a non-zero quality value
+	 *
+	 * @param accepted content codings accepted by a client
+	 * @param coding   a name of a content coding
+	 * @return {@code true} if a coding is acceptable
+	 */
+	static boolean isAccepted(List<AcceptEncoding> accepted, String coding) {
+		return qualityOf(accepted, coding) > 0;
+	}
+
+	private static int qualityOf(List<AcceptEncoding> accepted, String coding) {
+		int anyQ = 0;
+		for (int i = 0; i < accepted.size(); i++) {
+			AcceptEncoding acceptEncoding = accepted.get(i);
+			if (acceptEncoding.coding.equals(coding)) {
+				return acceptEncoding.q;
+			}
+			if (acceptEncoding.coding.equals(ANY)) {
+				anyQ = acceptEncoding.q;
+			}
+		}
+		return anyQ;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+
+		AcceptEncoding that = (AcceptEncoding) o;
+
+		if (q != that.q) return false;
+		return coding.equals(that.coding);
+	}
+
+	@Override
+	public int hashCode() {
+		int result = coding.hashCode();
+		result = 31 * result + q;
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "AcceptEncoding{coding=" + coding + ", q=" + q + '}';
+	}
+}
@@ -20,6 +20,8 @@ import io.activej.async.service.EventloopService;
 import io.activej.common.ApplicationSettings;
 import io.activej.common.Check;
 import io.activej.common.MemSize;
+import io.activej.common.exception.AsyncTimeoutException;
+import io.activej.common.exception.CloseException;
 import io.activej.common.inspector.AbstractInspector;
 import io.activej.common.inspector.BaseInspector;
 import io.activej.dns.AsyncDnsClient;
@@ -35,9 +37,11 @@ import io.activej.jmx.api.attribute.JmxOperation;
 import io.activej.jmx.api.attribute.JmxReducers.JmxReducerSum;
 import io.activej.jmx.stats.EventStats;
 import io.activej.jmx.stats.ExceptionStats;
+import io.activej.jmx.stats.ValueStats;
 import io.activej.net.socket.tcp.AsyncTcpSocket;
 import io.activej.net.socket.tcp.AsyncTcpSocketNio;
 import io.activej.promise.Promise;
+import io.activej.promise.Promises;
 import io.activej.promise.SettablePromise;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -48,17 +52,17 @@ import javax.net.ssl.SSLException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.time.Duration;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
 
 import static io.activej.common.Preconditions.checkArgument;
 import static io.activej.common.Preconditions.checkState;
 import static io.activej.common.jmx.MBeanFormat.formatListAsMultilineString;
 import static io.activej.eventloop.util.RunnableWithContext.wrapContext;
 import static io.activej.http.AbstractHttpConnection.READ_TIMEOUT_ERROR;
+import static io.activej.jmx.stats.JmxHistogram.POWERS_OF_TWO;
 import static io.activej.net.socket.tcp.AsyncTcpSocketSsl.wrapClientSocket;
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -81,6 +85,15 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 	public static final Duration KEEP_ALIVE_TIMEOUT = ApplicationSettings.getDuration(AsyncHttpClient.class, "keepAliveTimeout", Duration.ZERO);
 	public static final MemSize MAX_BODY_SIZE = ApplicationSettings.getMemSize(AsyncHttpClient.class, "maxBodySize", MemSize.ZERO);
 	public static final int MAX_KEEP_ALIVE_REQUESTS = ApplicationSettings.getInt(AsyncHttpClient.class, "maxKeepAliveRequests", 0);
+	public static final boolean HTTP2 = ApplicationSettings.getBoolean(AsyncHttpClient.class, "http2", false);
+	public static final MemSize HTTP2_INITIAL_WINDOW_SIZE = ApplicationSettings.getMemSize(AsyncHttpClient.class, "http2InitialWindowSize", MemSize.kilobytes(256));
+	public static final boolean WEB_SOCKET_DEFLATE = ApplicationSettings.getBoolean(AsyncHttpClient.class, "webSocketDeflate", false);
+	public static final MemSize WEB_SOCKET_MAX_MESSAGE_SIZE = ApplicationSettings.getMemSize(AsyncHttpClient.class, "webSocketMaxMessageSize", MemSize.megabytes(1));
+	public static final int MAX_CONNECTIONS_PER_ADDRESS = ApplicationSettings.getInt(AsyncHttpClient.class, "maxConnectionsPerAddress", 0);
+	public static final Duration PENDING_REQUEST_TIMEOUT = ApplicationSettings.getDuration(AsyncHttpClient.class, "pendingRequestTimeout", Duration.ZERO);
+
+	public static final AsyncTimeoutException PENDING_REQUEST_TIMEOUT_ERROR = new AsyncTimeoutException(AsyncHttpClient.class, "Pending request timeout");
+	public static final CloseException CLIENT_CLOSED = new CloseException(AsyncHttpClient.class, "Client closed");
 
 	@NotNull
 	private final Eventloop eventloop;
@@ -92,8 +105,12 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 	final HashMap<InetSocketAddress, AddressLinkedList> addresses = new HashMap<>();
 	final ConnectionsLinkedList poolKeepAlive = new ConnectionsLinkedList();
 	final ConnectionsLinkedList poolReadWrite = new ConnectionsLinkedList();
+	final HashMap<InetSocketAddress, Http2ClientConnection> http2Connections = new HashMap<>();
+	private final HashMap<InetSocketAddress, Promise<Http2ClientConnection>> http2Connects = new HashMap<>();
+	private final HashMap<InetSocketAddress, AddressPool> addressPools = new HashMap<>();
 	private int poolKeepAliveExpired;
 	private int poolReadWriteExpired;
+	private int pendingRequests;
 
 	@Nullable
 	private ScheduledRunnable expiredConnectionsCheck;
@@ -105,6 +122,14 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 	int keepAliveTimeoutMillis = (int) KEEP_ALIVE_TIMEOUT.toMillis();
 	int maxBodySize = MAX_BODY_SIZE.toInt();
 	int maxKeepAliveRequests = MAX_KEEP_ALIVE_REQUESTS;
+	int maxConnectionsPerAddress = MAX_CONNECTIONS_PER_ADDRESS;
+	int pendingRequestTimeoutMillis = (int) PENDING_REQUEST_TIMEOUT.toMillis();
+
+	// HTTP/2
+	boolean http2 = HTTP2;
+	int http2InitialWindowSize = HTTP2_INITIAL_WINDOW_SIZE.toInt();
+	boolean webSocketDeflate = WEB_SOCKET_DEFLATE;
+	int webSocketMaxMessageSize = WEB_SOCKET_MAX_MESSAGE_SIZE.toInt();
 
 	// SSL
 	private SSLContext sslContext;
@@ -131,6 +156,14 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 		void onHttpResponse(HttpClientConnection connection, HttpResponse response);
 
 		void onHttpError(HttpClientConnection connection, boolean keepAliveConnection, Throwable e);
+
+		void onConnectionTaken(InetSocketAddress address, int activeConnections);
+
+		void onRequestQueued(HttpRequest request, InetSocketAddress address);
+
+		void onRequestDequeued(HttpRequest request, long waitTime);
+
+		void onRequestQueueTimeout(HttpRequest request, InetSocketAddress address);
 	}
 
 	public abstract static class ForwardingInspector implements Inspector {
@@ -173,6 +206,26 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 			if (next != null) next.onHttpError(connection, keepAliveConnection, e);
 		}
 
+		@Override
+		public void onConnectionTaken(InetSocketAddress address, int activeConnections) {
+			if (next != null) next.onConnectionTaken(address, activeConnections);
+		}
+
+		@Override
+		public void onRequestQueued(HttpRequest request, InetSocketAddress address) {
+			if (next != null) next.onRequestQueued(request, address);
+		}
+
+		@Override
+		public void onRequestDequeued(HttpRequest request, long waitTime) {
+			if (next != null) next.onRequestDequeued(request, waitTime);
+		}
+
+		@Override
+		public void onRequestQueueTimeout(HttpRequest request, InetSocketAddress address) {
+			if (next != null) next.onRequestQueueTimeout(request, address);
+		}
+
 		@SuppressWarnings("unchecked")
 		@Override
 		public <T extends Inspector> @Nullable T lookup(Class<T> type) {
@@ -193,6 +246,10 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 		private final ExceptionStats httpErrors = ExceptionStats.create();
 		private long responsesErrors;
 		private final EventStats sslErrors = EventStats.create(SMOOTHING_WINDOW);
+		private final ValueStats poolOccupancy = ValueStats.create(SMOOTHING_WINDOW).withHistogram(POWERS_OF_TWO);
+		private final EventStats queuedRequests = EventStats.create(SMOOTHING_WINDOW);
+		private final ValueStats queueWaitTime = ValueStats.create(SMOOTHING_WINDOW).withHistogram(POWERS_OF_TWO).withUnit("milliseconds");
+		private final EventStats queueTimeouts = EventStats.create(SMOOTHING_WINDOW);
 
 		@Override
 		public void onRequest(HttpRequest request) {
@@ -240,6 +297,26 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 			}
 		}
 
+		@Override
+		public void onConnectionTaken(InetSocketAddress address, int activeConnections) {
+			poolOccupancy.recordValue(activeConnections);
+		}
+
+		@Override
+		public void onRequestQueued(HttpRequest request, InetSocketAddress address) {
+			queuedRequests.recordEvent();
+		}
+
+		@Override
+		public void onRequestDequeued(HttpRequest request, long waitTime) {
+			queueWaitTime.recordValue(waitTime);
+		}
+
+		@Override
+		public void onRequestQueueTimeout(HttpRequest request, InetSocketAddress address) {
+			queueTimeouts.recordEvent();
+		}
+
 		@JmxAttribute(extraSubAttributes = "totalCount", description = "all requests that were sent (both successful and failed)")
 		public EventStats getTotalRequests() {
 			return totalRequests;
@@ -273,7 +350,8 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 		@JmxAttribute(reducer = JmxReducerSum.class)
 		public long getActiveRequests() {
 			return totalRequests.getTotalCount() -
-					(httpTimeouts.getTotalCount() + resolveErrors.getTotal() + connectErrors.getTotal() + responsesErrors + responses);
+					(httpTimeouts.getTotalCount() + resolveErrors.getTotal() + connectErrors.getTotal() + responsesErrors + responses +
+							queueTimeouts.getTotalCount());
 		}
 
 		@JmxAttribute(reducer = JmxReducerSum.class)
@@ -285,6 +363,60 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 		public EventStats getSslErrors() {
 			return sslErrors;
 		}
+
+		@JmxAttribute(description = "number of connections to an address which are busy with requests, " +
+				"including a connection which has just been taken for a request")
+		public ValueStats getPoolOccupancy() {
+			return poolOccupancy;
+		}
+
+		@JmxAttribute(description = "requests which have been queued because of a limit of connections per address")
+		public EventStats getQueuedRequests() {
+			return queuedRequests;
+		}
+
+		@JmxAttribute
+		public ValueStats getQueueWaitTime() {
+			return queueWaitTime;
+		}
+
+		@JmxAttribute
+		public EventStats getQueueTimeouts() {
+			return queueTimeouts;
+		}
+	}
+
+	/**
+	 * A state of HTTP/1.1 connections to a single address
+	 */
+	private static final class AddressPool {
+		/**
+		 * A number of open connections, including the ones which are being established
+		 */
+		int connections;
+		/**
+		 * A number of requests which have not received a response yet, including pending ones
+		 */
+		int inFlight;
+		final ArrayDeque<PendingRequest> pending = new ArrayDeque<>();
+		boolean drainScheduled;
+
+		boolean isEmpty() {
+			return connections == 0 && inFlight == 0 && pending.isEmpty();
+		}
+	}
+
+	private static final class PendingRequest {
+		final HttpRequest request;
+		final SettablePromise<HttpResponse> promise = new SettablePromise<>();
+		final long timestamp;
+		@Nullable
+		ScheduledRunnable timeout;
+
+		PendingRequest(HttpRequest request, long timestamp) {
+			this.request = request;
+			this.timestamp = timestamp;
+		}
 	}
 
 	private int inetAddressIdx = 0;
@@ -341,6 +473,29 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 		return this;
 	}
 
+	/**
+	 * Limits a number of HTTP/1.1 connections to a single address. When all of them are busy,
+	 * requests to the address wait in a FIFO queue for a connection to become free
+	 *
+	 * @param maxConnectionsPerAddress maximum number of connections, or {@code 0} for no limit
+	 */
+	public AsyncHttpClient withMaxConnectionsPerAddress(int maxConnectionsPerAddress) {
+		checkArgument(maxConnectionsPerAddress >= 0, "Maximum number of connections per address should not be less than zero");
+		this.maxConnectionsPerAddress = maxConnectionsPerAddress;
+		return this;
+	}
+
+	/**
+	 * Sets a maximum time a request may wait in a queue for a free connection,
+	 * after which it fails with {@link #PENDING_REQUEST_TIMEOUT_ERROR}
+	 *
+	 * @param pendingRequestTimeout maximum waiting time, or {@link Duration#ZERO} for no limit
+	 */
+	public AsyncHttpClient withPendingRequestTimeout(@NotNull Duration pendingRequestTimeout) {
+		this.pendingRequestTimeoutMillis = (int) pendingRequestTimeout.toMillis();
+		return this;
+	}
+
 	public AsyncHttpClient withMaxBodySize(MemSize maxBodySize) {
 		return withMaxBodySize(maxBodySize.toInt());
 	}
@@ -350,6 +505,37 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 		return this;
 	}
 
+	/**
+	 * Enables HTTP/2 for plain {@code http://} requests, a server is expected to support HTTP/2 (prior knowledge).
+	 * All of the requests to the same address are multiplexed over a single connection
+	 */
+	public AsyncHttpClient withHttp2(boolean http2) {
+		this.http2 = http2;
+		return this;
+	}
+
+	public AsyncHttpClient withHttp2InitialWindowSize(MemSize initialWindowSize) {
+		checkArgument(initialWindowSize.toLong() >= 0 && initialWindowSize.toLong() <= Integer.MAX_VALUE,
+				"Initial window size should not exceed 2^31-1 bytes");
+		this.http2InitialWindowSize = initialWindowSize.toInt();
+		return this;
+	}
+
+	/**
+	 * Offers permessage-deflate extension (RFC 7692) in WebSocket handshake requests
+	 */
+	public AsyncHttpClient withWebSocketDeflate(boolean webSocketDeflate) {
+		this.webSocketDeflate = webSocketDeflate;
+		return this;
+	}
+
+	public AsyncHttpClient withWebSocketMaxMessageSize(MemSize webSocketMaxMessageSize) {
+		checkArgument(webSocketMaxMessageSize.toLong() >= 0 && webSocketMaxMessageSize.toLong() <= Integer.MAX_VALUE,
+				"Max message size should not exceed 2^31-1 bytes");
+		this.webSocketMaxMessageSize = webSocketMaxMessageSize.toInt();
+		return this;
+	}
+
 	public AsyncHttpClient withInspector(Inspector inspector) {
 		this.inspector = inspector;
 		return this;
@@ -414,6 +600,22 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 		if (expiredConnectionsCheck == null) {
 			scheduleExpiredConnectionsCheck();
 		}
+
+		AddressPool pool = addressPools.get(connection.remoteAddress);
+		if (pool != null && !pool.pending.isEmpty()) {
+			scheduleDrain(connection.remoteAddress, pool);
+		}
+	}
+
+	void onConnectionReleased(InetSocketAddress address) {
+		AddressPool pool = addressPools.get(address);
+		if (pool == null) return;
+		pool.connections--;
+		if (!pool.pending.isEmpty()) {
+			scheduleDrain(address, pool);
+		} else if (pool.isEmpty()) {
+			addressPools.remove(address);
+		}
 	}
 
 	@Override
@@ -442,43 +644,307 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 				});
 	}
 
+	/**
+	 * Sends a WebSocket handshake request (RFC 6455, section 4.1) over HTTP/1.1.
+	 * A request URL may have either of {@code ws}, {@code wss}, {@code http} or {@code https} schemes.
+	 * <p>
+	 * If a server does not accept a handshake, a promise is completed with {@link HttpException}
+	 * with a code of a response
+	 *
+	 * @param request a {@code GET} request, any additional headers are sent as is
+	 */
+	public Promise<WebSocket> webSocketRequest(HttpRequest request) {
+		checkArgument(request.getMethod() == HttpMethod.GET, "WebSocket handshake request should be a GET request");
+		byte[] keyBytes = new byte[16];
+		ThreadLocalRandom.current().nextBytes(keyBytes);
+		String key = Base64.getEncoder().encodeToString(keyBytes);
+		request.addHeader(HttpHeaders.UPGRADE, "websocket");
+		request.addHeader(HttpHeaders.SEC_WEBSOCKET_KEY, key);
+		request.addHeader(HttpHeaders.SEC_WEBSOCKET_VERSION, "13");
+		if (webSocketDeflate) {
+			request.addHeader(HttpHeaders.SEC_WEBSOCKET_EXTENSIONS, WebSocketImpl.DEFLATE_OFFER);
+		}
+		request.webSocketKey = key;
+		return request(request)
+				.then(response -> {
+					if (response.webSocket != null) {
+						return Promise.of(response.webSocket);
+					}
+					return response.loadBody()
+							.then($ -> Promise.ofException(HttpException.ofCode(response.getCode(), "WebSocket handshake has been rejected")));
+				});
+	}
+
 	private Promise<HttpResponse> doSend(HttpRequest request, InetAddress[] inetAddresses) {
-		InetAddress inetAddress = inetAddresses[(inetAddressIdx++ & Integer.MAX_VALUE) % inetAddresses.length];
-		InetSocketAddress address = new InetSocketAddress(inetAddress, request.getUrl().getPort());
+		if (stopped) {
+			request.recycle();
+			return Promise.ofException(CLIENT_CLOSED);
+		}
+		InetSocketAddress address = selectAddress(inetAddresses, request.getUrl().getPort());
+
+		if (http2 && !request.isHttps() && request.webSocketKey == null) {
+			return sendHttp2(request, address);
+		}
+
+		AddressPool pool = addressPools.get(address);
+		if (pool == null) {
+			pool = new AddressPool();
+			addressPools.put(address, pool);
+		}
+		pool.inFlight++;
+		AddressPool finalPool = pool;
+		return send(request, address, pool)
+				.whenComplete(() -> {
+					finalPool.inFlight--;
+					if (finalPool.isEmpty()) {
+						addressPools.remove(address, finalPool);
+					}
+				});
+	}
+
+	/**
+	 * Selects an address which has the least number of requests in flight, starting from the next one in round-robin order
+	 */
+	private InetSocketAddress selectAddress(InetAddress[] inetAddresses, int port) {
+		int start = inetAddressIdx++ & Integer.MAX_VALUE;
+		InetSocketAddress selected = null;
+		int selectedInFlight = Integer.MAX_VALUE;
+		for (int i = 0; i < inetAddresses.length; i++) {
+			InetSocketAddress address = new InetSocketAddress(inetAddresses[(start + i) % inetAddresses.length], port);
+			AddressPool pool = addressPools.get(address);
+			int inFlight = pool != null ? pool.inFlight : 0;
+			if (inFlight < selectedInFlight) {
+				selected = address;
+				selectedInFlight = inFlight;
+				if (inFlight == 0) break;
+			}
+		}
+		assert selected != null;
+		return selected;
+	}
 
-		HttpClientConnection keepAliveConnection = takeKeepAliveConnection(address);
-		if (keepAliveConnection != null) {
-			return keepAliveConnection.send(request);
+	private Promise<HttpResponse> send(HttpRequest request, InetSocketAddress address, AddressPool pool) {
+		if (pool.pending.isEmpty()) {
+			HttpClientConnection keepAliveConnection = takeKeepAliveConnection(address);
+			if (keepAliveConnection != null) {
+				if (inspector != null) inspector.onConnectionTaken(address, getActiveConnections(address, pool));
+				return keepAliveConnection.send(request);
+			}
+			if (maxConnectionsPerAddress == 0 || pool.connections < maxConnectionsPerAddress) {
+				return connect(request, address, pool);
+			}
 		}
+		return enqueue(request, address, pool);
+	}
 
+	private Promise<HttpResponse> connect(HttpRequest request, InetSocketAddress address, AddressPool pool) {
+		if (stopped) {
+			request.recycle();
+			return Promise.ofException(CLIENT_CLOSED);
+		}
+		pool.connections++;
 		return AsyncTcpSocketNio.connect(address, connectTimeoutMillis, socketSettings)
 				.thenEx((asyncTcpSocketImpl, e) -> {
 					if (e == null) {
-						boolean https = request.isHttps();
-						asyncTcpSocketImpl
-								.withInspector(https ? socketInspector : socketSslInspector);
-
-						if (https && sslContext == null) {
+						if (request.isHttps() && sslContext == null) {
+							asyncTcpSocketImpl.close();
+							onConnectionReleased(address);
 							throw new IllegalArgumentException("Cannot send HTTPS Request without SSL enabled");
 						}
 
-						String host = request.getUrl().getHost();
-						assert host != null;
+						HttpClientConnection connection = createConnection(asyncTcpSocketImpl, request.getUrl(), address);
+
+						if (inspector != null) {
+							inspector.onConnect(request, connection);
+							inspector.onConnectionTaken(address, getActiveConnections(address, pool));
+						}
+
+						return connection.send(request);
+					} else {
+						onConnectionReleased(address);
+						if (inspector != null) inspector.onConnectError(request, address, e);
+						request.recycle();
+						return Promise.ofException(e);
+					}
+				});
+	}
+
+	private HttpClientConnection createConnection(AsyncTcpSocketNio asyncTcpSocketImpl, UrlParser url, InetSocketAddress address) {
+		boolean https = url.isHttps();
+		asyncTcpSocketImpl
+				.withInspector(https ? socketInspector : socketSslInspector);
+
+		String host = url.getHost();
+		assert host != null;
 
-						AsyncTcpSocket asyncTcpSocket = https ?
-								wrapClientSocket(asyncTcpSocketImpl,
-										host, request.getUrl().getPort(),
-										sslContext, sslExecutor) :
-								asyncTcpSocketImpl;
+		AsyncTcpSocket asyncTcpSocket = https ?
+				wrapClientSocket(asyncTcpSocketImpl,
+						host, url.getPort(),
+						sslContext, sslExecutor) :
+				asyncTcpSocketImpl;
 
-						HttpClientConnection connection = new HttpClientConnection(eventloop, this, asyncTcpSocket, address);
+		HttpClientConnection connection = new HttpClientConnection(eventloop, this, asyncTcpSocket, address);
+
+		if (expiredConnectionsCheck == null)
+			scheduleExpiredConnectionsCheck();
+
+		return connection;
+	}
+
+	private int getActiveConnections(InetSocketAddress address, AddressPool pool) {
+		AddressLinkedList keepAliveConnections = addresses.get(address);
+		return pool.connections - (keepAliveConnections != null ? keepAliveConnections.size() : 0);
+	}
+
+	private Promise<HttpResponse> enqueue(HttpRequest request, InetSocketAddress address, AddressPool pool) {
+		PendingRequest pendingRequest = new PendingRequest(request, eventloop.currentTimeMillis());
+		pool.pending.addLast(pendingRequest);
+		pendingRequests++;
+		if (inspector != null) inspector.onRequestQueued(request, address);
+		if (pendingRequestTimeoutMillis != 0) {
+			pendingRequest.timeout = eventloop.delay(pendingRequestTimeoutMillis, () -> {
+				pendingRequest.timeout = null;
+				pool.pending.remove(pendingRequest);
+				pendingRequests--;
+				if (inspector != null) inspector.onRequestQueueTimeout(request, address);
+				request.recycle();
+				pendingRequest.promise.setException(PENDING_REQUEST_TIMEOUT_ERROR);
+			});
+		}
+		return pendingRequest.promise;
+	}
+
+	private void scheduleDrain(InetSocketAddress address, AddressPool pool) {
+		if (pool.drainScheduled) return;
+		pool.drainScheduled = true;
+		eventloop.post(wrapContext(this, () -> {
+			pool.drainScheduled = false;
+			drain(address, pool);
+		}));
+	}
+
+	/**
+	 * Sends pending requests to an address over free keep-alive connections,
+	 * opening new connections while their number is below the limit
+	 */
+	private void drain(InetSocketAddress address, AddressPool pool) {
+		if (stopped) return;
+		while (!pool.pending.isEmpty()) {
+			HttpClientConnection keepAliveConnection = takeKeepAliveConnection(address);
+			if (keepAliveConnection == null && maxConnectionsPerAddress != 0 && pool.connections >= maxConnectionsPerAddress) {
+				return;
+			}
+			PendingRequest pendingRequest = pool.pending.removeFirst();
+			pendingRequests--;
+			if (pendingRequest.timeout != null) {
+				pendingRequest.timeout.cancel();
+			}
+			HttpRequest request = pendingRequest.request;
+			if (inspector != null) inspector.onRequestDequeued(request, eventloop.currentTimeMillis() - pendingRequest.timestamp);
+			Promise<HttpResponse> sent;
+			if (keepAliveConnection != null) {
+				if (inspector != null) inspector.onConnectionTaken(address, getActiveConnections(address, pool));
+				sent = keepAliveConnection.send(request);
+			} else {
+				sent = connect(request, address, pool);
+			}
+			sent.whenComplete(pendingRequest.promise::accept);
+		}
+	}
+
+	/**
+	 * Opens idle keep-alive connections to each of the addresses a host of a given URL is resolved to,
+	 * so that there are at least a given number of idle connections to each address.
+	 * A number of connections to an address does not exceed a {@link #withMaxConnectionsPerAddress limit}.
+	 * <p>
+	 * Connections are not opened if keep-alive connections are disabled.
+	 *
+	 * @param url        an {@code http://} or {@code https://} URL of a server
+	 * @param connections a number of idle connections per address
+	 * @return a promise of a number of opened connections
+	 */
+	public Promise<Integer> prewarm(String url, int connections) {
+		if (CHECK) checkState(eventloop.inEventloopThread(), "Not in eventloop thread");
+		UrlParser urlParser = UrlParser.of(url);
+		String host = urlParser.getHost();
+		checkArgument(host != null, "URL should contain a host");
+		checkArgument(!urlParser.isHttps() || sslContext != null, "Cannot prewarm HTTPS connections without SSL enabled");
+		if (keepAliveTimeoutMillis == 0) {
+			return Promise.of(0);
+		}
+		return asyncDnsClient.resolve4(host)
+				.then(dnsResponse -> {
+					if (!dnsResponse.isSuccessful()) {
+						return Promise.ofException(new DnsQueryException(AsyncHttpClient.class, dnsResponse));
+					}
+					List<Promise<Boolean>> connects = new ArrayList<>();
+					//noinspection ConstantConditions - dnsResponse is successful (not null)
+					for (InetAddress inetAddress : dnsResponse.getRecord().getIps()) {
+						InetSocketAddress address = new InetSocketAddress(inetAddress, urlParser.getPort());
+						AddressPool pool = addressPools.get(address);
+						if (pool == null) {
+							pool = new AddressPool();
+							addressPools.put(address, pool);
+						}
+						AddressLinkedList idle = addresses.get(address);
+						int toOpen = connections - (idle != null ? idle.size() : 0);
+						if (maxConnectionsPerAddress != 0) {
+							toOpen = Math.min(toOpen, maxConnectionsPerAddress - pool.connections);
+						}
+						for (int i = 0; i < toOpen; i++) {
+							connects.add(prewarm(urlParser, address, pool));
+						}
+						if (pool.isEmpty()) {
+							addressPools.remove(address);
+						}
+					}
+					return Promises.toList(connects)
+							.map(results -> (int) results.stream().filter(opened -> opened).count());
+				});
+	}
 
-						if (inspector != null) inspector.onConnect(request, connection);
+	private Promise<Boolean> prewarm(UrlParser url, InetSocketAddress address, AddressPool pool) {
+		pool.connections++;
+		return AsyncTcpSocketNio.connect(address, connectTimeoutMillis, socketSettings)
+				.thenEx((asyncTcpSocketImpl, e) -> {
+					if (e == null) {
+						createConnection(asyncTcpSocketImpl, url, address).prewarm();
+						return Promise.of(true);
+					}
+					onConnectionReleased(address);
+					logger.warn("Could not prewarm a connection to {}", address, e);
+					return Promise.of(false);
+				});
+	}
 
+	Promise<HttpResponse> sendHttp2(HttpRequest request, InetSocketAddress address) {
+		Http2ClientConnection connection = http2Connections.get(address);
+		if (connection != null) {
+			return connection.send(request);
+		}
+		// concurrent requests share a connection which is being established
+		Promise<Http2ClientConnection> connect = http2Connects.get(address);
+		if (connect == null) {
+			connect = AsyncTcpSocketNio.connect(address, connectTimeoutMillis, socketSettings)
+					.map(asyncTcpSocketImpl -> {
+						http2Connects.remove(address);
+						asyncTcpSocketImpl.withInspector(socketInspector);
+						Http2ClientConnection newConnection = new Http2ClientConnection(eventloop, this, asyncTcpSocketImpl, address);
+						http2Connections.put(address, newConnection);
+						newConnection.start();
 						if (expiredConnectionsCheck == null)
 							scheduleExpiredConnectionsCheck();
-
-						return connection.send(request);
+						return newConnection;
+					})
+					.whenException(e -> http2Connects.remove(address));
+			if (!connect.isComplete()) {
+				http2Connects.put(address, connect);
+			}
+		}
+		return connect
+				.thenEx((newConnection, e) -> {
+					if (e == null) {
+						return newConnection.send(request);
 					} else {
 						if (inspector != null) inspector.onConnectError(request, address, e);
 						request.recycle();
@@ -487,6 +953,17 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 				});
 	}
 
+	void onHttp2ConnectionIdle(Http2ClientConnection connection) {
+		connection.switchPool(poolKeepAlive);
+		if (expiredConnectionsCheck == null) {
+			scheduleExpiredConnectionsCheck();
+		}
+	}
+
+	void onHttp2ConnectionUnavailable(Http2ClientConnection connection) {
+		http2Connections.remove(connection.remoteAddress, connection);
+	}
+
 	@NotNull
 	@Override
 	public Eventloop getEventloop() {
@@ -502,6 +979,7 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 
 	@Nullable
 	private SettablePromise<Void> closePromise;
+	private boolean stopped;
 
 	public void onConnectionClosed() {
 		if (getConnectionsCount() == 0 && closePromise != null) {
@@ -517,6 +995,8 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 
 		SettablePromise<Void> promise = new SettablePromise<>();
 
+		stopped = true;
+		failPendingRequests();
 		poolKeepAlive.closeAllConnections();
 		assert addresses.isEmpty();
 		keepAliveTimeoutMillis = 0;
@@ -530,6 +1010,26 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 		return promise;
 	}
 
+	/**
+	 * Fails requests which are waiting for a free connection, as no more connections are opened by a stopped client
+	 */
+	private void failPendingRequests() {
+		List<PendingRequest> failed = new ArrayList<>();
+		for (AddressPool pool : addressPools.values()) {
+			failed.addAll(pool.pending);
+			pool.pending.clear();
+		}
+		pendingRequests = 0;
+		// a failed request may remove its address pool, so requests are failed once pools are no longer iterated
+		for (PendingRequest pendingRequest : failed) {
+			if (pendingRequest.timeout != null) {
+				pendingRequest.timeout.cancel();
+			}
+			pendingRequest.request.recycle();
+			pendingRequest.promise.setException(CLIENT_CLOSED);
+		}
+	}
+
 	// region jmx
 	@JmxAttribute(description = "current number of connections", reducer = JmxReducerSum.class)
 	public int getConnectionsCount() {
@@ -546,6 +1046,27 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 		return poolReadWrite.size();
 	}
 
+	@JmxAttribute(description = "current number of requests waiting for a free connection", reducer = JmxReducerSum.class)
+	public int getPendingRequestsCount() {
+		return pendingRequests;
+	}
+
+	@JmxAttribute
+	public int getMaxConnectionsPerAddress() {
+		return maxConnectionsPerAddress;
+	}
+
+	@JmxAttribute
+	public void setMaxConnectionsPerAddress(int maxConnectionsPerAddress) {
+		checkArgument(maxConnectionsPerAddress >= 0, "Maximum number of connections per address should not be less than zero");
+		this.maxConnectionsPerAddress = maxConnectionsPerAddress;
+		addressPools.forEach((address, pool) -> {
+			if (!pool.pending.isEmpty()) {
+				scheduleDrain(address, pool);
+			}
+		});
+	}
+
 	@JmxAttribute(reducer = JmxReducerSum.class)
 	public int getConnectionsKeepAliveExpired() {
 		return poolKeepAliveExpired;
@@ -26,6 +26,7 @@ import io.activej.jmx.api.attribute.JmxAttribute;
 import io.activej.jmx.api.attribute.JmxReducers.JmxReducerSum;
 import io.activej.jmx.stats.EventStats;
 import io.activej.jmx.stats.ExceptionStats;
+import io.activej.jmx.stats.ValueStats;
 import io.activej.net.AbstractServer;
 import io.activej.net.socket.tcp.AsyncTcpSocket;
 import io.activej.promise.Promise;
@@ -36,11 +37,16 @@ import org.jetbrains.annotations.Nullable;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Stream;
 
+import static io.activej.common.Preconditions.checkArgument;
 import static io.activej.eventloop.util.RunnableWithContext.wrapContext;
 import static io.activej.http.AbstractHttpConnection.READ_TIMEOUT_ERROR;
+import static io.activej.http.HttpHeaders.DATE;
 import static java.util.stream.Collectors.toList;
 
 /**
@@ -55,6 +61,13 @@ public final class AsyncHttpServer extends AbstractServer<AsyncHttpServer> {
 	public static final Duration KEEP_ALIVE_TIMEOUT = ApplicationSettings.getDuration(AsyncHttpServer.class, "keepAliveTimeout", Duration.ofSeconds(30));
 	public static final MemSize MAX_BODY_SIZE = ApplicationSettings.getMemSize(AsyncHttpServer.class, "maxBodySize", MemSize.ZERO);
 	public static final int MAX_KEEP_ALIVE_REQUESTS = ApplicationSettings.getInt(AsyncHttpServer.class, "maxKeepAliveRequests", 0);
+	public static final boolean HTTP2 = ApplicationSettings.getBoolean(AsyncHttpServer.class, "http2", false);
+	public static final int HTTP2_MAX_CONCURRENT_STREAMS = ApplicationSettings.getInt(AsyncHttpServer.class, "http2MaxConcurrentStreams", 100);
+	public static final MemSize HTTP2_INITIAL_WINDOW_SIZE = ApplicationSettings.getMemSize(AsyncHttpServer.class, "http2InitialWindowSize", MemSize.kilobytes(256));
+	public static final int PIPELINING_DEPTH = ApplicationSettings.getInt(AsyncHttpServer.class, "pipeliningDepth", 0);
+	public static final boolean WEB_SOCKET_DEFLATE = ApplicationSettings.getBoolean(AsyncHttpServer.class, "webSocketDeflate", false);
+	public static final MemSize WEB_SOCKET_MAX_MESSAGE_SIZE = ApplicationSettings.getMemSize(AsyncHttpServer.class, "webSocketMaxMessageSize", MemSize.megabytes(1));
+	public static final boolean DATE_HEADER = ApplicationSettings.getBoolean(AsyncHttpServer.class, "dateHeader", false);
 
 	@NotNull
 	private final AsyncServlet servlet;
@@ -68,6 +81,17 @@ public final class AsyncHttpServer extends AbstractServer<AsyncHttpServer> {
 	int keepAliveTimeoutMillis = (int) KEEP_ALIVE_TIMEOUT.toMillis();
 	int maxBodySize = MAX_BODY_SIZE.toInt();
 	int maxKeepAliveRequests = MAX_KEEP_ALIVE_REQUESTS;
+	boolean http2 = HTTP2;
+	int http2MaxConcurrentStreams = HTTP2_MAX_CONCURRENT_STREAMS;
+	int http2InitialWindowSize = HTTP2_INITIAL_WINDOW_SIZE.toInt();
+	int pipeliningDepth = PIPELINING_DEPTH;
+	boolean webSocketDeflate = WEB_SOCKET_DEFLATE;
+	int webSocketMaxMessageSize = WEB_SOCKET_MAX_MESSAGE_SIZE.toInt();
+	boolean dateHeader = DATE_HEADER;
+
+	private long dateHeaderSecond = -1;
+	@Nullable
+	private HttpHeaderValue dateHeaderValue;
 
 	final ConnectionsLinkedList poolNew = new ConnectionsLinkedList();
 	final ConnectionsLinkedList poolReadWrite = new ConnectionsLinkedList();
@@ -75,6 +99,7 @@ public final class AsyncHttpServer extends AbstractServer<AsyncHttpServer> {
 	final ConnectionsLinkedList poolKeepAlive = new ConnectionsLinkedList();
 	private int poolKeepAliveExpired;
 	private int poolReadWriteExpired;
+	private final Set<WebSocketImpl> webSockets = new HashSet<>();
 
 	@Nullable
 	private ScheduledRunnable expiredConnectionsCheck;
@@ -90,6 +115,8 @@ public final class AsyncHttpServer extends AbstractServer<AsyncHttpServer> {
 		void onHttpResponse(HttpRequest request, HttpResponse httpResponse);
 
 		void onServletException(HttpRequest request, Throwable e);
+
+		void onHttpRequestPipelined(HttpRequest request, int pipelinedRequests);
 	}
 
 	public abstract static class ForwardingInspector implements Inspector {
@@ -117,6 +144,11 @@ public final class AsyncHttpServer extends AbstractServer<AsyncHttpServer> {
 			if (next != null) next.onServletException(request, e);
 		}
 
+		@Override
+		public void onHttpRequestPipelined(HttpRequest request, int pipelinedRequests) {
+			if (next != null) next.onHttpRequestPipelined(request, pipelinedRequests);
+		}
+
 		@SuppressWarnings("unchecked")
 		@Override
 		public <T extends Inspector> @Nullable T lookup(Class<T> type) {
@@ -132,6 +164,7 @@ public final class AsyncHttpServer extends AbstractServer<AsyncHttpServer> {
 		private final EventStats httpTimeouts = EventStats.create(SMOOTHING_WINDOW);
 		private final ExceptionStats httpErrors = ExceptionStats.create();
 		private final ExceptionStats servletExceptions = ExceptionStats.create();
+		private final ValueStats pipelinedRequests = ValueStats.create(SMOOTHING_WINDOW);
 
 		@Override
 		public void onHttpError(InetAddress remoteAddress, Throwable e) {
@@ -157,6 +190,11 @@ public final class AsyncHttpServer extends AbstractServer<AsyncHttpServer> {
 			servletExceptions.recordException(e, request.toString());
 		}
 
+		@Override
+		public void onHttpRequestPipelined(HttpRequest request, int pipelinedRequests) {
+			this.pipelinedRequests.recordValue(pipelinedRequests);
+		}
+
 		@JmxAttribute(extraSubAttributes = "totalCount")
 		public EventStats getTotalRequests() {
 			return totalRequests;
@@ -184,6 +222,12 @@ public final class AsyncHttpServer extends AbstractServer<AsyncHttpServer> {
 		public ExceptionStats getServletExceptions() {
 			return servletExceptions;
 		}
+
+		@JmxAttribute(description = "Number of requests of a connection which are being served or " +
+				"whose responses are not sent yet, including a newly received request")
+		public ValueStats getPipelinedRequests() {
+			return pipelinedRequests;
+		}
 	}
 
 	// region builders
@@ -240,6 +284,81 @@ public final class AsyncHttpServer extends AbstractServer<AsyncHttpServer> {
 		return this;
 	}
 
+	/**
+	 * Enables HTTP/2 on this server, along with HTTP/1.1.
+	 * <p>
+	 * HTTP/2 is negotiated via ALPN on SSL listen addresses, and on plain listen addresses
+	 * a client may either start with HTTP/2 connection preface (prior knowledge), or upgrade
+	 * a connection with {@code Upgrade: h2c} header.
+	 * <p>
+	 * Only {@code h2} is added to or removed from SSL application protocols, other protocols are kept as is
+	 */
+	public AsyncHttpServer withHttp2(boolean http2) {
+		this.http2 = http2;
+		List<String> protocols = new ArrayList<>(getSslApplicationProtocols());
+		protocols.remove(AbstractHttp2Connection.ALPN_H2);
+		if (http2) {
+			if (protocols.isEmpty()) {
+				protocols.add(AbstractHttp2Connection.ALPN_HTTP_1_1);
+			}
+			protocols.add(0, AbstractHttp2Connection.ALPN_H2);
+		}
+		return withSslApplicationProtocols(protocols);
+	}
+
+	public AsyncHttpServer withHttp2MaxConcurrentStreams(int maxConcurrentStreams) {
+		checkArgument(maxConcurrentStreams > 0, "Max concurrent streams should be positive");
+		this.http2MaxConcurrentStreams = maxConcurrentStreams;
+		return this;
+	}
+
+	public AsyncHttpServer withHttp2InitialWindowSize(MemSize initialWindowSize) {
+		checkArgument(initialWindowSize.toLong() >= 0 && initialWindowSize.toLong() <= Integer.MAX_VALUE,
+				"Initial window size should not exceed 2^31-1 bytes");
+		this.http2InitialWindowSize = initialWindowSize.toInt();
+		return this;
+	}
+
+	/**
+	 * Enables HTTP/1.1 pipelining with a given depth.
+	 * <p>
+	 * Up to {@code pipeliningDepth} requests of a connection are received ahead and served concurrently,
+	 * while their responses are still sent in the order of requests.
+	 * Depth of 0 or 1 disables pipelining, so that a next request is received only after
+	 * a response to a previous one is sent
+	 */
+	public AsyncHttpServer withPipeliningDepth(int pipeliningDepth) {
+		checkArgument(pipeliningDepth >= 0, "Pipelining depth should not be negative");
+		this.pipeliningDepth = pipeliningDepth;
+		return this;
+	}
+
+	/**
+	 * Enables permessage-deflate extension (RFC 7692) for WebSocket connections, if it is offered by a client
+	 */
+	public AsyncHttpServer withWebSocketDeflate(boolean webSocketDeflate) {
+		this.webSocketDeflate = webSocketDeflate;
+		return this;
+	}
+
+	public AsyncHttpServer withWebSocketMaxMessageSize(MemSize webSocketMaxMessageSize) {
+		checkArgument(webSocketMaxMessageSize.toLong() >= 0 && webSocketMaxMessageSize.toLong() <= Integer.MAX_VALUE,
+				"Max message size should not exceed 2^31-1 bytes");
+		this.webSocketMaxMessageSize = webSocketMaxMessageSize.toInt();
+		return this;
+	}
+
+	/**
+	 * Adds a {@code Date} header to each response which does not have one.
+	 * <p>
+	 * A value of the header is rendered at most once per second and is shared by all the responses
+	 * of this server, as the server is bound to a single eventloop
+	 */
+	public AsyncHttpServer withDateHeader(boolean dateHeader) {
+		this.dateHeader = dateHeader;
+		return this;
+	}
+
 	public AsyncHttpServer withInspector(Inspector inspector) {
 		this.inspector = inspector;
 		return this;
@@ -294,6 +413,15 @@ public final class AsyncHttpServer extends AbstractServer<AsyncHttpServer> {
 	@Nullable
 	private SettablePromise<Void> closeCallback;
 
+	void onWebSocketOpened(WebSocketImpl webSocket) {
+		webSockets.add(webSocket);
+	}
+
+	void onWebSocketClosed(WebSocketImpl webSocket) {
+		webSockets.remove(webSocket);
+		onConnectionClosed();
+	}
+
 	void onConnectionClosed() {
 		if (getConnectionsCount() == 0 && closeCallback != null) {
 			closeCallback.set(null);
@@ -306,6 +434,9 @@ public final class AsyncHttpServer extends AbstractServer<AsyncHttpServer> {
 		closeNotification.set(null);
 		poolKeepAlive.closeAllConnections();
 		keepAliveTimeoutMillis = 0;
+		for (WebSocketImpl webSocket : new ArrayList<>(webSockets)) {
+			webSocket.closeEx(new WebSocketException(AsyncHttpServer.class, WebSocketException.GOING_AWAY, "Server is shutting down"));
+		}
 		if (getConnectionsCount() == 0) {
 			cb.set(null);
 		} else {
@@ -336,7 +467,7 @@ public final class AsyncHttpServer extends AbstractServer<AsyncHttpServer> {
 
 	@JmxAttribute(description = "current number of connections", reducer = JmxReducerSum.class)
 	public int getConnectionsCount() {
-		return poolNew.size() + poolKeepAlive.size() + poolReadWrite.size() + poolServing.size();
+		return poolNew.size() + poolKeepAlive.size() + poolReadWrite.size() + poolServing.size() + webSockets.size();
 	}
 
 	@JmxAttribute(reducer = JmxReducerSum.class)
@@ -369,6 +500,53 @@ public final class AsyncHttpServer extends AbstractServer<AsyncHttpServer> {
 		return poolReadWriteExpired;
 	}
 
+	@JmxAttribute(reducer = JmxReducerSum.class)
+	public int getWebSocketsCount() {
+		return webSockets.size();
+	}
+
+	@JmxAttribute(description = "max number of pipelined requests of a connection which are served concurrently")
+	public int getPipeliningDepth() {
+		return pipeliningDepth;
+	}
+
+	/**
+	 * Changes a pipelining depth of new connections, connections which are already open keep their depth
+	 */
+	@JmxAttribute
+	public void setPipeliningDepth(int pipeliningDepth) {
+		checkArgument(pipeliningDepth >= 0, "Pipelining depth should not be negative");
+		this.pipeliningDepth = pipeliningDepth;
+	}
+
+	@JmxAttribute(description = "whether a Date header is added to responses")
+	public boolean isDateHeader() {
+		return dateHeader;
+	}
+
+	@JmxAttribute
+	public void setDateHeader(boolean dateHeader) {
+		this.dateHeader = dateHeader;
+	}
+
+	void addDateHeader(HttpResponse response) {
+		if (response.headers.get(DATE) == null) {
+			response.addHeader(DATE, getDateHeaderValue());
+		}
+	}
+
+	HttpHeaderValue getDateHeaderValue() {
+		long second = eventloop.currentTimeMillis() / 1000;
+		if (second != dateHeaderSecond) {
+			byte[] bytes = new byte[29];
+			HttpDate.render(second, bytes, 0);
+			dateHeaderValue = HttpHeaderValue.ofBytes(bytes);
+			dateHeaderSecond = second;
+		}
+		//noinspection ConstantConditions
+		return dateHeaderValue;
+	}
+
 	HttpResponse formatHttpError(Throwable e) {
 		return errorFormatter.formatException(e);
 	}
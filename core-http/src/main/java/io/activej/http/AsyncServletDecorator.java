@@ -16,6 +16,7 @@
 
 package io.activej.http;
 
+import io.activej.bytebuf.ByteBuf;
 import io.activej.common.MemSize;
 import io.activej.common.exception.UncheckedException;
 import io.activej.promise.Promise;
@@ -26,6 +27,7 @@ import java.util.List;
 import java.util.function.*;
 
 import static io.activej.http.AsyncServlet.firstSuccessful;
+import static io.activej.http.HttpHeaders.*;
 import static java.util.Arrays.asList;
 
 /**
@@ -235,6 +237,42 @@ public interface AsyncServletDecorator {
 				};
 	}
 
+	/**
+	 * Compresses bodies of responses with one of the given encoders, which is negotiated
+	 * with {@code Accept-Encoding} header of a request, taking quality values into account.
+	 * <p>
+	 * Bodies smaller than a given size are sent as is, since compressing them costs more CPU
+	 * than it saves on the wire. Responses which already have {@code Content-Encoding},
+	 * or a body stream with a known {@code Content-Length} are sent as is too.
+	 *
+	 * @param minSize  a minimum size of a body to be compressed
+	 * @param encoders encoders in order of preference, which is used when a client accepts several codings equally
+	 */
+	static AsyncServletDecorator compressResponses(MemSize minSize, ContentEncoder... encoders) {
+		int minBodySize = minSize.toInt();
+		return servlet ->
+				request -> servlet.serveAsync(request)
+						.whenResult(response -> {
+							if (response.contentEncoder != null || response.getCode() < 200 ||
+									response.getCode() == 204 || response.getCode() == 304 ||
+									response.headers.get(CONTENT_ENCODING) != null) {
+								return;
+							}
+							ByteBuf body = response.body;
+							if (body != null ?
+									body.readRemaining() < minBodySize :
+									response.bodyStream == null || response.headers.get(CONTENT_LENGTH) != null) {
+								return;
+							}
+							response.addHeader(VARY, "Accept-Encoding");
+							ContentEncoder encoder = AcceptEncoding.select(
+									request.getHeader(ACCEPT_ENCODING, HttpHeaderValue::toAcceptEncodings), encoders);
+							if (encoder != null) {
+								response.setBodyCompression(encoder);
+							}
+						});
+	}
+
 	static AsyncServletDecorator loadBody() {
 		return servlet ->
 				request -> request.loadBody()
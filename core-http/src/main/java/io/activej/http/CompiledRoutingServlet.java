@@ -0,0 +1,335 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.promise.Promise;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * An immutable snapshot of a {@link RoutingServlet}, created by {@link RoutingServlet#compile()}.
+ * <p>
+ * Static path segments of each level of a routing tree are compiled into a radix trie, whose edges
+ * may span several segments when intermediate levels only route requests further.
+ * A trie is matched directly against characters of a request URL, without extracting path segments.
+ * Path parameters are captured as offsets into the URL and are turned into strings
+ * only for the route which actually serves a request.
+ * <p>
+ * Requests are routed in exactly the same order as by the {@link RoutingServlet} this servlet was compiled from.
+ */
+final class CompiledRoutingServlet implements AsyncServlet {
+	private static final HttpMethod[] METHODS = HttpMethod.values();
+
+	private final Node root;
+	private final int maxParameters;
+
+	private CompiledRoutingServlet(Node root, int maxParameters) {
+		this.root = root;
+		this.maxParameters = maxParameters;
+	}
+
+	static CompiledRoutingServlet compile(RoutingServlet servlet) {
+		Node root = compileNode(servlet);
+		return new CompiledRoutingServlet(root, root.maxParameters());
+	}
+
+	@NotNull
+	@Override
+	public Promise<HttpResponse> serve(@NotNull HttpRequest request) {
+		UrlParser url = request.getUrl();
+		Captures captures = maxParameters != 0 ? new Captures(maxParameters) : null;
+		Promise<HttpResponse> processed = root.tryServe(request, url.getRaw(), url.getPathEnd(), url.pos, captures, 0);
+		return processed != null ?
+				processed :
+				Promise.ofException(HttpException.notFound404());
+	}
+
+	private static Node compileNode(RoutingServlet servlet) {
+		TreeMap<String, Node> statics = new TreeMap<>();
+		collectStatics(servlet, "", statics);
+		String[] parameterNames = new String[servlet.parameters.size()];
+		Node[] parameterNodes = new Node[servlet.parameters.size()];
+		int i = 0;
+		for (Map.Entry<String, RoutingServlet> entry : servlet.parameters.entrySet()) {
+			parameterNames[i] = entry.getKey();
+			parameterNodes[i] = compileNode(entry.getValue());
+			i++;
+		}
+		return new Node(
+				byMethod(servlet.rootServlets),
+				byMethod(servlet.fallbackServlets),
+				statics.isEmpty() ? null : RadixNode.build("", null, new ArrayList<>(statics.entrySet()), 0),
+				parameterNames,
+				parameterNodes);
+	}
+
+	/**
+	 * Collects static routes of a given level, inlining the levels which have neither servlets nor parameters,
+	 * so that a single trie edge may span several path segments
+	 */
+	private static void collectStatics(RoutingServlet servlet, String prefix, Map<String, Node> statics) {
+		servlet.routes.forEach((name, child) -> {
+			if (child.rootServlets.isEmpty() && child.fallbackServlets.isEmpty() && child.parameters.isEmpty()) {
+				collectStatics(child, prefix + name + '/', statics);
+			} else {
+				statics.put(prefix + name, compileNode(child));
+			}
+		});
+	}
+
+	@Nullable
+	private static AsyncServlet[] byMethod(Map<@Nullable HttpMethod, AsyncServlet> servlets) {
+		if (servlets.isEmpty()) {
+			return null;
+		}
+		AsyncServlet defaultServlet = servlets.get(null);
+		AsyncServlet[] result = new AsyncServlet[METHODS.length];
+		for (HttpMethod method : METHODS) {
+			result[method.ordinal()] = servlets.getOrDefault(method, defaultServlet);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a URL position which {@link UrlParser#pollUrlPart()} would leave after a path segment ending at {@code end}
+	 */
+	private static int positionAfter(String raw, int end, int pathEnd) {
+		if (end < pathEnd) {
+			return end;
+		}
+		return raw.indexOf('/', pathEnd) == -1 ? raw.length() : pathEnd;
+	}
+
+	private static final class Node {
+		@Nullable
+		private final AsyncServlet[] rootServlets;
+		@Nullable
+		private final AsyncServlet[] fallbackServlets;
+		@Nullable
+		private final RadixNode statics;
+		private final String[] parameterNames;
+		private final Node[] parameterNodes;
+
+		Node(@Nullable AsyncServlet[] rootServlets, @Nullable AsyncServlet[] fallbackServlets, @Nullable RadixNode statics,
+				String[] parameterNames, Node[] parameterNodes) {
+			this.rootServlets = rootServlets;
+			this.fallbackServlets = fallbackServlets;
+			this.statics = statics;
+			this.parameterNames = parameterNames;
+			this.parameterNodes = parameterNodes;
+		}
+
+		int maxParameters() {
+			int max = 0;
+			for (Node node : parameterNodes) {
+				max = Math.max(max, node.maxParameters() + 1);
+			}
+			if (statics != null) {
+				max = Math.max(max, statics.maxParameters());
+			}
+			return max;
+		}
+
+		@Nullable
+		Promise<HttpResponse> tryServe(HttpRequest request, String raw, int pathEnd, int pos, @Nullable Captures captures, int depth) {
+			int start = pos + 1;
+			int end;
+			int nextPos;
+			if (pos < pathEnd) {
+				int nextSlash = raw.indexOf('/', start);
+				end = nextSlash == -1 || nextSlash > pathEnd ? pathEnd : nextSlash;
+				nextPos = nextSlash == -1 ? raw.length() : end;
+			} else {
+				end = start;
+				nextPos = pos;
+			}
+
+			if (start == end) {
+				if (rootServlets != null) {
+					AsyncServlet servlet = rootServlets[request.getMethod().ordinal()];
+					if (servlet != null) {
+						return serve(servlet, request, nextPos, captures, depth);
+					}
+				}
+			} else {
+				if (statics != null) {
+					Promise<HttpResponse> result = statics.tryServe(request, raw, pathEnd, start, captures, depth);
+					if (result != null) {
+						return result;
+					}
+				}
+				for (int i = 0; i < parameterNodes.length; i++) {
+					//noinspection ConstantConditions - captures are present when there are parameters
+					captures.set(depth, parameterNames[i], start, end);
+					Promise<HttpResponse> result = parameterNodes[i].tryServe(request, raw, pathEnd, nextPos, captures, depth + 1);
+					if (result != null) {
+						return result;
+					}
+				}
+			}
+
+			if (fallbackServlets != null) {
+				AsyncServlet servlet = fallbackServlets[request.getMethod().ordinal()];
+				if (servlet != null) {
+					return serve(servlet, request, pos, captures, depth);
+				}
+			}
+			return null;
+		}
+
+		private static Promise<HttpResponse> serve(AsyncServlet servlet, HttpRequest request, int pos, @Nullable Captures captures, int depth) {
+			request.setPos(pos);
+			if (depth != 0) {
+				//noinspection ConstantConditions
+				captures.putInto(request, depth);
+			}
+			return servlet.serveAsync(request);
+		}
+	}
+
+	private static final class RadixNode {
+		private final char[] label;
+		@Nullable
+		private final Node target;
+		private final char[] firstChars;
+		private final RadixNode[] children;
+
+		RadixNode(char[] label, @Nullable Node target, char[] firstChars, RadixNode[] children) {
+			this.label = label;
+			this.target = target;
+			this.firstChars = firstChars;
+			this.children = children;
+		}
+
+		/**
+		 * Builds a trie over sorted keys which share first {@code offset} characters
+		 */
+		static RadixNode build(String label, @Nullable Node target, List<Map.Entry<String, Node>> entries, int offset) {
+			List<RadixNode> children = new ArrayList<>();
+			int i = 0;
+			while (i < entries.size()) {
+				String key = entries.get(i).getKey();
+				char first = key.charAt(offset);
+				int j = i + 1;
+				int common = key.length();
+				while (j < entries.size() && entries.get(j).getKey().charAt(offset) == first) {
+					common = commonPrefix(key, entries.get(j).getKey(), common);
+					j++;
+				}
+				Node childTarget = null;
+				List<Map.Entry<String, Node>> rest = new ArrayList<>();
+				for (Map.Entry<String, Node> entry : entries.subList(i, j)) {
+					if (entry.getKey().length() == common) {
+						childTarget = entry.getValue();
+					} else {
+						rest.add(entry);
+					}
+				}
+				children.add(build(key.substring(offset, common), childTarget, rest, common));
+				i = j;
+			}
+			char[] firstChars = new char[children.size()];
+			for (int k = 0; k < firstChars.length; k++) {
+				firstChars[k] = children.get(k).label[0];
+			}
+			return new RadixNode(label.toCharArray(), target, firstChars, children.toArray(new RadixNode[0]));
+		}
+
+		private static int commonPrefix(String a, String b, int max) {
+			int limit = Math.min(max, b.length());
+			int i = 0;
+			while (i < limit && a.charAt(i) == b.charAt(i)) {
+				i++;
+			}
+			return i;
+		}
+
+		int maxParameters() {
+			int max = target != null ? target.maxParameters() : 0;
+			for (RadixNode child : children) {
+				max = Math.max(max, child.maxParameters());
+			}
+			return max;
+		}
+
+		@Nullable
+		Promise<HttpResponse> tryServe(HttpRequest request, String raw, int pathEnd, int index, @Nullable Captures captures, int depth) {
+			RadixNode node = this;
+			while (true) {
+				if (node.target != null && (index == pathEnd || raw.charAt(index) == '/')) {
+					return node.target.tryServe(request, raw, pathEnd, positionAfter(raw, index, pathEnd), captures, depth);
+				}
+				if (index == pathEnd) {
+					return null;
+				}
+				RadixNode next = node.child(raw.charAt(index));
+				if (next == null) {
+					return null;
+				}
+				char[] label = next.label;
+				if (pathEnd - index < label.length) {
+					return null;
+				}
+				for (int i = 1; i < label.length; i++) {
+					if (raw.charAt(index + i) != label[i]) {
+						return null;
+					}
+				}
+				index += label.length;
+				node = next;
+			}
+		}
+
+		@Nullable
+		private RadixNode child(char ch) {
+			for (int i = 0; i < firstChars.length; i++) {
+				if (firstChars[i] == ch) {
+					return children[i];
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Path parameters of a route which is being matched, as offsets into a request URL
+	 */
+	private static final class Captures {
+		private final String[] names;
+		private final int[] bounds;
+
+		Captures(int size) {
+			this.names = new String[size];
+			this.bounds = new int[size * 2];
+		}
+
+		void set(int depth, String name, int start, int end) {
+			names[depth] = name;
+			bounds[depth * 2] = start;
+			bounds[depth * 2 + 1] = end;
+		}
+
+		void putInto(HttpRequest request, int depth) {
+			String raw = request.getUrl().getRaw();
+			for (int i = 0; i < depth; i++) {
+				request.putPathParameter(names[i], raw.substring(bounds[i * 2], bounds[i * 2 + 1]));
+			}
+		}
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.csp.ChannelSupplier;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.zip.Deflater;
+
+/**
+ * A content coding (RFC 7231, section 3.1.2.1) which is used to compress bodies of HTTP messages.
+ * <p>
+ * Built-in encoders are {@link #gzip() gzip} and {@link #zstd() zstd}, the latter requires
+ * an optional {@code com.github.luben:zstd-jni} dependency. Other codings (like {@code br})
+ * may be supported by implementing this interface on top of a third-party library.
+ * <p>
+ * Encoders are stateless and may be shared between several eventloops.
+ *
+ * @see HttpMessage#setBodyCompression(ContentEncoder)
+ * @see AsyncServletDecorator#compressResponses(io.activej.common.MemSize, ContentEncoder...)
+ */
+public interface ContentEncoder {
+	/**
+	 * Returns a content coding token of this encoder, which is sent in {@code Content-Encoding} header
+	 * and is matched against {@code Accept-Encoding} header
+	 */
+	@NotNull
+	String getName();
+
+	/**
+	 * Compresses a whole body, a given buf is recycled
+	 */
+	@NotNull
+	ByteBuf encode(@NotNull ByteBuf buf);
+
+	/**
+	 * Returns a supplier of a compressed body stream
+	 */
+	@NotNull
+	ChannelSupplier<ByteBuf> encode(@NotNull ChannelSupplier<ByteBuf> bodyStream);
+
+	/**
+	 * Returns a gzip encoder with a default compression level
+	 */
+	static ContentEncoder gzip() {
+		return GzipContentEncoder.DEFAULT;
+	}
+
+	/**
+	 * Returns a gzip encoder with a given compression level,
+	 * from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}
+	 */
+	static ContentEncoder gzip(int level) {
+		GzipProcessorUtils.checkLevel(level);
+		return level == Deflater.DEFAULT_COMPRESSION ? GzipContentEncoder.DEFAULT : new GzipContentEncoder(level);
+	}
+
+	/**
+	 * Returns a zstd encoder with a default compression level
+	 *
+	 * @throws IllegalStateException if zstd is not {@link #isZstdAvailable() available}
+	 */
+	static ContentEncoder zstd() {
+		return zstd(ZstdContentEncoder.DEFAULT_LEVEL);
+	}
+
+	/**
+	 * Returns a zstd encoder with a given compression level. Low levels (1 to 3) are the fastest ones
+	 * and still compress better than gzip on typical textual content
+	 *
+	 * @throws IllegalStateException if zstd is not {@link #isZstdAvailable() available}
+	 */
+	static ContentEncoder zstd(int level) {
+		if (!isZstdAvailable()) {
+			throw new IllegalStateException("Zstd is not available, 'com.github.luben:zstd-jni' should be present in classpath");
+		}
+		return ZstdContentEncoder.create(level);
+	}
+
+	/**
+	 * Checks whether zstd library is present in a classpath and its native part can be loaded on this platform
+	 */
+	static boolean isZstdAvailable() {
+		return ZstdContentEncoder.Availability.AVAILABLE;
+	}
+}
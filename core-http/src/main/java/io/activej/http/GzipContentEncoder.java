@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.csp.ChannelSupplier;
+import io.activej.http.stream.BufsConsumerGzipDeflater;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.zip.Deflater;
+
+/**
+ * A gzip encoder which takes compressors from pools of {@link GzipProcessorUtils},
+ * both for whole bodies and for body streams
+ */
+final class GzipContentEncoder implements ContentEncoder {
+	static final GzipContentEncoder DEFAULT = new GzipContentEncoder(Deflater.DEFAULT_COMPRESSION);
+
+	private final int level;
+
+	GzipContentEncoder(int level) {
+		this.level = level;
+	}
+
+	@NotNull
+	@Override
+	public String getName() {
+		return "gzip";
+	}
+
+	@NotNull
+	@Override
+	public ByteBuf encode(@NotNull ByteBuf buf) {
+		return GzipProcessorUtils.toGzip(buf, level);
+	}
+
+	@NotNull
+	@Override
+	public ChannelSupplier<ByteBuf> encode(@NotNull ChannelSupplier<ByteBuf> bodyStream) {
+		Deflater compressor = GzipProcessorUtils.ensureCompressor(level);
+		BufsConsumerGzipDeflater deflater = BufsConsumerGzipDeflater.create()
+				.withDeflater(compressor);
+		// a compressor is ended by a deflater if the stream fails, so it is returned to a pool only on success
+		deflater.getProcessCompletion()
+				.whenResult(() -> GzipProcessorUtils.moveCompressorToPool(compressor, level));
+		bodyStream.bindTo(deflater.getInput());
+		return deflater.getOutput().getSupplier();
+	}
+
+	@Override
+	public String toString() {
+		return "GzipContentEncoder{level=" + level + '}';
+	}
+}
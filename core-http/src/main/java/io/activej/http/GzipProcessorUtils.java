@@ -62,7 +62,17 @@ public final class GzipProcessorUtils {
 	public static final ParseException UNSUPPORTED_COMPRESSION_METHOD = new UnknownFormatException(GzipProcessorUtils.class, "Unsupported compression method. Deflate compression required");
 
 	private static final ConcurrentStack<Inflater> decompressors = new ConcurrentStack<>();
-	private static final ConcurrentStack<Deflater> compressors = new ConcurrentStack<>();
+	/**
+	 * Pools of compressors indexed by a compression level plus one, so that {@link Deflater#DEFAULT_COMPRESSION} comes first
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static final ConcurrentStack<Deflater>[] compressors = new ConcurrentStack[Deflater.BEST_COMPRESSION + 2];
+
+	static {
+		for (int i = 0; i < compressors.length; i++) {
+			compressors[i] = new ConcurrentStack<>();
+		}
+	}
 
 	public static ByteBuf fromGzip(ByteBuf src, int maxMessageSize) throws ParseException {
 		if (CHECK) checkArgument(src.readRemaining() > 0);
@@ -91,9 +101,17 @@ public final class GzipProcessorUtils {
 	}
 
 	public static ByteBuf toGzip(ByteBuf src) {
+		return toGzip(src, Deflater.DEFAULT_COMPRESSION);
+	}
+
+	/**
+	 * Compresses data with a given compression level, from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION},
+	 * or {@link Deflater#DEFAULT_COMPRESSION}
+	 */
+	public static ByteBuf toGzip(ByteBuf src, int level) {
 		if (CHECK) checkArgument(src.readRemaining() >= 0);
 
-		Deflater compressor = ensureCompressor();
+		Deflater compressor = ensureCompressor(level);
 		compressor.setInput(src.array(), src.head(), src.readRemaining());
 		compressor.finish();
 		int dataSize = src.readRemaining();
@@ -105,7 +123,7 @@ public final class GzipProcessorUtils {
 		dst.writeInt(Integer.reverseBytes(crc));
 		dst.writeInt(Integer.reverseBytes(dataSize));
 
-		moveCompressorToPool(compressor);
+		moveCompressorToPool(compressor, level);
 		src.recycle();
 		return dst;
 	}
@@ -200,7 +218,7 @@ public final class GzipProcessorUtils {
 		throw CORRUPTED_GZIP_HEADER;
 	}
 
-	private static Inflater ensureDecompressor() {
+	static Inflater ensureDecompressor() {
 		Inflater decompressor = decompressors.pop();
 		if (decompressor == null) {
 			decompressor = new Inflater(true);
@@ -208,22 +226,36 @@ public final class GzipProcessorUtils {
 		return decompressor;
 	}
 
-	private static void moveDecompressorToPool(Inflater decompressor) {
+	static void moveDecompressorToPool(Inflater decompressor) {
 		decompressor.reset();
 		decompressors.push(decompressor);
 	}
 
-	private static Deflater ensureCompressor() {
-		Deflater compressor = compressors.pop();
+	static Deflater ensureCompressor() {
+		return ensureCompressor(Deflater.DEFAULT_COMPRESSION);
+	}
+
+	static Deflater ensureCompressor(int level) {
+		if (CHECK) checkLevel(level);
+		Deflater compressor = compressors[level + 1].pop();
 		if (compressor == null) {
-			compressor = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+			compressor = new Deflater(level, true);
 		}
 		return compressor;
 	}
 
-	private static void moveCompressorToPool(Deflater compressor) {
+	static void moveCompressorToPool(Deflater compressor) {
+		moveCompressorToPool(compressor, Deflater.DEFAULT_COMPRESSION);
+	}
+
+	static void moveCompressorToPool(Deflater compressor, int level) {
 		compressor.reset();
-		compressors.push(compressor);
+		compressors[level + 1].push(compressor);
+	}
+
+	static void checkLevel(int level) {
+		checkArgument(level >= Deflater.DEFAULT_COMPRESSION && level <= Deflater.BEST_COMPRESSION,
+				"Compression level should be in range [-1, 9]");
 	}
 
 	private static void check(boolean condition, ByteBuf buf1, ByteBuf buf2, ParseException e) throws ParseException {
@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.common.exception.parse.ParseException;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+import static io.activej.bytebuf.ByteBufStrings.hashCodeLowerCaseAscii;
+
+/**
+ * Decodes HPACK header blocks (RFC 7541), maintaining a dynamic table shared by all header blocks of a connection.
+ * <p>
+ * Header blocks must be decoded in the order they are received,
+ * even those which belong to streams which are going to be discarded.
+ * <p>
+ * A header list which is too large or has header field names with uppercase characters (RFC 7540, section 8.1.2)
+ * is malformed. Such a header block is still decoded completely, so that the dynamic table stays in sync
+ * with a peer, but the rest of its header fields are not passed to a listener.
+ */
+final class HpackDecoder {
+	static final ParseException INVALID_INDEX = new ParseException(HpackDecoder.class, "Invalid HPACK table index");
+	static final ParseException INVALID_INTEGER = new ParseException(HpackDecoder.class, "Invalid HPACK integer");
+	static final ParseException INVALID_TABLE_SIZE_UPDATE = new ParseException(HpackDecoder.class, "Invalid HPACK dynamic table size update");
+	static final ParseException INCOMPLETE_HEADER_BLOCK = new ParseException(HpackDecoder.class, "Incomplete HPACK header block");
+	static final ParseException HEADER_LIST_TOO_LARGE = new ParseException(HpackDecoder.class, "Header list is too large");
+	static final ParseException UPPERCASE_HEADER_NAME = new ParseException(HpackDecoder.class, "Header field name has uppercase characters");
+
+	@FunctionalInterface
+	interface HeaderListener {
+		void onHeader(HttpHeader header, byte[] value) throws ParseException;
+	}
+
+	private final int maxTableSizeLimit;
+	private final int maxHeaderListSize;
+	private int maxTableSize;
+	private int tableSize;
+
+	private HttpHeader[] headers = new HttpHeader[16];
+	private byte[][] values = new byte[16][];
+	private boolean[] uppercaseNames = new boolean[16];
+	private long insertions;
+	private int entries;
+
+	// a state of a header block being decoded
+	private byte[] array;
+	private int pos;
+	private int limit;
+	private HeaderListener listener;
+	private int headerListSize;
+	@Nullable
+	private ParseException malformed;
+	private boolean uppercaseName;
+
+	/**
+	 * @param maxTableSize      a size of a dynamic table, which is advertised to a peer
+	 * @param maxHeaderListSize a maximal size of a decoded header list, as defined by {@code SETTINGS_MAX_HEADER_LIST_SIZE}
+	 */
+	HpackDecoder(int maxTableSize, int maxHeaderListSize) {
+		this.maxTableSizeLimit = maxTableSize;
+		this.maxHeaderListSize = maxHeaderListSize;
+		this.maxTableSize = maxTableSize;
+	}
+
+	HpackDecoder(int maxTableSize) {
+		this(maxTableSize, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Decodes a header block, passing its header fields to a listener
+	 *
+	 * @return an exception if a decoded header list is malformed, or {@code null} otherwise
+	 * @throws ParseException if a header block can not be decoded, which is a connection error
+	 */
+	@Nullable
+	ParseException decode(byte[] array, int offset, int length, HeaderListener listener) throws ParseException {
+		this.array = array;
+		this.pos = offset;
+		this.limit = offset + length;
+		this.listener = listener;
+		this.headerListSize = 0;
+		this.malformed = null;
+		boolean headersDecoded = false;
+		try {
+			while (pos < limit) {
+				int b = array[pos] & 0xFF;
+				if ((b & 0x80) != 0) {
+					int index = readInteger(7);
+					onHeader(getHeader(index), getValue(index), hasUppercaseName(index));
+				} else if ((b & 0xC0) == 0x40) {
+					int index = readInteger(6);
+					HttpHeader header = index == 0 ? readHeader() : getHeader(index);
+					boolean uppercase = index == 0 ? uppercaseName : hasUppercaseName(index);
+					byte[] value = readString();
+					insert(header, value, uppercase);
+					onHeader(header, value, uppercase);
+				} else if ((b & 0xE0) == 0x20) {
+					if (headersDecoded) throw INVALID_TABLE_SIZE_UPDATE;
+					int size = readInteger(5);
+					if (size > maxTableSizeLimit) throw INVALID_TABLE_SIZE_UPDATE;
+					maxTableSize = size;
+					evict(0);
+					continue;
+				} else {
+					// literal header fields without indexing and never indexed ones differ only for intermediaries
+					int index = readInteger(4);
+					HttpHeader header = index == 0 ? readHeader() : getHeader(index);
+					boolean uppercase = index == 0 ? uppercaseName : hasUppercaseName(index);
+					onHeader(header, readString(), uppercase);
+				}
+				headersDecoded = true;
+			}
+			return malformed;
+		} finally {
+			this.array = null;
+			this.listener = null;
+		}
+	}
+
+	private void onHeader(HttpHeader header, byte[] value, boolean uppercase) throws ParseException {
+		if (malformed != null) return;
+		headerListSize += entrySize(header, value);
+		if (headerListSize > maxHeaderListSize) {
+			malformed = HEADER_LIST_TOO_LARGE;
+			return;
+		}
+		if (uppercase) {
+			malformed = UPPERCASE_HEADER_NAME;
+			return;
+		}
+		listener.onHeader(header, value);
+	}
+
+	int getTableSize() {
+		return tableSize;
+	}
+
+	int getMaxTableSize() {
+		return maxTableSize;
+	}
+
+	private int readInteger(int prefixBits) throws ParseException {
+		int mask = (1 << prefixBits) - 1;
+		int value = array[pos++] & mask;
+		if (value < mask) return value;
+		long result = value;
+		for (int shift = 0; ; shift += 7) {
+			if (pos == limit) throw INCOMPLETE_HEADER_BLOCK;
+			int b = array[pos++];
+			result += (long) (b & 0x7F) << shift;
+			if (result > Integer.MAX_VALUE) throw INVALID_INTEGER;
+			if ((b & 0x80) == 0) return (int) result;
+		}
+	}
+
+	private byte[] readString() throws ParseException {
+		if (pos == limit) throw INCOMPLETE_HEADER_BLOCK;
+		boolean huffman = (array[pos] & 0x80) != 0;
+		int length = readInteger(7);
+		if (length > limit - pos) throw INCOMPLETE_HEADER_BLOCK;
+		int offset = pos;
+		pos += length;
+		return huffman ?
+				HpackHuffman.decode(array, offset, length) :
+				Arrays.copyOfRange(array, offset, offset + length);
+	}
+
+	/**
+	 * Reads a literal header field name. As headers are looked up case-insensitively,
+	 * whether the name itself has uppercase characters is kept in {@link #uppercaseName}
+	 */
+	private HttpHeader readHeader() throws ParseException {
+		byte[] name = readString();
+		uppercaseName = false;
+		for (byte b : name) {
+			if (b >= 'A' && b <= 'Z') {
+				uppercaseName = true;
+				break;
+			}
+		}
+		return HttpHeaders.of(name, 0, name.length, hashCodeLowerCaseAscii(name, 0, name.length));
+	}
+
+	private HttpHeader getHeader(int index) throws ParseException {
+		if (index == 0) throw INVALID_INDEX;
+		if (index <= HpackStaticTable.LENGTH) return HpackStaticTable.getHeader(index);
+		return headers[dynamicSlot(index)];
+	}
+
+	private byte[] getValue(int index) throws ParseException {
+		if (index == 0) throw INVALID_INDEX;
+		if (index <= HpackStaticTable.LENGTH) return HpackStaticTable.getValue(index);
+		return values[dynamicSlot(index)];
+	}
+
+	private boolean hasUppercaseName(int index) throws ParseException {
+		if (index <= HpackStaticTable.LENGTH) return false;
+		return uppercaseNames[dynamicSlot(index)];
+	}
+
+	private int dynamicSlot(int index) throws ParseException {
+		int n = index - HpackStaticTable.LENGTH - 1;
+		if (n >= entries) throw INVALID_INDEX;
+		return (int) ((insertions - 1 - n) & (headers.length - 1));
+	}
+
+	private void insert(HttpHeader header, byte[] value, boolean uppercase) {
+		int size = entrySize(header, value);
+		evict(size);
+		if (size > maxTableSize) return;
+		if (entries == headers.length) {
+			grow();
+		}
+		int slot = (int) (insertions & (headers.length - 1));
+		headers[slot] = header;
+		values[slot] = value;
+		uppercaseNames[slot] = uppercase;
+		insertions++;
+		entries++;
+		tableSize += size;
+	}
+
+	private void evict(int sizeToFit) {
+		while (entries != 0 && tableSize + sizeToFit > maxTableSize) {
+			int slot = (int) ((insertions - entries) & (headers.length - 1));
+			tableSize -= entrySize(headers[slot], values[slot]);
+			headers[slot] = null;
+			values[slot] = null;
+			entries--;
+		}
+	}
+
+	private void grow() {
+		HttpHeader[] newHeaders = new HttpHeader[headers.length * 2];
+		byte[][] newValues = new byte[values.length * 2][];
+		boolean[] newUppercaseNames = new boolean[uppercaseNames.length * 2];
+		for (long i = insertions - entries; i < insertions; i++) {
+			int oldSlot = (int) (i & (headers.length - 1));
+			int newSlot = (int) (i & (newHeaders.length - 1));
+			newHeaders[newSlot] = headers[oldSlot];
+			newValues[newSlot] = values[oldSlot];
+			newUppercaseNames[newSlot] = uppercaseNames[oldSlot];
+		}
+		headers = newHeaders;
+		values = newValues;
+		uppercaseNames = newUppercaseNames;
+	}
+
+	private static int entrySize(HttpHeader header, byte[] value) {
+		return header.size() + value.length + 32;
+	}
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encodes header fields into HPACK header blocks (RFC 7541).
+ * <p>
+ * Fields which are found in the static or in the dynamic table are encoded as indices,
+ * other ones are added to the dynamic table, so that repeating fields of
+ * subsequent messages on the same connection take a byte or two.
+ * String literals are Huffman encoded whenever it makes them shorter.
+ */
+final class HpackEncoder {
+	/**
+	 * A size of a dynamic table which is assumed until a peer advertises another one
+	 */
+	static final int DEFAULT_TABLE_SIZE = 4096;
+
+	private static final Map<Field, Integer> STATIC_FIELDS = new HashMap<>();
+	private static final Map<Field, Integer> STATIC_NAMES = new HashMap<>();
+
+	static {
+		for (int index = HpackStaticTable.LENGTH; index > 0; index--) {
+			byte[] name = HpackStaticTable.getName(index);
+			STATIC_FIELDS.put(new Field(name, HpackStaticTable.getValue(index)), index);
+			STATIC_NAMES.put(new Field(name, null), index);
+		}
+	}
+
+	private final int maxTableSizeLimit;
+	private int maxTableSize;
+	private int tableSize;
+	private int minTableSizeUpdate = -1;
+
+	private final Map<Field, Long> fields = new HashMap<>();
+	private final Map<Field, Long> names = new HashMap<>();
+	private Field[] entries = new Field[16];
+	private long insertions;
+	private int size;
+
+	private final Field probe = new Field(null, null);
+
+	/**
+	 * @param maxTableSize an upper bound for a size of a dynamic table,
+	 *                     an actual size is the least of this one and the one advertised by a peer
+	 */
+	HpackEncoder(int maxTableSize) {
+		this.maxTableSizeLimit = maxTableSize;
+		this.maxTableSize = Math.min(maxTableSize, DEFAULT_TABLE_SIZE);
+		if (this.maxTableSize != DEFAULT_TABLE_SIZE) {
+			this.minTableSizeUpdate = this.maxTableSize;
+		}
+	}
+
+	/**
+	 * Applies a {@code SETTINGS_HEADER_TABLE_SIZE} setting received from a peer.
+	 * A peer is notified about a new size at the beginning of a next header block.
+	 */
+	void setMaxTableSize(int peerMaxTableSize) {
+		int newMaxTableSize = Math.min(peerMaxTableSize, maxTableSizeLimit);
+		if (newMaxTableSize == maxTableSize) return;
+		maxTableSize = newMaxTableSize;
+		minTableSizeUpdate = minTableSizeUpdate == -1 ? newMaxTableSize : Math.min(minTableSizeUpdate, newMaxTableSize);
+		evict(0);
+	}
+
+	int getTableSize() {
+		return tableSize;
+	}
+
+	ByteBuf beginHeaderBlock(ByteBuf buf) {
+		if (minTableSizeUpdate != -1) {
+			buf = ByteBufPool.ensureWriteRemaining(buf, 12);
+			if (minTableSizeUpdate != maxTableSize) {
+				writeInteger(buf, 0x20, 5, minTableSizeUpdate);
+			}
+			writeInteger(buf, 0x20, 5, maxTableSize);
+			minTableSizeUpdate = -1;
+		}
+		return buf;
+	}
+
+	/**
+	 * Encodes a header field into a given buffer
+	 *
+	 * @param name  a lower case name of a header field
+	 * @param value a value of a header field
+	 * @param index whether a field may be added to a dynamic table
+	 * @return a buffer with an encoded field, which may be a different one if a given buffer is too small
+	 */
+	ByteBuf encode(ByteBuf buf, byte[] name, byte[] value, boolean index) {
+		buf = ByteBufPool.ensureWriteRemaining(buf, 3 * 6 + name.length + value.length);
+
+		probe.set(name, value);
+		Integer staticIndex = STATIC_FIELDS.get(probe);
+		if (staticIndex != null) {
+			writeInteger(buf, 0x80, 7, staticIndex);
+			return buf;
+		}
+		Long insertion = fields.get(probe);
+		if (insertion != null) {
+			writeInteger(buf, 0x80, 7, dynamicIndex(insertion));
+			return buf;
+		}
+
+		probe.set(name, null);
+		int nameIndex;
+		Integer staticNameIndex = STATIC_NAMES.get(probe);
+		if (staticNameIndex != null) {
+			nameIndex = staticNameIndex;
+		} else {
+			Long nameInsertion = names.get(probe);
+			nameIndex = nameInsertion != null ? dynamicIndex(nameInsertion) : 0;
+		}
+
+		index &= Field.size(name, value) <= maxTableSize / 2;
+		if (index) {
+			writeInteger(buf, 0x40, 6, nameIndex);
+		} else {
+			writeInteger(buf, 0x00, 4, nameIndex);
+		}
+		if (nameIndex == 0) {
+			writeString(buf, name);
+		}
+		writeString(buf, value);
+
+		if (index) {
+			insert(new Field(name, value));
+		}
+		return buf;
+	}
+
+	private int dynamicIndex(long insertion) {
+		return (int) (insertions - insertion) + HpackStaticTable.LENGTH;
+	}
+
+	private void insert(Field field) {
+		int fieldSize = field.size();
+		evict(fieldSize);
+		if (size == entries.length) {
+			grow();
+		}
+		long insertion = insertions++;
+		entries[(int) (insertion & (entries.length - 1))] = field;
+		size++;
+		tableSize += fieldSize;
+		fields.put(field, insertion);
+		names.put(new Field(field.name, null), insertion);
+	}
+
+	private void evict(int sizeToFit) {
+		while (size != 0 && tableSize + sizeToFit > maxTableSize) {
+			long insertion = insertions - size;
+			int slot = (int) (insertion & (entries.length - 1));
+			Field field = entries[slot];
+			entries[slot] = null;
+			size--;
+			tableSize -= field.size();
+			fields.remove(field, insertion);
+			probe.set(field.name, null);
+			names.remove(probe, insertion);
+		}
+	}
+
+	private void grow() {
+		Field[] newEntries = new Field[entries.length * 2];
+		for (long i = insertions - size; i < insertions; i++) {
+			newEntries[(int) (i & (newEntries.length - 1))] = entries[(int) (i & (entries.length - 1))];
+		}
+		entries = newEntries;
+	}
+
+	static void writeInteger(ByteBuf buf, int firstByte, int prefixBits, int value) {
+		int mask = (1 << prefixBits) - 1;
+		if (value < mask) {
+			buf.writeByte((byte) (firstByte | value));
+			return;
+		}
+		buf.writeByte((byte) (firstByte | mask));
+		value -= mask;
+		while (value >= 0x80) {
+			buf.writeByte((byte) (value | 0x80));
+			value >>>= 7;
+		}
+		buf.writeByte((byte) value);
+	}
+
+	private static void writeString(ByteBuf buf, byte[] string) {
+		int huffmanLength = HpackHuffman.encodedLength(string, 0, string.length);
+		if (huffmanLength < string.length) {
+			writeInteger(buf, 0x80, 7, huffmanLength);
+			HpackHuffman.encode(buf, string, 0, string.length);
+		} else {
+			writeInteger(buf, 0x00, 7, string.length);
+			buf.put(string);
+		}
+	}
+
+	private static final class Field {
+		byte[] name;
+		byte[] value;
+		int hashCode;
+
+		Field(byte[] name, byte[] value) {
+			set(name, value);
+		}
+
+		void set(byte[] name, byte[] value) {
+			this.name = name;
+			this.value = value;
+			this.hashCode = name == null ? 0 : 31 * Arrays.hashCode(name) + Arrays.hashCode(value);
+		}
+
+		int size() {
+			return size(name, value);
+		}
+
+		static int size(byte[] name, byte[] value) {
+			return name.length + value.length + 32;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof Field)) return false;
+			Field that = (Field) o;
+			return Arrays.equals(name, that.name) && Arrays.equals(value, that.value);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+}
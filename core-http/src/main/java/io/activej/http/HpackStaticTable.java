@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import static io.activej.bytebuf.ByteBufStrings.encodeAscii;
+
+/**
+ * A predefined HPACK table of common header fields, as defined in RFC 7541, Appendix A.
+ * Indices of this table start from 1, entries of a dynamic table follow it.
+ */
+final class HpackStaticTable {
+	private static final String[][] ENTRIES = {
+			{":authority", ""},
+			{":method", "GET"},
+			{":method", "POST"},
+			{":path", "/"},
+			{":path", "/index.html"},
+			{":scheme", "http"},
+			{":scheme", "https"},
+			{":status", "200"},
+			{":status", "204"},
+			{":status", "206"},
+			{":status", "304"},
+			{":status", "400"},
+			{":status", "404"},
+			{":status", "500"},
+			{"accept-charset", ""},
+			{"accept-encoding", "gzip, deflate"},
+			{"accept-language", ""},
+			{"accept-ranges", ""},
+			{"accept", ""},
+			{"access-control-allow-origin", ""},
+			{"age", ""},
+			{"allow", ""},
+			{"authorization", ""},
+			{"cache-control", ""},
+			{"content-disposition", ""},
+			{"content-encoding", ""},
+			{"content-language", ""},
+			{"content-length", ""},
+			{"content-location", ""},
+			{"content-range", ""},
+			{"content-type", ""},
+			{"cookie", ""},
+			{"date", ""},
+			{"etag", ""},
+			{"expect", ""},
+			{"expires", ""},
+			{"from", ""},
+			{"host", ""},
+			{"if-match", ""},
+			{"if-modified-since", ""},
+			{"if-none-match", ""},
+			{"if-range", ""},
+			{"if-unmodified-since", ""},
+			{"last-modified", ""},
+			{"link", ""},
+			{"location", ""},
+			{"max-forwards", ""},
+			{"proxy-authenticate", ""},
+			{"proxy-authorization", ""},
+			{"range", ""},
+			{"referer", ""},
+			{"refresh", ""},
+			{"retry-after", ""},
+			{"server", ""},
+			{"set-cookie", ""},
+			{"strict-transport-security", ""},
+			{"transfer-encoding", ""},
+			{"user-agent", ""},
+			{"vary", ""},
+			{"via", ""},
+			{"www-authenticate", ""}
+	};
+
+	static final int LENGTH = ENTRIES.length;
+
+	private static final HttpHeader[] HEADERS = new HttpHeader[LENGTH + 1];
+	private static final byte[][] NAMES = new byte[LENGTH + 1][];
+	private static final byte[][] VALUES = new byte[LENGTH + 1][];
+
+	static {
+		for (int i = 0; i < LENGTH; i++) {
+			HEADERS[i + 1] = HttpHeaders.of(ENTRIES[i][0]);
+			NAMES[i + 1] = encodeAscii(ENTRIES[i][0]);
+			VALUES[i + 1] = encodeAscii(ENTRIES[i][1]);
+		}
+	}
+
+	private HpackStaticTable() {
+	}
+
+	static HttpHeader getHeader(int index) {
+		return HEADERS[index];
+	}
+
+	static byte[] getName(int index) {
+		return NAMES[index];
+	}
+
+	static byte[] getValue(int index) {
+		return VALUES[index];
+	}
+}
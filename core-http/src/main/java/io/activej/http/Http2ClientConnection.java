@@ -0,0 +1,323 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.common.exception.parse.ParseException;
+import io.activej.common.exception.parse.UnknownFormatException;
+import io.activej.eventloop.Eventloop;
+import io.activej.net.socket.tcp.AsyncTcpSocket;
+import io.activej.promise.Promise;
+import io.activej.promise.SettablePromise;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+
+import static io.activej.bytebuf.ByteBufStrings.encodeAscii;
+import static io.activej.http.Http2Exception.*;
+import static io.activej.http.HttpHeaders.HOST;
+import static io.activej.http.HttpMessage.MUST_LOAD_BODY;
+import static io.activej.http.HttpUtils.trimAndDecodePositiveInt;
+
+/**
+ * A client side of an HTTP/2 connection.
+ * <p>
+ * Requests to the same address are multiplexed over a single connection,
+ * requests which exceed a limit of concurrent streams of a server wait for other streams to complete.
+ */
+final class Http2ClientConnection extends AbstractHttp2Connection {
+	private static final byte[] METHOD_NAME = encodeAscii(":method");
+	private static final byte[] SCHEME_NAME = encodeAscii(":scheme");
+	private static final byte[] AUTHORITY_NAME = encodeAscii(":authority");
+	private static final byte[] PATH_NAME = encodeAscii(":path");
+	private static final byte[] SCHEME_HTTP = encodeAscii("http");
+
+	private static final int MAX_STREAM_ID = Integer.MAX_VALUE;
+
+	final InetSocketAddress remoteAddress;
+	private final AsyncHttpClient client;
+	private final int maxBodySize;
+
+	private int nextStreamId = 1;
+	private final ArrayDeque<PendingRequest> pendingRequests = new ArrayDeque<>();
+
+	Http2ClientConnection(Eventloop eventloop, AsyncHttpClient client, AsyncTcpSocket asyncTcpSocket, InetSocketAddress remoteAddress) {
+		super(eventloop, asyncTcpSocket, 0, client.http2InitialWindowSize);
+		this.remoteAddress = remoteAddress;
+		this.client = client;
+		this.maxBodySize = client.maxBodySize;
+	}
+
+	void start() {
+		(pool = client.poolReadWrite).addLastNode(this);
+		poolTimestamp = eventloop.currentTimeMillis();
+		writePreface();
+		start(false);
+	}
+
+	/**
+	 * Checks whether new requests may be sent over this connection
+	 */
+	boolean isAvailable() {
+		return !isClosed() && !isGoingAway() && nextStreamId < MAX_STREAM_ID;
+	}
+
+	Promise<HttpResponse> send(HttpRequest request) {
+		if (!isAvailable()) {
+			request.recycle();
+			return Promise.ofException(CONNECTION_CLOSED);
+		}
+		SettablePromise<HttpResponse> promise = new SettablePromise<>();
+		if (streams.size() >= peerMaxConcurrentStreams) {
+			pendingRequests.add(new PendingRequest(request, promise));
+		} else {
+			doSend(request, promise);
+		}
+		updatePool();
+		return promise;
+	}
+
+	private void doSend(HttpRequest request, SettablePromise<HttpResponse> promise) {
+		int streamId = nextStreamId;
+		nextStreamId += 2;
+		Stream stream = openStream(streamId);
+		stream.promise = promise;
+
+		String authority = request.getHeader(HOST);
+		if (authority == null) {
+			authority = request.getHostAndPort();
+		}
+		ByteBuf headerBlock = beginHeaderBlock();
+		headerBlock = encodeHeader(headerBlock, METHOD_NAME, request.getMethod().bytes);
+		headerBlock = encodeHeader(headerBlock, SCHEME_NAME, SCHEME_HTTP);
+		if (authority != null) {
+			headerBlock = encodeHeader(headerBlock, AUTHORITY_NAME, encodeAscii(authority));
+		}
+		headerBlock = encodeHeader(headerBlock, PATH_NAME, encodeAscii(request.getPathAndQuery()));
+		writeMessage(stream, request, headerBlock);
+		request.recycle();
+	}
+
+	private void sendPendingRequests() {
+		while (!pendingRequests.isEmpty() && streams.size() < peerMaxConcurrentStreams && isAvailable()) {
+			PendingRequest pending = pendingRequests.poll();
+			doSend(pending.request, pending.promise);
+		}
+	}
+
+	@Override
+	protected boolean isIdle(int streamId) {
+		return (streamId & 1) == 0 || streamId >= nextStreamId;
+	}
+
+	@Override
+	protected void onHeaders(int streamId, boolean endStream) throws ParseException {
+		Stream stream = streams.get(streamId);
+		if (stream == null) {
+			if ((streamId & 1) == 0 || streamId >= nextStreamId) {
+				throw new Http2Exception(Http2ClientConnection.class, PROTOCOL_ERROR, "Invalid stream identifier: " + streamId);
+			}
+			return; // the stream has already been closed
+		}
+		if (stream.message != null) {
+			// trailers are ignored
+			if (!endStream || stream.remoteEnded) {
+				resetStream(stream, PROTOCOL_ERROR);
+			} else {
+				onRemoteEnd(stream);
+			}
+			return;
+		}
+		HttpResponse response;
+		try {
+			response = createResponse();
+		} catch (ParseException e) {
+			resetStream(stream, new Http2Exception(Http2ClientConnection.class, PROTOCOL_ERROR, e.getMessage()));
+			return;
+		}
+		if (response == null) {
+			// informational responses are ignored
+			if (endStream) {
+				resetStream(stream, PROTOCOL_ERROR);
+			}
+			return;
+		}
+		response.flags |= MUST_LOAD_BODY;
+		if (endStream) {
+			response.body = ByteBuf.empty();
+		} else {
+			response.bodyStream = getBodySupplier(stream, isGzipped());
+		}
+		stream.message = response;
+		SettablePromise<HttpResponse> promise = stream.promise;
+		stream.promise = null;
+		//noinspection ConstantConditions
+		promise.set(response);
+		if (endStream && !stream.closed) {
+			onRemoteEnd(stream);
+		}
+	}
+
+	@Nullable
+	private HttpResponse createResponse() throws ParseException {
+		if (headerListError != null) throw headerListError;
+		int code = -1;
+		int regularHeaders = 0;
+		for (int i = 0; i < headerNames.size(); i++) {
+			HttpHeader header = headerNames.get(i);
+			if (!isPseudoHeader(header)) {
+				regularHeaders++;
+			} else if (regularHeaders != 0 || !header.equals(PSEUDO_STATUS)) {
+				throw new UnknownFormatException(Http2ClientConnection.class, "Invalid pseudo-header field: " + header);
+			} else {
+				byte[] value = headerValues.get(i);
+				code = trimAndDecodePositiveInt(value, 0, value.length);
+			}
+		}
+		if (code < 100 || code >= 600) {
+			throw new UnknownFormatException(Http2ClientConnection.class, "Invalid response status: " + code);
+		}
+		if (code < 200) return null;
+		if (regularHeaders > MAX_HEADERS) {
+			throw TOO_MANY_HEADERS;
+		}
+		HttpResponse response = new HttpResponse(code);
+		response.maxBodySize = maxBodySize;
+		for (int i = headerNames.size() - regularHeaders; i < headerNames.size(); i++) {
+			response.addHeader(headerNames.get(i), headerValues.get(i));
+		}
+		return response;
+	}
+
+	@Override
+	protected void onStreamClosed(Stream stream, @Nullable Throwable e) {
+		SettablePromise<HttpResponse> promise = stream.promise;
+		if (promise != null) {
+			stream.promise = null;
+			promise.setException(e != null ? e : CONNECTION_CLOSED);
+		}
+		HttpMessage response = stream.message;
+		// a response is recycled once its body is received, as it is done by HTTP/1.1 connection
+		if (response != null && (e != null || stream.bodyConsumed || response.bodyStream != null || response.body != null)) {
+			response.recycle();
+		}
+		if (!isClosed()) {
+			sendPendingRequests();
+			updatePool();
+		}
+	}
+
+	@Override
+	protected void onBodyConsumed(Stream stream) {
+		stream.bodyConsumed = true;
+		if (stream.closed && stream.message != null) {
+			stream.message.recycle();
+		}
+	}
+
+	@Override
+	protected void onSettings() {
+		sendPendingRequests();
+	}
+
+	@Override
+	protected void onGoAway(int lastStreamId) {
+		client.onHttp2ConnectionUnavailable(this);
+		// requests which have not been sent yet are retried on a new connection
+		while (!pendingRequests.isEmpty()) {
+			PendingRequest pending = pendingRequests.poll();
+			client.sendHttp2(pending.request, remoteAddress).whenComplete(pending.promise);
+		}
+		Http2Exception e = new Http2Exception(Http2ClientConnection.class, REFUSED_STREAM, "Stream is not processed by a server");
+		for (Stream stream : streams.values().toArray(new Stream[0])) {
+			if (stream.id > lastStreamId) {
+				closeStream(stream, e);
+			}
+		}
+		updatePool();
+	}
+
+	@Override
+	protected void onFramesRead() {
+		if (pool == client.poolReadWrite) {
+			switchPool(client.poolReadWrite);
+		}
+	}
+
+	/**
+	 * Moves this connection to a pool which corresponds to its state,
+	 * or closes it if it is idle and should not be kept alive
+	 */
+	private void updatePool() {
+		if (isClosed()) return;
+		if (!streams.isEmpty() || !pendingRequests.isEmpty()) {
+			if (pool != client.poolReadWrite) {
+				switchPool(client.poolReadWrite);
+			}
+			return;
+		}
+		if (client.keepAliveTimeoutMillis == 0 || !isAvailable()) {
+			client.onHttp2ConnectionUnavailable(this);
+			closeGracefully();
+			return;
+		}
+		if (pool != client.poolKeepAlive) {
+			client.onHttp2ConnectionIdle(this);
+		}
+	}
+
+	@Override
+	protected void onConnectionError(@NotNull Throwable e) {
+	}
+
+	@Override
+	protected void onConnectionClosed() {
+		Throwable e = CONNECTION_CLOSED;
+		while (!pendingRequests.isEmpty()) {
+			PendingRequest pending = pendingRequests.poll();
+			pending.request.recycle();
+			pending.promise.setException(e);
+		}
+		client.onHttp2ConnectionUnavailable(this);
+		//noinspection ConstantConditions
+		pool.removeNode(this);
+		//noinspection AssertWithSideEffects,ConstantConditions
+		assert (pool = null) == null;
+		client.onConnectionClosed();
+	}
+
+	@Override
+	public String toString() {
+		return "Http2ClientConnection{" +
+				"remoteAddress=" + remoteAddress +
+				", pendingRequests=" + pendingRequests.size() +
+				super.toString() +
+				'}';
+	}
+
+	private static final class PendingRequest {
+		final HttpRequest request;
+		final SettablePromise<HttpResponse> promise;
+
+		PendingRequest(HttpRequest request, SettablePromise<HttpResponse> promise) {
+			this.request = request;
+			this.promise = promise;
+		}
+	}
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
+import io.activej.common.Check;
+import io.activej.common.exception.UncheckedException;
+import io.activej.common.exception.parse.ParseException;
+import io.activej.eventloop.Eventloop;
+import io.activej.http.AsyncHttpServer.Inspector;
+import io.activej.net.socket.tcp.AsyncTcpSocket;
+import io.activej.promise.Promise;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.InetAddress;
+
+import static io.activej.bytebuf.ByteBufStrings.decodeAscii;
+import static io.activej.bytebuf.ByteBufStrings.encodeAscii;
+import static io.activej.common.Preconditions.checkState;
+import static io.activej.http.Http2Exception.*;
+import static io.activej.http.HttpHeaders.COOKIE;
+import static io.activej.http.HttpHeaders.HOST;
+import static io.activej.http.HttpMessage.MUST_LOAD_BODY;
+
+/**
+ * A server side of an HTTP/2 connection.
+ * <p>
+ * Each stream, opened by a client, carries a single {@link HttpRequest},
+ * which is served by an {@link AsyncServlet} concurrently with requests of other streams.
+ */
+final class Http2ServerConnection extends AbstractHttp2Connection {
+	private static final boolean CHECK = Check.isEnabled(Http2ServerConnection.class);
+
+	private static final byte[] STATUS_NAME = encodeAscii(":status");
+	private static final byte[] COOKIE_SEPARATOR = encodeAscii("; ");
+
+	private final InetAddress remoteAddress;
+	private final AsyncHttpServer server;
+	@Nullable
+	private final Inspector inspector;
+	private final AsyncServlet servlet;
+	private final int maxBodySize;
+
+	private int servingRequests;
+
+	Http2ServerConnection(Eventloop eventloop, InetAddress remoteAddress, AsyncTcpSocket asyncTcpSocket,
+			AsyncHttpServer server, AsyncServlet servlet) {
+		super(eventloop, asyncTcpSocket, server.http2MaxConcurrentStreams, server.http2InitialWindowSize);
+		this.remoteAddress = remoteAddress;
+		this.server = server;
+		this.servlet = servlet;
+		this.inspector = server.inspector;
+		this.maxBodySize = server.maxBodySize;
+	}
+
+	/**
+	 * Starts serving a connection with prior knowledge of HTTP/2, a client preface is expected
+	 */
+	void serve() {
+		(pool = server.poolNew).addLastNode(this);
+		poolTimestamp = eventloop.currentTimeMillis();
+		start(true);
+	}
+
+	/**
+	 * Starts serving a connection which is upgraded from HTTP/1.1 (RFC 7540, section 3.2).
+	 * An upgrade request becomes a stream 1, which is half-closed by a client
+	 *
+	 * @param request  an HTTP/1.1 request with a complete body
+	 * @param settings a decoded value of {@code HTTP2-Settings} header
+	 */
+	void serveUpgrade(HttpRequest request, byte[] settings) throws ParseException {
+		(pool = server.poolNew).addLastNode(this);
+		poolTimestamp = eventloop.currentTimeMillis();
+		applySettings(settings, 0, settings.length);
+		lastPeerStreamId = 1;
+		Stream stream = openStream(1);
+		stream.remoteEnded = true;
+		start(true);
+		if (isClosed() || stream.closed) {
+			request.recycle();
+			return;
+		}
+		serveRequest(stream, request);
+	}
+
+	@Override
+	protected boolean isIdle(int streamId) {
+		return (streamId & 1) == 0 || streamId > lastPeerStreamId;
+	}
+
+	@Override
+	protected void onHeaders(int streamId, boolean endStream) throws ParseException {
+		if ((streamId & 1) == 0) {
+			throw new Http2Exception(Http2ServerConnection.class, PROTOCOL_ERROR, "Invalid stream identifier: " + streamId);
+		}
+		Stream stream = streams.get(streamId);
+		if (stream != null) {
+			// trailers are ignored
+			if (!endStream || stream.remoteEnded) {
+				resetStream(stream, PROTOCOL_ERROR);
+			} else {
+				onRemoteEnd(stream);
+			}
+			return;
+		}
+		if (streamId <= lastPeerStreamId || goAwaySent) {
+			return; // the stream has already been closed or refused
+		}
+		lastPeerStreamId = streamId;
+		stream = openStream(streamId);
+		// servlets of streams which are already reset by a peer keep running, so they are counted
+		// against the limit too, otherwise a peer could make them pile up by rapidly resetting streams
+		if (streams.size() > localMaxConcurrentStreams || servingRequests >= localMaxConcurrentStreams) {
+			resetStream(stream, REFUSED_STREAM);
+			return;
+		}
+		HttpRequest request;
+		try {
+			request = createRequest();
+		} catch (ParseException e) {
+			if (inspector != null) {
+				inspector.onHttpError(remoteAddress, e);
+			}
+			resetStream(stream, PROTOCOL_ERROR);
+			return;
+		}
+		if (endStream) {
+			stream.remoteEnded = true;
+			request.body = ByteBuf.empty();
+		} else {
+			request.bodyStream = getBodySupplier(stream, isGzipped());
+		}
+		serveRequest(stream, request);
+	}
+
+	private HttpRequest createRequest() throws ParseException {
+		if (headerListError != null) throw headerListError;
+		HttpMethod method = null;
+		String path = null;
+		byte[] authority = null;
+		int regularHeaders = 0;
+		for (int i = 0; i < headerNames.size(); i++) {
+			HttpHeader header = headerNames.get(i);
+			byte[] value = headerValues.get(i);
+			if (!isPseudoHeader(header)) {
+				regularHeaders++;
+				continue;
+			}
+			if (regularHeaders != 0) {
+				throw new ParseException(Http2ServerConnection.class, "Pseudo-header field after regular header fields");
+			}
+			if (header.equals(PSEUDO_METHOD)) {
+				method = getHttpMethod(value);
+			} else if (header.equals(PSEUDO_PATH)) {
+				path = decodeAscii(value);
+			} else if (header.equals(PSEUDO_AUTHORITY)) {
+				authority = value;
+			} else if (!header.equals(PSEUDO_SCHEME)) {
+				throw new ParseException(Http2ServerConnection.class, "Unknown pseudo-header field: " + header);
+			}
+		}
+		if (method == null || path == null || path.isEmpty()) {
+			throw new ParseException(Http2ServerConnection.class, "Missing mandatory pseudo-header fields");
+		}
+		if (regularHeaders > MAX_HEADERS) {
+			throw TOO_MANY_HEADERS;
+		}
+
+		HttpRequest request = new HttpRequest(method, UrlParser.parse(path));
+		request.maxBodySize = maxBodySize;
+		if (authority != null) {
+			request.addHeader(HOST, authority);
+		}
+		ByteBuf cookies = null;
+		for (int i = headerNames.size() - regularHeaders; i < headerNames.size(); i++) {
+			HttpHeader header = headerNames.get(i);
+			byte[] value = headerValues.get(i);
+			if (header == COOKIE) {
+				// cookies may be split into several header fields (RFC 7540, section 8.1.2.5)
+				if (cookies == null) {
+					cookies = ByteBuf.wrapForReading(value);
+				} else {
+					cookies = ByteBufPool.append(cookies, COOKIE_SEPARATOR);
+					cookies = ByteBufPool.append(cookies, value);
+				}
+			} else if (header != HOST || authority == null) {
+				request.addHeader(header, value);
+			}
+		}
+		if (cookies != null) {
+			request.addHeader(COOKIE, cookies.asArray());
+		}
+		return request;
+	}
+
+	@Nullable
+	private static HttpMethod getHttpMethod(byte[] value) {
+		for (HttpMethod method : HttpMethod.values()) {
+			if (method.compareTo(value, 0, value.length)) {
+				return method;
+			}
+		}
+		return null;
+	}
+
+	private void serveRequest(Stream stream, HttpRequest request) {
+		request.flags |= MUST_LOAD_BODY;
+		request.setRemoteAddress(remoteAddress);
+		stream.message = request;
+
+		if (inspector != null) {
+			inspector.onHttpRequest(request);
+		}
+
+		servingRequests++;
+		updatePool();
+
+		Promise<HttpResponse> servletResult;
+		try {
+			servletResult = servlet.serveAsync(request);
+		} catch (UncheckedException u) {
+			servletResult = Promise.ofException(u.getCause());
+		}
+		servletResult.whenComplete((response, e) -> {
+			if (CHECK) checkState(eventloop.inEventloopThread());
+			servingRequests--;
+			if (isClosed() || stream.closed) {
+				request.recycle();
+				if (response != null) {
+					response.recycle();
+				}
+				updatePool();
+				return;
+			}
+			if (e == null) {
+				if (inspector != null) {
+					inspector.onHttpResponse(request, response);
+				}
+				writeHttpResponse(stream, response);
+			} else {
+				if (inspector != null) {
+					inspector.onServletException(request, e);
+				}
+				writeHttpResponse(stream, server.formatHttpError(e));
+			}
+			request.recycle();
+			updatePool();
+		});
+	}
+
+	private void writeHttpResponse(Stream stream, HttpResponse response) {
+		if (server.dateHeader) {
+			server.addDateHeader(response);
+		}
+		ByteBuf headerBlock = beginHeaderBlock();
+		headerBlock = encodeHeader(headerBlock, STATUS_NAME, encodeAscii(Integer.toString(response.getCode())));
+		writeMessage(stream, response, headerBlock);
+		response.recycle();
+	}
+
+	@Override
+	protected void onHalfClosedLocal(Stream stream) {
+		// a response is complete, so the rest of a request is not needed (RFC 7540, section 8.1)
+		resetStream(stream, NO_ERROR);
+	}
+
+	@Override
+	protected void onStreamClosed(Stream stream, @Nullable Throwable e) {
+		if (!isClosed()) {
+			updatePool();
+		}
+	}
+
+	@Override
+	protected void onGoAway(int lastStreamId) {
+		updatePool();
+	}
+
+	@Override
+	protected void onFramesRead() {
+		if (pool == server.poolReadWrite) {
+			switchPool(server.poolReadWrite);
+		}
+	}
+
+	/**
+	 * Moves this connection to a pool which corresponds to its state,
+	 * or closes it if it is idle and should not be kept alive
+	 */
+	private void updatePool() {
+		if (isClosed()) return;
+		ConnectionsLinkedList newPool = servingRequests != 0 ? server.poolServing :
+				!streams.isEmpty() ? server.poolReadWrite :
+						server.poolKeepAlive;
+		if (newPool == server.poolKeepAlive && (server.keepAliveTimeoutMillis == 0 || goAwayReceived)) {
+			closeGracefully();
+			return;
+		}
+		if (pool != newPool) {
+			switchPool(newPool);
+		}
+	}
+
+	@Override
+	protected void onConnectionError(@NotNull Throwable e) {
+		if (inspector != null) {
+			inspector.onHttpError(remoteAddress, e);
+		}
+	}
+
+	@Override
+	protected void onConnectionClosed() {
+		//noinspection ConstantConditions
+		pool.removeNode(this);
+		//noinspection AssertWithSideEffects,ConstantConditions
+		assert (pool = null) == null;
+		server.onConnectionClosed();
+	}
+
+	@Override
+	public String toString() {
+		return "Http2ServerConnection{" +
+				"remoteAddress=" + remoteAddress +
+				", servingRequests=" + servingRequests +
+				super.toString() +
+				'}';
+	}
+}
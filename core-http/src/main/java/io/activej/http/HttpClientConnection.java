@@ -85,11 +85,15 @@ import static java.nio.charset.StandardCharsets.ISO_8859_1;
 final class HttpClientConnection extends AbstractHttpConnection {
 	public static final ParseException INVALID_RESPONSE = new UnknownFormatException(HttpClientConnection.class, "Invalid response");
 	public static final ParseException CONNECTION_CLOSED = new ParseException(HttpClientConnection.class, "Connection closed");
+	public static final ParseException INVALID_WEB_SOCKET_HANDSHAKE = new ParseException(HttpClientConnection.class, "Invalid WebSocket handshake response");
+	private static final HttpHeaderValue CONNECTION_UPGRADE_HEADER = HttpHeaderValue.of("Upgrade");
 
 	@Nullable
 	private SettablePromise<HttpResponse> promise;
 	@Nullable
 	private HttpResponse response;
+	@Nullable
+	private HttpRequest webSocketRequest;
 	private final AsyncHttpClient client;
 	@Nullable
 	private final Inspector inspector;
@@ -179,6 +183,16 @@ final class HttpClientConnection extends AbstractHttpConnection {
 		response.bodyStream = bodySupplier;
 		if (inspector != null) inspector.onHttpResponse(this, response);
 
+		if (webSocketRequest != null) {
+			HttpRequest request = webSocketRequest;
+			webSocketRequest = null;
+			if (response.getCode() == 101) {
+				switchToWebSocket(request, response);
+				return;
+			}
+			request.recycle();
+		}
+
 		SettablePromise<HttpResponse> promise = this.promise;
 		this.promise = null;
 		//noinspection ConstantConditions
@@ -221,6 +235,45 @@ final class HttpClientConnection extends AbstractHttpConnection {
 				.whenComplete(afterProcessCb);
 	}
 
+	/**
+	 * Validates a response which accepts a WebSocket handshake (RFC 6455, section 4.1) and hands a socket
+	 * and all of the data which has been read so far over to a new WebSocket connection
+	 */
+	private void switchToWebSocket(HttpRequest request, HttpResponse response) {
+		String accept = response.getHeader(HttpHeaders.SEC_WEBSOCKET_ACCEPT);
+		String extensions = response.getHeader(HttpHeaders.SEC_WEBSOCKET_EXTENSIONS);
+		Boolean serverNoContextTakeover = null;
+		if (extensions != null && client.webSocketDeflate && extensions.indexOf(',') == -1) {
+			serverNoContextTakeover = WebSocketImpl.parseDeflateResponse(extensions);
+		}
+		//noinspection ConstantConditions
+		if (!WebSocketImpl.hasToken(response.getHeader(HttpHeaders.UPGRADE), "websocket") ||
+				!WebSocketImpl.hasToken(response.getHeader(CONNECTION), "upgrade") ||
+				accept == null || !accept.trim().equals(WebSocketImpl.getAcceptKey(request.webSocketKey)) ||
+				extensions != null && serverNoContextTakeover == null) {
+			request.recycle();
+			closeWithError(INVALID_WEB_SOCKET_HANDSHAKE);
+			return;
+		}
+
+		response.webSocket = new WebSocketImpl(eventloop, socket, readQueue, request, response,
+				true, extensions != null, serverNoContextTakeover != null && serverNoContextTakeover,
+				client.webSocketMaxMessageSize, null);
+		this.response = null;
+		//noinspection ConstantConditions
+		pool.removeNode(this);
+		//noinspection AssertWithSideEffects,ConstantConditions
+		assert (pool = null) == null;
+		flags |= CLOSED;
+		client.onConnectionReleased(remoteAddress);
+		client.onConnectionClosed();
+
+		SettablePromise<HttpResponse> promise = this.promise;
+		this.promise = null;
+		//noinspection ConstantConditions
+		promise.set(response);
+	}
+
 	private void onHttpMessageComplete() {
 		assert response != null;
 		response.recycle();
@@ -228,26 +281,43 @@ final class HttpClientConnection extends AbstractHttpConnection {
 
 		if ((flags & KEEP_ALIVE) != 0 && client.keepAliveTimeoutMillis != 0 && contentLength != UNSET_CONTENT_LENGTH) {
 			flags = 0;
-			socket.read()
-					.whenComplete((buf, e) -> {
-						if (e == null) {
-							if (buf != null) {
-								buf.recycle();
-								closeWithError(UNEXPECTED_READ);
-							} else {
-								close();
-							}
-						} else {
-							closeWithError(e);
-						}
-					});
-			if (isClosed()) return;
-			client.returnToKeepAlivePool(this);
+			keepAlive();
 		} else {
 			close();
 		}
 	}
 
+	/**
+	 * Puts a newly established connection into a keep-alive pool of a client without sending any request
+	 */
+	void prewarm() {
+		(pool = client.poolReadWrite).addLastNode(this);
+		poolTimestamp = eventloop.currentTimeMillis();
+		keepAlive();
+	}
+
+	/**
+	 * Moves this idle connection into a keep-alive pool of a client,
+	 * the connection is closed if a server closes it or sends anything while it is idle
+	 */
+	void keepAlive() {
+		socket.read()
+				.whenComplete((buf, e) -> {
+					if (e == null) {
+						if (buf != null) {
+							buf.recycle();
+							closeWithError(UNEXPECTED_READ);
+						} else {
+							close();
+						}
+					} else {
+						closeWithError(e);
+					}
+				});
+		if (isClosed()) return;
+		client.returnToKeepAlivePool(this);
+	}
+
 	/**
 	 * Sends the request, recycles it and closes connection in case of timeout
 	 *
@@ -264,6 +334,9 @@ final class HttpClientConnection extends AbstractHttpConnection {
 				client.maxKeepAliveRequests != 0 && ++numberOfKeepAliveRequests >= client.maxKeepAliveRequests) {
 			connectionHeader = CONNECTION_CLOSE_HEADER;
 		}
+		if (request.webSocketKey != null) {
+			connectionHeader = CONNECTION_UPGRADE_HEADER;
+		}
 		request.addHeader(CONNECTION, connectionHeader);
 		ByteBuf buf = renderHttpMessage(request);
 		if (buf != null) {
@@ -271,7 +344,12 @@ final class HttpClientConnection extends AbstractHttpConnection {
 		} else {
 			writeHttpMessageAsStream(request);
 		}
-		request.recycle();
+		if (request.webSocketKey != null) {
+			// a handshake request is kept for a WebSocket connection
+			webSocketRequest = request;
+		} else {
+			request.recycle();
+		}
 		if (!isClosed()) {
 			/*
 				as per RFC 7230, section 3.3.3,
@@ -323,11 +401,16 @@ final class HttpClientConnection extends AbstractHttpConnection {
 		//noinspection ConstantConditions
 		pool.removeNode(this);
 
+		client.onConnectionReleased(remoteAddress);
 		client.onConnectionClosed();
 		if (response != null) {
 			response.recycle();
 			response = null;
 		}
+		if (webSocketRequest != null) {
+			webSocketRequest.recycle();
+			webSocketRequest = null;
+		}
 	}
 
 	@Override
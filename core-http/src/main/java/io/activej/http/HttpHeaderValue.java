@@ -129,6 +129,10 @@ public abstract class HttpHeaderValue {
 		AcceptCharset.parse(buf.array(), buf.head(), buf.readRemaining(), into);
 	}
 
+	public static void toAcceptEncodings(@NotNull ByteBuf buf, @NotNull List<AcceptEncoding> into) throws ParseException {
+		AcceptEncoding.parse(buf.array(), buf.head(), buf.readRemaining(), into);
+	}
+
 	static void toSimpleCookies(@NotNull ByteBuf buf, @NotNull List<HttpCookie> into) throws ParseException {
 		HttpCookie.parseSimple(buf.array(), buf.head(), buf.tail(), into);
 	}
@@ -16,24 +16,43 @@
 
 package io.activej.http;
 
+import io.activej.bytebuf.ByteBuf;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 
-final class HttpHeadersMultimap<K, V> {
+import static io.activej.bytebuf.ByteBufStrings.decodeAscii;
+
+/**
+ * An open-addressing multimap of headers, laid out as a flat array of key-value pairs.
+ * <p>
+ * Headers which are parsed from a wire are not put into the table right away. Instead,
+ * their keys and backing arrays are appended to a separate log, while offsets and lengths
+ * of their values are kept in a flat {@code int} array. No {@link HttpHeaderValue} objects
+ * are created for them, unless a value is explicitly requested as such object, or
+ * the whole table is iterated, in which case the log is {@link #materialize() merged} into it.
+ */
+final class HttpHeadersMultimap {
+	// enough for 32 headers, which covers typical requests of browsers without growing
+	private static final int INITIAL_RAW_CAPACITY = 64;
+
 	Object[] kvPairs = new Object[8];
 	int size;
 
+	@Nullable Object[] rawPairs;
+	@Nullable int[] rawBounds;
+	int rawSize;
+
 	@Contract(pure = true)
 	public int size() {
-		return size;
+		return size + rawSize;
 	}
 
-	public void add(@NotNull K key, @NotNull V value) {
+	public void add(@NotNull HttpHeader key, @NotNull HttpHeaderValue value) {
 		if (size++ > kvPairs.length / 4) {
-			resize();
+			resize(kvPairs.length * 4);
 		}
 		// those -2's below are ok - first -1 is to get the modulo mask
 		// and second -1 is so that mask also floors the number to even
@@ -47,36 +66,157 @@ final class HttpHeadersMultimap<K, V> {
 		}
 	}
 
-	@SuppressWarnings("unchecked")
-	private void resize() {
+	/**
+	 * Adds a header which value is a region of a given array, without creating a value object
+	 */
+	public void add(@NotNull HttpHeader key, @NotNull byte[] array, int off, int len) {
+		Object[] rawPairs = this.rawPairs;
+		int[] rawBounds = this.rawBounds;
+		int i = rawSize * 2;
+		if (rawPairs == null) {
+			rawPairs = this.rawPairs = new Object[INITIAL_RAW_CAPACITY];
+			rawBounds = this.rawBounds = new int[INITIAL_RAW_CAPACITY];
+		} else if (i == rawPairs.length) {
+			rawPairs = this.rawPairs = Arrays.copyOf(rawPairs, i * 2);
+			rawBounds = this.rawBounds = Arrays.copyOf(rawBounds, i * 2);
+		}
+		rawPairs[i] = key;
+		rawPairs[i + 1] = array;
+		//noinspection ConstantConditions - allocated together with raw pairs
+		rawBounds[i] = off;
+		rawBounds[i + 1] = len;
+		rawSize++;
+	}
+
+	/**
+	 * Moves all of the headers which have been added as array regions into the table,
+	 * so that {@link #kvPairs} contains every header of this multimap
+	 */
+	void materialize() {
+		if (rawSize == 0) return;
+		Object[] rawPairs = this.rawPairs;
+		int[] rawBounds = this.rawBounds;
+		int rawSize = this.rawSize;
+		ensureCapacity(size + rawSize);
+		this.rawPairs = null;
+		this.rawBounds = null;
+		this.rawSize = 0;
+		for (int i = 0; i < rawSize * 2; i += 2) {
+			//noinspection ConstantConditions - allocated together with raw pairs
+			add((HttpHeader) rawPairs[i], HttpHeaderValue.ofBytes((byte[]) rawPairs[i + 1], rawBounds[i], rawBounds[i + 1]));
+		}
+	}
+
+	/**
+	 * Grows this multimap, so that it could hold a given number of entries without resizing
+	 */
+	void ensureCapacity(int capacity) {
+		int length = kvPairs.length;
+		while (capacity > length / 4 + 1) {
+			length *= 4;
+		}
+		if (length != kvPairs.length) {
+			resize(length);
+		}
+	}
+
+	/**
+	 * Makes this multimap a copy of another one, with the same layout of entries
+	 */
+	void copyFrom(@NotNull HttpHeadersMultimap other) {
+		this.kvPairs = other.kvPairs.clone();
+		this.size = other.size;
+		this.rawPairs = other.rawPairs != null ? other.rawPairs.clone() : null;
+		this.rawBounds = other.rawBounds != null ? other.rawBounds.clone() : null;
+		this.rawSize = other.rawSize;
+	}
+
+	private void resize(int length) {
 		Object[] oldKvPairs = this.kvPairs;
-		this.kvPairs = new Object[this.kvPairs.length * 4];
+		int size = this.size;
+		this.kvPairs = new Object[length];
+		this.size = 0;
 		for (int i = 0; i != oldKvPairs.length; i += 2) {
-			K k = (K) oldKvPairs[i];
+			HttpHeader k = (HttpHeader) oldKvPairs[i];
 			if (k != null) {
-				V v = (V) oldKvPairs[i + 1];
+				HttpHeaderValue v = (HttpHeaderValue) oldKvPairs[i + 1];
 				add(k, v);
 			}
 		}
+		this.size = size;
 	}
 
 	@Nullable
 	@Contract(pure = true)
-	@SuppressWarnings("unchecked")
-	public V get(@NotNull K key) {
+	public HttpHeaderValue get(@NotNull HttpHeader key) {
+		HttpHeaderValue value = getMaterialized(key);
+		if (value != null) return value;
+		int i = indexOfRaw(key, 0);
+		//noinspection ConstantConditions - allocated together with raw pairs
+		return i != -1 ? HttpHeaderValue.ofBytes((byte[]) rawPairs[i + 1], rawBounds[i], rawBounds[i + 1]) : null;
+	}
+
+	/**
+	 * Returns a value of a given header as a buf, without creating a value object for a raw header
+	 */
+	@Nullable
+	ByteBuf getBuf(@NotNull HttpHeader key) {
+		HttpHeaderValue value = getMaterialized(key);
+		if (value != null) return value.getBuf();
+		int i = indexOfRaw(key, 0);
+		return i != -1 ? getRawBuf(i) : null;
+	}
+
+	/**
+	 * Returns a value of a given header as a string, without creating a value object for a raw header
+	 */
+	@Nullable
+	String getString(@NotNull HttpHeader key) {
+		HttpHeaderValue value = getMaterialized(key);
+		if (value != null) return value.toString();
+		int i = indexOfRaw(key, 0);
+		//noinspection ConstantConditions - allocated together with raw pairs
+		return i != -1 ? decodeAscii((byte[]) rawPairs[i + 1], rawBounds[i], rawBounds[i + 1]) : null;
+	}
+
+	@Nullable
+	private HttpHeaderValue getMaterialized(@NotNull HttpHeader key) {
 		for (int i = key.hashCode() & (kvPairs.length - 2); ; i = (i + 2) & (kvPairs.length - 2)) {
-			K k = (K) kvPairs[i];
+			HttpHeader k = (HttpHeader) kvPairs[i];
 			if (k == null) {
 				return null;
 			}
 			if (k.equals(key)) {
-				return (V) kvPairs[i + 1];
+				return (HttpHeaderValue) kvPairs[i + 1];
 			}
 		}
 	}
 
-	public final Collection<Map.Entry<K, V>> getEntries() {
-		return new AbstractCollection<Map.Entry<K, V>>() {
+	/**
+	 * Returns an index of the first raw header with a given key, starting from a given index,
+	 * or {@code -1} if there is none
+	 */
+	int indexOfRaw(@NotNull HttpHeader key, int from) {
+		Object[] rawPairs = this.rawPairs;
+		for (int i = from; i < rawSize * 2; i += 2) {
+			//noinspection ConstantConditions - raw size is 0 when there are no raw pairs
+			Object k = rawPairs[i];
+			if (k == key || k.equals(key)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@NotNull
+	ByteBuf getRawBuf(int i) {
+		//noinspection ConstantConditions - allocated together with raw pairs
+		return ByteBuf.wrap((byte[]) rawPairs[i + 1], rawBounds[i], rawBounds[i] + rawBounds[i + 1]);
+	}
+
+	public final Collection<Map.Entry<HttpHeader, HttpHeaderValue>> getEntries() {
+		materialize();
+		return new AbstractCollection<Map.Entry<HttpHeader, HttpHeaderValue>>() {
 			@Override
 			public int size() {
 				return size;
@@ -84,21 +224,21 @@ final class HttpHeadersMultimap<K, V> {
 
 			@NotNull
 			@Override
-			public Iterator<Map.Entry<K, V>> iterator() {
-				return new Iterator<Map.Entry<K, V>>() {
+			public Iterator<Map.Entry<HttpHeader, HttpHeaderValue>> iterator() {
+				materialize();
+				return new Iterator<Map.Entry<HttpHeader, HttpHeaderValue>>() {
 					int i = 0;
-					@Nullable K k;
-					@Nullable V v;
+					@Nullable HttpHeader k;
+					@Nullable HttpHeaderValue v;
 
 					{ advance();}
 
-					@SuppressWarnings("unchecked")
 					private void advance() {
 						for (; i < kvPairs.length; i += 2) {
-							K k = (K) kvPairs[i];
+							HttpHeader k = (HttpHeader) kvPairs[i];
 							if (k != null) {
 								this.k = k;
-								this.v = (V) kvPairs[i + 1];
+								this.v = (HttpHeaderValue) kvPairs[i + 1];
 								i += 2;
 								return;
 							}
@@ -113,10 +253,10 @@ final class HttpHeadersMultimap<K, V> {
 					}
 
 					@Override
-					public Map.Entry<K, V> next() {
+					public Map.Entry<HttpHeader, HttpHeaderValue> next() {
 						if (k == null)
 							throw new NoSuchElementException();
-						Map.Entry<K, V> entry = new AbstractMap.SimpleImmutableEntry<>(this.k, this.v);
+						Map.Entry<HttpHeader, HttpHeaderValue> entry = new AbstractMap.SimpleImmutableEntry<>(this.k, this.v);
 						advance();
 						return entry;
 					}
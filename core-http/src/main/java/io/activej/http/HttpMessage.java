@@ -54,22 +54,21 @@ public abstract class HttpMessage {
 	 * This flag is removed when body is taken away or recycled.
 	 */
 	static final byte MUST_LOAD_BODY = 1 << 0;
-	/**
-	 * This flag means that the DEFLATE compression algorithm will be used
-	 * to compress/decompress the body of this message.
-	 */
-	static final byte USE_GZIP = 1 << 1;
-
 	/**
 	 * This flag means that the body was already recycled and is not accessible.
 	 * It is mostly used in assertions.
 	 */
 	static final byte RECYCLED = (byte) (1 << 7);
 
-	@MagicConstant(flags = {MUST_LOAD_BODY, USE_GZIP, RECYCLED})
+	@MagicConstant(flags = {MUST_LOAD_BODY, RECYCLED})
 	byte flags;
 
-	final HttpHeadersMultimap<HttpHeader, HttpHeaderValue> headers = new HttpHeadersMultimap<>();
+	/**
+	 * An encoder which will be used to compress the body of this message, if any
+	 */
+	@Nullable ContentEncoder contentEncoder;
+
+	final HttpHeadersMultimap headers = new HttpHeadersMultimap();
 	@Nullable ByteBuf body;
 	@Nullable ChannelSupplier<ByteBuf> bodyStream;
 	Recyclable bufs;
@@ -106,7 +105,7 @@ public abstract class HttpMessage {
 
 	public void addHeader(@NotNull HttpHeader header, @NotNull byte[] array, int off, int len) {
 		if (CHECK) checkState(!isRecycled());
-		addHeader(header, HttpHeaderValue.ofBytes(array, off, len));
+		headers.add(header, array, off, len);
 	}
 
 	public void addHeader(@NotNull HttpHeader header, @NotNull HttpHeaderValue value) {
@@ -133,6 +132,12 @@ public abstract class HttpMessage {
 				}
 			}
 		}
+		for (int i = headers.indexOfRaw(header, 0); i != -1; i = headers.indexOfRaw(header, i + 2)) {
+			try {
+				parser.parse(headers.getRawBuf(i), list);
+			} catch (ParseException ignored) {
+			}
+		}
 		return list;
 	}
 
@@ -143,14 +148,12 @@ public abstract class HttpMessage {
 
 	@Nullable
 	public final String getHeader(@NotNull HttpHeader header) {
-		HttpHeaderValue headerValue = headers.get(header);
-		return headerValue != null ? headerValue.toString() : null;
+		return headers.getString(header);
 	}
 
 	@Nullable
 	public final ByteBuf getHeaderBuf(@NotNull HttpHeader header) {
-		HttpHeaderValue headerBuf = headers.get(header);
-		return headerBuf != null ? headerBuf.getBuf() : null;
+		return headers.getBuf(header);
 	}
 
 	public void addCookies(@NotNull HttpCookie... cookies) {
@@ -383,8 +386,16 @@ public abstract class HttpMessage {
 	 * Sets this message to use the DEFLATE compression algorithm.
 	 */
 	public void setBodyGzipCompression() {
+		setBodyCompression(ContentEncoder.gzip());
+	}
+
+	/**
+	 * Sets this message to compress its body with a given content encoder.
+	 * A {@code Content-Encoding} header is added when the message is sent.
+	 */
+	public void setBodyCompression(@NotNull ContentEncoder encoder) {
 		if (CHECK) checkState(!isRecycled());
-		this.flags |= USE_GZIP;
+		this.contentEncoder = encoder;
 	}
 
 	boolean isRecycled() {
@@ -411,10 +422,19 @@ public abstract class HttpMessage {
 	}
 
 	protected void writeHeaders(@NotNull ByteBuf buf) {
+		writeHeaders(buf, null);
+	}
+
+	/**
+	 * Writes headers of this message, except for those which occupy the same non-empty slots
+	 * of a given pre-rendered header layout (which should have the same length as a layout of this message)
+	 */
+	protected void writeHeaders(@NotNull ByteBuf buf, @Nullable Object[] renderedKvPairs) {
 		if (CHECK) checkState(!isRecycled());
+		headers.materialize();
 		for (int i = 0; i < headers.kvPairs.length - 1; i += 2) {
 			HttpHeader k = (HttpHeader) headers.kvPairs[i];
-			if (k != null) {
+			if (k != null && (renderedKvPairs == null || renderedKvPairs[i] == null)) {
 				HttpHeaderValue v = (HttpHeaderValue) headers.kvPairs[i + 1];
 				buf.put(CR);
 				buf.put(LF);
@@ -432,6 +452,7 @@ public abstract class HttpMessage {
 
 	protected int estimateSize(int firstLineSize) {
 		if (CHECK) checkState(!isRecycled());
+		headers.materialize();
 		int size = firstLineSize;
 		// CR,LF,header,": ",value
 		for (int i = 0; i < headers.kvPairs.length - 1; i += 2) {
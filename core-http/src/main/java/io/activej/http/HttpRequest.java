@@ -64,6 +64,12 @@ public final class HttpRequest extends HttpMessage implements WithInitializer<Ht
 	private Map<String, String> queryParameters;
 	private Map<String, String> postParameters;
 
+	/**
+	 * A key of a WebSocket handshake request which is sent by {@link AsyncHttpClient#webSocketRequest}
+	 */
+	@Nullable
+	String webSocketKey;
+
 	// region creators
 	HttpRequest(@NotNull HttpMethod method, @Nullable UrlParser url) {
 		this.method = method;
@@ -151,6 +157,12 @@ public final class HttpRequest extends HttpMessage implements WithInitializer<Ht
 		setBodyGzipCompression();
 		return this;
 	}
+
+	@NotNull
+	public HttpRequest withBodyCompression(@NotNull ContentEncoder encoder) {
+		setBodyCompression(encoder);
+		return this;
+	}
 	// endregion
 
 	@Override
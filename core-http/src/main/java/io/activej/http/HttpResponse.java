@@ -20,15 +20,21 @@ import io.activej.bytebuf.ByteBuf;
 import io.activej.common.Check;
 import io.activej.common.api.WithInitializer;
 import io.activej.csp.ChannelSupplier;
+import io.activej.csp.file.ChannelFileReader;
 import io.activej.http.HttpHeaderValue.HttpHeaderValueOfSetCookies;
 import io.activej.promise.Async;
 import io.activej.promise.Promise;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 
 import static io.activej.bytebuf.ByteBufStrings.encodeAscii;
 import static io.activej.bytebuf.ByteBufStrings.putPositiveInt;
@@ -50,6 +56,7 @@ public final class HttpResponse extends HttpMessage implements Async<HttpRespons
 	private static final byte[] HTTP11_BYTES = encodeAscii("HTTP/1.1 ");
 	private static final byte[] CODE_ERROR_BYTES = encodeAscii(" Error");
 	private static final byte[] CODE_OK_BYTES = encodeAscii(" OK");
+	private static final byte[] CODE_101_BYTES = encodeAscii("HTTP/1.1 101 Switching Protocols");
 	private static final byte[] CODE_200_BYTES = encodeAscii("HTTP/1.1 200 OK");
 	private static final byte[] CODE_201_BYTES = encodeAscii("HTTP/1.1 201 Created");
 	private static final byte[] CODE_206_BYTES = encodeAscii("HTTP/1.1 206 Partial Content");
@@ -67,6 +74,24 @@ public final class HttpResponse extends HttpMessage implements Async<HttpRespons
 	@Nullable
 	private Map<String, HttpCookie> parsedCookies;
 
+	/**
+	 * A handler of a WebSocket connection which is set by {@link WebSocketServlet} on a server
+	 */
+	@Nullable
+	Consumer<WebSocket> webSocketHandler;
+
+	/**
+	 * A WebSocket connection which is established by {@link AsyncHttpClient#webSocketRequest}
+	 */
+	@Nullable
+	WebSocket webSocket;
+
+	/**
+	 * A template which this response has been created from, its status line and headers are already rendered
+	 */
+	@Nullable
+	HttpResponseTemplate template;
+
 	// region creators
 	HttpResponse(int code) {
 		this.code = code;
@@ -121,6 +146,40 @@ public final class HttpResponse extends HttpMessage implements Async<HttpRespons
 
 	@NotNull
 	public static Promise<HttpResponse> file(FileSliceSupplier downloader, String name, long size, @Nullable String rangeHeader, boolean inline) {
+		return fileOf((offset, limit) -> ChannelSupplier.ofPromise(downloader.getFileSlice(offset, limit)), name, size, rangeHeader, inline);
+	}
+
+	/**
+	 * Creates a response with a file of a given path as a body.
+	 * <p>
+	 * Over a plain TCP connection such a body is transferred directly from the file to the connection,
+	 * without being read into buffers
+	 */
+	@NotNull
+	public static Promise<HttpResponse> file(Executor executor, Path path, @Nullable String rangeHeader, boolean inline) {
+		return ChannelFileReader.open(executor, path)
+				.then(reader -> {
+					long size;
+					try {
+						size = reader.getRemaining();
+					} catch (IOException e) {
+						reader.closeEx(e);
+						return Promise.ofException(e);
+					}
+					return fileOf((offset, limit) -> reader.withOffset(offset).withLimit(limit),
+							path.getFileName().toString(), size, rangeHeader, inline)
+							.whenException(reader::closeEx);
+				});
+	}
+
+	@NotNull
+	public static Promise<HttpResponse> file(Executor executor, Path path, @Nullable String rangeHeader) {
+		return file(executor, path, rangeHeader, false);
+	}
+
+	@NotNull
+	private static Promise<HttpResponse> fileOf(BiFunction<Long, Long, ChannelSupplier<ByteBuf>> bodySupplier,
+			String name, long size, @Nullable String rangeHeader, boolean inline) {
 		HttpResponse response = new HttpResponse(rangeHeader == null ? 200 : 206);
 
 		String localName = name.substring(name.lastIndexOf('/') + 1);
@@ -130,8 +189,18 @@ public final class HttpResponse extends HttpMessage implements Async<HttpRespons
 		}
 
 		response.addHeader(CONTENT_TYPE, HttpHeaderValue.ofContentType(ContentType.of(mediaType)));
-		response.addHeader(ACCEPT_RANGES, "bytes");
 		response.addHeader(CONTENT_DISPOSITION, inline ? "inline" : "attachment; filename=\"" + localName + "\"");
+		return withFileBody(response, bodySupplier, size, rangeHeader);
+	}
+
+	/**
+	 * Sets a body of a file with a given size to a response, or a part of the file
+	 * if it is requested by a single part {@code Range} header (RFC 7233).
+	 * A response is expected to have {@code 206} code if a range is requested
+	 */
+	static Promise<HttpResponse> withFileBody(HttpResponse response, BiFunction<Long, Long, ChannelSupplier<ByteBuf>> bodySupplier,
+			long size, @Nullable String rangeHeader) {
+		response.addHeader(ACCEPT_RANGES, "bytes");
 
 		long contentLength, offset;
 		if (rangeHeader != null) {
@@ -148,15 +217,15 @@ public final class HttpResponse extends HttpMessage implements Async<HttpRespons
 				if (parts[1].isEmpty()) {
 					return Promise.ofException(HttpException.ofCode(416, "Invalid range"));
 				}
-				offset = size - Long.parseLong(parts[1]);
-				endOffset = size;
+				offset = Math.max(0, size - Long.parseLong(parts[1]));
+				endOffset = size - 1;
 			} else {
 				if (parts[1].isEmpty()) {
 					offset = Long.parseLong(parts[0]);
 					endOffset = size - 1;
 				} else {
 					offset = Long.parseLong(parts[0]);
-					endOffset = Long.parseLong(parts[1]);
+					endOffset = Math.min(Long.parseLong(parts[1]), size - 1);
 				}
 			}
 			if (endOffset != -1 && offset > endOffset) {
@@ -169,7 +238,7 @@ public final class HttpResponse extends HttpMessage implements Async<HttpRespons
 			offset = 0;
 		}
 		response.addHeader(CONTENT_LENGTH, Long.toString(contentLength));
-		response.setBodyStream(ChannelSupplier.ofPromise(downloader.getFileSlice(offset, contentLength)));
+		response.setBodyStream(bodySupplier.apply(offset, contentLength));
 		return Promise.of(response);
 	}
 
@@ -222,6 +291,12 @@ public final class HttpResponse extends HttpMessage implements Async<HttpRespons
 		return this;
 	}
 
+	@NotNull
+	public HttpResponse withBodyCompression(@NotNull ContentEncoder encoder) {
+		setBodyCompression(encoder);
+		return this;
+	}
+
 	@NotNull
 	public HttpResponse withBody(@NotNull ByteBuf body) {
 		setBody(body);
@@ -286,7 +361,8 @@ public final class HttpResponse extends HttpMessage implements Async<HttpRespons
 
 	@Override
 	boolean isContentLengthExpected() {
-		return true;
+		// a connection is handed over to another protocol right after 101 response
+		return code != 101;
 	}
 
 	public int getCode() {
@@ -320,9 +396,12 @@ public final class HttpResponse extends HttpMessage implements Async<HttpRespons
 		}
 	}
 
-	private static void writeCodeMessage(@NotNull ByteBuf buf, int code) {
+	static void writeCodeMessage(@NotNull ByteBuf buf, int code) {
 		byte[] result;
 		switch (code) {
+			case 101:
+				result = CODE_101_BYTES;
+				break;
 			case 200:
 				result = CODE_200_BYTES;
 				break;
@@ -367,6 +446,13 @@ public final class HttpResponse extends HttpMessage implements Async<HttpRespons
 
 	@Override
 	protected void writeTo(@NotNull ByteBuf buf) {
+		HttpResponseTemplate template = this.template;
+		headers.materialize();
+		if (template != null && template.headers.kvPairs.length == headers.kvPairs.length) {
+			buf.put(template.head);
+			writeHeaders(buf, template.headers.kvPairs);
+			return;
+		}
 		writeCodeMessage(buf, code);
 		writeHeaders(buf);
 	}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+import org.jetbrains.annotations.NotNull;
+
+import static io.activej.bytebuf.ByteBufStrings.*;
+import static io.activej.common.Preconditions.checkArgument;
+
+/**
+ * A template of {@link HttpResponse} with a fixed status code and a fixed set of headers.
+ * <p>
+ * A status line and headers of a template are rendered once, when the template is built.
+ * Responses created by {@link #newResponse()} copy those pre-rendered bytes into their output
+ * and render only the headers which have been added to them afterwards.
+ * <p>
+ * A template is immutable, {@link #withHeader} methods return a new template,
+ * so a template may be shared between several eventloops.
+ */
+public final class HttpResponseTemplate {
+	/**
+	 * A number of headers which may be added to a created response
+	 * (like {@code Connection}, {@code Content-Length} or {@code Date}) while it still uses pre-rendered bytes
+	 */
+	private static final int EXTRA_HEADERS = 8;
+	private static final int MAX_FIRST_LINE_SIZE = 64;
+
+	private final int code;
+	final HttpHeadersMultimap headers;
+	final byte[] head;
+
+	private HttpResponseTemplate(int code, HttpHeadersMultimap headers) {
+		this.code = code;
+		this.headers = headers;
+		headers.ensureCapacity(headers.size() + EXTRA_HEADERS);
+		this.head = render(code, headers);
+	}
+
+	public static HttpResponseTemplate create(int code) {
+		checkArgument(code >= 100 && code < 600, "Code should be in range [100, 600)");
+		return new HttpResponseTemplate(code, new HttpHeadersMultimap());
+	}
+
+	public HttpResponseTemplate withHeader(@NotNull HttpHeader header, @NotNull String value) {
+		return withHeader(header, HttpHeaderValue.of(value));
+	}
+
+	public HttpResponseTemplate withHeader(@NotNull HttpHeader header, @NotNull byte[] value) {
+		return withHeader(header, HttpHeaderValue.ofBytes(value));
+	}
+
+	/**
+	 * Returns a new template with an additional header, this template is left unchanged
+	 */
+	public HttpResponseTemplate withHeader(@NotNull HttpHeader header, @NotNull HttpHeaderValue value) {
+		HttpHeadersMultimap newHeaders = new HttpHeadersMultimap();
+		newHeaders.copyFrom(headers);
+		newHeaders.add(header, value);
+		return new HttpResponseTemplate(code, newHeaders);
+	}
+
+	public int getCode() {
+		return code;
+	}
+
+	/**
+	 * Creates a new response with a status code and headers of this template
+	 */
+	@NotNull
+	public HttpResponse newResponse() {
+		HttpResponse response = new HttpResponse(code);
+		response.headers.copyFrom(headers);
+		response.template = this;
+		return response;
+	}
+
+	private static byte[] render(int code, HttpHeadersMultimap headers) {
+		int size = MAX_FIRST_LINE_SIZE;
+		for (int i = 0; i < headers.kvPairs.length - 1; i += 2) {
+			HttpHeader k = (HttpHeader) headers.kvPairs[i];
+			if (k != null) {
+				HttpHeaderValue v = (HttpHeaderValue) headers.kvPairs[i + 1];
+				size += 2 + k.size() + 2 + v.estimateSize();
+			}
+		}
+		ByteBuf buf = ByteBuf.wrapForWriting(new byte[size]);
+		HttpResponse.writeCodeMessage(buf, code);
+		for (int i = 0; i < headers.kvPairs.length - 1; i += 2) {
+			HttpHeader k = (HttpHeader) headers.kvPairs[i];
+			if (k != null) {
+				HttpHeaderValue v = (HttpHeaderValue) headers.kvPairs[i + 1];
+				buf.put(CR);
+				buf.put(LF);
+				k.writeTo(buf);
+				buf.put((byte) ':');
+				buf.put(SP);
+				v.writeTo(buf);
+			}
+		}
+		return buf.getArray();
+	}
+
+	@Override
+	public String toString() {
+		return HttpResponseTemplate.class.getSimpleName() + ": " + code;
+	}
+}
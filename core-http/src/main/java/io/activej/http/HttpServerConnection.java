@@ -17,6 +17,7 @@
 package io.activej.http;
 
 import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufQueue;
 import io.activej.common.Check;
 import io.activej.common.concurrent.ThreadLocalCharArray;
 import io.activej.common.exception.UncheckedException;
@@ -26,12 +27,16 @@ import io.activej.csp.ChannelSupplier;
 import io.activej.eventloop.Eventloop;
 import io.activej.http.AsyncHttpServer.Inspector;
 import io.activej.net.socket.tcp.AsyncTcpSocket;
+import io.activej.net.socket.tcp.AsyncTcpSocketSsl;
 import io.activej.promise.Promise;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.net.InetAddress;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Base64;
+import java.util.function.Consumer;
 
 import static io.activej.bytebuf.ByteBufStrings.*;
 import static io.activej.common.Preconditions.checkState;
@@ -79,8 +84,21 @@ final class HttpServerConnection extends AbstractHttpConnection {
 	private final char[] charBuffer;
 	private final int maxBodySize;
 
+	/**
+	 * Requests which are being served or whose responses are not sent yet, in the order of receiving,
+	 * is {@code null} if pipelining is disabled
+	 */
+	@Nullable
+	private final ArrayDeque<PipelinedRequest> pipeline;
+	private final int pipeliningDepth;
+	private boolean pipelineWriting;
+	private boolean pipelineFlushPosted;
+	private boolean pipelineClosing;
+	private boolean pipelineUpgrade;
+
 	private static final byte[] EXPECT_100_CONTINUE = encodeAscii("100-continue");
 	private static final byte[] EXPECT_RESPONSE_CONTINUE = encodeAscii("HTTP/1.1 100 Continue\r\n\r\n");
+	private static final byte[] SWITCHING_PROTOCOLS_RESPONSE = encodeAscii("HTTP/1.1 101 Switching Protocols\r\nConnection: Upgrade\r\nUpgrade: h2c\r\n\r\n");
 
 	/**
 	 * Creates a new instance of HttpServerConnection
@@ -99,12 +117,141 @@ final class HttpServerConnection extends AbstractHttpConnection {
 		this.inspector = server.inspector;
 		this.charBuffer = charBuffer;
 		this.maxBodySize = server.maxBodySize;
+		this.pipeliningDepth = server.pipeliningDepth;
+		this.pipeline = pipeliningDepth > 1 ? new ArrayDeque<>() : null;
 	}
 
+	private final ReadConsumer http2PrefaceConsumer = new ReadConsumer() {
+		@Override
+		public void thenRun() throws ParseException {
+			readHttp2Preface();
+		}
+	};
+
 	public void serve() {
 		(pool = server.poolNew).addLastNode(this);
 		poolTimestamp = eventloop.currentTimeMillis();
-		socket.read().whenComplete(startLineConsumer);
+		socket.read().whenComplete(server.http2 ? http2PrefaceConsumer : startLineConsumer);
+	}
+
+	/**
+	 * Checks whether a client starts a connection with HTTP/2 connection preface,
+	 * a request line of HTTP/1.x is expected otherwise.
+	 * <p>
+	 * If a protocol has been negotiated via ALPN, it is used as is
+	 */
+	private void readHttp2Preface() throws ParseException {
+		String protocol = socket instanceof AsyncTcpSocketSsl ? ((AsyncTcpSocketSsl) socket).getApplicationProtocol() : null;
+		if (AbstractHttp2Connection.ALPN_H2.equals(protocol)) {
+			switchToHttp2().serve();
+			return;
+		}
+		if (protocol != null && !protocol.isEmpty()) {
+			readHttpMessage();
+			return;
+		}
+		byte[] preface = AbstractHttp2Connection.PREFACE;
+		int size = Math.min(readQueue.remainingBytes(), preface.length);
+		for (int i = 0; i < size; i++) {
+			if (readQueue.peekByte(i) != preface[i]) {
+				readHttpMessage();
+				return;
+			}
+		}
+		if (size < preface.length) {
+			socket.read().whenComplete(http2PrefaceConsumer);
+			return;
+		}
+		switchToHttp2().serve();
+	}
+
+	/**
+	 * Hands a socket and all of the data which has been read so far over to a new HTTP/2 connection.
+	 * This connection is marked as closed, but its socket is left open
+	 */
+	private Http2ServerConnection switchToHttp2() {
+		Http2ServerConnection connection = new Http2ServerConnection(eventloop, remoteAddress, socket, server, servlet);
+		readQueue.drainTo(connection.readQueue);
+		detach();
+		return connection;
+	}
+
+	/**
+	 * Sends a response which accepts a WebSocket handshake and hands a socket
+	 * and all of the data which has been read so far over to a new WebSocket connection
+	 */
+	private void switchToWebSocket(HttpRequest request, HttpResponse response) {
+		Consumer<WebSocket> handler = response.webSocketHandler;
+		assert handler != null;
+		response.webSocketHandler = null;
+		boolean deflate = server.webSocketDeflate &&
+				WebSocketImpl.acceptDeflateOffer(request.getHeader(HttpHeaders.SEC_WEBSOCKET_EXTENSIONS));
+		if (deflate) {
+			response.addHeader(HttpHeaders.SEC_WEBSOCKET_EXTENSIONS, WebSocketImpl.DEFLATE_RESPONSE);
+		}
+		ByteBuf buf = renderHttpMessage(response);
+		assert buf != null;
+		socket.write(buf);
+
+		// a client always takes over no compression context, as it is requested in a response
+		WebSocketImpl webSocket = new WebSocketImpl(eventloop, socket, readQueue, request, response,
+				false, deflate, true, server.webSocketMaxMessageSize, server::onWebSocketClosed);
+		detach();
+		server.onWebSocketOpened(webSocket);
+		try {
+			handler.accept(webSocket);
+		} catch (UncheckedException u) {
+			webSocket.closeEx(u.getCause());
+		} catch (RuntimeException e) {
+			webSocket.closeEx(e);
+		}
+	}
+
+	/**
+	 * Marks this connection as closed and removes it from a pool, while its socket is left open
+	 */
+	private void detach() {
+		//noinspection ConstantConditions
+		pool.removeNode(this);
+		//noinspection AssertWithSideEffects,ConstantConditions
+		assert (pool = null) == null;
+		flags |= CLOSED;
+	}
+
+	private static boolean isWebSocketUpgrade(HttpResponse response) {
+		return response.webSocketHandler != null && response.getCode() == 101;
+	}
+
+	/**
+	 * Upgrades a connection to HTTP/2 (RFC 7540, section 3.2), if it is requested by a client
+	 * and a body of an upgrade request has been received completely
+	 */
+	private boolean tryUpgradeToHttp2(@Nullable ByteBuf body) {
+		//noinspection ConstantConditions
+		String upgrade = request.getHeader(HttpHeaders.UPGRADE);
+		String settings = request.getHeader(AbstractHttp2Connection.HTTP2_SETTINGS);
+		if (body == null || upgrade == null || settings == null || !upgrade.trim().equalsIgnoreCase("h2c")) {
+			return false;
+		}
+		byte[] settingsBytes;
+		try {
+			settingsBytes = Base64.getUrlDecoder().decode(settings.trim());
+		} catch (IllegalArgumentException ignored) {
+			return false;
+		}
+		if (settingsBytes.length % 6 != 0) return false;
+
+		HttpRequest request = this.request;
+		this.request = null;
+		request.body = body;
+		socket.write(ByteBuf.wrapForReading(SWITCHING_PROTOCOLS_RESPONSE));
+		Http2ServerConnection connection = switchToHttp2();
+		try {
+			connection.serveUpgrade(request, settingsBytes);
+		} catch (ParseException e) {
+			connection.closeWithError(e);
+		}
+		return true;
 	}
 
 	@Override
@@ -122,7 +269,11 @@ final class HttpServerConnection extends AbstractHttpConnection {
 	@SuppressWarnings("PointlessArithmeticExpression")
 	@Override
 	protected void onStartLine(byte[] line, int limit) throws ParseException {
-		switchPool(server.poolReadWrite);
+		if (pipeline == null) {
+			switchPool(server.poolReadWrite);
+		} else {
+			updatePipelinePool();
+		}
 
 		HttpMethod method = getHttpMethod(line);
 		if (method == null) {
@@ -210,7 +361,9 @@ final class HttpServerConnection extends AbstractHttpConnection {
 	 */
 	@Override
 	protected void onHeader(HttpHeader header, byte[] array, int off, int len) throws ParseException {
-		if (header == HttpHeaders.EXPECT && equalsLowerCaseAscii(EXPECT_100_CONTINUE, array, off, len)) {
+		// an interim response can not be sent ahead of responses to previous pipelined requests
+		if (header == HttpHeaders.EXPECT && (pipeline == null || pipeline.isEmpty()) &&
+				equalsLowerCaseAscii(EXPECT_100_CONTINUE, array, off, len)) {
 			socket.write(ByteBuf.wrapForReading(EXPECT_RESPONSE_CONTINUE));
 		}
 		//noinspection ConstantConditions
@@ -226,6 +379,9 @@ final class HttpServerConnection extends AbstractHttpConnection {
 			connectionHeader = CONNECTION_CLOSE_HEADER;
 		}
 		httpResponse.addHeader(CONNECTION, connectionHeader);
+		if (server.dateHeader) {
+			server.addDateHeader(httpResponse);
+		}
 		ByteBuf buf = renderHttpMessage(httpResponse);
 		if (buf != null) {
 			if ((flags & KEEP_ALIVE) != 0) {
@@ -243,6 +399,10 @@ final class HttpServerConnection extends AbstractHttpConnection {
 	protected void onHeadersReceived(@Nullable ByteBuf body, @Nullable ChannelSupplier<ByteBuf> bodySupplier) {
 		assert !isClosed();
 
+		if (server.http2 && (pipeline == null || pipeline.isEmpty()) && tryUpgradeToHttp2(body)) {
+			return;
+		}
+
 		//noinspection ConstantConditions
 		request.flags |= MUST_LOAD_BODY;
 		request.body = body;
@@ -253,6 +413,11 @@ final class HttpServerConnection extends AbstractHttpConnection {
 			inspector.onHttpRequest(request);
 		}
 
+		if (pipeline != null) {
+			servePipelined();
+			return;
+		}
+
 		switchPool(server.poolServing);
 
 		HttpRequest request = this.request;
@@ -275,6 +440,11 @@ final class HttpServerConnection extends AbstractHttpConnection {
 				if (inspector != null) {
 					inspector.onHttpResponse(request, response);
 				}
+				if (isWebSocketUpgrade(response)) {
+					this.request = null;
+					switchToWebSocket(request, response);
+					return;
+				}
 				switchPool(server.poolReadWrite);
 				writeHttpResponse(response);
 			} else {
@@ -289,10 +459,167 @@ final class HttpServerConnection extends AbstractHttpConnection {
 		});
 	}
 
+	/**
+	 * Serves a request concurrently with previous pipelined requests.
+	 * A response is sent once responses to all of the previous requests are sent
+	 */
+	private void servePipelined() {
+		assert pipeline != null;
+		HttpRequest request = this.request;
+		this.request = null;
+
+		boolean keepAlive = (flags & KEEP_ALIVE) != 0 && server.keepAliveTimeoutMillis != 0;
+		if (server.maxKeepAliveRequests != 0 && ++numberOfKeepAliveRequests >= server.maxKeepAliveRequests) {
+			keepAlive = false;
+		}
+		if (!keepAlive) {
+			pipelineClosing = true;
+		}
+		if (request.getHeader(HttpHeaders.UPGRADE) != null) {
+			// no more requests are read ahead until it is known whether a connection is upgraded
+			pipelineUpgrade = true;
+		}
+
+		//noinspection ConstantConditions
+		PipelinedRequest pipelined = new PipelinedRequest(request, keepAlive);
+		pipeline.add(pipelined);
+		if (inspector != null) {
+			inspector.onHttpRequestPipelined(request, pipeline.size());
+		}
+		updatePipelinePool();
+
+		Promise<HttpResponse> servletResult;
+		try {
+			servletResult = servlet.serveAsync(request);
+		} catch (UncheckedException u) {
+			servletResult = Promise.ofException(u.getCause());
+		}
+		servletResult.whenComplete((response, e) -> {
+			if (CHECK) checkState(eventloop.inEventloopThread());
+			if (isClosed()) {
+				request.recycle();
+				if (response != null) {
+					response.recycle();
+				}
+				return;
+			}
+			if (e == null) {
+				if (inspector != null) {
+					inspector.onHttpResponse(request, response);
+				}
+				pipelined.response = response;
+			} else {
+				if (inspector != null) {
+					inspector.onServletException(request, e);
+				}
+				pipelined.response = server.formatHttpError(e);
+			}
+			if (pipeline.peek() == pipelined && !pipelineFlushPosted) {
+				// responses which are ready within the same eventloop tick are sent together
+				pipelineFlushPosted = true;
+				eventloop.post(wrapContext(this, this::flushPipeline));
+			}
+		});
+	}
+
+	/**
+	 * Renders ready responses from the head of a pipeline into a single buffer and writes it.
+	 * A response with a body stream is written on its own
+	 */
+	private void flushPipeline() {
+		assert pipeline != null;
+		pipelineFlushPosted = false;
+		if (isClosed() || pipelineWriting) return;
+
+		ByteBufQueue batch = null;
+		PipelinedRequest pipelined;
+		while ((pipelined = pipeline.peek()) != null && pipelined.response != null) {
+			HttpResponse response = pipelined.response;
+			boolean stream = response.body == null && response.bodyStream != null;
+			if (stream && batch != null) break;
+			pipeline.poll();
+
+			if (isWebSocketUpgrade(response)) {
+				if (batch != null) {
+					writeBuf(batch.takeRemaining());
+				}
+				switchToWebSocket(pipelined.request, response);
+				return;
+			}
+			response.addHeader(CONNECTION, pipelined.keepAlive ? CONNECTION_KEEP_ALIVE_HEADER : CONNECTION_CLOSE_HEADER);
+			if (server.dateHeader) {
+				server.addDateHeader(response);
+			}
+			if (stream) {
+				pipelineWriting = true;
+				writeHttpMessageAsStream(response);
+				response.recycle();
+				pipelined.request.recycle();
+				return;
+			}
+			ByteBuf buf = renderHttpMessage(response);
+			response.recycle();
+			pipelined.request.recycle();
+			if (batch == null) {
+				batch = new ByteBufQueue();
+			}
+			//noinspection ConstantConditions
+			batch.add(buf);
+		}
+
+		if (batch != null) {
+			pipelineWriting = true;
+			writeBuf(batch.takeRemaining());
+		}
+		if (pipeline.isEmpty()) {
+			pipelineUpgrade = false;
+		}
+	}
+
+	/**
+	 * Starts receiving a next request if a previous one has been received completely
+	 * and there is no more than a pipelining depth of requests being served and written
+	 */
+	private void readPipelined() {
+		assert pipeline != null;
+		if ((flags & BODY_RECEIVED) == 0 || pipelineClosing || pipelineUpgrade || pipelineWriting ||
+				pipeline.size() >= pipeliningDepth) {
+			updatePipelinePool();
+			return;
+		}
+		flags = 0;
+		contentLength = 0;
+		updatePipelinePool();
+		try {
+			readHttpMessage();
+		} catch (ParseException e) {
+			closeWithError(e);
+		}
+	}
+
+	private void updatePipelinePool() {
+		assert pipeline != null;
+		ConnectionsLinkedList newPool;
+		if (!pipeline.isEmpty()) {
+			newPool = server.poolServing;
+		} else if (!pipelineWriting && (flags & BODY_RECEIVED) == 0 && !readQueue.hasRemaining()) {
+			newPool = server.poolKeepAlive;
+		} else {
+			newPool = server.poolReadWrite;
+		}
+		if (pool != newPool) {
+			switchPool(newPool);
+		}
+	}
+
 	@Override
 	protected void onBodyReceived() {
 		assert !isClosed();
 		flags |= BODY_RECEIVED;
+		if (pipeline != null) {
+			readPipelined();
+			return;
+		}
 		if ((flags & BODY_SENT) != 0 && pool != server.poolServing) {
 			onHttpMessageComplete();
 		}
@@ -301,12 +628,33 @@ final class HttpServerConnection extends AbstractHttpConnection {
 	@Override
 	protected void onBodySent() {
 		assert !isClosed();
+		if (pipeline != null) {
+			pipelineWriting = false;
+			if (pipelineClosing && pipeline.isEmpty()) {
+				close();
+				return;
+			}
+			flushPipeline();
+			if (isClosed()) return;
+			readPipelined();
+			return;
+		}
 		flags |= BODY_SENT;
 		if ((flags & BODY_RECEIVED) != 0 && pool != server.poolServing) {
 			onHttpMessageComplete();
 		}
 	}
 
+	@Override
+	protected void onReadEndOfStream() {
+		if (pipeline == null || pipeline.isEmpty() && !pipelineWriting) {
+			close();
+			return;
+		}
+		// responses to the requests which have been received completely are still sent
+		pipelineClosing = true;
+	}
+
 	@Override
 	protected void onNoContentLength() {
 		throw new AssertionError("This method should not be called on a server");
@@ -339,10 +687,19 @@ final class HttpServerConnection extends AbstractHttpConnection {
 
 	@Override
 	protected void onClosed() {
-		if (request != null && pool != server.poolServing) {
+		if (request != null && (pipeline != null || pool != server.poolServing)) {
 			request.recycle();
 			request = null;
 		}
+		if (pipeline != null) {
+			for (PipelinedRequest pipelined : pipeline) {
+				if (pipelined.response != null) {
+					pipelined.request.recycle();
+					pipelined.response.recycle();
+				}
+			}
+			pipeline.clear();
+		}
 		//noinspection ConstantConditions
 		pool.removeNode(this);
 		//noinspection AssertWithSideEffects,ConstantConditions
@@ -350,6 +707,18 @@ final class HttpServerConnection extends AbstractHttpConnection {
 		server.onConnectionClosed();
 	}
 
+	private static final class PipelinedRequest {
+		final HttpRequest request;
+		final boolean keepAlive;
+		@Nullable
+		HttpResponse response;
+
+		PipelinedRequest(HttpRequest request, boolean keepAlive) {
+			this.request = request;
+			this.keepAlive = keepAlive;
+		}
+	}
+
 	@Override
 	public String toString() {
 		return "HttpServerConnection{" +
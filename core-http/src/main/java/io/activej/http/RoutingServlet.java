@@ -136,6 +136,17 @@ public final class RoutingServlet implements AsyncServlet, WithInitializer<Routi
 		return merged;
 	}
 
+	/**
+	 * Compiles this routing tree into an immutable servlet, which routes requests the same way as this servlet does,
+	 * but matches request paths against a radix trie of routes, without allocating strings for path segments.
+	 * <p>
+	 * Servlets which are mapped to this routing tree after it has been compiled are not seen by a compiled servlet.
+	 */
+	@Contract("-> new")
+	public AsyncServlet compile() {
+		return CompiledRoutingServlet.compile(this);
+	}
+
 	@NotNull
 	@Override
 	public Promise<HttpResponse> serve(@NotNull HttpRequest request) {
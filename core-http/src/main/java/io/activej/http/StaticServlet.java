@@ -17,15 +17,20 @@
 package io.activej.http;
 
 import io.activej.bytebuf.ByteBuf;
+import io.activej.common.exception.parse.ParseException;
+import io.activej.csp.file.ChannelFileReader;
 import io.activej.http.loader.StaticLoader;
+import io.activej.http.loader.StaticLoaderLruCache;
 import io.activej.promise.Promise;
 import io.activej.promise.Promises;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.Set;
@@ -33,20 +38,30 @@ import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
+import static io.activej.bytebuf.ByteBuf.wrapForReading;
 import static io.activej.http.HttpHeaderValue.ofContentType;
-import static io.activej.http.HttpHeaders.CONTENT_TYPE;
+import static io.activej.http.HttpHeaders.*;
 
 /**
  * This servlet allows return HTTP responses by HTTP paths from some predefined storage, mainly the filesystem.
+ * <p>
+ * If a storage provides cached resources (see {@link StaticLoader#loadResource}), such as
+ * a {@link StaticLoaderLruCache} or a filtered or mapped view of it, responses carry {@code ETag} and {@code Last-Modified} headers,
+ * conditional requests are answered with {@code 304 Not Modified} and gzipped variants of resources
+ * are sent to clients which accept them. Resources which are too large to be cached are served as usual,
+ * and are sent as files if {@link #withZeroCopy zero copy} is enabled.
  */
 public final class StaticServlet implements AsyncServlet {
 	public static final Charset DEFAULT_TXT_ENCODING = StandardCharsets.UTF_8;
+	private static final HttpHeaderValue GZIP = HttpHeaderValue.of("gzip");
+	private static final HttpHeaderValue VARY_ACCEPT_ENCODING = HttpHeaderValue.of("Accept-Encoding");
 
 	private final StaticLoader resourceLoader;
 	private Function<String, ContentType> contentTypeResolver = StaticServlet::getContentType;
 	private Function<HttpRequest, @Nullable String> pathMapper = HttpRequest::getRelativePath;
 	private Supplier<HttpResponse> responseSupplier = HttpResponse::ok200;
 	private final Set<String> indexResources = new LinkedHashSet<>();
+	private boolean zeroCopy;
 
 	@Nullable
 	private String defaultResource;
@@ -113,6 +128,17 @@ public final class StaticServlet implements AsyncServlet {
 		return this;
 	}
 
+	/**
+	 * Makes resources which are files to be sent as they are, without being loaded into memory.
+	 * Over a plain TCP connection such files are transferred directly from a file system to the connection.
+	 * <p>
+	 * Responses with files also support single part {@code Range} requests
+	 */
+	public StaticServlet withZeroCopy(boolean zeroCopy) {
+		this.zeroCopy = zeroCopy;
+		return this;
+	}
+
 	public static ContentType getContentType(String path) {
 		int pos = path.lastIndexOf('.');
 		if (pos == -1) {
@@ -142,6 +168,91 @@ public final class StaticServlet implements AsyncServlet {
 				.withHeader(CONTENT_TYPE, ofContentType(contentType));
 	}
 
+	private Promise<HttpResponse> createFileHttpResponse(ChannelFileReader reader, ContentType contentType, @Nullable String rangeHeader) {
+		long size;
+		try {
+			size = reader.getRemaining();
+		} catch (IOException e) {
+			reader.closeEx(e);
+			return Promise.ofException(e);
+		}
+		HttpResponse response = rangeHeader == null ? responseSupplier.get() : HttpResponse.ok206();
+		response.addHeader(CONTENT_TYPE, ofContentType(contentType));
+		return HttpResponse.withFileBody(response, (offset, limit) -> reader.withOffset(offset).withLimit(limit), size, rangeHeader)
+				.whenException(reader::closeEx);
+	}
+
+	private HttpResponse createCachedHttpResponse(HttpRequest request, StaticLoaderLruCache.Resource resource, ContentType contentType) {
+		HttpHeaderValue lastModified = HttpHeaderValue.ofInstant(Instant.ofEpochSecond(resource.getLastModified()));
+		byte[] gzipped = resource.getGzipped();
+		boolean gzip = gzipped != null &&
+				AcceptEncoding.isAccepted(request.getHeader(ACCEPT_ENCODING, HttpHeaderValue::toAcceptEncodings), "gzip");
+		String eTag = gzip ? resource.getGzippedETag() : resource.getETag();
+		if (isNotModified(request, resource, eTag)) {
+			HttpResponse response = HttpResponse.ofCode(304)
+					.withHeader(ETAG, eTag)
+					.withHeader(LAST_MODIFIED, lastModified);
+			if (gzipped != null) {
+				response.addHeader(VARY, VARY_ACCEPT_ENCODING);
+			}
+			return response;
+		}
+		HttpResponse response = responseSupplier.get()
+				.withHeader(CONTENT_TYPE, ofContentType(contentType))
+				.withHeader(ETAG, eTag)
+				.withHeader(LAST_MODIFIED, lastModified);
+		if (gzipped == null) {
+			return response.withBody(wrapForReading(resource.getBytes()));
+		}
+		response.addHeader(VARY, VARY_ACCEPT_ENCODING);
+		if (gzip) {
+			return response
+					.withHeader(CONTENT_ENCODING, GZIP)
+					.withBody(wrapForReading(gzipped));
+		}
+		return response.withBody(wrapForReading(resource.getBytes()));
+	}
+
+	private static boolean isNotModified(HttpRequest request, StaticLoaderLruCache.Resource resource, String eTag) {
+		String ifNoneMatch = request.getHeader(IF_NONE_MATCH);
+		if (ifNoneMatch != null) {
+			for (String tag : ifNoneMatch.split(",")) {
+				tag = tag.trim();
+				if (tag.equals("*") || tag.equals(eTag) || tag.startsWith("W/") && tag.substring(2).equals(eTag)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		ByteBuf ifModifiedSince = request.getHeaderBuf(IF_MODIFIED_SINCE);
+		if (ifModifiedSince != null) {
+			try {
+				return HttpHeaderValue.toInstant(ifModifiedSince).getEpochSecond() >= resource.getLastModified();
+			} catch (ParseException ignored) {
+			}
+		}
+		return false;
+	}
+
+	private Promise<HttpResponse> loadResource(HttpRequest request, String path, ContentType contentType) {
+		return resourceLoader.loadResource(path)
+				.then(resource -> resource != null ?
+						Promise.of(createCachedHttpResponse(request, resource, contentType)) :
+						loadUncachedResource(request, path, contentType));
+	}
+
+	private Promise<HttpResponse> loadUncachedResource(HttpRequest request, String path, ContentType contentType) {
+		if (!zeroCopy) {
+			return resourceLoader.load(path)
+					.map(byteBuf -> createHttpResponse(byteBuf, contentType));
+		}
+		return resourceLoader.openFile(path)
+				.then(reader -> reader != null ?
+						createFileHttpResponse(reader, contentType, request.getHeader(RANGE)) :
+						resourceLoader.load(path)
+								.map(byteBuf -> createHttpResponse(byteBuf, contentType)));
+	}
+
 	@NotNull
 	@Override
 	public final Promise<HttpResponse> serve(@NotNull HttpRequest request) {
@@ -150,12 +261,11 @@ public final class StaticServlet implements AsyncServlet {
 		ContentType contentType = contentTypeResolver.apply(mappedPath);
 		return Promise.complete()
 				.then(() -> (mappedPath.endsWith("/") || mappedPath.isEmpty()) ?
-						tryLoadIndexResource(mappedPath) :
-						resourceLoader.load(mappedPath)
-								.map(byteBuf -> createHttpResponse(byteBuf, contentType))
+						tryLoadIndexResource(request, mappedPath) :
+						loadResource(request, mappedPath, contentType)
 								.thenEx((value, e) -> {
 									if (e == StaticLoader.IS_A_DIRECTORY) {
-										return tryLoadIndexResource(mappedPath);
+										return tryLoadIndexResource(request, mappedPath);
 									} else {
 										return Promise.of(value, e);
 									}
@@ -164,7 +274,9 @@ public final class StaticServlet implements AsyncServlet {
 					if (e == null) {
 						return Promise.of(response);
 					} else if (e == StaticLoader.NOT_FOUND_EXCEPTION) {
-						return tryLoadDefaultResource();
+						return tryLoadDefaultResource(request);
+					} else if (e instanceof HttpException) {
+						return Promise.ofException(e);
 					} else {
 						return Promise.ofException(HttpException.ofCode(400, e));
 					}
@@ -172,19 +284,17 @@ public final class StaticServlet implements AsyncServlet {
 	}
 
 	@NotNull
-	private Promise<HttpResponse> tryLoadIndexResource(String mappedPath) {
+	private Promise<HttpResponse> tryLoadIndexResource(HttpRequest request, String mappedPath) {
 		String dirPath = mappedPath.endsWith("/") || mappedPath.isEmpty() ? mappedPath : (mappedPath + '/');
 		return Promises.<HttpResponse>firstSuccessful(indexResources.stream()
-				.map(indexResource -> () -> resourceLoader.load(dirPath + indexResource)
-						.map(byteBuf -> createHttpResponse(byteBuf, contentTypeResolver.apply(indexResource)))))
+				.map(indexResource -> () -> loadResource(request, dirPath + indexResource, contentTypeResolver.apply(indexResource))))
 				.thenEx(((response, e) -> e == null ? Promise.of(response) : Promise.ofException(StaticLoader.NOT_FOUND_EXCEPTION)));
 	}
 
 	@NotNull
-	private Promise<? extends HttpResponse> tryLoadDefaultResource() {
+	private Promise<? extends HttpResponse> tryLoadDefaultResource(HttpRequest request) {
 		return defaultResource != null ?
-				resourceLoader.load(defaultResource)
-						.map(buf -> createHttpResponse(buf, contentTypeResolver.apply(defaultResource))) :
+				loadResource(request, defaultResource, contentTypeResolver.apply(defaultResource)) :
 				Promise.ofException(HttpException.notFound404());
 	}
 }
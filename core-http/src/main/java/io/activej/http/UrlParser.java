@@ -81,6 +81,8 @@ public final class UrlParser {
 
 	private static final String HTTP = "http";
 	private static final String HTTPS = "https";
+	private static final String WS = "ws";
+	private static final String WSS = "wss";
 
 	private final String raw;
 
@@ -136,6 +138,10 @@ public final class UrlParser {
 				https = true;
 			} else if (index == 4 && raw.startsWith(HTTP)) {
 				https = false;
+			} else if (index == 3 && raw.startsWith(WSS)) {
+				https = true;
+			} else if (index == 2 && raw.startsWith(WS)) {
+				https = false;
 			} else {
 				throw new UnknownFormatException(UrlParser.class, "Unsupported schema: " + raw.substring(0, index));
 			}
@@ -458,6 +464,15 @@ public final class UrlParser {
 	}
 
 	// work with path
+	@NotNull
+	String getRaw() {
+		return raw;
+	}
+
+	int getPathEnd() {
+		return pathEnd;
+	}
+
 	@NotNull
 	String getPartialPath() {
 		if (pos == -1 || pos > pathEnd) {
@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.async.process.AsyncCloseable;
+import io.activej.bytebuf.ByteBuf;
+import io.activej.csp.AbstractChannelConsumer;
+import io.activej.csp.ChannelConsumer;
+import io.activej.csp.ChannelSupplier;
+import io.activej.promise.Promise;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static io.activej.common.Preconditions.checkState;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A WebSocket connection (RFC 6455), which is established either by a {@link WebSocketServlet}
+ * or by {@link AsyncHttpClient#webSocketRequest(HttpRequest)}.
+ * <p>
+ * Data can be read and written either as whole messages or as separate frames of messages.
+ * Only one read and only one write may be in progress at a time.
+ * Reading a {@code null} message or frame means that a peer has closed a connection normally,
+ * writing a {@code null} message or frame closes a connection normally.
+ * <p>
+ * Control frames (ping, pong and close) are handled internally.
+ */
+public interface WebSocket extends AsyncCloseable {
+	@NotNull
+	Promise<@Nullable Message> readMessage();
+
+	@NotNull
+	Promise<@Nullable Frame> readFrame();
+
+	@NotNull
+	Promise<Void> writeMessage(@Nullable Message message);
+
+	@NotNull
+	Promise<Void> writeFrame(@Nullable Frame frame);
+
+	@NotNull
+	default ChannelSupplier<Message> messageReadChannel() {
+		return ChannelSupplier.of(this::readMessage, this);
+	}
+
+	@NotNull
+	default ChannelSupplier<Frame> frameReadChannel() {
+		return ChannelSupplier.of(this::readFrame, this);
+	}
+
+	/**
+	 * Returns a consumer of messages, an end of stream closes this WebSocket normally
+	 */
+	@NotNull
+	default ChannelConsumer<Message> messageWriteChannel() {
+		return new AbstractChannelConsumer<Message>(this) {
+			@Override
+			protected Promise<Void> doAccept(@Nullable Message message) {
+				return writeMessage(message);
+			}
+		};
+	}
+
+	/**
+	 * Returns a consumer of frames, an end of stream closes this WebSocket normally
+	 */
+	@NotNull
+	default ChannelConsumer<Frame> frameWriteChannel() {
+		return new AbstractChannelConsumer<Frame>(this) {
+			@Override
+			protected Promise<Void> doAccept(@Nullable Frame frame) {
+				return writeFrame(frame);
+			}
+		};
+	}
+
+	/**
+	 * Returns an upgrade request of this WebSocket, it is valid until this WebSocket is closed
+	 */
+	@NotNull
+	HttpRequest getRequest();
+
+	/**
+	 * Returns an upgrade response of this WebSocket, it is valid until this WebSocket is closed
+	 */
+	@NotNull
+	HttpResponse getResponse();
+
+	boolean isClosed();
+
+	enum MessageType {
+		TEXT, BINARY
+	}
+
+	enum FrameType {
+		TEXT, BINARY, CONTINUATION
+	}
+
+	/**
+	 * A complete message, its text or its binary payload
+	 */
+	final class Message {
+		private final MessageType type;
+		@Nullable
+		private final ByteBuf buf;
+		@Nullable
+		private final String text;
+
+		private Message(MessageType type, @Nullable ByteBuf buf, @Nullable String text) {
+			this.type = type;
+			this.buf = buf;
+			this.text = text;
+		}
+
+		public static Message text(@NotNull String text) {
+			return new Message(MessageType.TEXT, null, text);
+		}
+
+		public static Message binary(@NotNull ByteBuf buf) {
+			return new Message(MessageType.BINARY, buf, null);
+		}
+
+		public MessageType getType() {
+			return type;
+		}
+
+		/**
+		 * Returns a payload of a binary message, which should be recycled by a caller
+		 */
+		@NotNull
+		public ByteBuf getBuf() {
+			checkState(type == MessageType.BINARY, "Not a binary message");
+			//noinspection ConstantConditions
+			return buf;
+		}
+
+		@NotNull
+		public String getText() {
+			checkState(type == MessageType.TEXT, "Not a text message");
+			//noinspection ConstantConditions
+			return text;
+		}
+
+		ByteBuf toByteBuf() {
+			//noinspection ConstantConditions
+			return type == MessageType.BINARY ? buf : ByteBuf.wrapForReading(text.getBytes(UTF_8));
+		}
+
+		@Override
+		public String toString() {
+			return type == MessageType.TEXT ?
+					"Message{text='" + text + "'}" :
+					"Message{binary=" + buf + '}';
+		}
+	}
+
+	/**
+	 * A data frame of a message. A first frame of a message is either a text or a binary frame,
+	 * the following ones are continuation frames
+	 */
+	final class Frame {
+		private final FrameType type;
+		private final ByteBuf payload;
+		private final boolean lastFrame;
+
+		private Frame(FrameType type, ByteBuf payload, boolean lastFrame) {
+			this.type = type;
+			this.payload = payload;
+			this.lastFrame = lastFrame;
+		}
+
+		public static Frame of(@NotNull FrameType type, @NotNull ByteBuf payload, boolean lastFrame) {
+			return new Frame(type, payload, lastFrame);
+		}
+
+		public static Frame text(@NotNull ByteBuf payload, boolean lastFrame) {
+			return new Frame(FrameType.TEXT, payload, lastFrame);
+		}
+
+		public static Frame binary(@NotNull ByteBuf payload, boolean lastFrame) {
+			return new Frame(FrameType.BINARY, payload, lastFrame);
+		}
+
+		public static Frame continuation(@NotNull ByteBuf payload, boolean lastFrame) {
+			return new Frame(FrameType.CONTINUATION, payload, lastFrame);
+		}
+
+		public FrameType getType() {
+			return type;
+		}
+
+		/**
+		 * Returns a payload of this frame, which should be recycled by a caller
+		 */
+		public ByteBuf getPayload() {
+			return payload;
+		}
+
+		public boolean isLastFrame() {
+			return lastFrame;
+		}
+
+		@Override
+		public String toString() {
+			return "Frame{type=" + type + ", payload=" + payload + ", lastFrame=" + lastFrame + '}';
+		}
+	}
+}
@@ -0,0 +1,826 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
+import io.activej.bytebuf.ByteBufQueue;
+import io.activej.common.ApplicationSettings;
+import io.activej.common.Check;
+import io.activej.eventloop.Eventloop;
+import io.activej.eventloop.schedule.ScheduledRunnable;
+import io.activej.net.socket.tcp.AsyncTcpSocket;
+import io.activej.promise.Promise;
+import io.activej.promise.SettablePromise;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static io.activej.common.Preconditions.checkState;
+import static io.activej.eventloop.util.RunnableWithContext.wrapContext;
+import static io.activej.http.WebSocketException.*;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * An implementation of WebSocket protocol (RFC 6455) on top of a socket of an upgraded HTTP connection,
+ * with an optional permessage-deflate extension (RFC 7692).
+ * <p>
+ * Frames are decoded directly from a read queue of a connection, and a payload of a frame which
+ * is contained in a single buffer is unmasked in place, without copying.
+ * Compression uses pooled deflaters and inflaters of {@link GzipProcessorUtils}, so a local endpoint
+ * never takes over a compression context between messages.
+ */
+final class WebSocketImpl implements WebSocket {
+	private static final boolean CHECK = Check.isEnabled(WebSocketImpl.class);
+
+	public static final Duration CLOSE_TIMEOUT = ApplicationSettings.getDuration(WebSocket.class, "closeTimeout", Duration.ofSeconds(3));
+	public static final int DEFLATE_MIN_SIZE = ApplicationSettings.getInt(WebSocket.class, "deflateMinSize", 64);
+
+	static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+	static final String SERVER_NO_CONTEXT_TAKEOVER = "server_no_context_takeover";
+	static final String CLIENT_NO_CONTEXT_TAKEOVER = "client_no_context_takeover";
+	static final String SERVER_MAX_WINDOW_BITS = "server_max_window_bits";
+	static final String CLIENT_MAX_WINDOW_BITS = "client_max_window_bits";
+	static final String DEFLATE_OFFER = PERMESSAGE_DEFLATE + "; " + CLIENT_NO_CONTEXT_TAKEOVER;
+	static final String DEFLATE_RESPONSE = PERMESSAGE_DEFLATE + "; " + SERVER_NO_CONTEXT_TAKEOVER + "; " + CLIENT_NO_CONTEXT_TAKEOVER;
+
+	private static final byte[] WEB_SOCKET_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11".getBytes(ISO_8859_1);
+
+	private static final byte OP_CONTINUATION = 0x0;
+	private static final byte OP_TEXT = 0x1;
+	private static final byte OP_BINARY = 0x2;
+	private static final byte OP_CLOSE = 0x8;
+	private static final byte OP_PING = 0x9;
+	private static final byte OP_PONG = 0xA;
+
+	private static final int MAX_CONTROL_PAYLOAD = 125;
+	private static final int INLINE_PAYLOAD_SIZE = 1024;
+	private static final byte[] DEFLATE_TAIL = {0, 0, (byte) 0xff, (byte) 0xff};
+
+	/**
+	 * A marker of a control frame which has been handled internally
+	 */
+	private static final Frame CONTROL_FRAME = Frame.of(FrameType.BINARY, ByteBuf.empty(), true);
+
+	private final Eventloop eventloop;
+	private final AsyncTcpSocket socket;
+	private final ByteBufQueue readQueue = new ByteBufQueue();
+	private final HttpRequest request;
+	private final HttpResponse response;
+	private final boolean client;
+	private final boolean deflate;
+	private final boolean peerNoContextTakeover;
+	private final int maxMessageSize;
+	@Nullable
+	private final Consumer<WebSocketImpl> onClose;
+
+	@Nullable
+	private SettablePromise<Frame> readPromise;
+	private boolean socketReading;
+	private boolean readingMessage;
+	private boolean readCompressed;
+	private int readMessageSize;
+	@Nullable
+	private Inflater inflater;
+
+	private boolean writingMessage;
+	private boolean writeCompressed;
+	@Nullable
+	private Deflater deflater;
+
+	private boolean closeSent;
+	private boolean closeReceived;
+	private boolean readEndOfStream;
+	@Nullable
+	private Throwable closeException;
+	private boolean socketClosed;
+	@Nullable
+	private ScheduledRunnable closeTimeout;
+
+	/**
+	 * @param readQueue             data which has been read by an HTTP connection after an upgrade request or response
+	 * @param client                whether this is a client endpoint, which masks frames it sends
+	 * @param deflate               whether permessage-deflate extension has been negotiated
+	 * @param peerNoContextTakeover whether a peer resets its compression context after each message
+	 * @param onClose               a callback which is called once a socket is closed
+	 */
+	WebSocketImpl(Eventloop eventloop, AsyncTcpSocket socket, ByteBufQueue readQueue,
+			HttpRequest request, HttpResponse response, boolean client,
+			boolean deflate, boolean peerNoContextTakeover, int maxMessageSize, @Nullable Consumer<WebSocketImpl> onClose) {
+		this.eventloop = eventloop;
+		this.socket = socket;
+		this.request = request;
+		this.response = response;
+		this.client = client;
+		this.deflate = deflate;
+		this.peerNoContextTakeover = peerNoContextTakeover;
+		this.maxMessageSize = maxMessageSize != 0 ? maxMessageSize : Integer.MAX_VALUE;
+		this.onClose = onClose;
+		readQueue.drainTo(this.readQueue);
+	}
+
+	// region handshake
+	static String getAcceptKey(String key) {
+		try {
+			MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+			sha1.update(key.getBytes(ISO_8859_1));
+			sha1.update(WEB_SOCKET_GUID);
+			return Base64.getEncoder().encodeToString(sha1.digest());
+		} catch (NoSuchAlgorithmException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	static boolean hasToken(@Nullable String header, String token) {
+		if (header == null) return false;
+		for (String value : header.split(",")) {
+			if (value.trim().equalsIgnoreCase(token)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Chooses a first permessage-deflate offer of a client which a server is able to accept
+	 *
+	 * @return whether an offer has been accepted
+	 */
+	static boolean acceptDeflateOffer(@Nullable String extensions) {
+		if (extensions == null) return false;
+		for (String offer : extensions.split(",")) {
+			String[] params = offer.split(";");
+			if (!params[0].trim().equalsIgnoreCase(PERMESSAGE_DEFLATE)) continue;
+			if (isAcceptableParams(params, param -> {
+				int eq = param.indexOf('=');
+				String name = (eq == -1 ? param : param.substring(0, eq)).trim().toLowerCase();
+				String value = eq == -1 ? null : unquote(param.substring(eq + 1).trim());
+				switch (name) {
+					case SERVER_NO_CONTEXT_TAKEOVER:
+					case CLIENT_NO_CONTEXT_TAKEOVER:
+						return value == null ? name : null;
+					case CLIENT_MAX_WINDOW_BITS:
+						// a local inflater supports any window size, so a hint is just ignored
+						return value == null || isWindowBits(value) ? name : null;
+					case SERVER_MAX_WINDOW_BITS:
+						// a window of pooled deflaters can not be reduced
+						return "15".equals(value) ? name : null;
+					default:
+						return null;
+				}
+			})) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks a permessage-deflate response of a server to an offer of a client
+	 *
+	 * @return whether a server does not take over its compression context, or {@code null} if a response is not acceptable
+	 */
+	@Nullable
+	static Boolean parseDeflateResponse(String extension) {
+		String[] params = extension.split(";");
+		if (!params[0].trim().equalsIgnoreCase(PERMESSAGE_DEFLATE)) return null;
+		boolean[] serverNoContextTakeover = {false};
+		boolean acceptable = isAcceptableParams(params, param -> {
+			int eq = param.indexOf('=');
+			String name = (eq == -1 ? param : param.substring(0, eq)).trim().toLowerCase();
+			String value = eq == -1 ? null : unquote(param.substring(eq + 1).trim());
+			switch (name) {
+				case SERVER_NO_CONTEXT_TAKEOVER:
+					serverNoContextTakeover[0] = true;
+					return value == null ? name : null;
+				case CLIENT_NO_CONTEXT_TAKEOVER:
+					return value == null ? name : null;
+				case SERVER_MAX_WINDOW_BITS:
+					return value != null && isWindowBits(value) ? name : null;
+				case CLIENT_MAX_WINDOW_BITS:
+					return "15".equals(value) ? name : null;
+				default:
+					return null;
+			}
+		});
+		return acceptable ? serverNoContextTakeover[0] : null;
+	}
+
+	private static boolean isAcceptableParams(String[] params, Function<String, @Nullable String> paramChecker) {
+		Set<String> names = new HashSet<>();
+		for (int i = 1; i < params.length; i++) {
+			String name = paramChecker.apply(params[i]);
+			if (name == null || !names.add(name)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isWindowBits(String value) {
+		try {
+			int bits = Integer.parseInt(value);
+			return bits >= 8 && bits <= 15;
+		} catch (NumberFormatException ignored) {
+			return false;
+		}
+	}
+
+	private static String unquote(String value) {
+		return value.length() >= 2 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"' ?
+				value.substring(1, value.length() - 1) :
+				value;
+	}
+	// endregion
+
+	// region read
+	@NotNull
+	@Override
+	public Promise<@Nullable Frame> readFrame() {
+		if (CHECK) checkState(eventloop.inEventloopThread(), "Not in eventloop thread");
+		checkState(readPromise == null, "Concurrent reads are not allowed");
+		if (readEndOfStream) return Promise.of(null);
+		if (closeException != null) return Promise.ofException(closeException);
+		SettablePromise<Frame> promise = new SettablePromise<>();
+		readPromise = promise;
+		processRead();
+		return promise;
+	}
+
+	@NotNull
+	@Override
+	public Promise<@Nullable Message> readMessage() {
+		return readMessage(new ByteBufQueue(), null);
+	}
+
+	private Promise<@Nullable Message> readMessage(ByteBufQueue queue, @Nullable FrameType type) {
+		return readFrame()
+				.thenEx((frame, e) -> {
+					if (e != null || frame == null) {
+						queue.recycle();
+						return e == null ? Promise.of(null) : Promise.ofException(e);
+					}
+					FrameType messageType = type != null ? type : frame.getType();
+					if (messageType == FrameType.CONTINUATION) {
+						frame.getPayload().recycle();
+						queue.recycle();
+						return Promise.ofException(new IllegalStateException("A message has been partially read as frames"));
+					}
+					queue.add(frame.getPayload());
+					if (!frame.isLastFrame()) {
+						return readMessage(queue, messageType);
+					}
+					ByteBuf buf = queue.takeRemaining();
+					if (messageType == FrameType.BINARY) {
+						return Promise.of(Message.binary(buf));
+					}
+					try {
+						return Promise.of(Message.text(decodeUtf8(buf)));
+					} catch (CharacterCodingException ignored) {
+						WebSocketException exception = new WebSocketException(WebSocketImpl.class, INVALID_PAYLOAD_DATA, "Invalid UTF-8 text message");
+						failConnection(exception);
+						return Promise.ofException(exception);
+					} finally {
+						buf.recycle();
+					}
+				});
+	}
+
+	private void processRead() {
+		while (true) {
+			Frame frame;
+			try {
+				frame = decodeFrame();
+			} catch (WebSocketException e) {
+				failConnection(e);
+				return;
+			}
+			if (socketClosed) return;
+			if (closeReceived) {
+				completeRead();
+				return;
+			}
+			if (frame == CONTROL_FRAME) continue;
+			if (frame == null) {
+				socketReading = true;
+				socket.read().whenComplete((buf, e) -> {
+					socketReading = false;
+					if (socketClosed) {
+						if (buf != null) buf.recycle();
+						return;
+					}
+					if (e != null) {
+						closeSocket(e);
+					} else if (buf == null) {
+						closeSocket(closeSent ? null :
+								new WebSocketException(WebSocketImpl.class, ABNORMAL_CLOSURE, "Connection closed without a close frame"));
+					} else {
+						readQueue.add(buf);
+						processRead();
+					}
+				});
+				return;
+			}
+			if (readPromise != null) {
+				SettablePromise<Frame> promise = readPromise;
+				readPromise = null;
+				promise.set(frame);
+				return;
+			}
+			// data which is received after a close frame has been sent is discarded
+			frame.getPayload().recycle();
+		}
+	}
+
+	@Nullable
+	private Frame decodeFrame() throws WebSocketException {
+		int remaining = readQueue.remainingBytes();
+		if (remaining < 2) return null;
+		byte b0 = readQueue.peekByte(0);
+		byte b1 = readQueue.peekByte(1);
+		boolean fin = (b0 & 0x80) != 0;
+		boolean rsv1 = (b0 & 0x40) != 0;
+		int opcode = b0 & 0x0F;
+		boolean masked = (b1 & 0x80) != 0;
+		int length7 = b1 & 0x7F;
+		int headerSize = 2 + (length7 == 126 ? 2 : length7 == 127 ? 8 : 0) + (masked ? 4 : 0);
+		if (remaining < headerSize) return null;
+
+		long length;
+		if (length7 < 126) {
+			length = length7;
+		} else if (length7 == 126) {
+			length = (readQueue.peekByte(2) & 0xFF) << 8 | (readQueue.peekByte(3) & 0xFF);
+		} else {
+			length = 0;
+			for (int i = 2; i < 10; i++) {
+				length = length << 8 | (readQueue.peekByte(i) & 0xFF);
+			}
+		}
+
+		if (masked == client) {
+			throw protocolError(client ? "Masked frame from a server" : "Unmasked frame from a client");
+		}
+		if ((b0 & 0x30) != 0) {
+			throw protocolError("Unexpected reserved bits");
+		}
+		boolean control = (opcode & 0x08) != 0;
+		if (control) {
+			if (!fin || rsv1 || length > MAX_CONTROL_PAYLOAD) {
+				throw protocolError("Invalid control frame");
+			}
+		} else {
+			if (rsv1 && (!deflate || opcode == OP_CONTINUATION)) {
+				throw protocolError("Unexpected compression bit");
+			}
+			if (length < 0 || length > maxMessageSize - (opcode == OP_CONTINUATION ? readMessageSize : 0)) {
+				throw new WebSocketException(WebSocketImpl.class, MESSAGE_TOO_BIG, "Message exceeds max message size");
+			}
+		}
+		if (remaining < headerSize + length) return null;
+
+		int mask = 0;
+		if (masked) {
+			for (int i = headerSize - 4; i < headerSize; i++) {
+				mask = mask << 8 | (readQueue.peekByte(i) & 0xFF);
+			}
+		}
+		readQueue.skip(headerSize);
+		ByteBuf payload = readQueue.takeExactSize((int) length);
+		if (masked) {
+			unmask(payload, mask);
+		}
+
+		if (control) {
+			onControlFrame(opcode, payload);
+			return CONTROL_FRAME;
+		}
+
+		FrameType type;
+		if (opcode == OP_CONTINUATION) {
+			if (!readingMessage) {
+				payload.recycle();
+				throw protocolError("Unexpected continuation frame");
+			}
+			type = FrameType.CONTINUATION;
+		} else if (opcode == OP_TEXT || opcode == OP_BINARY) {
+			if (readingMessage) {
+				payload.recycle();
+				throw protocolError("A new message while a previous one is not finished");
+			}
+			type = opcode == OP_TEXT ? FrameType.TEXT : FrameType.BINARY;
+			readCompressed = rsv1;
+			readMessageSize = 0;
+		} else {
+			payload.recycle();
+			throw protocolError("Unknown opcode " + opcode);
+		}
+		readingMessage = !fin;
+
+		if (readCompressed) {
+			payload = inflate(payload, fin);
+		}
+		readMessageSize += payload.readRemaining();
+		return Frame.of(type, payload, fin);
+	}
+
+	private void onControlFrame(int opcode, ByteBuf payload) throws WebSocketException {
+		if (opcode == OP_PING) {
+			if (!closeSent) {
+				writeFrame(OP_PONG, true, false, payload);
+			} else {
+				payload.recycle();
+			}
+		} else if (opcode == OP_PONG) {
+			payload.recycle();
+		} else if (opcode == OP_CLOSE) {
+			onCloseFrame(payload);
+		} else {
+			payload.recycle();
+			throw protocolError("Unknown opcode " + opcode);
+		}
+	}
+
+	private void onCloseFrame(ByteBuf payload) throws WebSocketException {
+		int code = NO_STATUS_RECEIVED;
+		String reason = "";
+		if (payload.readRemaining() != 0) {
+			if (payload.readRemaining() == 1) {
+				payload.recycle();
+				throw protocolError("Invalid close frame");
+			}
+			code = payload.readShort() & 0xFFFF;
+			try {
+				reason = decodeUtf8(payload);
+			} catch (CharacterCodingException ignored) {
+				throw new WebSocketException(WebSocketImpl.class, INVALID_PAYLOAD_DATA, "Invalid UTF-8 close reason");
+			} finally {
+				payload.recycle();
+			}
+			if (!isValidCloseCode(code)) {
+				throw protocolError("Invalid close code " + code);
+			}
+		} else {
+			payload.recycle();
+		}
+
+		closeReceived = true;
+		if (code == NORMAL_CLOSURE || code == GOING_AWAY || code == NO_STATUS_RECEIVED) {
+			readEndOfStream = closeException == null;
+		} else if (closeException == null) {
+			closeException = new WebSocketException(WebSocketImpl.class, code, reason);
+		}
+		if (!closeSent) {
+			writeCloseFrame(code == NO_STATUS_RECEIVED ? NORMAL_CLOSURE : code, "")
+					.whenComplete(() -> closeSocket(null));
+		} else {
+			closeSocket(null);
+		}
+	}
+
+	private void completeRead() {
+		if (readPromise == null) return;
+		SettablePromise<Frame> promise = readPromise;
+		readPromise = null;
+		if (readEndOfStream) {
+			promise.set(null);
+		} else {
+			//noinspection ConstantConditions
+			promise.setException(closeException);
+		}
+	}
+
+	private ByteBuf inflate(ByteBuf payload, boolean fin) throws WebSocketException {
+		if (inflater == null) {
+			inflater = GzipProcessorUtils.ensureDecompressor();
+		}
+		ByteBuf output = ByteBufPool.allocate(Math.max(256, payload.readRemaining() * 2));
+		try {
+			output = inflate(inflater, payload.array(), payload.head(), payload.readRemaining(), output);
+			if (fin) {
+				output = inflate(inflater, DEFLATE_TAIL, 0, DEFLATE_TAIL.length, output);
+			}
+		} catch (DataFormatException | WebSocketException e) {
+			output.recycle();
+			throw e instanceof WebSocketException ? (WebSocketException) e :
+					new WebSocketException(WebSocketImpl.class, INVALID_PAYLOAD_DATA, "Invalid compressed data");
+		} finally {
+			payload.recycle();
+		}
+		if (fin && peerNoContextTakeover) {
+			GzipProcessorUtils.moveDecompressorToPool(inflater);
+			inflater = null;
+		}
+		return output;
+	}
+
+	private ByteBuf inflate(Inflater inflater, byte[] array, int off, int len, ByteBuf output) throws DataFormatException, WebSocketException {
+		inflater.setInput(array, off, len);
+		while (true) {
+			if (!output.canWrite()) {
+				output = ByteBufPool.ensureWriteRemaining(output, output.readRemaining());
+			}
+			int count = inflater.inflate(output.array(), output.tail(), output.writeRemaining());
+			output.moveTail(count);
+			if (output.readRemaining() > maxMessageSize - readMessageSize) {
+				throw new WebSocketException(WebSocketImpl.class, MESSAGE_TOO_BIG, "Message exceeds max message size");
+			}
+			if (count == 0 && output.canWrite()) {
+				return output;
+			}
+		}
+	}
+
+	private static void unmask(ByteBuf buf, int mask) {
+		unmask(buf.array(), buf.head(), buf.tail(), mask);
+	}
+
+	private static void unmask(byte[] array, int head, int tail, int mask) {
+		byte m0 = (byte) (mask >>> 24);
+		byte m1 = (byte) (mask >>> 16);
+		byte m2 = (byte) (mask >>> 8);
+		byte m3 = (byte) mask;
+		int i = head;
+		for (; i + 3 < tail; i += 4) {
+			array[i] ^= m0;
+			array[i + 1] ^= m1;
+			array[i + 2] ^= m2;
+			array[i + 3] ^= m3;
+		}
+		for (int j = 0; i < tail; i++, j++) {
+			array[i] ^= (byte) (mask >>> (24 - 8 * j));
+		}
+	}
+
+	private static String decodeUtf8(ByteBuf buf) throws CharacterCodingException {
+		return UTF_8.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPORT)
+				.onUnmappableCharacter(CodingErrorAction.REPORT)
+				.decode(ByteBuffer.wrap(buf.array(), buf.head(), buf.readRemaining()))
+				.toString();
+	}
+
+	private static boolean isValidCloseCode(int code) {
+		return code >= 1000 && code <= 1003 || code >= 1007 && code <= 1011 || code >= 3000 && code <= 4999;
+	}
+
+	private static WebSocketException protocolError(String message) {
+		return new WebSocketException(WebSocketImpl.class, PROTOCOL_ERROR, message);
+	}
+	// endregion
+
+	// region write
+	@NotNull
+	@Override
+	public Promise<Void> writeMessage(@Nullable Message message) {
+		if (message == null) {
+			return writeFrame(null);
+		}
+		return writeFrame(message.getType() == MessageType.TEXT ?
+				Frame.text(message.toByteBuf(), true) :
+				Frame.binary(message.toByteBuf(), true));
+	}
+
+	@NotNull
+	@Override
+	public Promise<Void> writeFrame(@Nullable Frame frame) {
+		if (CHECK) checkState(eventloop.inEventloopThread(), "Not in eventloop thread");
+		if (frame == null) {
+			if (closeSent) return Promise.complete();
+			closeEx(CLOSE_EXCEPTION);
+			return Promise.complete();
+		}
+		ByteBuf payload = frame.getPayload();
+		if (closeSent || socketClosed) {
+			payload.recycle();
+			return Promise.ofException(closeException != null ? closeException : CLOSE_EXCEPTION);
+		}
+		byte opcode;
+		boolean rsv1 = false;
+		if (frame.getType() == FrameType.CONTINUATION) {
+			checkState(writingMessage, "A continuation frame without a first frame of a message");
+			opcode = OP_CONTINUATION;
+		} else {
+			checkState(!writingMessage, "A previous message is not finished");
+			opcode = frame.getType() == FrameType.TEXT ? OP_TEXT : OP_BINARY;
+			writeCompressed = deflate && payload.readRemaining() >= DEFLATE_MIN_SIZE;
+			rsv1 = writeCompressed;
+		}
+		writingMessage = !frame.isLastFrame();
+		if (writeCompressed) {
+			payload = deflate(payload, frame.isLastFrame());
+		}
+		return writeFrame(opcode, frame.isLastFrame(), rsv1, payload);
+	}
+
+	private ByteBuf deflate(ByteBuf payload, boolean fin) {
+		if (deflater == null) {
+			deflater = GzipProcessorUtils.ensureCompressor();
+		}
+		deflater.setInput(payload.array(), payload.head(), payload.readRemaining());
+		ByteBuf output = ByteBufPool.allocate(payload.readRemaining() + 64);
+		while (true) {
+			int writeRemaining = output.writeRemaining();
+			int count = deflater.deflate(output.array(), output.tail(), writeRemaining, Deflater.SYNC_FLUSH);
+			output.moveTail(count);
+			if (count < writeRemaining) break;
+			output = ByteBufPool.ensureWriteRemaining(output, output.readRemaining());
+		}
+		payload.recycle();
+		if (fin) {
+			// a sync flush marker is removed from the end of a message (RFC 7692, section 7.2.1)
+			output.moveTail(-DEFLATE_TAIL.length);
+			GzipProcessorUtils.moveCompressorToPool(deflater);
+			deflater = null;
+		}
+		return output;
+	}
+
+	private Promise<Void> writeCloseFrame(int code, String reason) {
+		closeSent = true;
+		byte[] reasonBytes = reason.getBytes(UTF_8);
+		int reasonLength = Math.min(reasonBytes.length, MAX_CONTROL_PAYLOAD - 2);
+		ByteBuf payload = ByteBufPool.allocate(2 + reasonLength);
+		payload.writeShort((short) code);
+		payload.write(reasonBytes, 0, reasonLength);
+		return writeFrame(OP_CLOSE, true, false, payload);
+	}
+
+	/**
+	 * Writes a frame, a payload is either copied into a frame header buffer (while masking it),
+	 * or written as is after a header, without copying
+	 */
+	private Promise<Void> writeFrame(byte opcode, boolean fin, boolean rsv1, ByteBuf payload) {
+		int length = payload.readRemaining();
+		int headerSize = 2 + (length < 126 ? 0 : length < 65536 ? 2 : 8) + (client ? 4 : 0);
+		boolean inline = client || length <= INLINE_PAYLOAD_SIZE;
+		ByteBuf buf = ByteBufPool.allocate(headerSize + (inline ? length : 0));
+		buf.writeByte((byte) ((fin ? 0x80 : 0) | (rsv1 ? 0x40 : 0) | opcode));
+		byte maskBit = (byte) (client ? 0x80 : 0);
+		if (length < 126) {
+			buf.writeByte((byte) (maskBit | length));
+		} else if (length < 65536) {
+			buf.writeByte((byte) (maskBit | 126));
+			buf.writeShort((short) length);
+		} else {
+			buf.writeByte((byte) (maskBit | 127));
+			buf.writeLong(length);
+		}
+
+		Promise<Void> write;
+		if (inline) {
+			if (client) {
+				int mask = ThreadLocalRandom.current().nextInt();
+				buf.writeInt(mask);
+				int payloadHead = buf.tail();
+				buf.put(payload);
+				payload.recycle();
+				unmask(buf.array(), payloadHead, buf.tail(), mask);
+			} else {
+				buf.put(payload);
+				payload.recycle();
+			}
+			write = socket.write(buf);
+		} else {
+			socket.write(buf);
+			write = socket.write(payload);
+		}
+		return write.whenException(this::closeSocket);
+	}
+	// endregion
+
+	// region close
+	@Override
+	public void closeEx(@NotNull Throwable e) {
+		if (CHECK) checkState(eventloop.inEventloopThread(), "Not in eventloop thread");
+		if (closeSent || socketClosed) return;
+		closeException = e;
+		if (readPromise != null) {
+			SettablePromise<Frame> promise = readPromise;
+			readPromise = null;
+			promise.setException(e);
+		}
+		int code = e instanceof WebSocketException ?
+				((WebSocketException) e).getCode() :
+				e == CLOSE_EXCEPTION ? NORMAL_CLOSURE : INTERNAL_ERROR;
+		String reason = e instanceof WebSocketException && e.getMessage() != null ? e.getMessage() : "";
+		Promise<Void> write = writeCloseFrame(isValidCloseCode(code) ? code : INTERNAL_ERROR, reason);
+		if (closeReceived) {
+			write.whenComplete(() -> closeSocket(null));
+			return;
+		}
+		// waits for a close frame of a peer, discarding any other data
+		closeTimeout = eventloop.delayBackground(CLOSE_TIMEOUT, wrapContext(this, () -> {
+			closeTimeout = null;
+			closeSocket(null);
+		}));
+		if (!socketReading) {
+			processRead();
+		}
+	}
+
+	/**
+	 * Fails a connection because of a protocol violation (RFC 6455, section 7.1.7)
+	 */
+	private void failConnection(WebSocketException e) {
+		if (socketClosed) return;
+		if (closeException == null) {
+			closeException = e;
+		}
+		completeRead();
+		if (!closeSent) {
+			writeCloseFrame(e.getCode(), e.getMessage() != null ? e.getMessage() : "")
+					.whenComplete(() -> closeSocket(e));
+		} else {
+			closeSocket(e);
+		}
+	}
+
+	private void closeSocket(@Nullable Throwable e) {
+		if (socketClosed) return;
+		socketClosed = true;
+		if (closeException == null) {
+			closeException = e != null ? e : CLOSE_EXCEPTION;
+		}
+		completeRead();
+		if (closeTimeout != null) {
+			closeTimeout.cancel();
+			closeTimeout = null;
+		}
+		socket.close();
+		readQueue.recycle();
+		if (inflater != null) {
+			GzipProcessorUtils.moveDecompressorToPool(inflater);
+			inflater = null;
+		}
+		if (deflater != null) {
+			GzipProcessorUtils.moveCompressorToPool(deflater);
+			deflater = null;
+		}
+		request.recycle();
+		response.recycle();
+		if (onClose != null) {
+			onClose.accept(this);
+		}
+	}
+
+	@Override
+	public boolean isClosed() {
+		return socketClosed;
+	}
+	// endregion
+
+	@NotNull
+	@Override
+	public HttpRequest getRequest() {
+		return request;
+	}
+
+	@NotNull
+	@Override
+	public HttpResponse getResponse() {
+		return response;
+	}
+
+	@Override
+	public String toString() {
+		return "WebSocket{" +
+				"socket=" + socket +
+				", client=" + client +
+				", deflate=" + deflate +
+				", closeSent=" + closeSent +
+				", closeReceived=" + closeReceived +
+				", closed=" + socketClosed +
+				'}';
+	}
+}
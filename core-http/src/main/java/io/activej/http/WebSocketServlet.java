@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.common.exception.UncheckedException;
+import io.activej.promise.Promise;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Base64;
+import java.util.function.Consumer;
+
+import static io.activej.http.HttpHeaders.*;
+import static io.activej.http.WebSocketImpl.hasToken;
+
+/**
+ * A servlet which accepts WebSocket handshakes (RFC 6455, section 4.2) and hands
+ * established {@link WebSocket} connections over to {@link #onWebSocket(WebSocket)}.
+ * <p>
+ * A handshake may be rejected by overriding {@link #onRequest(HttpRequest)},
+ * any response other than {@code 101 Switching Protocols} is sent as is.
+ */
+public abstract class WebSocketServlet implements AsyncServlet {
+	private static final String WEB_SOCKET_VERSION = "13";
+
+	public static WebSocketServlet create(@NotNull Consumer<WebSocket> webSocketConsumer) {
+		return new WebSocketServlet() {
+			@Override
+			protected void onWebSocket(WebSocket webSocket) {
+				webSocketConsumer.accept(webSocket);
+			}
+		};
+	}
+
+	/**
+	 * Is called with a handshake request, before a connection is upgraded
+	 *
+	 * @return a promise of {@code 101} response with any additional headers
+	 * to accept a handshake, or a promise of any other response to reject it
+	 */
+	protected Promise<HttpResponse> onRequest(HttpRequest request) {
+		return Promise.of(HttpResponse.ofCode(101));
+	}
+
+	/**
+	 * Is called once a handshake response has been sent
+	 */
+	protected abstract void onWebSocket(WebSocket webSocket);
+
+	@Override
+	public final @NotNull Promise<HttpResponse> serve(@NotNull HttpRequest request) throws UncheckedException {
+		if (request.getMethod() != HttpMethod.GET || request.bodyStream != null ||
+				!hasToken(request.getHeader(UPGRADE), "websocket") || !hasToken(request.getHeader(CONNECTION), "upgrade")) {
+			return Promise.ofException(HttpException.ofCode(400, "Not a WebSocket handshake request"));
+		}
+		if (!WEB_SOCKET_VERSION.equals(request.getHeader(SEC_WEBSOCKET_VERSION))) {
+			HttpResponse response = HttpResponse.ofCode(426);
+			response.addHeader(SEC_WEBSOCKET_VERSION, WEB_SOCKET_VERSION);
+			return Promise.of(response);
+		}
+		String key = request.getHeader(SEC_WEBSOCKET_KEY);
+		if (key == null || !isValidKey(key.trim())) {
+			return Promise.ofException(HttpException.ofCode(400, "Invalid WebSocket key"));
+		}
+		return onRequest(request)
+				.map(response -> {
+					if (response.getCode() == 101) {
+						response.addHeader(UPGRADE, "websocket");
+						response.addHeader(CONNECTION, "Upgrade");
+						response.addHeader(SEC_WEBSOCKET_ACCEPT, WebSocketImpl.getAcceptKey(key.trim()));
+						response.webSocketHandler = this::onWebSocket;
+					}
+					return response;
+				});
+	}
+
+	private static boolean isValidKey(String key) {
+		try {
+			return Base64.getDecoder().decode(key).length == 16;
+		} catch (IllegalArgumentException ignored) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdCompressCtx;
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
+import io.activej.common.collection.ConcurrentStack;
+import io.activej.csp.ChannelSupplier;
+import io.activej.http.stream.BufsConsumerZstdCompressor;
+import org.jetbrains.annotations.NotNull;
+
+import static io.activej.common.Preconditions.checkArgument;
+
+/**
+ * A zstd encoder (RFC 8878) on top of an optional {@code com.github.luben:zstd-jni} dependency.
+ * <p>
+ * Whole bodies are compressed with native compression contexts which are pooled by the encoder.
+ */
+final class ZstdContentEncoder implements ContentEncoder {
+	static final int DEFAULT_LEVEL = BufsConsumerZstdCompressor.DEFAULT_LEVEL;
+
+	private final int level;
+	private final ConcurrentStack<ZstdCompressCtx> contexts = new ConcurrentStack<>();
+
+	private ZstdContentEncoder(int level) {
+		this.level = level;
+	}
+
+	static ZstdContentEncoder create(int level) {
+		checkArgument(level >= Zstd.minCompressionLevel() && level <= Zstd.maxCompressionLevel(),
+				"Compression level is out of range supported by zstd");
+		return new ZstdContentEncoder(level);
+	}
+
+	@NotNull
+	@Override
+	public String getName() {
+		return "zstd";
+	}
+
+	@NotNull
+	@Override
+	public ByteBuf encode(@NotNull ByteBuf buf) {
+		ZstdCompressCtx ctx = contexts.pop();
+		if (ctx == null) {
+			ctx = new ZstdCompressCtx().setLevel(level);
+		}
+		ByteBuf dst = ByteBufPool.allocate((int) Zstd.compressBound(buf.readRemaining()));
+		try {
+			int size = ctx.compressByteArray(dst.array(), dst.tail(), dst.writeRemaining(), buf.array(), buf.head(), buf.readRemaining());
+			dst.moveTail(size);
+		} catch (RuntimeException e) {
+			dst.recycle();
+			throw e;
+		} finally {
+			contexts.push(ctx);
+		}
+		buf.recycle();
+		return dst;
+	}
+
+	@NotNull
+	@Override
+	public ChannelSupplier<ByteBuf> encode(@NotNull ChannelSupplier<ByteBuf> bodyStream) {
+		return bodyStream.transformWith(BufsConsumerZstdCompressor.create().withLevel(level));
+	}
+
+	@Override
+	public String toString() {
+		return "ZstdContentEncoder{level=" + level + '}';
+	}
+
+	/**
+	 * Does not refer to zstd classes, so that it can be loaded when the library is absent
+	 */
+	static final class Availability {
+		static final boolean AVAILABLE = isAvailable();
+
+		private static boolean isAvailable() {
+			try {
+				Class.forName("com.github.luben.zstd.Zstd", true, Availability.class.getClassLoader());
+				return true;
+			} catch (Throwable ignored) {
+				return false;
+			}
+		}
+	}
+}
@@ -18,8 +18,10 @@ package io.activej.http.loader;
 
 import io.activej.bytebuf.ByteBuf;
 import io.activej.common.exception.StacklessException;
+import io.activej.csp.file.ChannelFileReader;
 import io.activej.promise.Promise;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.nio.file.Path;
 import java.util.HashMap;
@@ -38,14 +40,92 @@ public interface StaticLoader {
 
 	Promise<ByteBuf> load(String path);
 
+	/**
+	 * Opens a resource as a file, so that it could be sent without being loaded into memory.
+	 *
+	 * @return a promise of a file reader, or a promise of {@code null}
+	 * if this loader does not read resources from a file system
+	 */
+	default Promise<@Nullable ChannelFileReader> openFile(String path) {
+		return Promise.of(null);
+	}
+
+	/**
+	 * Returns a time, in epoch seconds, at which a resource has last been modified.
+	 *
+	 * @return a promise of a modification time, or a promise of {@code null}
+	 * if this loader does not know it
+	 */
+	default Promise<@Nullable Long> getLastModified(String path) {
+		return Promise.of(null);
+	}
+
+	/**
+	 * Loads a resource along with its entity tag, modification time and a gzipped variant,
+	 * which are used to answer conditional and compressed requests.
+	 *
+	 * @return a promise of a resource, or a promise of {@code null}
+	 * if this loader does not keep such resources or a resource is too large to be kept,
+	 * see {@link StaticLoaderLruCache}
+	 */
+	default Promise<StaticLoaderLruCache.@Nullable Resource> loadResource(String path) {
+		return Promise.of(null);
+	}
+
 	default StaticLoader filter(Predicate<String> predicate) {
-		return path -> predicate.test(path) ?
-				load(path) :
-				Promise.ofException(NOT_FOUND_EXCEPTION);
+		return new StaticLoader() {
+			@Override
+			public Promise<ByteBuf> load(String path) {
+				return predicate.test(path) ?
+						StaticLoader.this.load(path) :
+						Promise.ofException(NOT_FOUND_EXCEPTION);
+			}
+
+			@Override
+			public Promise<@Nullable ChannelFileReader> openFile(String path) {
+				return predicate.test(path) ?
+						StaticLoader.this.openFile(path) :
+						Promise.ofException(NOT_FOUND_EXCEPTION);
+			}
+
+			@Override
+			public Promise<@Nullable Long> getLastModified(String path) {
+				return predicate.test(path) ?
+						StaticLoader.this.getLastModified(path) :
+						Promise.ofException(NOT_FOUND_EXCEPTION);
+			}
+
+			@Override
+			public Promise<StaticLoaderLruCache.@Nullable Resource> loadResource(String path) {
+				return predicate.test(path) ?
+						StaticLoader.this.loadResource(path) :
+						Promise.ofException(NOT_FOUND_EXCEPTION);
+			}
+		};
 	}
 
 	default StaticLoader map(Function<String, String> fn) {
-		return path -> this.load(fn.apply(path));
+		return new StaticLoader() {
+			@Override
+			public Promise<ByteBuf> load(String path) {
+				return StaticLoader.this.load(fn.apply(path));
+			}
+
+			@Override
+			public Promise<@Nullable ChannelFileReader> openFile(String path) {
+				return StaticLoader.this.openFile(fn.apply(path));
+			}
+
+			@Override
+			public Promise<@Nullable Long> getLastModified(String path) {
+				return StaticLoader.this.getLastModified(fn.apply(path));
+			}
+
+			@Override
+			public Promise<StaticLoaderLruCache.@Nullable Resource> loadResource(String path) {
+				return StaticLoader.this.loadResource(fn.apply(path));
+			}
+		};
 	}
 
 	default StaticLoader subfolder(String subfolder) {
@@ -61,6 +141,14 @@ public interface StaticLoader {
 		return cacheOf(this, map);
 	}
 
+	/**
+	 * Returns a loader which caches up to {@code maxSize} bytes of resources,
+	 * see {@link StaticLoaderLruCache}
+	 */
+	default StaticLoaderLruCache cached(long maxSize) {
+		return StaticLoaderLruCache.create(this, maxSize);
+	}
+
 	static StaticLoader cacheOf(StaticLoader loader) {
 		return cacheOf(loader, new HashMap<>());
 	}
@@ -97,6 +97,20 @@ class StaticLoaderClassPath implements StaticLoader {
 		});
 	}
 
+	@Override
+	public Promise<Long> getLastModified(String name) {
+		String path = root + (name.startsWith(ROOT) ? name.substring(ROOT_OFFSET) : name);
+
+		return Promise.ofBlockingCallable(executor, () -> {
+			URL resource = classLoader.getResource(path);
+			if (resource == null) {
+				throw NOT_FOUND_EXCEPTION;
+			}
+			long lastModified = resource.openConnection().getLastModified();
+			return lastModified != 0 ? lastModified / 1000 : null;
+		});
+	}
+
 	private byte[] loadResource(URLConnection connection) throws IOException {
 		// reading file as resource
 		ByteArrayOutputStream out = new ByteArrayOutputStream();
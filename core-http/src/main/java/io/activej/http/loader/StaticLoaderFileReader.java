@@ -24,6 +24,7 @@ import io.activej.promise.Promise;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 class StaticLoaderFileReader implements StaticLoader {
 	private final Executor executor;
@@ -40,6 +41,23 @@ class StaticLoaderFileReader implements StaticLoader {
 
 	@Override
 	public Promise<ByteBuf> load(String path) {
+		return openFile(path)
+				.then(cfr -> cfr.toCollector(ByteBufQueue.collector()));
+	}
+
+	@Override
+	public Promise<Long> getLastModified(String path) {
+		Path file = root.resolve(path).normalize();
+
+		if (!file.startsWith(root)) {
+			return Promise.ofException(NOT_FOUND_EXCEPTION);
+		}
+
+		return Promise.ofBlockingCallable(executor, () -> Files.getLastModifiedTime(file).to(TimeUnit.SECONDS));
+	}
+
+	@Override
+	public Promise<ChannelFileReader> openFile(String path) {
 		Path file = root.resolve(path).normalize();
 
 		if (!file.startsWith(root)) {
@@ -57,7 +75,6 @@ class StaticLoaderFileReader implements StaticLoader {
 						throw NOT_FOUND_EXCEPTION;
 					}
 				})
-				.then(() -> ChannelFileReader.open(executor, file))
-				.then(cfr -> cfr.toCollector(ByteBufQueue.collector()));
+				.then(() -> ChannelFileReader.open(executor, file));
 	}
 }
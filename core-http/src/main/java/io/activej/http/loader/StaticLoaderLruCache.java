@@ -0,0 +1,441 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http.loader;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufQueue;
+import io.activej.csp.file.ChannelFileReader;
+import io.activej.http.GzipProcessorUtils;
+import io.activej.jmx.api.ConcurrentJmxBean;
+import io.activej.jmx.api.attribute.JmxAttribute;
+import io.activej.jmx.api.attribute.JmxOperation;
+import io.activej.promise.Promise;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static io.activej.bytebuf.ByteBuf.wrapForReading;
+import static io.activej.common.Preconditions.checkArgument;
+
+/**
+ * A byte-budgeted cache of resources loaded by some other {@link StaticLoader}.
+ * <p>
+ * Resources are evicted according to a segmented LRU policy: a newly loaded resource is put
+ * into a probationary segment and is promoted into a protected segment when it is requested again.
+ * Resources are evicted from the probationary segment first, so that resources which are requested
+ * only once do not displace frequently requested ones.
+ * <p>
+ * Along with the bytes of a resource, the cache stores its strong entity tag, its modification time
+ * as reported by an underlying loader, and a gzipped variant of the resource, if it is smaller than the resource itself.
+ * Those are used by {@link io.activej.http.StaticServlet StaticServlet} to answer conditional
+ * and compressed requests without touching an underlying loader, even if the cache is wrapped
+ * with {@link #filter} or {@link #map}.
+ * <p>
+ * Resources which are larger than a maximum entry size are not read by the cache at all, if an underlying loader
+ * can open them as files, and {@link #loadResource} returns {@code null} for them, so that they may be sent
+ * as files by {@link io.activej.http.StaticServlet StaticServlet}. Paths of such resources, as well as paths
+ * of resources which have not been found, are remembered, up to {@link #withMaxUncachedPaths a limit}.
+ */
+public final class StaticLoaderLruCache implements StaticLoader, ConcurrentJmxBean {
+	public static final double DEFAULT_PROTECTED_RATIO = 0.8;
+	public static final int DEFAULT_MIN_GZIP_SIZE = 256;
+	public static final int DEFAULT_MAX_UNCACHED_PATHS = 1024;
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final StaticLoader resourceLoader;
+	private long maxSize;
+	private long maxEntrySize;
+	private double protectedRatio = DEFAULT_PROTECTED_RATIO;
+	private int minGzipSize = DEFAULT_MIN_GZIP_SIZE;
+	private int maxUncachedPaths = DEFAULT_MAX_UNCACHED_PATHS;
+
+	private final LinkedHashMap<String, Resource> probation = new LinkedHashMap<>(16, 0.75f, true);
+	private final LinkedHashMap<String, Resource> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+	private long probationSize;
+	private long protectedSize;
+
+	private final LinkedHashMap<String, Uncached> uncached = new LinkedHashMap<String, Uncached>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Uncached> eldest) {
+			return size() > maxUncachedPaths;
+		}
+	};
+
+	// region JMX
+	private long hits;
+	private long misses;
+	private long evictions;
+	// endregion
+
+	private StaticLoaderLruCache(StaticLoader resourceLoader, long maxSize) {
+		this.resourceLoader = resourceLoader;
+		this.maxSize = maxSize;
+		this.maxEntrySize = maxSize / 8;
+	}
+
+	public static StaticLoaderLruCache create(@NotNull StaticLoader resourceLoader, long maxSize) {
+		checkArgument(maxSize > 0, "Maximum size of a cache should be positive");
+		return new StaticLoaderLruCache(resourceLoader, maxSize);
+	}
+
+	/**
+	 * Sets a maximum size of a single resource which may be put into the cache,
+	 * by default it is 1/8 of a maximum size of the cache
+	 */
+	public StaticLoaderLruCache withMaxEntrySize(long maxEntrySize) {
+		this.maxEntrySize = maxEntrySize;
+		return this;
+	}
+
+	/**
+	 * Sets a part of a maximum size of the cache which is occupied by resources that have been requested more than once
+	 */
+	public StaticLoaderLruCache withProtectedRatio(double protectedRatio) {
+		checkArgument(protectedRatio >= 0 && protectedRatio <= 1, "Protected ratio should be in range [0, 1]");
+		this.protectedRatio = protectedRatio;
+		return this;
+	}
+
+	/**
+	 * Sets a minimum size of a resource for which a gzipped variant is stored
+	 */
+	public StaticLoaderLruCache withMinGzipSize(int minGzipSize) {
+		this.minGzipSize = minGzipSize;
+		return this;
+	}
+
+	/**
+	 * Sets a maximum number of remembered paths of resources which have not been found
+	 * or are too large to be cached
+	 */
+	public StaticLoaderLruCache withMaxUncachedPaths(int maxUncachedPaths) {
+		this.maxUncachedPaths = maxUncachedPaths;
+		return this;
+	}
+
+	@Override
+	public Promise<ByteBuf> load(String path) {
+		return loadResource(path)
+				.then(resource -> resource != null ?
+						Promise.of(wrapForReading(resource.bytes)) :
+						resourceLoader.load(path));
+	}
+
+	@Override
+	public Promise<@Nullable ChannelFileReader> openFile(String path) {
+		return resourceLoader.openFile(path);
+	}
+
+	@Override
+	public Promise<@Nullable Long> getLastModified(String path) {
+		return resourceLoader.getLastModified(path);
+	}
+
+	/**
+	 * Returns a cached resource, loading it with an underlying loader if it is absent in the cache
+	 *
+	 * @return a promise of a resource, or a promise of {@code null} if a resource is too large to be cached
+	 */
+	@Override
+	public Promise<@Nullable Resource> loadResource(String path) {
+		Resource resource = get(path);
+		if (resource != null) {
+			return Promise.of(resource);
+		}
+		Uncached reason = getUncached(path);
+		if (reason == Uncached.NOT_FOUND) {
+			return Promise.ofException(NOT_FOUND_EXCEPTION);
+		}
+		if (reason == Uncached.TOO_LARGE) {
+			return Promise.of(null);
+		}
+		return readBytes(path)
+				.whenException(e -> {
+					if (e == NOT_FOUND_EXCEPTION) {
+						putUncached(path, Uncached.NOT_FOUND);
+					}
+				})
+				.then(bytes -> {
+					if (bytes == null) {
+						putUncached(path, Uncached.TOO_LARGE);
+						return Promise.of(null);
+					}
+					return resourceLoader.getLastModified(path)
+							.thenEx((lastModified, e) -> Promise.of(e == null ? lastModified : null))
+							.map(lastModified -> {
+								Resource loaded = createResource(bytes,
+										lastModified != null ? lastModified : System.currentTimeMillis() / 1000);
+								put(path, loaded);
+								return loaded;
+							});
+				});
+	}
+
+	/**
+	 * Reads the bytes of a resource, or returns {@code null} if the resource is larger than a maximum entry size.
+	 * <p>
+	 * The size of a file is checked before it is read, other resources are checked once they are loaded
+	 */
+	private Promise<byte @Nullable []> readBytes(String path) {
+		return resourceLoader.openFile(path)
+				.then(reader -> {
+					if (reader == null) {
+						return resourceLoader.load(path)
+								.map(buf -> {
+									if (buf.readRemaining() > maxEntrySize) {
+										buf.recycle();
+										return null;
+									}
+									return buf.asArray();
+								});
+					}
+					long size;
+					try {
+						size = reader.getRemaining();
+					} catch (IOException e) {
+						reader.closeEx(e);
+						return Promise.ofException(e);
+					}
+					if (size > maxEntrySize) {
+						reader.close();
+						return Promise.of(null);
+					}
+					return reader.toCollector(ByteBufQueue.collector())
+							.map(ByteBuf::asArray);
+				});
+	}
+
+	@Nullable
+	public synchronized Resource get(String path) {
+		Resource resource = protectedSegment.get(path);
+		if (resource == null) {
+			resource = probation.remove(path);
+			if (resource == null) {
+				misses++;
+				return null;
+			}
+			probationSize -= resource.weight;
+			protectedSegment.put(path, resource);
+			protectedSize += resource.weight;
+			demote();
+		}
+		hits++;
+		return resource;
+	}
+
+	@Nullable
+	private synchronized Uncached getUncached(String path) {
+		return uncached.get(path);
+	}
+
+	private synchronized void putUncached(String path, Uncached reason) {
+		uncached.put(path, reason);
+	}
+
+	private synchronized void put(String path, Resource resource) {
+		if (resource.weight > maxEntrySize || protectedSegment.containsKey(path) || probation.containsKey(path)) {
+			return;
+		}
+		probation.put(path, resource);
+		probationSize += resource.weight;
+		evict();
+	}
+
+	private void demote() {
+		long maxProtectedSize = (long) (maxSize * protectedRatio);
+		Iterator<Map.Entry<String, Resource>> it = protectedSegment.entrySet().iterator();
+		while (protectedSize > maxProtectedSize && it.hasNext()) {
+			Map.Entry<String, Resource> eldest = it.next();
+			it.remove();
+			protectedSize -= eldest.getValue().weight;
+			probation.put(eldest.getKey(), eldest.getValue());
+			probationSize += eldest.getValue().weight;
+		}
+	}
+
+	private void evict() {
+		Iterator<Resource> it = probation.values().iterator();
+		while (probationSize + protectedSize > maxSize && it.hasNext()) {
+			probationSize -= it.next().weight;
+			it.remove();
+			evictions++;
+		}
+		it = protectedSegment.values().iterator();
+		while (protectedSize > maxSize && it.hasNext()) {
+			protectedSize -= it.next().weight;
+			it.remove();
+			evictions++;
+		}
+	}
+
+	private Resource createResource(byte[] bytes, long lastModified) {
+		byte[] gzipped = null;
+		if (bytes.length >= minGzipSize) {
+			byte[] compressed = GzipProcessorUtils.toGzip(wrapForReading(bytes)).asArray();
+			if (compressed.length < bytes.length && bytes.length + compressed.length <= maxEntrySize) {
+				gzipped = compressed;
+			}
+		}
+		return new Resource(bytes, gzipped, eTagOf(bytes), lastModified);
+	}
+
+	private static String eTagOf(byte[] bytes) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			throw new AssertionError(e);
+		}
+		byte[] hash = digest.digest(bytes);
+		char[] chars = new char[hash.length * 2 + 2];
+		chars[0] = '"';
+		for (int i = 0; i < hash.length; i++) {
+			chars[1 + i * 2] = HEX[(hash[i] >>> 4) & 0xF];
+			chars[2 + i * 2] = HEX[hash[i] & 0xF];
+		}
+		chars[chars.length - 1] = '"';
+		return new String(chars);
+	}
+
+	private enum Uncached {
+		NOT_FOUND, TOO_LARGE
+	}
+
+	/**
+	 * A resource stored in the cache
+	 */
+	public static final class Resource {
+		private final byte[] bytes;
+		@Nullable
+		private final byte[] gzipped;
+		private final String eTag;
+		@Nullable
+		private final String gzippedETag;
+		private final long lastModified;
+		private final long weight;
+
+		Resource(byte[] bytes, @Nullable byte[] gzipped, String eTag, long lastModified) {
+			this.bytes = bytes;
+			this.gzipped = gzipped;
+			this.eTag = eTag;
+			this.gzippedETag = gzipped != null ? eTag.substring(0, eTag.length() - 1) + "-gzip\"" : null;
+			this.lastModified = lastModified;
+			this.weight = bytes.length + (gzipped != null ? gzipped.length : 0);
+		}
+
+		public byte[] getBytes() {
+			return bytes;
+		}
+
+		@Nullable
+		public byte[] getGzipped() {
+			return gzipped;
+		}
+
+		/**
+		 * Returns a quoted strong entity tag, which is derived from the bytes of the resource
+		 */
+		public String getETag() {
+			return eTag;
+		}
+
+		/**
+		 * Returns a quoted strong entity tag of the gzipped representation of the resource,
+		 * or {@code null} if there is no gzipped representation
+		 */
+		@Nullable
+		public String getGzippedETag() {
+			return gzippedETag;
+		}
+
+		/**
+		 * Returns a time, in epoch seconds, at which the resource has last been modified,
+		 * or at which it has been loaded if an underlying loader does not know a modification time
+		 */
+		public long getLastModified() {
+			return lastModified;
+		}
+	}
+
+	// region JMX
+	@JmxAttribute
+	public synchronized long getMaxSize() {
+		return maxSize;
+	}
+
+	@JmxAttribute
+	public synchronized void setMaxSize(long maxSize) {
+		checkArgument(maxSize > 0, "Maximum size of a cache should be positive");
+		this.maxSize = maxSize;
+		demote();
+		evict();
+	}
+
+	@JmxAttribute
+	public synchronized long getSize() {
+		return probationSize + protectedSize;
+	}
+
+	@JmxAttribute
+	public synchronized int getCount() {
+		return probation.size() + protectedSegment.size();
+	}
+
+	@JmxAttribute
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	@JmxAttribute
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	@JmxAttribute
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	@JmxAttribute
+	public synchronized double getHitRate() {
+		long total = hits + misses;
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	@JmxOperation
+	public synchronized void invalidateAll() {
+		probation.clear();
+		protectedSegment.clear();
+		uncached.clear();
+		probationSize = 0;
+		protectedSize = 0;
+	}
+
+	@JmxOperation
+	public synchronized void resetStats() {
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+	}
+	// endregion
+}
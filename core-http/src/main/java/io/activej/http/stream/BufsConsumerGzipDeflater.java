@@ -27,6 +27,7 @@ import io.activej.csp.ChannelSupplier;
 import io.activej.csp.dsl.WithChannelTransformer;
 import io.activej.csp.process.AbstractCommunicatingProcess;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.zip.CRC32;
 import java.util.zip.Deflater;
@@ -50,7 +51,8 @@ public final class BufsConsumerGzipDeflater extends AbstractCommunicatingProcess
 
 	private final CRC32 crc32 = new CRC32();
 
-	private Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+	@Nullable
+	private Deflater deflater;
 	private int maxBufSize = DEFAULT_MAX_BUF_SIZE;
 	private ChannelSupplier<ByteBuf> input;
 	private ChannelConsumer<ByteBuf> output;
@@ -100,6 +102,9 @@ public final class BufsConsumerGzipDeflater extends AbstractCommunicatingProcess
 	protected void beforeProcess() {
 		checkState(input != null, "Input was not set");
 		checkState(output != null, "Output was not set");
+		if (deflater == null) {
+			deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		}
 	}
 
 	@Override
@@ -152,7 +157,9 @@ public final class BufsConsumerGzipDeflater extends AbstractCommunicatingProcess
 
 	@Override
 	protected void doClose(Throwable e) {
-		deflater.end();
+		if (deflater != null) {
+			deflater.end();
+		}
 		input.closeEx(e);
 		output.closeEx(e);
 	}
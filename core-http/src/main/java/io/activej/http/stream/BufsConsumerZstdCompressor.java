@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http.stream;
+
+import com.github.luben.zstd.ZstdOutputStreamNoFinalizer;
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
+import io.activej.bytebuf.ByteBufQueue;
+import io.activej.csp.ChannelConsumer;
+import io.activej.csp.ChannelInput;
+import io.activej.csp.ChannelOutput;
+import io.activej.csp.ChannelSupplier;
+import io.activej.csp.dsl.WithChannelTransformer;
+import io.activej.csp.process.AbstractCommunicatingProcess;
+import io.activej.promise.Promise;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static io.activej.common.Preconditions.checkState;
+
+/**
+ * This is a binary channel transformer, that converts channels of {@link ByteBuf ByteBufs}
+ * compressing the data into a single zstd frame (RFC 8878).
+ * <p>
+ * It requires an optional {@code com.github.luben:zstd-jni} dependency and is used in HTTP
+ * when a body stream is compressed with {@link io.activej.http.ContentEncoder#zstd() zstd} content encoder.
+ */
+public final class BufsConsumerZstdCompressor extends AbstractCommunicatingProcess
+		implements WithChannelTransformer<BufsConsumerZstdCompressor, ByteBuf, ByteBuf> {
+	public static final int DEFAULT_LEVEL = 3;
+
+	private final ByteBufQueue compressed = new ByteBufQueue();
+	private final OutputStream sink = new OutputStream() {
+		@Override
+		public void write(int b) {
+			ByteBuf buf = ByteBufPool.allocate(1);
+			buf.writeByte((byte) b);
+			compressed.add(buf);
+		}
+
+		@Override
+		public void write(@NotNull byte[] b, int off, int len) {
+			ByteBuf buf = ByteBufPool.allocate(len);
+			buf.put(b, off, len);
+			compressed.add(buf);
+		}
+	};
+
+	private int level = DEFAULT_LEVEL;
+	private ZstdOutputStreamNoFinalizer zstd;
+	private ChannelSupplier<ByteBuf> input;
+	private ChannelConsumer<ByteBuf> output;
+
+	// region creators
+	private BufsConsumerZstdCompressor() {
+	}
+
+	public static BufsConsumerZstdCompressor create() {
+		return new BufsConsumerZstdCompressor();
+	}
+
+	public BufsConsumerZstdCompressor withLevel(int level) {
+		this.level = level;
+		return this;
+	}
+
+	@SuppressWarnings("ConstantConditions") //check input for clarity
+	@Override
+	public ChannelInput<ByteBuf> getInput() {
+		return input -> {
+			checkState(this.input == null, "Input already set");
+			this.input = sanitize(input);
+			if (this.input != null && this.output != null) startProcess();
+			return getProcessCompletion();
+		};
+	}
+
+	@SuppressWarnings("ConstantConditions") //check output for clarity
+	@Override
+	public ChannelOutput<ByteBuf> getOutput() {
+		return output -> {
+			checkState(this.output == null, "Output already set");
+			this.output = sanitize(output);
+			if (this.input != null && this.output != null) startProcess();
+		};
+	}
+	// endregion
+
+	@Override
+	protected void beforeProcess() {
+		checkState(input != null, "Input was not set");
+		checkState(output != null, "Output was not set");
+	}
+
+	@Override
+	protected void doProcess() {
+		try {
+			zstd = new ZstdOutputStreamNoFinalizer(sink, level);
+		} catch (IOException e) {
+			closeEx(e);
+			return;
+		}
+		input.streamTo(ChannelConsumer.of(buf -> {
+					try {
+						zstd.write(buf.array(), buf.head(), buf.readRemaining());
+					} catch (IOException e) {
+						return Promise.ofException(e);
+					} finally {
+						buf.recycle();
+					}
+					return output.acceptAll(compressed.asIterator());
+				}))
+				.whenResult(this::writeEndOfFrame);
+	}
+
+	private void writeEndOfFrame() {
+		try {
+			zstd.close();
+		} catch (IOException e) {
+			closeEx(e);
+			return;
+		}
+		zstd = null;
+		output.acceptAll(compressed.asIterator())
+				.then(output::acceptEndOfStream)
+				.whenResult(this::completeProcess);
+	}
+
+	@Override
+	protected void doClose(Throwable e) {
+		if (zstd != null) {
+			try {
+				zstd.close();
+			} catch (IOException ignored) {
+			}
+			zstd = null;
+		}
+		compressed.recycle();
+		input.closeEx(e);
+		output.closeEx(e);
+	}
+}
@@ -196,6 +196,143 @@ public final class AsyncHttpClientTest {
 		assertEquals(0, inspector.getActiveRequests());
 	}
 
+	@Test
+	public void testMaxConnectionsPerAddress() throws IOException {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+
+		AsyncHttpServer server = AsyncHttpServer.create(eventloop,
+				request -> HttpResponse.ok200().withBody(HELLO_WORLD))
+				.withListenPort(PORT);
+		server.listen();
+
+		JmxInspector inspector = new JmxInspector();
+		AsyncHttpClient client = AsyncHttpClient.create(eventloop)
+				.withKeepAliveTimeout(Duration.ofSeconds(30))
+				.withMaxConnectionsPerAddress(1)
+				.withInspector(inspector);
+
+		List<Promise<String>> responses = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			responses.add(client.request(HttpRequest.get("http://127.0.0.1:" + PORT))
+					.then(response -> response.loadBody())
+					.map(body -> body.getString(UTF_8)));
+		}
+		assertEquals(4, client.getPendingRequestsCount());
+
+		List<String> bodies = await(Promises.toList(responses)
+				.whenComplete(server::close));
+
+		bodies.forEach(body -> assertEquals(decodeAscii(HELLO_WORLD), body));
+		assertEquals(0, client.getPendingRequestsCount());
+		assertEquals(1, inspector.getConnected().getTotalCount());
+		assertEquals(4, inspector.getQueuedRequests().getTotalCount());
+		assertEquals(0, inspector.getActiveRequests());
+	}
+
+	@Test
+	public void testPendingRequestTimeout() throws IOException {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+
+		List<SettablePromise<HttpResponse>> responses = new ArrayList<>();
+		SettablePromise<Void> firstServed = new SettablePromise<>();
+		AsyncHttpServer server = AsyncHttpServer.create(eventloop,
+				request -> Promise.ofCallback(cb -> {
+					responses.add(cb);
+					firstServed.trySet(null);
+				}))
+				.withListenPort(PORT);
+		server.listen();
+
+		JmxInspector inspector = new JmxInspector();
+		AsyncHttpClient client = AsyncHttpClient.create(eventloop)
+				.withKeepAliveTimeout(Duration.ofSeconds(30))
+				.withMaxConnectionsPerAddress(1)
+				.withPendingRequestTimeout(Duration.ofMillis(50))
+				.withInspector(inspector);
+
+		Promise<HttpResponse> first = client.request(HttpRequest.get("http://127.0.0.1:" + PORT));
+		Promise<HttpResponse> second = firstServed
+				.then(() -> client.request(HttpRequest.get("http://127.0.0.1:" + PORT)));
+
+		AsyncTimeoutException e = awaitException(second
+				.whenComplete(() -> {
+					assertEquals(0, client.getPendingRequestsCount());
+					assertEquals(1, responses.size());
+					responses.get(0).set(HttpResponse.ok200());
+					server.close();
+				}));
+		assertSame(AsyncHttpClient.PENDING_REQUEST_TIMEOUT_ERROR, e);
+		assertEquals(1, inspector.getQueueTimeouts().getTotalCount());
+		assertEquals(200, (int) await(first.map(HttpResponse::getCode)));
+	}
+
+	@Test
+	public void testStopFailsPendingRequests() throws IOException {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+
+		List<SettablePromise<HttpResponse>> responses = new ArrayList<>();
+		SettablePromise<Void> firstServed = new SettablePromise<>();
+		AsyncHttpServer server = AsyncHttpServer.create(eventloop,
+				request -> Promise.ofCallback(cb -> {
+					responses.add(cb);
+					firstServed.trySet(null);
+				}))
+				.withListenPort(PORT);
+		server.listen();
+
+		AsyncHttpClient client = AsyncHttpClient.create(eventloop)
+				.withKeepAliveTimeout(Duration.ofSeconds(30))
+				.withMaxConnectionsPerAddress(1);
+
+		Promise<HttpResponse> first = client.request(HttpRequest.get("http://127.0.0.1:" + PORT));
+		Promise<HttpResponse> second = firstServed
+				.then(() -> client.request(HttpRequest.get("http://127.0.0.1:" + PORT)));
+
+		Exception e = awaitException(firstServed
+				.then(() -> {
+					assertEquals(1, client.getPendingRequestsCount());
+					Promise<Void> stop = client.stop();
+					assertEquals(0, client.getPendingRequestsCount());
+					responses.get(0).set(HttpResponse.ok200());
+					return stop;
+				})
+				.then(() -> second)
+				.whenComplete(server::close));
+		assertSame(AsyncHttpClient.CLIENT_CLOSED, e);
+		assertEquals(200, (int) await(first.map(HttpResponse::getCode)));
+
+		// a stopped client does not open new connections
+		assertSame(AsyncHttpClient.CLIENT_CLOSED, awaitException(client.request(HttpRequest.get("http://127.0.0.1:" + PORT))));
+	}
+
+	@Test
+	public void testPrewarm() throws IOException {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+
+		AsyncHttpServer server = AsyncHttpServer.create(eventloop,
+				request -> HttpResponse.ok200().withBody(HELLO_WORLD))
+				.withListenPort(PORT);
+		server.listen();
+
+		JmxInspector inspector = new JmxInspector();
+		AsyncHttpClient client = AsyncHttpClient.create(eventloop)
+				.withKeepAliveTimeout(Duration.ofSeconds(30))
+				.withMaxConnectionsPerAddress(3)
+				.withInspector(inspector);
+
+		String body = await(client.prewarm("http://127.0.0.1:" + PORT, 5)
+				.then(connections -> {
+					assertEquals(3, (int) connections);
+					assertEquals(3, client.getConnectionsKeepAliveCount());
+					return client.request(HttpRequest.get("http://127.0.0.1:" + PORT));
+				})
+				.then(response -> response.loadBody())
+				.map(buf -> buf.getString(UTF_8))
+				.whenComplete(server::close));
+		assertEquals(decodeAscii(HELLO_WORLD), body);
+		assertEquals(0, inspector.getConnected().getTotalCount());
+	}
+
 	@Test
 	public void testClientNoContentLength() throws Exception {
 		String text = "content";
@@ -239,6 +239,43 @@ public final class AsyncHttpServerTest {
 		thread.join();
 	}
 
+	@Test
+	public void testDateHeaderAndResponseTemplate() throws Exception {
+		Eventloop eventloop = Eventloop.create().withFatalErrorHandler(rethrowOnAnyError()).withCurrentThread();
+
+		int port = getFreePort();
+		HttpResponseTemplate template = HttpResponseTemplate.create(200)
+				.withHeader(HttpHeaders.SERVER, "ActiveJ");
+		AsyncHttpServer server = AsyncHttpServer.create(eventloop,
+				request -> template.newResponse().withBody(encodeAscii(request.getUrl().getPathAndQuery())))
+				.withDateHeader(true)
+				.withListenPort(port);
+		server.listen();
+		Thread thread = new Thread(eventloop);
+		thread.start();
+
+		Socket socket = new Socket();
+
+		socket.connect(new InetSocketAddress("localhost", port));
+		writeByRandomParts(socket, "GET /abc HTTP/1.1\r\nConnection: close\r\nHost: localhost\r\n\r\n");
+		String response = decodeAscii(toByteArray(socket.getInputStream()));
+		socket.close();
+
+		assertTrue(response.startsWith("HTTP/1.1 200 OK\r\n"));
+		assertTrue(response.endsWith("\r\n\r\n/abc"));
+		assertTrue(response.contains("\r\nServer: ActiveJ\r\n"));
+		assertTrue(response.contains("\r\nConnection: close\r\n"));
+		assertTrue(response.contains("\r\nContent-Length: 4\r\n"));
+		int dateStart = response.indexOf("\r\nDate: ") + 8;
+		assertTrue(dateStart > 8);
+		String date = response.substring(dateStart, response.indexOf("\r\n", dateStart));
+		long millis = HttpDate.parse(encodeAscii(date), 0) * 1000L;
+		assertTrue(Math.abs(System.currentTimeMillis() - millis) < 5000);
+
+		server.closeFuture().get();
+		thread.join();
+	}
+
 	@Test
 	public void testPipelining() throws Exception {
 		Eventloop eventloop = Eventloop.create().withFatalErrorHandler(rethrowOnAnyError()).withCurrentThread();
@@ -330,6 +367,114 @@ public final class AsyncHttpServerTest {
 		thread.join();
 	}
 
+	@Test
+	public void testPipeliningWithConcurrentServlets() throws Exception {
+		Eventloop eventloop = Eventloop.create().withFatalErrorHandler(rethrowOnAnyError()).withCurrentThread();
+		int port = getFreePort();
+		doTestPipelining(eventloop, delayedHttpServer(eventloop, port).withPipeliningDepth(8), port);
+	}
+
+	@Test
+	public void testPipelinedResponsesOrder() throws Exception {
+		Eventloop eventloop = Eventloop.create().withFatalErrorHandler(rethrowOnAnyError()).withCurrentThread();
+		int port = getFreePort();
+		int[] active = {0};
+		int[] maxActive = {0};
+		AsyncHttpServer server = AsyncHttpServer.create(eventloop,
+				request -> {
+					maxActive[0] = Math.max(maxActive[0], ++active[0]);
+					int delay = 50 - Integer.parseInt(request.getPath().substring(1)) * 10;
+					return Promises.delay(delay, HttpResponse.ok200().withBody(encodeAscii(request.getPath())))
+							.whenComplete(() -> active[0]--);
+				})
+				.withPipeliningDepth(4)
+				.withListenPort(port);
+		server.listen();
+		Thread thread = new Thread(eventloop);
+		thread.start();
+
+		try (Socket socket = new Socket()) {
+			socket.connect(new InetSocketAddress("localhost", port));
+			StringBuilder requests = new StringBuilder();
+			for (int i = 0; i < 5; i++) {
+				requests.append("GET /").append(i).append(" HTTP/1.1\r\nHost: localhost\r\n")
+						.append(i == 4 ? "Connection: close\r\n" : "").append("\r\n");
+			}
+			socket.getOutputStream().write(encodeAscii(requests.toString()));
+
+			for (int i = 0; i < 4; i++) {
+				readAndAssert(socket.getInputStream(), "HTTP/1.1 200 OK\r\nConnection: keep-alive\r\nContent-Length: 2\r\n\r\n/" + i);
+			}
+			readAndAssert(socket.getInputStream(), "HTTP/1.1 200 OK\r\nConnection: close\r\nContent-Length: 2\r\n\r\n/4");
+			assertEquals(0, toByteArray(socket.getInputStream()).length);
+		}
+
+		server.closeFuture().get();
+		thread.join();
+		assertEquals(4, maxActive[0]);
+	}
+
+	@Test
+	public void testPipeliningDepthChangedWhileConnectionIsOpen() throws Exception {
+		Eventloop eventloop = Eventloop.create().withFatalErrorHandler(rethrowOnAnyError()).withCurrentThread();
+		int port = getFreePort();
+		AsyncHttpServer[] server = new AsyncHttpServer[1];
+		server[0] = AsyncHttpServer.create(eventloop,
+				request -> {
+					server[0].setPipeliningDepth(0);
+					return Promises.delay(10, HttpResponse.ok200().withBody(encodeAscii(request.getPath())));
+				})
+				.withPipeliningDepth(4)
+				.withListenPort(port);
+		server[0].listen();
+		Thread thread = new Thread(eventloop);
+		thread.start();
+
+		try (Socket socket = new Socket()) {
+			socket.connect(new InetSocketAddress("localhost", port));
+			StringBuilder requests = new StringBuilder();
+			for (int i = 0; i < 3; i++) {
+				requests.append("GET /").append(i).append(" HTTP/1.1\r\nHost: localhost\r\n")
+						.append(i == 2 ? "Connection: close\r\n" : "").append("\r\n");
+			}
+			socket.getOutputStream().write(encodeAscii(requests.toString()));
+
+			// an open connection keeps its pipelining depth
+			for (int i = 0; i < 2; i++) {
+				readAndAssert(socket.getInputStream(), "HTTP/1.1 200 OK\r\nConnection: keep-alive\r\nContent-Length: 2\r\n\r\n/" + i);
+			}
+			readAndAssert(socket.getInputStream(), "HTTP/1.1 200 OK\r\nConnection: close\r\nContent-Length: 2\r\n\r\n/2");
+		}
+
+		server[0].closeFuture().get();
+		thread.join();
+		assertEquals(0, server[0].getPipeliningDepth());
+	}
+
+	@Test
+	public void testPipelinedResponsesAfterEndOfStream() throws Exception {
+		Eventloop eventloop = Eventloop.create().withFatalErrorHandler(rethrowOnAnyError()).withCurrentThread();
+		int port = getFreePort();
+		AsyncHttpServer server = delayedHttpServer(eventloop, port).withPipeliningDepth(8);
+		server.listen();
+		Thread thread = new Thread(eventloop);
+		thread.start();
+
+		try (Socket socket = new Socket()) {
+			socket.connect(new InetSocketAddress("localhost", port));
+			writeByRandomParts(socket, "GET /abc HTTP/1.1\r\nHost: localhost\r\n\r\n" +
+					"POST /post1 HTTP/1.1\r\nHost: localhost\r\nContent-Length: 8\r\n\r\n{\"at\":2}");
+			socket.shutdownOutput();
+
+			readAndAssert(socket.getInputStream(), "HTTP/1.1 200 OK\r\nConnection: keep-alive\r\nContent-Length: 4\r\n\r\n/abc");
+			readAndAssert(socket.getInputStream(), "HTTP/1.1 200 OK\r\nConnection: keep-alive\r\nContent-Length: 6\r\n\r\n/post1");
+			assertEquals(0, toByteArray(socket.getInputStream()).length);
+		}
+
+		server.closeFuture().get();
+		thread.join();
+	}
+
 	@Test
 	public void testBigHttpMessage() throws Exception {
 		int port = getFreePort();
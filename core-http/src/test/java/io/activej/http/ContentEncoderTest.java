@@ -0,0 +1,151 @@
+package io.activej.http;
+
+import com.github.luben.zstd.Zstd;
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufQueue;
+import io.activej.common.MemSize;
+import io.activej.common.exception.parse.ParseException;
+import io.activej.csp.ChannelSupplier;
+import io.activej.eventloop.Eventloop;
+import io.activej.test.rules.ByteBufRule;
+import io.activej.test.rules.EventloopRule;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import static io.activej.bytebuf.ByteBufStrings.wrapAscii;
+import static io.activej.bytebuf.ByteBufStrings.wrapUtf8;
+import static io.activej.http.GzipProcessorUtils.fromGzip;
+import static io.activej.http.HttpHeaders.*;
+import static io.activej.promise.TestUtils.await;
+import static io.activej.test.TestUtils.getFreePort;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+public final class ContentEncoderTest {
+	private static final int PORT = getFreePort();
+	private static final String TEXT = generateText();
+
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	@ClassRule
+	public static final ByteBufRule byteBufRule = new ByteBufRule();
+
+	@Test
+	public void testParseAcceptEncoding() throws ParseException {
+		List<AcceptEncoding> list = new ArrayList<>();
+		byte[] bytes = "gzip;q=0.8, BR , zstd; q=1.0,identity ;q=0.05, *;q=0".getBytes(UTF_8);
+		AcceptEncoding.parse(bytes, 0, bytes.length, list);
+		assertEquals(asList(
+				AcceptEncoding.of("gzip", 80),
+				AcceptEncoding.of("br"),
+				AcceptEncoding.of("zstd"),
+				AcceptEncoding.of("identity", 5),
+				AcceptEncoding.of("*", 0)), list);
+	}
+
+	@Test
+	public void testSelect() {
+		ContentEncoder gzip = ContentEncoder.gzip();
+		ContentEncoder zstd = ContentEncoder.zstd();
+		ContentEncoder[] encoders = {zstd, gzip};
+
+		assertSame(zstd, AcceptEncoding.select(asList(AcceptEncoding.of("gzip"), AcceptEncoding.of("zstd")), encoders));
+		assertSame(gzip, AcceptEncoding.select(asList(AcceptEncoding.of("gzip"), AcceptEncoding.of("zstd", 50)), encoders));
+		assertSame(gzip, AcceptEncoding.select(asList(AcceptEncoding.of("gzip"), AcceptEncoding.of("br")), encoders));
+		assertSame(zstd, AcceptEncoding.select(asList(AcceptEncoding.of("gzip", 50), AcceptEncoding.of("*")), encoders));
+		assertSame(gzip, AcceptEncoding.select(asList(AcceptEncoding.of("zstd", 0), AcceptEncoding.of("*")), encoders));
+		assertNull(AcceptEncoding.select(asList(AcceptEncoding.of("gzip", 0), AcceptEncoding.of("identity")), encoders));
+		assertNull(AcceptEncoding.select(new ArrayList<>(), encoders));
+	}
+
+	@Test
+	public void testGzipLevels() throws ParseException {
+		ByteBuf fast = ContentEncoder.gzip(Deflater.BEST_SPEED).encode(wrapUtf8(TEXT));
+		ByteBuf best = ContentEncoder.gzip(Deflater.BEST_COMPRESSION).encode(wrapUtf8(TEXT));
+		assertTrue(best.readRemaining() <= fast.readRemaining());
+		assertEquals(TEXT, fromGzip(fast, TEXT.length() + 1).asString(UTF_8));
+		assertEquals(TEXT, fromGzip(best, TEXT.length() + 1).asString(UTF_8));
+	}
+
+	@Test
+	public void testZstd() {
+		ContentEncoder zstd = ContentEncoder.zstd();
+		for (int i = 0; i < 3; i++) {
+			ByteBuf encoded = zstd.encode(wrapUtf8(TEXT));
+			assertTrue(encoded.readRemaining() < TEXT.length());
+			assertEquals(TEXT, new String(Zstd.decompress(encoded.asArray(), TEXT.length()), UTF_8));
+		}
+	}
+
+	@Test
+	public void testZstdStream() {
+		List<ByteBuf> chunks = new ArrayList<>();
+		for (int i = 0; i < TEXT.length(); i += 1000) {
+			chunks.add(wrapUtf8(TEXT.substring(i, Math.min(TEXT.length(), i + 1000))));
+		}
+		ByteBuf encoded = await(ContentEncoder.zstd(1).encode(ChannelSupplier.ofIterable(chunks))
+				.toCollector(ByteBufQueue.collector()));
+		assertEquals(TEXT, new String(Zstd.decompress(encoded.asArray(), TEXT.length()), UTF_8));
+	}
+
+	@Test
+	public void testCompressResponses() throws IOException {
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(),
+				AsyncServletDecorator.compressResponses(MemSize.bytes(100), ContentEncoder.zstd(), ContentEncoder.gzip())
+						.serve(request -> HttpResponse.ok200()
+								.withBody(wrapAscii(request.getPath().equals("/small") ? "small" : TEXT))))
+				.withListenPort(PORT);
+		server.listen();
+
+		AsyncHttpClient client = AsyncHttpClient.create(Eventloop.getCurrentEventloop());
+		String url = "http://127.0.0.1:" + PORT;
+
+		String[] bodies = new String[4];
+		await(client.request(HttpRequest.get(url)
+				.withHeader(ACCEPT_ENCODING, "gzip;q=0.5, zstd"))
+				.then(response -> {
+					assertEquals("zstd", response.getHeader(CONTENT_ENCODING));
+					assertEquals("Accept-Encoding", response.getHeader(VARY));
+					return response.loadBody();
+				})
+				.whenResult(body -> bodies[0] = new String(Zstd.decompress(body.getArray(), TEXT.length()), UTF_8))
+				.then(() -> client.request(HttpRequest.get(url)
+						.withHeader(ACCEPT_ENCODING, "gzip, zstd;q=0")))
+				.then(response -> {
+					assertEquals("gzip", response.getHeader(CONTENT_ENCODING));
+					return response.loadBody();
+				})
+				.whenResult(body -> bodies[1] = body.getString(UTF_8))
+				.then(() -> client.request(HttpRequest.get(url + "/small")
+						.withHeader(ACCEPT_ENCODING, "gzip, zstd")))
+				.then(response -> {
+					assertNull(response.getHeader(CONTENT_ENCODING));
+					return response.loadBody();
+				})
+				.whenResult(body -> bodies[2] = body.getString(UTF_8))
+				.then(() -> client.request(HttpRequest.get(url)))
+				.then(response -> {
+					assertNull(response.getHeader(CONTENT_ENCODING));
+					return response.loadBody();
+				})
+				.whenResult(body -> bodies[3] = body.getString(UTF_8))
+				.whenComplete(server::close));
+
+		assertEquals(asList(TEXT, TEXT, "small", TEXT), asList(bodies));
+	}
+
+	private static String generateText() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; sb.length() < 100_000; i++) {
+			sb.append("{\"id\":").append(i).append(",\"name\":\"item-").append(i % 97).append("\",\"price\":").append(i * 31 % 1000).append("},");
+		}
+		return sb.toString();
+	}
+}
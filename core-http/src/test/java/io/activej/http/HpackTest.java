@@ -0,0 +1,191 @@
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
+import io.activej.common.exception.parse.ParseException;
+import io.activej.test.rules.ByteBufRule;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.activej.bytebuf.ByteBufStrings.decodeAscii;
+import static io.activej.bytebuf.ByteBufStrings.encodeAscii;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+public final class HpackTest {
+	@ClassRule
+	public static final ByteBufRule byteBufRule = new ByteBufRule();
+
+	// RFC 7541, Appendix C.3, requests without Huffman coding
+	@Test
+	public void testDecodeRequestsWithoutHuffman() throws ParseException {
+		HpackDecoder decoder = new HpackDecoder(4096);
+
+		assertEquals(asList(":method: GET", ":scheme: http", ":path: /", ":authority: www.example.com"),
+				decode(decoder, "828684410f7777772e6578616d706c652e636f6d"));
+		assertEquals(57, decoder.getTableSize());
+
+		assertEquals(asList(":method: GET", ":scheme: http", ":path: /", ":authority: www.example.com", "cache-control: no-cache"),
+				decode(decoder, "828684be58086e6f2d6361636865"));
+		assertEquals(110, decoder.getTableSize());
+
+		assertEquals(asList(":method: GET", ":scheme: https", ":path: /index.html", ":authority: www.example.com", "custom-key: custom-value"),
+				decode(decoder, "828785bf400a637573746f6d2d6b65790c637573746f6d2d76616c7565"));
+		assertEquals(164, decoder.getTableSize());
+	}
+
+	// RFC 7541, Appendix C.4, requests with Huffman coding
+	@Test
+	public void testDecodeRequestsWithHuffman() throws ParseException {
+		HpackDecoder decoder = new HpackDecoder(4096);
+
+		assertEquals(asList(":method: GET", ":scheme: http", ":path: /", ":authority: www.example.com"),
+				decode(decoder, "828684418cf1e3c2e5f23a6ba0ab90f4ff"));
+		assertEquals(asList(":method: GET", ":scheme: http", ":path: /", ":authority: www.example.com", "cache-control: no-cache"),
+				decode(decoder, "828684be5886a8eb10649cbf"));
+		assertEquals(asList(":method: GET", ":scheme: https", ":path: /index.html", ":authority: www.example.com", "custom-key: custom-value"),
+				decode(decoder, "828785bf408825a849e95ba97d7f8925a849e95bb8e8b4bf"));
+		assertEquals(164, decoder.getTableSize());
+	}
+
+	// RFC 7541, Appendix C.6, responses with Huffman coding and evictions
+	@Test
+	public void testDecodeResponsesWithEviction() throws ParseException {
+		HpackDecoder decoder = new HpackDecoder(256);
+
+		assertEquals(asList(":status: 302", "cache-control: private", "date: Mon, 21 Oct 2013 20:13:21 GMT", "location: https://www.example.com"),
+				decode(decoder, "488264025885aec3771a4b6196d07abe941054d444a8200595040b8166e082a62d1bff6e919d29ad171863c78f0b97c8e9ae82ae43d3"));
+		assertEquals(222, decoder.getTableSize());
+
+		assertEquals(asList(":status: 307", "cache-control: private", "date: Mon, 21 Oct 2013 20:13:21 GMT", "location: https://www.example.com"),
+				decode(decoder, "4883640effc1c0bf"));
+		assertEquals(222, decoder.getTableSize());
+	}
+
+	@Test
+	public void testHuffman() throws ParseException {
+		byte[] value = encodeAscii("www.example.com");
+		assertEquals(12, HpackHuffman.encodedLength(value, 0, value.length));
+
+		ByteBuf buf = ByteBufPool.allocate(16);
+		HpackHuffman.encode(buf, value, 0, value.length);
+		assertEquals("f1e3c2e5f23a6ba0ab90f4ff", toHex(buf.asArray()));
+
+		byte[] encoded = fromHex("f1e3c2e5f23a6ba0ab90f4ff");
+		assertArrayEquals(value, HpackHuffman.decode(encoded, 0, encoded.length));
+	}
+
+	@Test(expected = ParseException.class)
+	public void testInvalidHuffmanPadding() throws ParseException {
+		// a padding which is longer than 7 bits
+		byte[] encoded = fromHex("f1e3c2e5f23a6ba0ab90f4ffff");
+		HpackHuffman.decode(encoded, 0, encoded.length);
+	}
+
+	@Test(expected = ParseException.class)
+	public void testInvalidIndex() throws ParseException {
+		decode(new HpackDecoder(4096), "be");
+	}
+
+	@Test
+	public void testEncoderRoundTrip() throws ParseException {
+		HpackEncoder encoder = new HpackEncoder(4096);
+		HpackDecoder decoder = new HpackDecoder(4096);
+		List<String> fields = asList(":method: GET", ":scheme: http", ":path: /index.html", ":authority: www.example.com",
+				"custom-key: custom-value", "accept-encoding: gzip, deflate", "user-agent: activej");
+
+		byte[] first = encode(encoder, fields);
+		assertEquals(fields, decode(decoder, first));
+
+		byte[] second = encode(encoder, fields);
+		assertEquals(fields, decode(decoder, second));
+		// all of the fields are indexed now
+		assertEquals(fields.size(), second.length);
+		assertEquals(decoder.getTableSize(), encoder.getTableSize());
+	}
+
+	@Test
+	public void testEncoderTableSizeUpdate() throws ParseException {
+		HpackEncoder encoder = new HpackEncoder(4096);
+		HpackDecoder decoder = new HpackDecoder(4096);
+		List<String> fields = asList(":path: /a", "custom-key: custom-value");
+
+		assertEquals(fields, decode(decoder, encode(encoder, fields)));
+		assertTrue(decoder.getTableSize() > 0);
+
+		encoder.setMaxTableSize(0);
+		assertEquals(fields, decode(decoder, encode(encoder, fields)));
+		assertEquals(0, decoder.getTableSize());
+		assertEquals(0, decoder.getMaxTableSize());
+	}
+
+	@Test
+	public void testHeaderListTooLarge() throws ParseException {
+		HpackEncoder encoder = new HpackEncoder(4096);
+		HpackDecoder decoder = new HpackDecoder(4096, 64);
+		byte[] block = encode(encoder, asList(":path: /a", "custom-key: custom-value"));
+
+		assertSame(HpackDecoder.HEADER_LIST_TOO_LARGE, decoder.decode(block, 0, block.length, (header, value) -> {}));
+		// a header block is still decoded completely, so that a dynamic table stays in sync
+		assertEquals(decoder.getTableSize(), encoder.getTableSize());
+
+		List<String> fields = asList(":path: /a");
+		assertEquals(fields, decode(decoder, encode(encoder, fields)));
+	}
+
+	@Test
+	public void testUppercaseHeaderName() throws ParseException {
+		HpackEncoder encoder = new HpackEncoder(4096);
+		HpackDecoder decoder = new HpackDecoder(4096);
+		List<String> fields = asList(":path: /a", "Custom-Key: custom-value");
+
+		byte[] first = encode(encoder, fields);
+		assertSame(HpackDecoder.UPPERCASE_HEADER_NAME, decoder.decode(first, 0, first.length, (header, value) -> {}));
+		assertEquals(decoder.getTableSize(), encoder.getTableSize());
+
+		// a header field with an uppercase name is also rejected when it is referenced from a dynamic table
+		byte[] second = encode(encoder, fields);
+		assertSame(HpackDecoder.UPPERCASE_HEADER_NAME, decoder.decode(second, 0, second.length, (header, value) -> {}));
+
+		List<String> lowercase = asList(":path: /a", "custom-key: custom-value");
+		assertEquals(lowercase, decode(decoder, encode(encoder, lowercase)));
+	}
+
+	private static byte[] encode(HpackEncoder encoder, List<String> fields) {
+		ByteBuf buf = encoder.beginHeaderBlock(ByteBufPool.allocate(256));
+		for (String field : fields) {
+			int separator = field.indexOf(": ", 1);
+			buf = encoder.encode(buf, encodeAscii(field.substring(0, separator)), encodeAscii(field.substring(separator + 2)), true);
+		}
+		return buf.asArray();
+	}
+
+	private static List<String> decode(HpackDecoder decoder, String hex) throws ParseException {
+		return decode(decoder, fromHex(hex));
+	}
+
+	private static List<String> decode(HpackDecoder decoder, byte[] block) throws ParseException {
+		List<String> fields = new ArrayList<>();
+		assertNull(decoder.decode(block, 0, block.length, (header, value) -> fields.add(header.toString().toLowerCase() + ": " + decodeAscii(value))));
+		return fields;
+	}
+
+	private static byte[] fromHex(String hex) {
+		byte[] bytes = new byte[hex.length() / 2];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+		}
+		return bytes;
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder();
+		for (byte b : bytes) {
+			sb.append(String.format("%02x", b & 0xFF));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,310 @@
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
+import io.activej.csp.ChannelSupplier;
+import io.activej.eventloop.Eventloop;
+import io.activej.promise.Promise;
+import io.activej.promise.Promises;
+import io.activej.promise.SettablePromise;
+import io.activej.test.rules.ByteBufRule;
+import io.activej.test.rules.EventloopRule;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import static io.activej.bytebuf.ByteBufStrings.encodeAscii;
+import static io.activej.bytebuf.ByteBufStrings.wrapUtf8;
+import static io.activej.promise.TestUtils.await;
+import static io.activej.test.TestUtils.getFreePort;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static org.junit.Assert.*;
+
+public final class Http2Test {
+	private static final int PORT = getFreePort();
+
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	@ClassRule
+	public static final ByteBufRule byteBufRule = new ByteBufRule();
+
+	@Test
+	public void testConcurrentRequests() throws IOException {
+		AsyncHttpServer server = startServer(request -> HttpResponse.ok200()
+				.withHeader(HttpHeaders.of("X-Path"), request.getPath())
+				.withBody(wrapUtf8("Hello, " + request.getPath())));
+		AsyncHttpClient client = createClient();
+
+		List<Promise<String>> responses = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			responses.add(client.request(HttpRequest.get("http://127.0.0.1:" + PORT + "/" + i))
+					.then(response -> {
+						assertEquals(200, response.getCode());
+						assertNotNull(response.getHeader(HttpHeaders.of("X-Path")));
+						return response.loadBody();
+					})
+					.map(body -> body.getString(UTF_8)));
+		}
+		List<String> bodies = await(Promises.toList(responses)
+				.whenComplete(() -> {
+					assertEquals(1, client.getConnectionsCount());
+					server.close();
+				}));
+		for (int i = 0; i < 100; i++) {
+			assertEquals("Hello, /" + i, bodies.get(i));
+		}
+	}
+
+	@Test
+	public void testLargeBodiesWithFlowControl() throws IOException {
+		byte[] data = new byte[3 * 1024 * 1024];
+		new Random(0).nextBytes(data);
+
+		// a request body is echoed back in small chunks
+		AsyncHttpServer server = startServer(request -> HttpResponse.ok200()
+				.withBodyStream(request.getBodyStream()));
+		AsyncHttpClient client = createClient();
+
+		List<Promise<byte[]>> responses = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			responses.add(client.request(HttpRequest.post("http://127.0.0.1:" + PORT)
+					.withBodyStream(ChannelSupplier.ofIterable(chunks(data, 10_000))))
+					.then(response -> response.loadBody(data.length))
+					.map(ByteBuf::getArray));
+		}
+		List<byte[]> bodies = await(Promises.toList(responses).whenComplete(server::close));
+		for (byte[] body : bodies) {
+			assertArrayEquals(data, body);
+		}
+	}
+
+	@Test
+	public void testGzip() throws IOException {
+		String text = "Hello, World! Hello, World! Hello, World!";
+		AsyncHttpServer server = startServer(request -> request.loadBody()
+				.map(body -> HttpResponse.ok200()
+						.withBodyGzipCompression()
+						.withBody(wrapUtf8(body.getString(UTF_8) + text))));
+		AsyncHttpClient client = createClient();
+
+		String body = await(client.request(HttpRequest.post("http://127.0.0.1:" + PORT)
+				.withBody(encodeAscii(text)))
+				.then(response -> {
+					assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+					return response.loadBody();
+				})
+				.map(buf -> buf.getString(UTF_8))
+				.whenComplete(server::close));
+		assertEquals(text + text, body);
+	}
+
+	@Test
+	public void testServletException() throws IOException {
+		AsyncHttpServer server = startServer(request -> Promise.ofException(HttpException.ofCode(404)));
+		AsyncHttpClient client = createClient();
+
+		int code = await(client.request(HttpRequest.get("http://127.0.0.1:" + PORT))
+				.map(HttpResponse::getCode)
+				.whenComplete(server::close));
+		assertEquals(404, code);
+	}
+
+	@Test
+	public void testHttp1RequestOnHttp2Server() throws IOException {
+		AsyncHttpServer server = startServer(request -> HttpResponse.ok200().withBody(wrapUtf8("Hello")));
+		AsyncHttpClient client = AsyncHttpClient.create(Eventloop.getCurrentEventloop());
+
+		String body = await(client.request(HttpRequest.get("http://127.0.0.1:" + PORT))
+				.then(HttpMessage::loadBody)
+				.map(buf -> buf.getString(UTF_8))
+				.whenComplete(server::close));
+		assertEquals("Hello", body);
+	}
+
+	@Test
+	public void testUpgrade() throws Exception {
+		AsyncHttpServer server = startServer(request -> HttpResponse.ok200().withBody(wrapUtf8("Hello")));
+
+		CompletableFuture<byte[]> future = CompletableFuture.supplyAsync(() -> {
+			try (Socket socket = new Socket("localhost", PORT)) {
+				OutputStream outputStream = socket.getOutputStream();
+				outputStream.write(encodeAscii("GET / HTTP/1.1\r\n" +
+						"Host: localhost\r\n" +
+						"Connection: Upgrade, HTTP2-Settings\r\n" +
+						"Upgrade: h2c\r\n" +
+						"HTTP2-Settings: AAMAAABkAAQAAP__\r\n\r\n"));
+				outputStream.write(AbstractHttp2Connection.PREFACE);
+				// an empty SETTINGS frame
+				outputStream.write(new byte[]{0, 0, 0, 4, 0, 0, 0, 0, 0});
+				outputStream.flush();
+
+				InputStream inputStream = socket.getInputStream();
+				byte[] response = new byte[4096];
+				int size = 0;
+				while (size < response.length) {
+					int read = inputStream.read(response, size, response.length - size);
+					if (read == -1) break;
+					size += read;
+					if (new String(response, 0, size, UTF_8).contains("Hello")) break;
+				}
+				byte[] result = new byte[size];
+				System.arraycopy(response, 0, result, 0, size);
+				return result;
+			} catch (IOException e) {
+				throw new AssertionError(e);
+			}
+		}, newSingleThreadExecutor());
+
+		byte[] response = await(Promise.ofCompletionStage(future).whenComplete(server::close));
+		String text = new String(response, UTF_8);
+		assertTrue(text.startsWith("HTTP/1.1 101 Switching Protocols\r\n"));
+		int frames = text.indexOf("\r\n\r\n") + 4;
+		// the first frame of a server is SETTINGS
+		assertEquals(AbstractHttp2Connection.SETTINGS, response[frames + 3]);
+		assertTrue(text.endsWith("Hello"));
+	}
+
+	@Test
+	public void testDataFrameOnIdleStream() throws Exception {
+		AsyncHttpServer server = startServer(request -> HttpResponse.ok200());
+
+		CompletableFuture<byte[]> future = CompletableFuture.supplyAsync(() -> {
+			try (Socket socket = new Socket("localhost", PORT)) {
+				OutputStream outputStream = socket.getOutputStream();
+				outputStream.write(AbstractHttp2Connection.PREFACE);
+				// an empty SETTINGS frame
+				outputStream.write(new byte[]{0, 0, 0, 4, 0, 0, 0, 0, 0});
+				// a DATA frame on stream 1, which has never been opened
+				outputStream.write(new byte[]{0, 0, 1, 0, 0, 0, 0, 0, 1, 42});
+				outputStream.flush();
+
+				InputStream inputStream = socket.getInputStream();
+				ByteArrayOutputStream response = new ByteArrayOutputStream();
+				byte[] bytes = new byte[4096];
+				int read;
+				while ((read = inputStream.read(bytes)) != -1) {
+					response.write(bytes, 0, read);
+				}
+				return response.toByteArray();
+			} catch (IOException e) {
+				throw new AssertionError(e);
+			}
+		}, newSingleThreadExecutor());
+
+		byte[] response = await(Promise.ofCompletionStage(future).whenComplete(server::close));
+		int errorCode = -1;
+		for (int i = 0; i + 9 <= response.length; ) {
+			int length = (response[i] & 0xFF) << 16 | (response[i + 1] & 0xFF) << 8 | response[i + 2] & 0xFF;
+			if (response[i + 3] == AbstractHttp2Connection.GOAWAY) {
+				errorCode = ByteBuffer.wrap(response, i + 9 + 4, 4).getInt();
+			}
+			i += 9 + length;
+		}
+		assertEquals(Http2Exception.PROTOCOL_ERROR, errorCode);
+	}
+
+	@Test
+	public void testResetStreamsAreCountedAgainstConcurrencyLimit() throws Exception {
+		List<SettablePromise<HttpResponse>> servlets = new ArrayList<>();
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(), request -> {
+			SettablePromise<HttpResponse> promise = new SettablePromise<>();
+			servlets.add(promise);
+			return promise;
+		})
+				.withHttp2(true)
+				.withHttp2MaxConcurrentStreams(2)
+				.withListenPort(PORT);
+		server.listen();
+
+		CompletableFuture<Integer> future = CompletableFuture.supplyAsync(() -> {
+			try (Socket socket = new Socket("localhost", PORT)) {
+				socket.setSoTimeout(5000);
+				OutputStream outputStream = socket.getOutputStream();
+				outputStream.write(AbstractHttp2Connection.PREFACE);
+				// an empty SETTINGS frame
+				outputStream.write(new byte[]{0, 0, 0, 4, 0, 0, 0, 0, 0});
+				for (int streamId = 1; streamId <= 5; streamId += 2) {
+					// a HEADERS frame of 'GET /' request, which is reset right away
+					outputStream.write(new byte[]{0, 0, 3, 1, 0x5, 0, 0, 0, (byte) streamId, (byte) 0x82, (byte) 0x86, (byte) 0x84});
+					outputStream.write(new byte[]{0, 0, 4, 3, 0, 0, 0, 0, (byte) streamId, 0, 0, 0, 0x8});
+				}
+				outputStream.flush();
+
+				DataInputStream inputStream = new DataInputStream(socket.getInputStream());
+				byte[] frameHeader = new byte[9];
+				while (true) {
+					inputStream.readFully(frameHeader);
+					int length = (frameHeader[0] & 0xFF) << 16 | (frameHeader[1] & 0xFF) << 8 | frameHeader[2] & 0xFF;
+					byte type = frameHeader[3];
+					int streamId = ByteBuffer.wrap(frameHeader, 5, 4).getInt();
+					byte[] payload = new byte[length];
+					inputStream.readFully(payload);
+					if (type == AbstractHttp2Connection.RST_STREAM && streamId == 5) {
+						return ByteBuffer.wrap(payload).getInt();
+					}
+				}
+			} catch (IOException e) {
+				throw new AssertionError(e);
+			}
+		}, newSingleThreadExecutor());
+
+		int errorCode = await(Promise.ofCompletionStage(future)
+				.whenComplete(() -> {
+					servlets.forEach(servlet -> servlet.set(HttpResponse.ok200()));
+					server.close();
+				}));
+		assertEquals(Http2Exception.REFUSED_STREAM, errorCode);
+		// servlets of reset streams are still running when the third stream is opened
+		assertEquals(2, servlets.size());
+	}
+
+	@Test
+	public void testHttp2KeepsOtherApplicationProtocols() {
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(), request -> HttpResponse.ok200());
+		assertEquals(asList("h2", "http/1.1"), server.withHttp2(true).getSslApplicationProtocols());
+
+		server.withSslApplicationProtocols("spdy/3", "http/1.1");
+		assertEquals(asList("h2", "spdy/3", "http/1.1"), server.withHttp2(true).getSslApplicationProtocols());
+		assertEquals(asList("spdy/3", "http/1.1"), server.withHttp2(false).getSslApplicationProtocols());
+	}
+
+	private static AsyncHttpServer startServer(AsyncServlet servlet) throws IOException {
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(), servlet)
+				.withHttp2(true)
+				.withListenPort(PORT);
+		server.listen();
+		return server;
+	}
+
+	private static AsyncHttpClient createClient() {
+		return AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.withHttp2(true)
+				.withKeepAliveTimeout(Duration.ofSeconds(30));
+	}
+
+	private static List<ByteBuf> chunks(byte[] data, int chunkSize) {
+		List<ByteBuf> chunks = new ArrayList<>();
+		for (int i = 0; i < data.length; i += chunkSize) {
+			int size = Math.min(chunkSize, data.length - i);
+			ByteBuf chunk = ByteBufPool.allocate(size);
+			chunk.put(data, i, size);
+			chunks.add(chunk);
+		}
+		return chunks;
+	}
+}
@@ -1,5 +1,6 @@
 package io.activej.http;
 
+import io.activej.bytebuf.ByteBuf;
 import io.activej.test.rules.ByteBufRule;
 import org.junit.ClassRule;
 import org.junit.Test;
@@ -11,6 +12,7 @@ import static io.activej.http.MediaTypes.ANY_IMAGE;
 import static java.nio.charset.StandardCharsets.ISO_8859_1;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public final class HttpHeadersTest {
 
@@ -35,4 +37,27 @@ public final class HttpHeadersTest {
 
 		assertEquals("Mon, 13 Feb 2017 00:00:00 GMT", response.getHeader(DATE));
 	}
+
+	@Test
+	public void testLazyParsedValues() {
+		byte[] array = "xxgzip, deflateyy12345zz".getBytes(ISO_8859_1);
+		HttpRequest request = HttpRequest.get("http://example.com");
+		request.addHeader(ACCEPT_ENCODING, array, 2, 13);
+		request.addHeader(CONTENT_LENGTH, array, 17, 5);
+		for (int i = 0; i < 20; i++) {
+			request.addHeader(HttpHeaders.of("X-Header-" + i), array, 0, 2);
+		}
+
+		assertEquals("gzip, deflate", request.getHeader(ACCEPT_ENCODING));
+		assertEquals("12345", request.getHeaderBuf(CONTENT_LENGTH).asString(ISO_8859_1));
+		assertEquals(2, request.getHeader(ACCEPT_ENCODING, HttpHeaderValue::toAcceptEncodings).size());
+		assertEquals(23, request.getHeaders().size()); // including Host
+		assertEquals("xx", request.getHeader(HttpHeaders.of("X-Header-19")));
+
+		ByteBuf buf = ByteBuf.wrapForWriting(new byte[request.estimateSize()]);
+		request.writeTo(buf);
+		String rendered = buf.asString(ISO_8859_1);
+		assertTrue(rendered.contains("\r\nAccept-Encoding: gzip, deflate\r\n"));
+		assertTrue(rendered.contains("\r\nX-Header-0: xx\r\n"));
+	}
 }
@@ -0,0 +1,97 @@
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufStrings;
+import io.activej.test.rules.ByteBufRule;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.LinkedHashSet;
+
+import static io.activej.bytebuf.ByteBufStrings.encodeAscii;
+import static io.activej.http.HttpHeaders.*;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+public final class HttpResponseTemplateTest {
+	@ClassRule
+	public static final ByteBufRule byteBufRule = new ByteBufRule();
+
+	private static final HttpResponseTemplate TEMPLATE = HttpResponseTemplate.create(200)
+			.withHeader(SERVER, "ActiveJ")
+			.withHeader(CONTENT_TYPE, "text/plain")
+			.withHeader(CACHE_CONTROL, "no-cache");
+
+	private static String render(HttpResponse response) {
+		ByteBuf buf = AbstractHttpConnection.renderHttpMessage(response);
+		assertNotNull(buf);
+		response.recycle();
+		return ByteBufStrings.asAscii(buf);
+	}
+
+	private static void assertRendered(String expected, String actual) {
+		assertTrue(actual.startsWith(expected.substring(0, expected.indexOf("\r\n"))));
+		assertEquals(new LinkedHashSet<>(asList(expected.split("\r\n"))), new LinkedHashSet<>(asList(actual.split("\r\n"))));
+		assertEquals(expected.length(), actual.length());
+	}
+
+	@Test
+	public void testRenderedAsRegularResponse() {
+		HttpResponse regular = HttpResponse.ok200()
+				.withHeader(SERVER, "ActiveJ")
+				.withHeader(CONTENT_TYPE, "text/plain")
+				.withHeader(CACHE_CONTROL, "no-cache")
+				.withBody(encodeAscii("Hello"));
+		String expected = render(regular);
+
+		for (int i = 0; i < 3; i++) {
+			HttpResponse response = TEMPLATE.newResponse().withBody(encodeAscii("Hello"));
+			assertEquals(200, response.getCode());
+			assertEquals("ActiveJ", response.getHeader(SERVER));
+			assertRendered(expected, render(response));
+		}
+	}
+
+	@Test
+	public void testAdditionalHeaders() {
+		HttpResponse response = TEMPLATE.newResponse()
+				.withHeader(SET_COOKIE, "a=b")
+				.withHeader(CONNECTION, "keep-alive");
+		assertRendered("HTTP/1.1 200 OK\r\nServer: ActiveJ\r\nContent-Type: text/plain\r\nCache-Control: no-cache\r\n" +
+				"Set-Cookie: a=b\r\nConnection: keep-alive\r\nContent-Length: 0\r\n\r\n", render(response));
+
+		// headers of a previous response are not leaked into a template
+		assertRendered("HTTP/1.1 200 OK\r\nServer: ActiveJ\r\nContent-Type: text/plain\r\nCache-Control: no-cache\r\n" +
+				"Content-Length: 0\r\n\r\n", render(TEMPLATE.newResponse()));
+	}
+
+	@Test
+	public void testManyAdditionalHeaders() {
+		HttpResponse response = HttpResponseTemplate.create(404)
+				.withHeader(SERVER, "ActiveJ")
+				.newResponse();
+		StringBuilder expected = new StringBuilder("HTTP/1.1 404 Not Found\r\nServer: ActiveJ\r\nContent-Length: 0\r\n");
+		for (int i = 0; i < 50; i++) {
+			response.addHeader(HttpHeaders.of("X-Header-" + i), "value" + i);
+			expected.append("X-Header-").append(i).append(": value").append(i).append("\r\n");
+		}
+		assertRendered(expected.append("\r\n").toString(), render(response));
+	}
+
+	@Test
+	public void testWithHeaderDoesNotChangeTemplate() {
+		HttpResponseTemplate template = TEMPLATE.withHeader(SET_COOKIE, "a=b");
+		assertNotSame(TEMPLATE, template);
+
+		assertRendered("HTTP/1.1 200 OK\r\nServer: ActiveJ\r\nContent-Type: text/plain\r\nCache-Control: no-cache\r\n" +
+				"Set-Cookie: a=b\r\nContent-Length: 0\r\n\r\n", render(template.newResponse()));
+		assertRendered("HTTP/1.1 200 OK\r\nServer: ActiveJ\r\nContent-Type: text/plain\r\nCache-Control: no-cache\r\n" +
+				"Content-Length: 0\r\n\r\n", render(TEMPLATE.newResponse()));
+	}
+
+	@Test
+	public void testUncommonCode() {
+		assertRendered("HTTP/1.1 418 Error\r\nServer: ActiveJ\r\nContent-Length: 0\r\n\r\n",
+				render(HttpResponseTemplate.create(418).withHeader(SERVER, "ActiveJ").newResponse()));
+	}
+}
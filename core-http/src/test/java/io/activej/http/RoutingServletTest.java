@@ -8,6 +8,8 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.util.TreeMap;
+
 import static io.activej.bytebuf.ByteBufStrings.wrapUtf8;
 import static io.activej.http.HttpMethod.*;
 import static io.activej.test.TestUtils.assertComplete;
@@ -343,4 +345,68 @@ public final class RoutingServletTest {
 		check(main.serve(HttpRequest.get(TEMPLATE + "/method/yumgn?query=string")), "Success: ", 200);
 		check(main.serve(HttpRequest.get(TEMPLATE + "/method/yumgn/first?query=string")), "Success: first", 200);
 	}
+
+	@Test
+	public void testCompiled() {
+		RoutingServlet main = RoutingServlet.create()
+				.map(GET, "/", echo("root"))
+				.map(GET, "/users", echo("users"))
+				.map(POST, "/users", echo("create user"))
+				.map(GET, "/user", echo("user"))
+				.map(GET, "/users/:id", echo("user by id"))
+				.map(GET, "/users/:id/orders/:orderId", echo("order"))
+				.map(GET, "/users/me", echo("me"))
+				.map(GET, "/users/:uid/friends", echo("friends"))
+				.map("/api/v1/items", echo("items"))
+				.map("/api/v1/items/:id", echo("item"))
+				.map("/api/v2/items/*", echo("items v2"))
+				.map("/api/v1/itemsets", echo("itemsets"))
+				.map("/static/*", echo("static"))
+				.map(GET, "/method/:var/*", echo("tail"))
+				.map("/*", echo("fallback"));
+		AsyncServlet compiled = main.compile();
+
+		String[] paths = {"", "/", "/users", "/users/", "/user", "/users/me", "/users/123", "/users/12%203",
+				"/users/123/orders/7", "/users/123/orders", "/users/123/friends", "/users/me/friends", "/users//orders/1",
+				"/api", "/api/v1", "/api/v1/items", "/api/v1/items/", "/api/v1/items/5", "/api/v1/item",
+				"/api/v1/itemsets", "/api/v1/itemsets/1", "/api/v2/items", "/api/v2/items/a/b", "/api/v3/items",
+				"/static", "/static/css/main.css", "/method/x", "/method/x/a/b?query=string", "/users?id=1/2",
+				"/unknown/path", "//users"};
+		for (String path : paths) {
+			for (HttpMethod method : new HttpMethod[]{GET, POST, HEAD}) {
+				assertSameResponse(main.serve(HttpRequest.of(method, TEMPLATE + path)),
+						compiled.serveAsync(HttpRequest.of(method, TEMPLATE + path)));
+			}
+		}
+	}
+
+	@Test
+	public void testCompiledWithoutFallback() {
+		AsyncServlet compiled = RoutingServlet.create()
+				.map(GET, "/a/b/c", echo("abc"))
+				.map(GET, "/a/:x/d", echo("axd"))
+				.compile();
+
+		check(compiled.serveAsync(HttpRequest.get(TEMPLATE + "/a/b/c")), "abc / {}", 200);
+		check(compiled.serveAsync(HttpRequest.get(TEMPLATE + "/a/b/d")), "axd / {x=b}", 200);
+		check(compiled.serveAsync(HttpRequest.get(TEMPLATE + "/a/b/e")), "", 404);
+		check(compiled.serveAsync(HttpRequest.post(TEMPLATE + "/a/b/c")), "", 404);
+	}
+
+	private static AsyncServlet echo(String name) {
+		return request -> HttpResponse.ok200()
+				.withBody(wrapUtf8(name + " /" + request.getRelativePath() + " " + new TreeMap<>(request.getPathParameters())));
+	}
+
+	private static void assertSameResponse(Promise<HttpResponse> expected, Promise<HttpResponse> actual) {
+		assertTrue(expected.isComplete());
+		assertTrue(actual.isComplete());
+		if (expected.isResult()) {
+			assertTrue(actual.isResult());
+			assertEquals(expected.getResult().getCode(), actual.getResult().getCode());
+			assertEquals(expected.getResult().getBody().asString(UTF_8), actual.getResult().getBody().asString(UTF_8));
+		} else {
+			assertEquals(((HttpException) expected.getException()).getCode(), ((HttpException) actual.getException()).getCode());
+		}
+	}
 }
@@ -1,7 +1,14 @@
 package io.activej.http;
 
 import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufQueue;
+import io.activej.common.exception.parse.ParseException;
+import io.activej.common.ref.RefInt;
+import io.activej.csp.file.ChannelFileReader;
+import io.activej.eventloop.Eventloop;
 import io.activej.http.loader.StaticLoader;
+import io.activej.http.loader.StaticLoaderLruCache;
+import io.activej.promise.Promise;
 import io.activej.test.rules.ByteBufRule;
 import io.activej.test.rules.EventloopRule;
 import org.junit.BeforeClass;
@@ -14,18 +21,31 @@ import org.junit.rules.TemporaryFolder;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
 
+import static io.activej.bytebuf.ByteBuf.wrapForReading;
 import static io.activej.bytebuf.ByteBufStrings.encodeAscii;
 import static io.activej.http.loader.StaticLoader.ofClassPath;
 import static io.activej.http.loader.StaticLoader.ofPath;
 import static io.activej.promise.TestUtils.await;
 import static io.activej.promise.TestUtils.awaitException;
+import static io.activej.test.TestUtils.getFreePort;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 public final class StaticServletsTest {
 	public static final String EXPECTED_CONTENT = "Test";
+	private static final byte[] BIG_CONTENT = new byte[2 * 1024 * 1024];
+	private static final String TEXT_CONTENT = String.join("", Collections.nCopies(100, "<p>Lorem ipsum dolor sit amet</p>"));
 
 	@Rule
 	public ExpectedException exception = ExpectedException.none();
@@ -46,6 +66,9 @@ public final class StaticServletsTest {
 		resourcesPath = tmpFolder.newFolder("static").toPath();
 
 		Files.write(resourcesPath.resolve("index.html"), encodeAscii(EXPECTED_CONTENT));
+		ThreadLocalRandom.current().nextBytes(BIG_CONTENT);
+		Files.write(resourcesPath.resolve("big.bin"), BIG_CONTENT);
+		Files.write(resourcesPath.resolve("text.html"), encodeAscii(TEXT_CONTENT));
 	}
 
 	@Test
@@ -58,6 +81,242 @@ public final class StaticServletsTest {
 		assertEquals(EXPECTED_CONTENT, body.asString(UTF_8));
 	}
 
+	@Test
+	public void testZeroCopyPathLoader() {
+		StaticServlet staticServlet = StaticServlet.create(ofPath(newCachedThreadPool(), resourcesPath))
+				.withZeroCopy(true);
+		HttpResponse response = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/index.html")));
+		await(response.loadBody());
+		ByteBuf body = response.getBody();
+
+		assertEquals(EXPECTED_CONTENT, body.asString(UTF_8));
+		assertEquals(String.valueOf(EXPECTED_CONTENT.length()), response.getHeader(HttpHeaders.CONTENT_LENGTH));
+	}
+
+	@Test
+	public void testZeroCopy() throws IOException {
+		int port = getFreePort();
+		AsyncHttpServer.create(Eventloop.getCurrentEventloop(),
+				StaticServlet.create(ofPath(newCachedThreadPool(), resourcesPath)).withZeroCopy(true))
+				.withListenPort(port)
+				.withAcceptOnce()
+				.listen();
+
+		ByteBuf body = await(AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.request(HttpRequest.get("http://127.0.0.1:" + port + "/big.bin"))
+				.then(response -> {
+					assertEquals(200, response.getCode());
+					return response.getBodyStream().async().toCollector(ByteBufQueue.collector());
+				}));
+
+		assertArrayEquals(BIG_CONTENT, body.asArray());
+	}
+
+	@Test
+	public void testZeroCopyRange() throws IOException {
+		int port = getFreePort();
+		AsyncHttpServer.create(Eventloop.getCurrentEventloop(),
+				StaticServlet.create(ofPath(newCachedThreadPool(), resourcesPath)).withZeroCopy(true))
+				.withListenPort(port)
+				.withAcceptOnce()
+				.listen();
+
+		ByteBuf body = await(AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.request(HttpRequest.get("http://127.0.0.1:" + port + "/big.bin")
+						.withHeader(HttpHeaders.RANGE, "bytes=100000-299999"))
+				.then(response -> {
+					assertEquals(206, response.getCode());
+					assertEquals("bytes 100000-299999/" + BIG_CONTENT.length, response.getHeader(HttpHeaders.CONTENT_RANGE));
+					return response.getBodyStream().async().toCollector(ByteBufQueue.collector());
+				}));
+
+		assertArrayEquals(Arrays.copyOfRange(BIG_CONTENT, 100000, 300000), body.asArray());
+	}
+
+	@Test
+	public void testZeroCopyInvalidRange() {
+		StaticServlet staticServlet = StaticServlet.create(ofPath(newCachedThreadPool(), resourcesPath))
+				.withZeroCopy(true);
+		HttpException e = awaitException(staticServlet.serve(HttpRequest.get("http://test.com:8080/index.html")
+				.withHeader(HttpHeaders.RANGE, "bytes=0-1,3-4")));
+
+		assertEquals(416, e.getCode());
+	}
+
+	@Test
+	public void testLruCacheConditionalRequests() {
+		RefInt loads = new RefInt(0);
+		StaticLoader fileLoader = ofPath(newCachedThreadPool(), resourcesPath);
+		StaticLoaderLruCache cache = ((StaticLoader) path -> {
+			loads.inc();
+			return fileLoader.load(path);
+		}).cached(1024 * 1024);
+		StaticServlet staticServlet = StaticServlet.create(cache);
+
+		HttpResponse response = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/index.html")));
+		assertEquals(200, response.getCode());
+		assertEquals(EXPECTED_CONTENT, response.getBody().asString(UTF_8));
+		String eTag = response.getHeader(HttpHeaders.ETAG);
+		String lastModified = response.getHeader(HttpHeaders.LAST_MODIFIED);
+		assertNotNull(eTag);
+		assertNotNull(lastModified);
+
+		response = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/index.html")
+				.withHeader(HttpHeaders.IF_NONE_MATCH, "\"other\", " + eTag)));
+		assertEquals(304, response.getCode());
+		assertEquals(eTag, response.getHeader(HttpHeaders.ETAG));
+
+		response = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/index.html")
+				.withHeader(HttpHeaders.IF_MODIFIED_SINCE, lastModified)));
+		assertEquals(304, response.getCode());
+
+		response = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/index.html")
+				.withHeader(HttpHeaders.IF_NONE_MATCH, "\"other\"")));
+		assertEquals(200, response.getCode());
+		assertEquals(EXPECTED_CONTENT, response.getBody().asString(UTF_8));
+
+		assertEquals(1, loads.get());
+		assertEquals(3, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	public void testWrappedLruCacheConditionalRequests() throws IOException {
+		Instant modified = Instant.parse("2020-01-02T03:04:05Z");
+		Files.setLastModifiedTime(resourcesPath.resolve("text.html"), FileTime.from(modified));
+		StaticServlet staticServlet = StaticServlet.create(ofPath(newCachedThreadPool(), resourcesPath)
+				.cached(1024 * 1024)
+				.map(path -> path.replace("page", "text"))
+				.filter(path -> path.endsWith(".html")));
+
+		HttpResponse response = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/page.html")));
+		assertEquals(200, response.getCode());
+		assertEquals(TEXT_CONTENT, response.getBody().asString(UTF_8));
+		String eTag = response.getHeader(HttpHeaders.ETAG);
+		assertNotNull(eTag);
+		// a modification time of a file is reported rather than a time the file has been cached at
+		assertEquals(HttpHeaderValue.ofInstant(modified).getBuf().asString(UTF_8), response.getHeader(HttpHeaders.LAST_MODIFIED));
+
+		response = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/page.html")
+				.withHeader(HttpHeaders.IF_NONE_MATCH, eTag)));
+		assertEquals(304, response.getCode());
+
+		response = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/page.html")
+				.withHeader(HttpHeaders.IF_MODIFIED_SINCE, HttpHeaderValue.ofInstant(modified.plusSeconds(1)))));
+		assertEquals(304, response.getCode());
+
+		response = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/page.html")
+				.withHeader(HttpHeaders.IF_MODIFIED_SINCE, HttpHeaderValue.ofInstant(modified.minusSeconds(1)))));
+		assertEquals(200, response.getCode());
+		assertEquals(TEXT_CONTENT, response.getBody().asString(UTF_8));
+	}
+
+	@Test
+	public void testLruCacheSendsLargeFilesWithZeroCopy() {
+		RefInt loads = new RefInt(0);
+		RefInt opens = new RefInt(0);
+		StaticLoaderLruCache cache = countingLoader(loads, opens).cached(1024 * 1024);
+		StaticServlet staticServlet = StaticServlet.create(cache).withZeroCopy(true);
+
+		for (int i = 0; i < 2; i++) {
+			HttpResponse response = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/big.bin")));
+			assertEquals(String.valueOf(BIG_CONTENT.length), response.getHeader(HttpHeaders.CONTENT_LENGTH));
+			assertNull(response.getHeader(HttpHeaders.ETAG));
+			await(response.loadBody());
+			assertArrayEquals(BIG_CONTENT, response.getBody().asArray());
+		}
+
+		// a file larger than a maximum entry size is never read by the cache
+		assertEquals(0, loads.get());
+		assertEquals(3, opens.get());
+		assertEquals(0, cache.getCount());
+	}
+
+	@Test
+	public void testLruCacheRemembersMissingResources() {
+		RefInt loads = new RefInt(0);
+		RefInt opens = new RefInt(0);
+		StaticLoaderLruCache cache = countingLoader(loads, opens).cached(1024 * 1024);
+		StaticServlet staticServlet = StaticServlet.create(cache);
+
+		for (int i = 0; i < 3; i++) {
+			HttpException e = awaitException(staticServlet.serve(HttpRequest.get("http://test.com:8080/missing.html")));
+			assertEquals(404, e.getCode());
+		}
+		assertEquals(1, opens.get());
+
+		cache.invalidateAll();
+		awaitException(staticServlet.serve(HttpRequest.get("http://test.com:8080/missing.html")));
+		assertEquals(2, opens.get());
+		assertEquals(0, loads.get());
+	}
+
+	@Test
+	public void testLruCacheGzip() throws ParseException {
+		StaticServlet staticServlet = StaticServlet.create(ofPath(newCachedThreadPool(), resourcesPath).cached(1024 * 1024));
+
+		HttpResponse response = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/text.html")
+				.withHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate")));
+		assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+		assertEquals("Accept-Encoding", response.getHeader(HttpHeaders.VARY));
+		ByteBuf gzipped = response.getBody();
+		assertEquals(TEXT_CONTENT, GzipProcessorUtils.fromGzip(gzipped, Integer.MAX_VALUE).asString(UTF_8));
+		String gzippedETag = response.getHeader(HttpHeaders.ETAG);
+
+		response = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/text.html")));
+		assertEquals(null, response.getHeader(HttpHeaders.CONTENT_ENCODING));
+		assertEquals(TEXT_CONTENT, response.getBody().asString(UTF_8));
+		String eTag = response.getHeader(HttpHeaders.ETAG);
+		assertNotNull(eTag);
+		assertNotEquals(eTag, gzippedETag);
+
+		response = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/text.html")
+				.withHeader(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, deflate")));
+		assertEquals(null, response.getHeader(HttpHeaders.CONTENT_ENCODING));
+		assertEquals(eTag, response.getHeader(HttpHeaders.ETAG));
+		assertEquals(TEXT_CONTENT, response.getBody().asString(UTF_8));
+
+		response = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/text.html")
+				.withHeader(HttpHeaders.ACCEPT_ENCODING, "gzip")
+				.withHeader(HttpHeaders.IF_NONE_MATCH, eTag)));
+		assertEquals(200, response.getCode());
+		assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+
+		response = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/text.html")
+				.withHeader(HttpHeaders.ACCEPT_ENCODING, "gzip")
+				.withHeader(HttpHeaders.IF_NONE_MATCH, gzippedETag)));
+		assertEquals(304, response.getCode());
+		assertEquals(gzippedETag, response.getHeader(HttpHeaders.ETAG));
+	}
+
+	@Test
+	public void testLruCacheEviction() {
+		RefInt loads = new RefInt(0);
+		StaticLoaderLruCache cache = ((StaticLoader) path -> {
+			loads.inc();
+			byte[] bytes = new byte[1000];
+			ThreadLocalRandom.current().nextBytes(bytes);
+			return Promise.of(wrapForReading(bytes));
+		}).cached(3000)
+				.withMaxEntrySize(1000);
+
+		await(cache.load("a"));
+		await(cache.load("b"));
+		await(cache.load("c"));
+		await(cache.load("a"));
+		assertEquals(3, loads.get());
+		assertEquals(3000, cache.getSize());
+
+		await(cache.load("d"));
+		assertEquals(1, cache.getEvictions());
+		assertEquals(3, cache.getCount());
+
+		await(cache.load("a"));
+		assertEquals(4, loads.get());
+		await(cache.load("b"));
+		assertEquals(5, loads.get());
+	}
+
 	@Test
 	public void testFileNotFoundPathLoader() {
 		StaticServlet staticServlet = StaticServlet.create(ofPath(newCachedThreadPool(), resourcesPath));
@@ -113,4 +372,21 @@ public final class StaticServletsTest {
 
 		assertEquals(404, e.getCode());
 	}
+
+	private static StaticLoader countingLoader(RefInt loads, RefInt opens) {
+		StaticLoader fileLoader = ofPath(newCachedThreadPool(), resourcesPath);
+		return new StaticLoader() {
+			@Override
+			public Promise<ByteBuf> load(String path) {
+				loads.inc();
+				return fileLoader.load(path);
+			}
+
+			@Override
+			public Promise<ChannelFileReader> openFile(String path) {
+				opens.inc();
+				return fileLoader.openFile(path);
+			}
+		};
+	}
 }
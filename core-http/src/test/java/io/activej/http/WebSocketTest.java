@@ -0,0 +1,301 @@
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.common.MemSize;
+import io.activej.eventloop.Eventloop;
+import io.activej.http.WebSocket.Frame;
+import io.activej.http.WebSocket.Message;
+import io.activej.promise.Promise;
+import io.activej.promise.Promises;
+import io.activej.test.rules.ByteBufRule;
+import io.activej.test.rules.EventloopRule;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import static io.activej.bytebuf.ByteBufStrings.encodeAscii;
+import static io.activej.promise.TestUtils.await;
+import static io.activej.promise.TestUtils.awaitException;
+import static io.activej.test.TestUtils.getFreePort;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static org.junit.Assert.*;
+
+public final class WebSocketTest {
+	private static final int PORT = getFreePort();
+	private static final String URL = "ws://127.0.0.1:" + PORT + "/";
+
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	@ClassRule
+	public static final ByteBufRule byteBufRule = new ByteBufRule();
+
+	@Test
+	public void testEcho() throws IOException {
+		doTestEcho(false);
+	}
+
+	@Test
+	public void testEchoWithDeflate() throws IOException {
+		doTestEcho(true);
+	}
+
+	private void doTestEcho(boolean deflate) throws IOException {
+		AsyncHttpServer server = start(createServer(webSocket -> webSocket.messageReadChannel().streamTo(webSocket.messageWriteChannel()))
+				.withWebSocketDeflate(deflate));
+		AsyncHttpClient client = AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.withWebSocketDeflate(deflate);
+
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 10_000; i++) {
+			sb.append("Hello, World! ");
+		}
+		String longText = sb.toString();
+		byte[] data = new byte[200_000];
+		new Random(0).nextBytes(data);
+
+		List<Object> received = new ArrayList<>();
+		WebSocket webSocket = await(client.webSocketRequest(HttpRequest.get(URL))
+				.then(ws -> {
+					assertEquals(deflate, ws.getResponse().getHeader(HttpHeaders.SEC_WEBSOCKET_EXTENSIONS) != null);
+					return ws.writeMessage(Message.text("Hello"))
+							.then(() -> ws.writeMessage(Message.text("")))
+							.then(() -> ws.writeMessage(Message.text(longText)))
+							.then(() -> ws.writeMessage(Message.binary(ByteBuf.wrapForReading(data))))
+							.then(() -> readMessages(ws, 4, received))
+							.then(() -> ws.writeMessage(null))
+							.map($ -> ws);
+				})
+				.whenComplete(server::close));
+
+		assertEquals("Hello", received.get(0));
+		assertEquals("", received.get(1));
+		assertEquals(longText, received.get(2));
+		assertArrayEquals(data, (byte[]) received.get(3));
+		assertTrue(webSocket.isClosed());
+		assertEquals(0, server.getWebSocketsCount());
+	}
+
+	@Test
+	public void testUpgradeWithPipelining() throws IOException {
+		AsyncHttpServer server = start(createServer(webSocket -> webSocket.messageReadChannel().streamTo(webSocket.messageWriteChannel()))
+				.withPipeliningDepth(8));
+		AsyncHttpClient client = AsyncHttpClient.create(Eventloop.getCurrentEventloop());
+
+		List<Object> received = new ArrayList<>();
+		await(client.webSocketRequest(HttpRequest.get(URL))
+				.then(ws -> ws.writeMessage(Message.text("Hello"))
+						.then(() -> readMessages(ws, 1, received))
+						.then(() -> ws.writeMessage(null)))
+				.whenComplete(server::close));
+		assertEquals("Hello", received.get(0));
+	}
+
+	@Test
+	public void testFragmentedMessage() throws IOException {
+		AsyncHttpServer server = start(createServer(webSocket -> webSocket.readMessage()
+				.then(message -> webSocket.writeMessage(Message.text(message.getText().toUpperCase())))
+				.then(() -> webSocket.readFrame())
+				.then(frame -> {
+					// a frame is echoed back in two fragments
+					ByteBuf payload = frame.getPayload();
+					return webSocket.writeFrame(Frame.binary(payload.slice(2), false))
+							.then(() -> webSocket.writeFrame(Frame.continuation(payload.slice(payload.head() + 2, payload.readRemaining() - 2), true)))
+							.whenComplete(payload::recycle);
+				})));
+		AsyncHttpClient client = AsyncHttpClient.create(Eventloop.getCurrentEventloop());
+
+		List<Object> received = new ArrayList<>();
+		await(client.webSocketRequest(HttpRequest.get(URL))
+				.then(ws -> ws.writeFrame(Frame.text(ByteBuf.wrapForReading("Hel".getBytes(UTF_8)), false))
+						.then(() -> ws.writeFrame(Frame.continuation(ByteBuf.wrapForReading("lo, ".getBytes(UTF_8)), false)))
+						.then(() -> ws.writeFrame(Frame.continuation(ByteBuf.wrapForReading("World".getBytes(UTF_8)), true)))
+						.then(() -> ws.writeFrame(Frame.binary(ByteBuf.wrapForReading(new byte[]{1, 2, 3, 4, 5}), true)))
+						.then(() -> readMessages(ws, 2, received))
+						.whenComplete(ws::close))
+				.whenComplete(server::close));
+
+		assertEquals("HELLO, WORLD", received.get(0));
+		assertArrayEquals(new byte[]{1, 2, 3, 4, 5}, (byte[]) received.get(1));
+	}
+
+	@Test
+	public void testMessageTooBig() throws IOException {
+		AsyncHttpServer server = start(createServer(webSocket -> webSocket.messageReadChannel().streamTo(webSocket.messageWriteChannel()))
+				.withWebSocketMaxMessageSize(MemSize.kilobytes(1)));
+		AsyncHttpClient client = AsyncHttpClient.create(Eventloop.getCurrentEventloop());
+
+		WebSocketException e = awaitException(client.webSocketRequest(HttpRequest.get(URL))
+				.then(ws -> ws.writeMessage(Message.binary(ByteBuf.wrapForReading(new byte[2048])))
+						.then(() -> ws.readMessage()))
+				.whenComplete(server::close));
+		assertEquals(WebSocketException.MESSAGE_TOO_BIG, e.getCode());
+	}
+
+	@Test
+	public void testServerClose() throws IOException {
+		AsyncHttpServer server = start(createServer(webSocket -> webSocket.writeMessage(Message.text("Bye"))
+				.then(() -> webSocket.writeMessage(null))));
+		AsyncHttpClient client = AsyncHttpClient.create(Eventloop.getCurrentEventloop());
+
+		List<Object> received = new ArrayList<>();
+		await(client.webSocketRequest(HttpRequest.get(URL))
+				.then(ws -> readMessages(ws, 1, received)
+						.then(() -> ws.readMessage())
+						.whenResult(message -> assertNull(message)))
+				.whenComplete(server::close));
+		assertEquals("Bye", received.get(0));
+	}
+
+	@Test
+	public void testCloseWithCode() throws IOException {
+		AsyncHttpServer server = start(createServer(webSocket ->
+				webSocket.closeEx(new WebSocketException(WebSocketTest.class, 4000, "Custom reason"))));
+		AsyncHttpClient client = AsyncHttpClient.create(Eventloop.getCurrentEventloop());
+
+		WebSocketException e = awaitException(client.webSocketRequest(HttpRequest.get(URL))
+				.then(WebSocket::readMessage)
+				.whenComplete(server::close));
+		assertEquals(4000, e.getCode());
+		assertEquals("Custom reason", e.getMessage());
+	}
+
+	@Test
+	public void testServerShutdown() throws IOException {
+		AsyncHttpServer server = start(createServer(webSocket -> {}));
+		AsyncHttpClient client = AsyncHttpClient.create(Eventloop.getCurrentEventloop());
+
+		Message message = await(client.webSocketRequest(HttpRequest.get(URL))
+				.then(ws -> {
+					assertEquals(1, server.getWebSocketsCount());
+					Promise<Message> read = ws.readMessage();
+					return server.close().then(() -> read);
+				}));
+		assertNull(message);
+		assertEquals(0, server.getConnectionsCount());
+	}
+
+	@Test
+	public void testRejectedHandshake() throws IOException {
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(),
+				new WebSocketServlet() {
+					@Override
+					protected Promise<HttpResponse> onRequest(HttpRequest request) {
+						return Promise.of(HttpResponse.ofCode(403));
+					}
+
+					@Override
+					protected void onWebSocket(WebSocket webSocket) {
+						throw new AssertionError();
+					}
+				})
+				.withListenPort(PORT);
+		server.listen();
+		AsyncHttpClient client = AsyncHttpClient.create(Eventloop.getCurrentEventloop());
+
+		HttpException e = awaitException(client.webSocketRequest(HttpRequest.get(URL))
+				.whenComplete(server::close));
+		assertEquals(403, e.getCode());
+	}
+
+	@Test
+	public void testRawHandshakeAndUnmaskedFrame() throws Exception {
+		AsyncHttpServer server = start(createServer(webSocket -> webSocket.readMessage()));
+
+		CompletableFuture<byte[]> future = CompletableFuture.supplyAsync(() -> {
+			try (Socket socket = new Socket("localhost", PORT)) {
+				OutputStream outputStream = socket.getOutputStream();
+				// a sample handshake from RFC 6455, section 1.3
+				outputStream.write(encodeAscii("GET /chat HTTP/1.1\r\n" +
+						"Host: server.example.com\r\n" +
+						"Upgrade: websocket\r\n" +
+						"Connection: Upgrade\r\n" +
+						"Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\n" +
+						"Sec-WebSocket-Version: 13\r\n\r\n"));
+				// an unmasked text frame from a client is a protocol error
+				outputStream.write(new byte[]{(byte) 0x81, 0x02, 'H', 'i'});
+				outputStream.flush();
+
+				InputStream inputStream = socket.getInputStream();
+				byte[] response = new byte[4096];
+				int size = 0;
+				while (size < response.length) {
+					int read = inputStream.read(response, size, response.length - size);
+					if (read == -1) break;
+					size += read;
+				}
+				byte[] result = new byte[size];
+				System.arraycopy(response, 0, result, 0, size);
+				return result;
+			} catch (IOException e) {
+				throw new AssertionError(e);
+			}
+		}, newSingleThreadExecutor());
+
+		byte[] response = await(Promise.ofCompletionStage(future).whenComplete(server::close));
+		String text = new String(response, UTF_8);
+		assertTrue(text.startsWith("HTTP/1.1 101 Switching Protocols\r\n"));
+		assertTrue(text.contains("Sec-WebSocket-Accept: s3pPLMBiTxaQ9kYGzzhZRbK+xOo=\r\n"));
+		assertFalse(text.contains("Content-Length"));
+		int frame = text.indexOf("\r\n\r\n") + 4;
+		assertEquals((byte) 0x88, response[frame]);
+		int code = (response[frame + 2] & 0xFF) << 8 | (response[frame + 3] & 0xFF);
+		assertEquals(WebSocketException.PROTOCOL_ERROR, code);
+	}
+
+	@Test
+	public void testAcceptKey() {
+		assertEquals("s3pPLMBiTxaQ9kYGzzhZRbK+xOo=", WebSocketImpl.getAcceptKey("dGhlIHNhbXBsZSBub25jZQ=="));
+	}
+
+	@Test
+	public void testDeflateNegotiation() {
+		assertTrue(WebSocketImpl.acceptDeflateOffer("permessage-deflate"));
+		assertTrue(WebSocketImpl.acceptDeflateOffer("permessage-deflate; client_max_window_bits"));
+		assertTrue(WebSocketImpl.acceptDeflateOffer("permessage-deflate; server_max_window_bits=10, permessage-deflate"));
+		assertFalse(WebSocketImpl.acceptDeflateOffer("permessage-deflate; server_max_window_bits=10"));
+		assertFalse(WebSocketImpl.acceptDeflateOffer("permessage-deflate; unknown"));
+		assertFalse(WebSocketImpl.acceptDeflateOffer("permessage-deflate; client_no_context_takeover; client_no_context_takeover"));
+		assertFalse(WebSocketImpl.acceptDeflateOffer("x-webkit-deflate-frame"));
+
+		assertEquals(Boolean.TRUE, WebSocketImpl.parseDeflateResponse(WebSocketImpl.DEFLATE_RESPONSE));
+		assertEquals(Boolean.FALSE, WebSocketImpl.parseDeflateResponse("permessage-deflate; server_max_window_bits=12"));
+		assertNull(WebSocketImpl.parseDeflateResponse("permessage-deflate; client_max_window_bits=10"));
+	}
+
+	private static Promise<Void> readMessages(WebSocket webSocket, int count, List<Object> received) {
+		return Promises.loop(count, i -> i != 0,
+				i -> webSocket.readMessage()
+						.map(message -> {
+							if (message.getType() == WebSocket.MessageType.TEXT) {
+								received.add(message.getText());
+							} else {
+								ByteBuf buf = message.getBuf();
+								received.add(buf.getArray());
+								buf.recycle();
+							}
+							return i - 1;
+						}))
+				.toVoid();
+	}
+
+	private static AsyncHttpServer createServer(Consumer<WebSocket> webSocketConsumer) {
+		return AsyncHttpServer.create(Eventloop.getCurrentEventloop(), WebSocketServlet.create(webSocketConsumer))
+				.withListenPort(PORT);
+	}
+
+	private static AsyncHttpServer start(AsyncHttpServer server) throws IOException {
+		server.listen();
+		return server;
+	}
+}
@@ -38,6 +38,7 @@ import javax.net.ssl.SSLContext;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.time.Duration;
@@ -46,6 +47,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import static io.activej.common.Preconditions.checkState;
 import static io.activej.eventloop.net.ServerSocketSettings.DEFAULT_BACKLOG;
@@ -53,6 +56,7 @@ import static io.activej.eventloop.util.RunnableWithContext.wrapContext;
 import static io.activej.net.socket.tcp.AsyncTcpSocketNio.wrapChannel;
 import static io.activej.net.socket.tcp.AsyncTcpSocketSsl.wrapServerSocket;
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -84,7 +88,7 @@ public abstract class AbstractServer<Self extends AbstractServer<Self>> implemen
 		boolean filterAccept(SocketChannel socketChannel, InetSocketAddress localAddress, InetAddress remoteAddress, boolean ssl);
 	}
 
-	private AcceptFilter acceptFilter;
+	AcceptFilter acceptFilter;
 
 	protected List<InetSocketAddress> listenAddresses = new ArrayList<>();
 
@@ -92,6 +96,7 @@ public abstract class AbstractServer<Self extends AbstractServer<Self>> implemen
 	private SSLContext sslContext;
 	private Executor sslExecutor;
 	protected List<InetSocketAddress> sslListenAddresses = new ArrayList<>();
+	private List<String> sslApplicationProtocols = emptyList();
 
 	private boolean running = false;
 	private List<ServerSocketChannel> serverSocketChannels;
@@ -170,6 +175,19 @@ public abstract class AbstractServer<Self extends AbstractServer<Self>> implemen
 		return withSslListenAddress(sslContext, sslExecutor, new InetSocketAddress(port));
 	}
 
+	/**
+	 * Sets application protocols which are advertised via ALPN on SSL connections, in the order of preference
+	 */
+	@SuppressWarnings("unchecked")
+	public final Self withSslApplicationProtocols(List<String> applicationProtocols) {
+		this.sslApplicationProtocols = applicationProtocols;
+		return (Self) this;
+	}
+
+	public final Self withSslApplicationProtocols(String... applicationProtocols) {
+		return withSslApplicationProtocols(asList(applicationProtocols));
+	}
+
 	public final Self withAcceptOnce() {
 		return withAcceptOnce(true);
 	}
@@ -228,7 +246,9 @@ public abstract class AbstractServer<Self extends AbstractServer<Self>> implemen
 		}
 		running = true;
 		onListen();
-		serverSocketChannels = new ArrayList<>();
+		if (serverSocketChannels == null) {
+			serverSocketChannels = new ArrayList<>();
+		}
 		if (listenAddresses != null && !listenAddresses.isEmpty()) {
 			listenAddresses(listenAddresses, false);
 			logger.info("Listening on {}: {}", listenAddresses, this);
@@ -239,10 +259,10 @@ public abstract class AbstractServer<Self extends AbstractServer<Self>> implemen
 		}
 	}
 
-	private void listenAddresses(List<InetSocketAddress> addresses, boolean ssl) throws IOException {
+	void listenAddresses(List<InetSocketAddress> addresses, boolean ssl) throws IOException {
 		for (InetSocketAddress address : addresses) {
 			try {
-				serverSocketChannels.add(eventloop.listen(address, serverSocketSettings, channel -> doAccept(channel, address, ssl)));
+				listenAddress(address, serverSocketSettings, ssl);
 			} catch (IOException e) {
 				logger.error("Can't listen on [" + address + "]: " + this, e);
 				close();
@@ -251,6 +271,28 @@ public abstract class AbstractServer<Self extends AbstractServer<Self>> implemen
 		}
 	}
 
+	final void listenAddress(InetSocketAddress address, ServerSocketSettings serverSocketSettings, boolean ssl) throws IOException {
+		if (CHECK) checkState(eventloop.inEventloopThread(), "Not in eventloop thread");
+		if (serverSocketChannels == null) {
+			serverSocketChannels = new ArrayList<>();
+		}
+		serverSocketChannels.add(eventloop.listen(address, serverSocketSettings, channel -> doAccept(channel, address, ssl)));
+	}
+
+	/**
+	 * Starts accepting connections from a server socket channel which has already been bound,
+	 * see {@link PrimaryServer}
+	 */
+	final void listenChannel(ServerSocketChannel serverSocketChannel, InetSocketAddress address, boolean ssl) throws IOException {
+		if (CHECK) checkState(eventloop.inEventloopThread(), "Not in eventloop thread");
+		if (serverSocketChannels == null) {
+			serverSocketChannels = new ArrayList<>();
+		}
+		serverSocketChannels.add(serverSocketChannel);
+		Consumer<SocketChannel> acceptCallback = channel -> doAccept(channel, address, ssl);
+		serverSocketChannel.register(eventloop.ensureSelector(), SelectionKey.OP_ACCEPT, acceptCallback);
+	}
+
 	@Override
 	public final Promise<?> close() {
 		if (CHECK) checkState(eventloop.inEventloopThread(), "Cannot close server from different thread");
@@ -340,7 +382,7 @@ public abstract class AbstractServer<Self extends AbstractServer<Self>> implemen
 		if (ssl) acceptsSsl.recordEvent();
 		onAccept(socketChannel, localAddress, remoteAddress, ssl);
 		AsyncTcpSocket asyncTcpSocket = wrapChannel(eventloop, socketChannel, socketSettings);
-		asyncTcpSocket = ssl ? wrapServerSocket(asyncTcpSocket, sslContext, sslExecutor) : asyncTcpSocket;
+		asyncTcpSocket = ssl ? wrapServerSocket(asyncTcpSocket, sslContext, sslExecutor, sslApplicationProtocols) : asyncTcpSocket;
 		serve(asyncTcpSocket, remoteAddress);
 	}
 
@@ -356,6 +398,10 @@ public abstract class AbstractServer<Self extends AbstractServer<Self>> implemen
 		return sslListenAddresses;
 	}
 
+	public List<String> getSslApplicationProtocols() {
+		return sslApplicationProtocols;
+	}
+
 	public SocketSettings getSocketSettings() {
 		return socketSettings;
 	}
@@ -369,19 +415,27 @@ public abstract class AbstractServer<Self extends AbstractServer<Self>> implemen
 	@JmxAttribute(extraSubAttributes = "totalCount")
 	@Nullable
 	public final EventStats getAccepts() {
-		return acceptServer.listenAddresses.isEmpty() ? null : accepts;
+		return acceptServer.listenAddresses.isEmpty() ? null : combineAcceptStats(accepts, server -> server.accepts);
 	}
 
 	@JmxAttribute
 	@Nullable
 	public final EventStats getAcceptsSsl() {
-		return acceptServer.sslListenAddresses.isEmpty() ? null : acceptsSsl;
+		return acceptServer.sslListenAddresses.isEmpty() ? null : combineAcceptStats(acceptsSsl, server -> server.acceptsSsl);
 	}
 
 	@JmxAttribute
 	@Nullable
 	public final EventStats getFilteredAccepts() {
-		return acceptFilter == null ? null : filteredAccepts;
+		return acceptFilter == null ? null : combineAcceptStats(filteredAccepts, server -> server.filteredAccepts);
+	}
+
+	/**
+	 * Connections of a server may be accepted by other servers on its behalf, which keep their own stats,
+	 * see {@link PrimaryServer}
+	 */
+	EventStats combineAcceptStats(EventStats stats, Function<AbstractServer<?>, EventStats> workerStats) {
+		return stats;
 	}
 
 	@JmxAttribute
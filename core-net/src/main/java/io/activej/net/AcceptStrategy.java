@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.net;
+
+import io.activej.eventloop.inspector.EventloopStats;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static io.activej.common.Preconditions.checkArgument;
+
+/**
+ * A strategy which is used by {@link PrimaryServer} to choose a {@link WorkerServer}
+ * for an accepted connection.
+ * <p>
+ * Strategies are called from the primary eventloop thread only, so they may be stateful.
+ * Load metrics of worker servers are read from another thread, so they are approximate.
+ */
+@FunctionalInterface
+public interface AcceptStrategy {
+	/**
+	 * Chooses a worker server for an accepted connection
+	 *
+	 * @param workerServers worker servers of a primary server
+	 * @return an index of a chosen worker server
+	 */
+	int select(WorkerServer[] workerServers);
+
+	/**
+	 * Dispatches connections to worker servers one by one
+	 */
+	static AcceptStrategy roundRobin() {
+		return new AcceptStrategy() {
+			private int current = -1;
+
+			@Override
+			public int select(WorkerServer[] workerServers) {
+				current = (current + 1) % workerServers.length;
+				return current;
+			}
+
+			@Override
+			public String toString() {
+				return "RoundRobin";
+			}
+		};
+	}
+
+	/**
+	 * Dispatches a connection to a worker server which has the least number of active connections,
+	 * as reported by {@link WorkerServer#getConnectionsCount()}.
+	 * Ties are resolved in a round-robin fashion.
+	 */
+	static AcceptStrategy leastConnections() {
+		return new AcceptStrategy() {
+			private int current = -1;
+
+			@Override
+			public int select(WorkerServer[] workerServers) {
+				current = (current + 1) % workerServers.length;
+				int selected = current;
+				int minConnections = workerServers[selected].getConnectionsCount();
+				for (int i = 1; i < workerServers.length && minConnections != 0; i++) {
+					int index = (current + i) % workerServers.length;
+					int connections = workerServers[index].getConnectionsCount();
+					if (connections < minConnections) {
+						selected = index;
+						minConnections = connections;
+					}
+				}
+				return selected;
+			}
+
+			@Override
+			public String toString() {
+				return "LeastConnections";
+			}
+		};
+	}
+
+	/**
+	 * Picks two random worker servers and dispatches a connection to the less loaded one.
+	 * <p>
+	 * A load of a worker server is a smoothed business logic time of its eventloop,
+	 * or a number of its active connections, if eventloop has no {@link EventloopStats}.
+	 */
+	static AcceptStrategy powerOfTwoChoices() {
+		return new AcceptStrategy() {
+			@Override
+			public int select(WorkerServer[] workerServers) {
+				int length = workerServers.length;
+				if (length == 1) return 0;
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				int first = random.nextInt(length);
+				int second = random.nextInt(length - 1);
+				if (second >= first) second++;
+				return load(workerServers[second]) < load(workerServers[first]) ? second : first;
+			}
+
+			private double load(WorkerServer workerServer) {
+				EventloopStats stats = workerServer.getEventloop().getStats();
+				return stats != null ?
+						stats.getBusinessLogicTime().getSmoothedAverage() :
+						workerServer.getConnectionsCount();
+			}
+
+			@Override
+			public String toString() {
+				return "PowerOfTwoChoices";
+			}
+		};
+	}
+
+	/**
+	 * Dispatches connections to worker servers proportionally to their weights,
+	 * interleaving them as evenly as possible (smooth weighted round-robin)
+	 *
+	 * @param weights weights of worker servers, in the same order as worker servers
+	 */
+	static AcceptStrategy weighted(@NotNull int... weights) {
+		int totalWeight = 0;
+		for (int weight : weights) {
+			checkArgument(weight >= 0, "Weights cannot be negative");
+			totalWeight += weight;
+		}
+		checkArgument(totalWeight > 0, "At least one weight should be positive");
+		int finalTotalWeight = totalWeight;
+		return new AcceptStrategy() {
+			private final int[] currentWeights = new int[weights.length];
+
+			@Override
+			public int select(WorkerServer[] workerServers) {
+				checkArgument(workerServers.length == weights.length, "Number of weights should be equal to number of worker servers");
+				int selected = 0;
+				for (int i = 0; i < weights.length; i++) {
+					currentWeights[i] += weights[i];
+					if (currentWeights[i] > currentWeights[selected]) {
+						selected = i;
+					}
+				}
+				currentWeights[selected] -= finalTotalWeight;
+				return selected;
+			}
+
+			@Override
+			public String toString() {
+				return "Weighted" + Arrays.toString(weights);
+			}
+		};
+	}
+}
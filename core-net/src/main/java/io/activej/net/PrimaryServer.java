@@ -17,28 +17,51 @@
 package io.activej.net;
 
 import io.activej.eventloop.Eventloop;
+import io.activej.jmx.api.attribute.JmxAttribute;
+import io.activej.jmx.stats.EventStats;
 import io.activej.net.socket.tcp.AsyncTcpSocket;
 
+import java.io.IOException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Function;
+
+import static io.activej.common.Preconditions.checkState;
+import static io.activej.eventloop.util.RunnableWithContext.wrapContext;
 
 /**
  * It is a simple balancer server, which dispatches its connections to its {@link WorkerServer WorkerServers}.
  * <p>
- * When an incoming connection takes place, it forwards the request to one of them with a round-robin algorithm.
+ * When an incoming connection takes place, it forwards the request to one of them, as chosen by
+ * its {@link AcceptStrategy} (round-robin by default).
+ * <p>
+ * If {@code SO_REUSEPORT} option is enabled in {@link #withServerSocketSettings server socket settings},
+ * primary server does not accept connections by itself. Instead, each of its worker servers
+ * listens on the same addresses in its own eventloop and the kernel balances incoming connections between them,
+ * so that a single accepting thread is no longer a bottleneck. In this mode listen addresses should have
+ * explicit ports, worker servers should be instances of {@link AbstractServer}, and an {@link AcceptStrategy}
+ * can not be set. Server sockets of all worker servers are bound by {@link #listen()} itself, so that it fails
+ * right away if any of them can not be bound, and worker servers start accepting connections from them
+ * in their own eventloops, without blocking this server's eventloop.
  */
 public final class PrimaryServer extends AbstractServer<PrimaryServer> {
 
 	private final WorkerServer[] workerServers;
 
-	private int currentAcceptor = -1; // first server index is currentAcceptor + 1
+	private AcceptStrategy acceptStrategy = AcceptStrategy.roundRobin();
+	private boolean customAcceptStrategy;
+
+	private final long[] workerAccepts;
 
 	// region builders
 	private PrimaryServer(Eventloop primaryEventloop, WorkerServer[] workerServers) {
 		super(primaryEventloop);
 		this.workerServers = workerServers;
+		this.workerAccepts = new long[workerServers.length];
 		for (WorkerServer workerServer : workerServers) {
 			if (workerServer instanceof AbstractServer) {
 				((AbstractServer<?>) workerServer).acceptServer = this;
@@ -59,6 +82,16 @@ public final class PrimaryServer extends AbstractServer<PrimaryServer> {
 	public static PrimaryServer create(Eventloop primaryEventloop, WorkerServer... workerServer) {
 		return new PrimaryServer(primaryEventloop, workerServer);
 	}
+
+	/**
+	 * Sets a strategy which chooses a worker server for each accepted connection.
+	 * It can not be used if {@code SO_REUSEPORT} is enabled, as connections are then accepted by worker servers themselves
+	 */
+	public PrimaryServer withAcceptStrategy(AcceptStrategy acceptStrategy) {
+		this.acceptStrategy = acceptStrategy;
+		this.customAcceptStrategy = true;
+		return this;
+	}
 	// endregion
 
 	@Override
@@ -66,16 +99,156 @@ public final class PrimaryServer extends AbstractServer<PrimaryServer> {
 		throw new UnsupportedOperationException();
 	}
 
+	@Override
+	void listenAddresses(List<InetSocketAddress> addresses, boolean ssl) throws IOException {
+		if (!isReusePort()) {
+			super.listenAddresses(addresses, ssl);
+			return;
+		}
+		for (WorkerServer workerServer : workerServers) {
+			checkState(workerServer instanceof AbstractServer, "Worker server should extend AbstractServer to listen with SO_REUSEPORT");
+		}
+		checkState(!customAcceptStrategy, "Accept strategy can not be used with SO_REUSEPORT, connections are balanced by the kernel");
+		ServerSocketChannel[][] channels = new ServerSocketChannel[addresses.size()][workerServers.length];
+		for (int i = 0; i < addresses.size(); i++) {
+			InetSocketAddress address = addresses.get(i);
+			for (int j = 0; j < workerServers.length; j++) {
+				try {
+					channels[i][j] = Eventloop.createServerSocketChannel(serverSocketSettings, address);
+				} catch (IOException e) {
+					logger.error("Can't listen on [" + address + "] with worker server " + workerServers[j] + ": " + this, e);
+					closeChannels(channels);
+					close();
+					throw e;
+				}
+			}
+		}
+		for (int j = 0; j < workerServers.length; j++) {
+			AbstractServer<?> workerServer = (AbstractServer<?>) workerServers[j];
+			workerServer.socketSettings = socketSettings;
+			workerServer.acceptFilter = acceptFilter;
+			for (int i = 0; i < addresses.size(); i++) {
+				ServerSocketChannel channel = channels[i][j];
+				InetSocketAddress address = addresses.get(i);
+				Runnable listen = () -> {
+					try {
+						workerServer.listenChannel(channel, address, ssl);
+					} catch (IOException e) {
+						logger.error("Can't listen on [" + address + "] with worker server " + workerServer + ": " + this, e);
+					}
+				};
+				Eventloop workerEventloop = workerServer.getEventloop();
+				if (workerEventloop.inEventloopThread()) {
+					listen.run();
+				} else {
+					workerEventloop.execute(wrapContext(workerServer, listen));
+				}
+			}
+		}
+	}
+
+	private void closeChannels(ServerSocketChannel[][] channels) {
+		for (ServerSocketChannel[] addressChannels : channels) {
+			for (ServerSocketChannel channel : addressChannels) {
+				if (channel == null) continue;
+				try {
+					channel.close();
+				} catch (IOException e) {
+					logger.warn("Failed closing server socket channel {}", channel, e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Server sockets of worker servers in other eventloops are closed in their own eventloops
+	 */
+	@Override
+	protected void closeServerSockets() {
+		super.closeServerSockets();
+		if (!isReusePort()) return;
+		for (WorkerServer workerServer : workerServers) {
+			if (!(workerServer instanceof AbstractServer)) continue;
+			AbstractServer<?> server = (AbstractServer<?>) workerServer;
+			Eventloop workerEventloop = server.getEventloop();
+			if (workerEventloop.inEventloopThread()) {
+				server.closeServerSockets();
+			} else {
+				workerEventloop.execute(wrapContext(server, server::closeServerSockets));
+			}
+		}
+	}
+
+	/**
+	 * In {@code SO_REUSEPORT} mode connections are accepted by worker servers, which keep their own stats,
+	 * so stats of this server are combined from them
+	 */
+	@Override
+	EventStats combineAcceptStats(EventStats stats, Function<AbstractServer<?>, EventStats> workerStats) {
+		if (!isReusePort()) return stats;
+		EventStats result = EventStats.createAccumulator();
+		result.add(stats);
+		for (WorkerServer workerServer : workerServers) {
+			if (workerServer instanceof AbstractServer) {
+				result.add(workerStats.apply((AbstractServer<?>) workerServer));
+			}
+		}
+		return result;
+	}
+
+	private boolean isReusePort() {
+		return serverSocketSettings.hasReusePort() && serverSocketSettings.getReusePort();
+	}
+
 	@Override
 	protected WorkerServer getWorkerServer() {
-		currentAcceptor = (currentAcceptor + 1) % workerServers.length;
-		return workerServers[currentAcceptor];
+		int index = acceptStrategy.select(workerServers);
+		workerAccepts[index]++;
+		return workerServers[index];
+	}
+
+	@JmxAttribute
+	public String getAcceptStrategy() {
+		return acceptStrategy.toString();
+	}
+
+	@JmxAttribute(description = "number of connections dispatched to each of worker servers")
+	public List<Long> getWorkerAccepts() {
+		List<Long> result = new ArrayList<>(workerAccepts.length);
+		for (long accepts : workerAccepts) {
+			result.add(accepts);
+		}
+		return result;
+	}
+
+	@JmxAttribute(description = "current number of connections of each of worker servers")
+	public List<Integer> getWorkerConnections() {
+		List<Integer> result = new ArrayList<>(workerServers.length);
+		for (WorkerServer workerServer : workerServers) {
+			result.add(workerServer.getConnectionsCount());
+		}
+		return result;
+	}
+
+	@JmxAttribute(description = "ratio of the maximum number of connections of a worker server " +
+			"to the average one (1.0 means that connections are spread evenly)")
+	public double getWorkerConnectionsImbalance() {
+		int max = 0;
+		long total = 0;
+		for (WorkerServer workerServer : workerServers) {
+			int connections = workerServer.getConnectionsCount();
+			max = Math.max(max, connections);
+			total += connections;
+		}
+		return total == 0 ? 1.0 : (double) max * workerServers.length / total;
 	}
 
 	@Override
 	public String toString() {
 		return "PrimaryServer{" +
 				"numOfWorkerServers=" + workerServers.length +
+				", acceptStrategy=" + acceptStrategy +
+				(isReusePort() ? ", reusePort" : "") +
 				(listenAddresses.isEmpty() ? "" : ", listenAddresses=" + listenAddresses) +
 				(sslListenAddresses.isEmpty() ? "" : ", sslListenAddresses=" + sslListenAddresses) +
 				(acceptOnce ? ", acceptOnce" : "") +
@@ -33,4 +33,14 @@ public interface WorkerServer {
 
 	void doAccept(SocketChannel socketChannel, InetSocketAddress localAddress, InetAddress remoteAddress,
 			boolean ssl, SocketSettings socketSettings);
+
+	/**
+	 * Returns a current number of active connections of this server.
+	 * It is used by some of {@link AcceptStrategy accept strategies} as a measure of load.
+	 * <p>
+	 * May be called from a thread other than the eventloop thread of this server.
+	 */
+	default int getConnectionsCount() {
+		return 0;
+	}
 }
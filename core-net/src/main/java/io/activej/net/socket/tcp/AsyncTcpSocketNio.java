@@ -18,6 +18,7 @@ package io.activej.net.socket.tcp;
 
 import io.activej.bytebuf.ByteBuf;
 import io.activej.bytebuf.ByteBufPool;
+import io.activej.bytebuf.ByteBufQueue;
 import io.activej.common.ApplicationSettings;
 import io.activej.common.Check;
 import io.activej.common.exception.AsyncTimeoutException;
@@ -37,14 +38,19 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import static io.activej.common.MemSize.bytes;
 import static io.activej.common.MemSize.kilobytes;
+import static io.activej.common.MemSize.megabytes;
 import static io.activej.common.Preconditions.checkState;
 import static io.activej.common.Utils.nullify;
 import static io.activej.eventloop.Eventloop.getCurrentEventloop;
@@ -55,6 +61,15 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 	private static final boolean CHECK = Check.isEnabled(AsyncTcpSocketNio.class);
 
 	public static final int DEFAULT_READ_BUFFER_SIZE = ApplicationSettings.getMemSize(AsyncTcpSocketNio.class, "readBufferSize", kilobytes(16)).toInt();
+	public static final boolean DEFAULT_DIRECT_BUFFERS = ApplicationSettings.getBoolean(AsyncTcpSocketNio.class, "directBuffers", false);
+	public static final int MAX_DIRECT_WRITE_SIZE = ApplicationSettings.getMemSize(AsyncTcpSocketNio.class, "maxDirectWriteSize", kilobytes(256)).toInt();
+	public static final int MAX_WRITE_IOVECS = ApplicationSettings.getInt(AsyncTcpSocketNio.class, "maxWriteIovecs", 64);
+	public static final int MAX_GATHERING_WRITE_SIZE = ApplicationSettings.getMemSize(AsyncTcpSocketNio.class, "maxGatheringWriteSize", megabytes(1)).toInt();
+	public static final boolean DEFAULT_ADAPTIVE_READ_BUFFER = ApplicationSettings.getBoolean(AsyncTcpSocketNio.class, "adaptiveReadBuffer", false);
+	public static final int MIN_ADAPTIVE_READ_BUFFER_SIZE = ApplicationSettings.getMemSize(AsyncTcpSocketNio.class, "minAdaptiveReadBufferSize", bytes(512)).toInt();
+	public static final int MAX_ADAPTIVE_READ_BUFFER_SIZE = ApplicationSettings.getMemSize(AsyncTcpSocketNio.class, "maxAdaptiveReadBufferSize", kilobytes(256)).toInt();
+	public static final int MAX_READS_PER_EVENT = ApplicationSettings.getInt(AsyncTcpSocketNio.class, "maxReadsPerEvent", 1);
+	public static final long MAX_FILE_TRANSFER_SIZE = ApplicationSettings.getMemSize(AsyncTcpSocketNio.class, "maxFileTransferSize", megabytes(8)).toLong();
 
 	public static final AsyncTimeoutException TIMEOUT_EXCEPTION = new AsyncTimeoutException(AsyncTcpSocketNio.class, "timed out");
 	public static final int NO_TIMEOUT = 0;
@@ -64,12 +79,19 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 	private final Eventloop eventloop;
 	@Nullable
 	private SocketChannel channel;
-	@Nullable
-	private ByteBuf readBuf;
+	private final ByteBufQueue readQueue = new ByteBufQueue();
 	private boolean readEndOfStream;
-	@Nullable
-	private ByteBuf writeBuf;
+	private final ByteBufQueue writeQueue = new ByteBufQueue();
 	private boolean writeEndOfStream;
+	@Nullable
+	private ByteBuffer[] writeBuffers;
+	@Nullable
+	private ByteBuffer writeDirectBuffer;
+	private int directWriteBufs;
+	@Nullable
+	private FileChannel writeFile;
+	private long writeFilePosition;
+	private long writeFileRemaining;
 
 	@Nullable
 	private SettablePromise<ByteBuf> read;
@@ -82,6 +104,9 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 	private int readTimeout = NO_TIMEOUT;
 	private int writeTimeout = NO_TIMEOUT;
 	private int readBufferSize = DEFAULT_READ_BUFFER_SIZE;
+	private boolean directBuffers = DEFAULT_DIRECT_BUFFERS;
+	private boolean adaptiveReadBuffer = DEFAULT_ADAPTIVE_READ_BUFFER;
+	private boolean shrinkReadBuffer;
 
 	@Nullable
 	private ScheduledRunnable scheduledReadTimeout;
@@ -100,10 +125,16 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 
 		void onReadError(IOException e);
 
+		void onReadBufferResize(int oldSize, int newSize);
+
 		void onWriteTimeout();
 
 		void onWrite(ByteBuf buf, int bytes);
 
+		void onGatheringWrite(int bufs, int requested, int bytes);
+
+		void onWriteFile(long requested, long bytes);
+
 		void onWriteError(IOException e);
 	}
 
@@ -132,6 +163,11 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 			if (next != null) next.onReadError(e);
 		}
 
+		@Override
+		public void onReadBufferResize(int oldSize, int newSize) {
+			if (next != null) next.onReadBufferResize(oldSize, newSize);
+		}
+
 		@Override
 		public void onWriteTimeout() {
 			if (next != null) next.onWriteTimeout();
@@ -142,6 +178,16 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 			if (next != null) next.onWrite(buf, bytes);
 		}
 
+		@Override
+		public void onGatheringWrite(int bufs, int requested, int bytes) {
+			if (next != null) next.onGatheringWrite(bufs, requested, bytes);
+		}
+
+		@Override
+		public void onWriteFile(long requested, long bytes) {
+			if (next != null) next.onWriteFile(requested, bytes);
+		}
+
 		@Override
 		public void onWriteError(IOException e) {
 			if (next != null) next.onWriteError(e);
@@ -161,10 +207,15 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 		private final EventStats readEndOfStreams = EventStats.create(SMOOTHING_WINDOW);
 		private final EventStats readErrors = EventStats.create(SMOOTHING_WINDOW);
 		private final EventStats readTimeouts = EventStats.create(SMOOTHING_WINDOW);
+		private final EventStats readBufferGrows = EventStats.create(SMOOTHING_WINDOW);
+		private final EventStats readBufferShrinks = EventStats.create(SMOOTHING_WINDOW);
+		private final ValueStats readBufferSizes = ValueStats.create(SMOOTHING_WINDOW).withUnit("bytes");
 		private final ValueStats writes = ValueStats.create(SMOOTHING_WINDOW).withUnit("bytes").withRate();
 		private final EventStats writeErrors = EventStats.create(SMOOTHING_WINDOW);
 		private final EventStats writeTimeouts = EventStats.create(SMOOTHING_WINDOW);
 		private final EventStats writeOverloaded = EventStats.create(SMOOTHING_WINDOW);
+		private final ValueStats gatheringWriteBufs = ValueStats.create(SMOOTHING_WINDOW).withRate();
+		private final ValueStats fileWrites = ValueStats.create(SMOOTHING_WINDOW).withUnit("bytes").withRate();
 
 		@Override
 		public void onReadTimeout() {
@@ -186,6 +237,16 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 			readErrors.recordEvent();
 		}
 
+		@Override
+		public void onReadBufferResize(int oldSize, int newSize) {
+			if (newSize > oldSize) {
+				readBufferGrows.recordEvent();
+			} else {
+				readBufferShrinks.recordEvent();
+			}
+			readBufferSizes.recordValue(newSize);
+		}
+
 		@Override
 		public void onWriteTimeout() {
 			writeTimeouts.recordEvent();
@@ -198,6 +259,21 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 				writeOverloaded.recordEvent();
 		}
 
+		@Override
+		public void onGatheringWrite(int bufs, int requested, int bytes) {
+			writes.recordValue(bytes);
+			gatheringWriteBufs.recordValue(bufs);
+			if (requested != bytes)
+				writeOverloaded.recordEvent();
+		}
+
+		@Override
+		public void onWriteFile(long requested, long bytes) {
+			fileWrites.recordValue((double) bytes);
+			if (requested != bytes)
+				writeOverloaded.recordEvent();
+		}
+
 		@Override
 		public void onWriteError(IOException e) {
 			writeErrors.recordEvent();
@@ -223,6 +299,21 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 			return readErrors;
 		}
 
+		@JmxAttribute
+		public EventStats getReadBufferGrows() {
+			return readBufferGrows;
+		}
+
+		@JmxAttribute
+		public EventStats getReadBufferShrinks() {
+			return readBufferShrinks;
+		}
+
+		@JmxAttribute(description = "Sizes of adaptive read buffers after they have been resized")
+		public ValueStats getReadBufferSizes() {
+			return readBufferSizes;
+		}
+
 		@JmxAttribute
 		public EventStats getWriteTimeouts() {
 			return writeTimeouts;
@@ -242,6 +333,16 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 		public EventStats getWriteOverloaded() {
 			return writeOverloaded;
 		}
+
+		@JmxAttribute(description = "Number of buffers sent with a single gathering write")
+		public ValueStats getGatheringWriteBufs() {
+			return gatheringWriteBufs;
+		}
+
+		@JmxAttribute(description = "Bytes transferred directly from files to sockets")
+		public ValueStats getFileWrites() {
+			return fileWrites;
+		}
 	}
 
 	public static AsyncTcpSocketNio wrapChannel(Eventloop eventloop, SocketChannel socketChannel, @Nullable SocketSettings socketSettings) {
@@ -260,6 +361,12 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 		if (socketSettings.hasReadBufferSize()) {
 			asyncTcpSocket.readBufferSize = socketSettings.getImplReadBufferSizeBytes();
 		}
+		if (socketSettings.hasImplDirectBuffers()) {
+			asyncTcpSocket.directBuffers = socketSettings.getImplDirectBuffers();
+		}
+		if (socketSettings.hasImplAdaptiveReadBuffer()) {
+			asyncTcpSocket.adaptiveReadBuffer = socketSettings.getImplAdaptiveReadBuffer();
+		}
 		return asyncTcpSocket;
 	}
 
@@ -313,7 +420,7 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 
 	private void updateInterests() {
 		assert !isClosed() && ops >= 0;
-		byte newOps = (byte) (((readBuf == null && !readEndOfStream) ? SelectionKey.OP_READ : 0) | (writeBuf == null || writeEndOfStream ? 0 : SelectionKey.OP_WRITE));
+		byte newOps = (byte) (((readQueue.isEmpty() && !readEndOfStream) ? SelectionKey.OP_READ : 0) | (isWriteQueueEmpty() || writeEndOfStream ? 0 : SelectionKey.OP_WRITE));
 		if (key == null) {
 			ops = newOps;
 			try {
@@ -336,10 +443,11 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 		if (CHECK) checkState(eventloop.inEventloopThread());
 		if (isClosed()) return Promise.ofException(CLOSE_EXCEPTION);
 		read = null;
-		if (readBuf != null || readEndOfStream) {
-			ByteBuf readBuf = this.readBuf;
-			this.readBuf = null;
-			return Promise.of(readBuf);
+		if (!readQueue.isEmpty()) {
+			return Promise.of(readQueue.take());
+		}
+		if (readEndOfStream) {
+			return Promise.of(null);
 		}
 		SettablePromise<ByteBuf> read = new SettablePromise<>();
 		this.read = read;
@@ -361,21 +469,38 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 			closeEx(e);
 			return;
 		}
-		if (read != null && (readBuf != null || readEndOfStream)) {
+		if (read != null && (!readQueue.isEmpty() || readEndOfStream)) {
 			SettablePromise<@Nullable ByteBuf> read = this.read;
-			ByteBuf readBuf = this.readBuf;
 			this.read = null;
-			this.readBuf = null;
-			read.set(readBuf);
+			read.set(readQueue.isEmpty() ? null : readQueue.take());
 		}
 		if (isClosed()) return;
 		ops = (byte) (ops & 0x7f);
 		updateInterests();
 	}
 
+	/**
+	 * Reads available data into the read queue.
+	 * <p>
+	 * Every read buffer is added to the read queue as is, so data that has not been consumed yet
+	 * is never copied. If a read fills the whole buffer, up to {@link #MAX_READS_PER_EVENT} reads
+	 * are made within a single event.
+	 */
 	private void doRead() throws IOException {
+		for (int i = 0; i < MAX_READS_PER_EVENT; i++) {
+			int bufferSize = readBufferSize;
+			int numRead = doReadOnce(bufferSize);
+			if (numRead <= 0) return;
+			if (adaptiveReadBuffer) {
+				adjustReadBufferSize(numRead);
+			}
+			if (numRead < bufferSize) return;
+		}
+	}
+
+	private int doReadOnce(int bufferSize) throws IOException {
 		assert channel != null;
-		ByteBuf buf = ByteBufPool.allocate(readBufferSize);
+		ByteBuf buf = ByteBufPool.allocate(bufferSize);
 		ByteBuffer buffer = buf.toWriteByteBuffer();
 
 		int numRead;
@@ -391,7 +516,7 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 		if (numRead == 0) {
 			if (inspector != null) inspector.onRead(buf);
 			buf.recycle();
-			return;
+			return 0;
 		}
 
 		scheduledReadTimeout = nullify(scheduledReadTimeout, ScheduledRunnable::cancel);
@@ -400,20 +525,43 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 			buf.recycle();
 			if (inspector != null) inspector.onReadEndOfStream();
 			readEndOfStream = true;
-			if (writeEndOfStream && writeBuf == null) {
+			if (writeEndOfStream && isWriteQueueEmpty()) {
 				doClose();
 			}
-			return;
+			return -1;
 		}
 
 		if (inspector != null) inspector.onRead(buf);
 
-		if (readBuf == null) {
-			readBuf = buf;
+		readQueue.add(buf);
+		return numRead;
+	}
+
+	/**
+	 * Adjusts the read buffer size to the amount of data read recently.
+	 * <p>
+	 * The size is doubled as soon as a read fills the whole buffer, and is halved
+	 * only after two reads in a row would have fit into a buffer of half the size.
+	 */
+	private void adjustReadBufferSize(int numRead) {
+		int oldSize = readBufferSize;
+		int newSize = oldSize;
+		if (numRead >= oldSize) {
+			newSize = Math.min(oldSize << 1, MAX_ADAPTIVE_READ_BUFFER_SIZE);
+			shrinkReadBuffer = false;
+		} else if (numRead <= oldSize >>> 1) {
+			if (shrinkReadBuffer) {
+				newSize = Math.max(oldSize >>> 1, MIN_ADAPTIVE_READ_BUFFER_SIZE);
+				shrinkReadBuffer = false;
+			} else {
+				shrinkReadBuffer = true;
+			}
 		} else {
-			readBuf = ByteBufPool.ensureWriteRemaining(readBuf, buf.readRemaining());
-			readBuf.put(buf.array(), buf.head(), buf.readRemaining());
-			buf.recycle();
+			shrinkReadBuffer = false;
+		}
+		if (newSize != oldSize) {
+			readBufferSize = newSize;
+			if (inspector != null) inspector.onReadBufferResize(oldSize, newSize);
 		}
 	}
 
@@ -431,18 +579,12 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 		}
 		writeEndOfStream |= buf == null;
 
-		if (writeBuf == null) {
-			if (buf != null && !buf.canRead()) {
+		if (buf != null) {
+			if (isWriteQueueEmpty() && !buf.canRead()) {
 				buf.recycle();
 				return Promise.complete();
 			}
-			writeBuf = buf;
-		} else {
-			if (buf != null) {
-				writeBuf = ByteBufPool.ensureWriteRemaining(this.writeBuf, buf.readRemaining());
-				writeBuf.put(buf.array(), buf.head(), buf.readRemaining());
-				buf.recycle();
-			}
+			writeQueue.add(buf);
 		}
 
 		if (write != null) return write;
@@ -454,7 +596,62 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 			return Promise.ofException(e);
 		}
 
-		if (this.writeBuf == null) {
+		if (isWriteQueueEmpty()) {
+			return Promise.complete();
+		}
+		SettablePromise<Void> write = new SettablePromise<>();
+		this.write = write;
+		if (scheduledWriteTimeout == null && writeTimeout != NO_TIMEOUT) {
+			scheduleWriteTimeout();
+		}
+		if (ops >= 0) {
+			updateInterests();
+		}
+		return write;
+	}
+
+	/**
+	 * Writes a region of a file to network directly from a file system cache with
+	 * {@link FileChannel#transferTo}, so that file contents are neither read into buffers nor copied.
+	 * <p>
+	 * If there are pending writes, the region is written after them.
+	 * Any further writes should be made only after the returned promise is complete,
+	 * a file channel is not closed by this socket.
+	 *
+	 * @param file     a file to be written
+	 * @param position a position of a region in the file
+	 * @param count    a size of a region
+	 * @return promise that represents successful write operation
+	 */
+	@NotNull
+	public Promise<Void> writeFile(@NotNull FileChannel file, long position, long count) {
+		if (CHECK) {
+			checkState(eventloop.inEventloopThread());
+			checkState(!writeEndOfStream, "End of stream has already been sent");
+			checkState(writeFile == null, "A file is being written already");
+		}
+		if (isClosed()) {
+			return Promise.ofException(CLOSE_EXCEPTION);
+		}
+		if (write != null) {
+			return write.then(() -> writeFile(file, position, count));
+		}
+		if (count == 0) {
+			return Promise.complete();
+		}
+
+		writeFile = file;
+		writeFilePosition = position;
+		writeFileRemaining = count;
+
+		try {
+			doWrite();
+		} catch (IOException e) {
+			closeEx(e);
+			return Promise.ofException(e);
+		}
+
+		if (isWriteQueueEmpty()) {
 			return Promise.complete();
 		}
 		SettablePromise<Void> write = new SettablePromise<>();
@@ -478,7 +675,7 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 			closeEx(e);
 			return;
 		}
-		if (writeBuf == null) {
+		if (isWriteQueueEmpty()) {
 			SettablePromise<@Nullable Void> write = this.write;
 			this.write = null;
 			write.set(null);
@@ -488,28 +685,33 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 		updateInterests();
 	}
 
+	private boolean isWriteQueueEmpty() {
+		return writeQueue.isEmpty() && writeDirectBuffer == null && writeFile == null;
+	}
+
 	private void doWrite() throws IOException {
 		assert channel != null;
-		if (writeBuf != null) {
-			ByteBuf buf = this.writeBuf;
-			ByteBuffer buffer = buf.toReadByteBuffer();
-
+		if (!isWriteQueueEmpty()) {
 			try {
-				channel.write(buffer);
+				if (writeFile != null) {
+					doWriteFile();
+				}
+				if (writeFile == null) {
+					if (directBuffers) {
+						doWriteDirect();
+					} else if (writeQueue.remainingBufs() == 1) {
+						doWriteSingle();
+					} else {
+						doWriteGathering();
+					}
+				}
 			} catch (IOException e) {
 				if (inspector != null) inspector.onWriteError(e);
 				throw e;
 			}
 
-			if (inspector != null) inspector.onWrite(buf, buffer.position() - buf.head());
-
-			buf.ofReadByteBuffer(buffer);
-
-			if (buf.canRead()) {
+			if (!isWriteQueueEmpty()) {
 				return;
-			} else {
-				buf.recycle();
-				writeBuf = null;
 			}
 		}
 
@@ -524,13 +726,118 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 		}
 	}
 
+	private void doWriteSingle() throws IOException {
+		assert channel != null;
+		ByteBuf buf = writeQueue.peekBuf();
+		assert buf != null;
+		int bytes = channel.write(buf.toReadByteBuffer());
+		if (inspector != null) inspector.onWrite(buf, bytes);
+		writeQueue.skip(bytes);
+	}
+
+	/**
+	 * Transfers a pending region of a file, up to {@link #MAX_FILE_TRANSFER_SIZE} bytes per attempt.
+	 * If all of the requested bytes were transferred, the rest of the region is transferred right away.
+	 */
+	private void doWriteFile() throws IOException {
+		assert channel != null && writeFile != null;
+		while (writeFileRemaining != 0) {
+			long requested = Math.min(writeFileRemaining, MAX_FILE_TRANSFER_SIZE);
+			long bytes = writeFile.transferTo(writeFilePosition, requested, channel);
+			if (inspector != null) inspector.onWriteFile(requested, bytes);
+			writeFilePosition += bytes;
+			writeFileRemaining -= bytes;
+			if (bytes != requested) {
+				if (bytes == 0 && writeFilePosition >= writeFile.size()) {
+					throw new IOException("Unexpected end of file");
+				}
+				return;
+			}
+		}
+		writeFile = null;
+	}
+
+	/**
+	 * Writes pending buffers with a single gathering write, so that several small buffers
+	 * (e.g. HTTP headers and body, or a batch of RPC messages) are sent with a single syscall
+	 * and without being copied into a single buffer first.
+	 * <p>
+	 * Each attempt is limited to {@link #MAX_WRITE_IOVECS} buffers and {@link #MAX_GATHERING_WRITE_SIZE} bytes.
+	 * If all of the requested bytes were written, next buffers are written right away.
+	 */
+	private void doWriteGathering() throws IOException {
+		assert channel != null;
+		ByteBuffer[] buffers = writeBuffers;
+		if (buffers == null) {
+			buffers = writeBuffers = new ByteBuffer[MAX_WRITE_IOVECS];
+		}
+		while (writeQueue.hasRemaining()) {
+			int count = Math.min(writeQueue.remainingBufs(), buffers.length);
+			int requested = 0;
+			for (int i = 0; i < count; i++) {
+				ByteBuf buf = writeQueue.peekBuf(i);
+				if (i != 0 && requested + buf.readRemaining() > MAX_GATHERING_WRITE_SIZE) {
+					count = i;
+					break;
+				}
+				buffers[i] = buf.toReadByteBuffer();
+				requested += buf.readRemaining();
+			}
+
+			int bytes = (int) channel.write(buffers, 0, count);
+			Arrays.fill(buffers, 0, count, null);
+
+			if (inspector != null) inspector.onGatheringWrite(count, requested, bytes);
+			writeQueue.skip(bytes);
+
+			if (bytes != requested) return;
+		}
+	}
+
+	/**
+	 * Writes pending buffers through pooled direct buffers.
+	 * <p>
+	 * Pending buffers are copied into a direct buffer which is kept until it is written fully,
+	 * so that the bytes are copied only once no matter how many times the write is retried.
+	 */
+	private void doWriteDirect() throws IOException {
+		assert channel != null;
+		while (true) {
+			ByteBuffer buffer = writeDirectBuffer;
+			if (buffer == null) {
+				if (writeQueue.isEmpty()) return;
+				buffer = ByteBufPool.allocateDirect(Math.min(writeQueue.remainingBytes(), MAX_DIRECT_WRITE_SIZE));
+				int bufs = 0;
+				while (buffer.hasRemaining() && writeQueue.hasRemaining()) {
+					ByteBuf buf = writeQueue.peekBuf();
+					assert buf != null;
+					int size = Math.min(buf.readRemaining(), buffer.remaining());
+					buffer.put(buf.array(), buf.head(), size);
+					writeQueue.skip(size);
+					bufs++;
+				}
+				((Buffer) buffer).flip();
+				writeDirectBuffer = buffer;
+				directWriteBufs = bufs;
+			}
+			int requested = buffer.remaining();
+			int bytes = channel.write(buffer);
+			if (inspector != null) inspector.onGatheringWrite(directWriteBufs, requested, bytes);
+			if (buffer.hasRemaining()) return;
+			ByteBufPool.recycleDirect(buffer);
+			writeDirectBuffer = null;
+		}
+	}
+
 	@Override
 	public void closeEx(@NotNull Throwable e) {
 		if (CHECK) checkState(eventloop.inEventloopThread());
 		if (isClosed()) return;
 		doClose();
-		readBuf = nullify(readBuf, ByteBuf::recycle);
-		writeBuf = nullify(writeBuf, ByteBuf::recycle);
+		while (readQueue.hasRemaining()) readQueue.take().recycle();
+		while (writeQueue.hasRemaining()) writeQueue.take().recycle();
+		writeDirectBuffer = nullify(writeDirectBuffer, ByteBufPool::recycleDirect);
+		writeFile = null;
 		scheduledReadTimeout = nullify(scheduledReadTimeout, ScheduledRunnable::cancel);
 		scheduledWriteTimeout = nullify(scheduledWriteTimeout, ScheduledRunnable::cancel);
 		read = nullify(read, SettablePromise::setException, e);
@@ -557,8 +864,8 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 	public String toString() {
 		return "AsyncTcpSocketImpl{" +
 				"channel=" + (channel != null ? channel : "") +
-				", readBuf=" + readBuf +
-				", writeBuf=" + writeBuf +
+				", readQueue=" + readQueue +
+				", writeQueue=" + writeQueue +
 				", readEndOfStream=" + readEndOfStream +
 				", writeEndOfStream=" + writeEndOfStream +
 				", read=" + read +
@@ -30,7 +30,12 @@ import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLEngineResult;
 import javax.net.ssl.SSLEngineResult.HandshakeStatus;
 import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.concurrent.Executor;
 
 import static io.activej.common.api.Recyclable.tryRecycle;
@@ -45,6 +50,29 @@ import static javax.net.ssl.SSLEngineResult.Status.CLOSED;
  */
 public final class AsyncTcpSocketSsl implements AsyncTcpSocket {
 	public static final boolean ERROR_ON_CLOSE_WITHOUT_NOTIFY = ApplicationSettings.getBoolean(AsyncTcpSocketSsl.class, "errorOnCloseWithoutNotify", false);
+
+	/**
+	 * {@code SSLParameters.setApplicationProtocols(String[])} and {@code SSLEngine.getApplicationProtocol()},
+	 * available since Java 9 and backported to Java 8u252
+	 */
+	@Nullable
+	private static final MethodHandle SET_APPLICATION_PROTOCOLS;
+	@Nullable
+	private static final MethodHandle GET_APPLICATION_PROTOCOL;
+
+	static {
+		MethodHandle setApplicationProtocols = null;
+		MethodHandle getApplicationProtocol = null;
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			setApplicationProtocols = lookup.findVirtual(SSLParameters.class, "setApplicationProtocols", MethodType.methodType(void.class, String[].class));
+			getApplicationProtocol = lookup.findVirtual(SSLEngine.class, "getApplicationProtocol", MethodType.methodType(String.class));
+		} catch (NoSuchMethodException | IllegalAccessException ignored) {
+		}
+		SET_APPLICATION_PROTOCOLS = setApplicationProtocols;
+		GET_APPLICATION_PROTOCOL = getApplicationProtocol;
+	}
+
 	private final SSLEngine engine;
 	private final Executor executor;
 	private final AsyncTcpSocket upstream;
@@ -83,6 +111,39 @@ public final class AsyncTcpSocketSsl implements AsyncTcpSocket {
 		return create(asyncTcpSocket, sslEngine, executor);
 	}
 
+	/**
+	 * Wraps a server socket, advertising given application protocols via ALPN
+	 * if it is supported by the running JVM
+	 *
+	 * @see #isApplicationProtocolNegotiationSupported()
+	 */
+	public static AsyncTcpSocketSsl wrapServerSocket(AsyncTcpSocket asyncTcpSocket,
+			SSLContext sslContext, Executor executor, List<String> applicationProtocols) {
+		SSLEngine sslEngine = sslContext.createSSLEngine();
+		sslEngine.setUseClientMode(false);
+		if (!applicationProtocols.isEmpty() && SET_APPLICATION_PROTOCOLS != null) {
+			SSLParameters sslParameters = sslEngine.getSSLParameters();
+			try {
+				SET_APPLICATION_PROTOCOLS.invokeExact(sslParameters, applicationProtocols.toArray(new String[0]));
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new AssertionError(e);
+			}
+			sslEngine.setSSLParameters(sslParameters);
+		}
+		return create(asyncTcpSocket, sslEngine, executor);
+	}
+
+	/**
+	 * Checks whether application protocols can be negotiated via ALPN
+	 *
+	 * @return <code>true</code> if running on Java 8u252, Java 9 or later
+	 */
+	public static boolean isApplicationProtocolNegotiationSupported() {
+		return SET_APPLICATION_PROTOCOLS != null && GET_APPLICATION_PROTOCOL != null;
+	}
+
 	private AsyncTcpSocketSsl(AsyncTcpSocket asyncTcpSocket, SSLEngine engine, Executor executor) {
 		this.engine = engine;
 		this.executor = executor;
@@ -95,6 +156,24 @@ public final class AsyncTcpSocketSsl implements AsyncTcpSocket {
 		return new AsyncTcpSocketSsl(asyncTcpSocket, engine, executor);
 	}
 
+	/**
+	 * Returns an application protocol negotiated via ALPN during a handshake
+	 *
+	 * @return a negotiated protocol, an empty string if no protocol was negotiated
+	 * or <code>null</code> if a handshake has not completed yet or ALPN is not supported
+	 */
+	@Nullable
+	public String getApplicationProtocol() {
+		if (GET_APPLICATION_PROTOCOL == null) return null;
+		try {
+			return (String) GET_APPLICATION_PROTOCOL.invokeExact(engine);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new AssertionError(e);
+		}
+	}
+
 	@NotNull
 	private <T> Promise<T> sanitize(T value, @Nullable Throwable e) {
 		if (e == null) {
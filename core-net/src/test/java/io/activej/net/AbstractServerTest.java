@@ -4,25 +4,45 @@ import io.activej.bytebuf.ByteBuf;
 import io.activej.bytebuf.ByteBufQueue;
 import io.activej.bytebuf.ByteBufStrings;
 import io.activej.common.ref.RefLong;
+import io.activej.eventloop.Eventloop;
+import io.activej.eventloop.net.ServerSocketSettings;
 import io.activej.eventloop.net.SocketSettings;
+import io.activej.net.socket.tcp.AsyncTcpSocket;
 import io.activej.net.socket.tcp.AsyncTcpSocketNio;
 import io.activej.promise.Promise;
 import io.activej.promise.Promises;
 import io.activej.test.rules.ByteBufRule;
 import io.activej.test.rules.EventloopRule;
 import org.junit.ClassRule;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
 
+import static io.activej.common.MemSize.kilobytes;
 import static io.activej.eventloop.Eventloop.getCurrentEventloop;
 import static io.activej.promise.TestUtils.await;
 import static io.activej.test.TestUtils.getFreePort;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 
 public final class AbstractServerTest {
 	@ClassRule
@@ -31,6 +51,9 @@ public final class AbstractServerTest {
 	@ClassRule
 	public static final ByteBufRule byteBufRule = new ByteBufRule();
 
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
 	@Test
 	public void testTimeouts() throws IOException {
 		String message = "Hello!";
@@ -59,21 +82,262 @@ public final class AbstractServerTest {
 				.then(socket ->
 						socket.write(ByteBufStrings.wrapAscii(message))
 								.then(() -> socket.write(null))
-								.then(() -> {
-									ByteBufQueue queue = new ByteBufQueue();
-									return Promises.<ByteBuf>until(null,
-											$2 -> socket.read()
-													.then(buf -> {
-														if (buf != null) {
-															queue.add(buf);
-														}
-														return Promise.of(buf);
-													}),
-											Objects::isNull)
-											.map($2 -> queue.takeRemaining());
-								})
+								.then(() -> readAll(socket))
 								.whenComplete(socket::close)));
 
 		assertEquals(message, response.asString(UTF_8));
 	}
+
+	@Test
+	public void testDirectBuffers() throws IOException {
+		byte[] bytes = new byte[1024 * 1024];
+		ThreadLocalRandom.current().nextBytes(bytes);
+		InetSocketAddress address = new InetSocketAddress("localhost", getFreePort());
+		SocketSettings settings = SocketSettings.create().withImplDirectBuffers(true);
+
+		SimpleServer.create(socket -> Promises.<ByteBuf>until(null,
+				$ -> socket.read()
+						.then(buf -> socket.write(buf)
+								.map($2 -> buf)),
+				Objects::isNull)
+				.whenComplete(socket::close))
+				.withSocketSettings(settings)
+				.withListenAddress(address)
+				.withAcceptOnce()
+				.listen();
+
+		ByteBuf response = await(AsyncTcpSocketNio.connect(address, null, settings)
+				.then(socket ->
+						socket.write(ByteBuf.wrapForReading(bytes))
+								.then(() -> socket.write(null))
+								.then(() -> readAll(socket))
+								.whenComplete(socket::close)));
+
+		assertArrayEquals(bytes, response.asArray());
+	}
+
+	@Test
+	public void testGatheringWrites() throws IOException {
+		InetSocketAddress address = new InetSocketAddress("localhost", getFreePort());
+
+		SimpleServer.create(socket -> Promises.<ByteBuf>until(null,
+				$ -> socket.read()
+						.then(buf -> socket.write(buf)
+								.map($2 -> buf)),
+				Objects::isNull)
+				.whenComplete(socket::close))
+				.withListenAddress(address)
+				.withAcceptOnce()
+				.listen();
+
+		StringBuilder expected = new StringBuilder();
+		ByteBuf response = await(AsyncTcpSocketNio.connect(address)
+				.then(socket -> {
+					List<Promise<Void>> writes = new ArrayList<>();
+					for (int i = 0; i < 1000; i++) {
+						String message = "message #" + i + ";";
+						expected.append(message);
+						writes.add(socket.write(ByteBufStrings.wrapAscii(message)));
+					}
+					writes.add(socket.write(null));
+					return Promises.all(writes)
+							.then(() -> readAll(socket))
+							.whenComplete(socket::close);
+				}));
+
+		assertEquals(expected.toString(), response.asString(UTF_8));
+	}
+
+	@Test
+	public void testWriteFile() throws IOException {
+		byte[] bytes = new byte[4 * 1024 * 1024];
+		ThreadLocalRandom.current().nextBytes(bytes);
+		Path file = temporaryFolder.newFile("file.bin").toPath();
+		Files.write(file, bytes);
+		int offset = 100;
+		int count = 3 * 1024 * 1024;
+		InetSocketAddress address = new InetSocketAddress("localhost", getFreePort());
+
+		RefLong transferred = new RefLong(0);
+		AsyncTcpSocketNio.Inspector inspector = new AsyncTcpSocketNio.ForwardingInspector(null) {
+			@Override
+			public void onWriteFile(long requested, long bytes) {
+				transferred.inc(bytes);
+			}
+		};
+		FileChannel channel = FileChannel.open(file, READ);
+		SimpleServer.create(socket -> {
+			AsyncTcpSocketNio socketNio = ((AsyncTcpSocketNio) socket).withInspector(inspector);
+			socketNio.write(ByteBufStrings.wrapAscii("head;"));
+			socketNio.writeFile(channel, offset, count)
+					.then(() -> socketNio.write(ByteBufStrings.wrapAscii(";tail")))
+					.then(() -> socketNio.write(null))
+					.whenComplete(socket::close);
+		})
+				.withListenAddress(address)
+				.withAcceptOnce()
+				.listen();
+
+		ByteBuf response = await(AsyncTcpSocketNio.connect(address)
+				.then(socket -> readAll(socket)
+						.whenComplete(socket::close)));
+		channel.close();
+
+		byte[] expected = new byte[5 + count + 5];
+		System.arraycopy("head;".getBytes(UTF_8), 0, expected, 0, 5);
+		System.arraycopy(bytes, offset, expected, 5, count);
+		System.arraycopy(";tail".getBytes(UTF_8), 0, expected, 5 + count, 5);
+		assertArrayEquals(expected, response.asArray());
+		assertEquals(count, transferred.get());
+	}
+
+	@Test
+	public void testAdaptiveReadBuffer() throws IOException {
+		byte[] bytes = new byte[1024 * 1024];
+		ThreadLocalRandom.current().nextBytes(bytes);
+		InetSocketAddress address = new InetSocketAddress("localhost", getFreePort());
+		SocketSettings settings = SocketSettings.create()
+				.withImplReadBufferSize(kilobytes(1))
+				.withImplAdaptiveReadBuffer(true);
+
+		SimpleServer.create(socket -> socket.write(ByteBuf.wrapForReading(bytes))
+				.then(() -> socket.write(null))
+				.whenComplete(socket::close))
+				.withListenAddress(address)
+				.withAcceptOnce()
+				.listen();
+
+		AsyncTcpSocketNio.JmxInspector inspector = new AsyncTcpSocketNio.JmxInspector();
+		ByteBuf response = await(AsyncTcpSocketNio.connect(address, null, settings)
+				.then(socket -> {
+					socket.withInspector(inspector);
+					return readAll(socket)
+							.whenComplete(socket::close);
+				}));
+
+		assertArrayEquals(bytes, response.asArray());
+		assertTrue(inspector.getReadBufferGrows().getTotalCount() > 0);
+	}
+
+	@Test
+	public void testReusePortWorkersUsePrimarySettings() throws IOException {
+		assumeTrue(ServerSocketSettings.isReusePortSupported());
+		InetSocketAddress address = new InetSocketAddress("localhost", getFreePort());
+		RefLong filtered = new RefLong(0);
+
+		SimpleServer worker = SimpleServer.create(socket -> socket.write(ByteBufStrings.wrapAscii("Hello"))
+				.then(() -> socket.write(null))
+				.whenComplete(socket::close));
+		PrimaryServer primary = PrimaryServer.create(getCurrentEventloop(), worker)
+				.withServerSocketSettings(ServerSocketSettings.create(16).withReusePort(true))
+				.withAcceptFilter((channel, localAddress, remoteAddress, ssl) -> {
+					filtered.inc();
+					return false;
+				})
+				.withListenAddress(address);
+		primary.listen();
+
+		ByteBuf response = await(AsyncTcpSocketNio.connect(address)
+				.then(socket -> readAll(socket)
+						.whenComplete(socket::close))
+				.whenComplete(primary::close));
+
+		assertEquals("Hello", response.asString(UTF_8));
+		assertEquals(1, filtered.get());
+		assertEquals(1, worker.getAccepts().getTotalCount());
+		// stats of a primary server are combined from refreshed stats of its worker servers, as JMX does
+		worker.getAccepts().refresh(getCurrentEventloop().currentTimeMillis());
+		assertEquals(1, primary.getAccepts().getTotalCount());
+	}
+
+	@Test
+	public void testReusePortListenFailsIfWorkerInOtherEventloopCannotBind() throws Exception {
+		assumeTrue(ServerSocketSettings.isReusePortSupported());
+		InetSocketAddress address = new InetSocketAddress("localhost", getFreePort());
+		Eventloop workerEventloop = Eventloop.create();
+		workerEventloop.keepAlive(true);
+		Thread workerThread = new Thread(workerEventloop);
+		workerThread.start();
+
+		// a socket without SO_REUSEPORT does not let worker servers bind to the same address
+		try (ServerSocket occupied = new ServerSocket()) {
+			occupied.bind(address);
+			SimpleServer worker = SimpleServer.create(workerEventloop, socket -> {});
+			PrimaryServer primary = PrimaryServer.create(getCurrentEventloop(), worker)
+					.withServerSocketSettings(ServerSocketSettings.create(16).withReusePort(true))
+					.withListenAddress(address);
+			try {
+				primary.listen();
+				fail();
+			} catch (IOException ignored) {
+			}
+			assertFalse(primary.isRunning());
+		} finally {
+			workerEventloop.execute(() -> workerEventloop.keepAlive(false));
+			workerThread.join();
+		}
+	}
+
+	@Test
+	public void testReusePortListenDoesNotWaitForWorkerEventloops() throws Exception {
+		assumeTrue(ServerSocketSettings.isReusePortSupported());
+		InetSocketAddress address = new InetSocketAddress("localhost", getFreePort());
+		Eventloop workerEventloop = Eventloop.create();
+		workerEventloop.keepAlive(true);
+		Thread workerThread = new Thread(workerEventloop);
+		workerThread.start();
+		CountDownLatch listening = new CountDownLatch(1);
+		// a worker eventloop is busy until a primary server has started listening
+		workerEventloop.execute(() -> {
+			try {
+				listening.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+
+		try {
+			SimpleServer worker = SimpleServer.create(workerEventloop, socket -> socket.write(ByteBufStrings.wrapAscii("Hello"))
+					.then(() -> socket.write(null))
+					.whenComplete(socket::close));
+			PrimaryServer primary = PrimaryServer.create(getCurrentEventloop(), worker)
+					.withServerSocketSettings(ServerSocketSettings.create(16).withReusePort(true))
+					.withListenAddress(address);
+			primary.listen();
+			listening.countDown();
+
+			ByteBuf response = await(AsyncTcpSocketNio.connect(address)
+					.then(socket -> readAll(socket)
+							.whenComplete(socket::close))
+					.whenComplete(primary::close));
+			assertEquals("Hello", response.asString(UTF_8));
+		} finally {
+			listening.countDown();
+			workerEventloop.execute(() -> workerEventloop.keepAlive(false));
+			workerThread.join();
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testReusePortRejectsAcceptStrategy() throws IOException {
+		assumeTrue(ServerSocketSettings.isReusePortSupported());
+		PrimaryServer.create(getCurrentEventloop(), SimpleServer.create(socket -> {}))
+				.withServerSocketSettings(ServerSocketSettings.create(16).withReusePort(true))
+				.withAcceptStrategy(AcceptStrategy.roundRobin())
+				.withListenAddress(new InetSocketAddress("localhost", getFreePort()))
+				.listen();
+	}
+
+	private static Promise<ByteBuf> readAll(AsyncTcpSocket socket) {
+		ByteBufQueue queue = new ByteBufQueue();
+		return Promises.<ByteBuf>until(null,
+				$ -> socket.read()
+						.whenResult(buf -> {
+							if (buf != null) {
+								queue.add(buf);
+							}
+						}),
+				Objects::isNull)
+				.map($ -> queue.takeRemaining());
+	}
 }
@@ -0,0 +1,98 @@
+package io.activej.net;
+
+import io.activej.eventloop.Eventloop;
+import io.activej.eventloop.net.SocketSettings;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public final class AcceptStrategyTest {
+	private final Eventloop eventloop = Eventloop.create();
+
+	@Test
+	public void testRoundRobin() {
+		WorkerServer[] workerServers = workerServers(0, 0, 0);
+		AcceptStrategy strategy = AcceptStrategy.roundRobin();
+
+		int[] selected = new int[6];
+		for (int i = 0; i < selected.length; i++) {
+			selected[i] = strategy.select(workerServers);
+		}
+		assertArrayEquals(new int[]{0, 1, 2, 0, 1, 2}, selected);
+	}
+
+	@Test
+	public void testLeastConnections() {
+		WorkerServer[] workerServers = workerServers(10, 3, 7);
+		AcceptStrategy strategy = AcceptStrategy.leastConnections();
+
+		for (int i = 0; i < 3; i++) {
+			assertEquals(1, strategy.select(workerServers));
+		}
+	}
+
+	@Test
+	public void testLeastConnectionsTies() {
+		WorkerServer[] workerServers = workerServers(0, 0, 0);
+		AcceptStrategy strategy = AcceptStrategy.leastConnections();
+
+		int[] selected = new int[3];
+		for (int i = 0; i < selected.length; i++) {
+			selected[i] = strategy.select(workerServers);
+		}
+		assertArrayEquals(new int[]{0, 1, 2}, selected);
+	}
+
+	@Test
+	public void testPowerOfTwoChoices() {
+		WorkerServer[] workerServers = workerServers(100, 0);
+		AcceptStrategy strategy = AcceptStrategy.powerOfTwoChoices();
+
+		for (int i = 0; i < 10; i++) {
+			assertNotEquals(0, strategy.select(workerServers));
+		}
+	}
+
+	@Test
+	public void testWeighted() {
+		WorkerServer[] workerServers = workerServers(0, 0, 0);
+		AcceptStrategy strategy = AcceptStrategy.weighted(5, 1, 1);
+
+		int[] selected = new int[7];
+		for (int i = 0; i < selected.length; i++) {
+			selected[i] = strategy.select(workerServers);
+		}
+		assertArrayEquals(new int[]{0, 0, 1, 0, 2, 0, 0}, selected);
+	}
+
+	private WorkerServer[] workerServers(int... connections) {
+		WorkerServer[] workerServers = new WorkerServer[connections.length];
+		for (int i = 0; i < connections.length; i++) {
+			int connectionsCount = connections[i];
+			workerServers[i] = new WorkerServer() {
+				@Override
+				public Eventloop getEventloop() {
+					return eventloop;
+				}
+
+				@Override
+				public void doAccept(SocketChannel socketChannel, InetSocketAddress localAddress, InetAddress remoteAddress,
+						boolean ssl, SocketSettings socketSettings) {
+					throw new UnsupportedOperationException();
+				}
+
+				@Override
+				public int getConnectionsCount() {
+					return connectionsCount;
+				}
+			};
+		}
+		return workerServers;
+	}
+}
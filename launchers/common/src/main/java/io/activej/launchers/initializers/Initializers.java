@@ -51,7 +51,9 @@ public class Initializers {
 		return eventloop -> eventloop
 				.withFatalErrorHandler(config.get(ofFatalErrorHandler(), "fatalErrorHandler", eventloop.getFatalErrorHandler()))
 				.withIdleInterval(config.get(ofDuration(), "idleInterval", eventloop.getIdleInterval()))
-				.withThreadPriority(config.get(ofInteger(), "threadPriority", eventloop.getThreadPriority()));
+				.withIdleStrategy(config.get(ofIdleStrategy(), "idleStrategy", eventloop.getIdleStrategy()))
+				.withThreadPriority(config.get(ofInteger(), "threadPriority", eventloop.getThreadPriority()))
+				.withTimingWheel(config.get(ofBoolean(), "timingWheel", eventloop.getTimingWheel()));
 	}
 
 	public static Initializer<EventloopTaskScheduler> ofEventloopTaskScheduler(Config config) {
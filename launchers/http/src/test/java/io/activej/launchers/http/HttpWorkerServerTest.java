@@ -2,6 +2,7 @@ package io.activej.launchers.http;
 
 import io.activej.bytebuf.ByteBuf;
 import io.activej.config.Config;
+import io.activej.eventloop.net.ServerSocketSettings;
 import io.activej.http.AsyncServlet;
 import io.activej.http.HttpResponse;
 import io.activej.inject.Injector;
@@ -28,6 +29,7 @@ import static io.activej.config.converter.ConfigConverters.ofInetSocketAddress;
 import static io.activej.test.TestUtils.getFreePort;
 import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
 
 public final class HttpWorkerServerTest {
 	public static final int PORT = getFreePort();
@@ -86,6 +88,50 @@ public final class HttpWorkerServerTest {
 		}
 	}
 
+	@Test
+	public void testReusePort() throws Exception {
+		assumeTrue(ServerSocketSettings.isReusePortSupported());
+		MultithreadedHttpServerLauncher launcher = new MultithreadedHttpServerLauncher() {
+			@Provides
+			@Worker
+			AsyncServlet servlet() {
+				return request -> HttpResponse.ok200()
+						.withBody(ByteBuf.wrapForReading(encodeAscii("Hello, world!")));
+			}
+
+			@Override
+			protected Module getOverrideModule() {
+				return new AbstractModule() {
+					@Provides
+					Config config() {
+						return Config.create()
+								.with("http.listenAddresses", Config.ofValue(ofInetSocketAddress(), new InetSocketAddress(HttpWorkerServerTest.PORT)))
+								.with("http.serverSocketSettings.reusePort", "true");
+					}
+				};
+			}
+		};
+		Injector injector = launcher.createInjector(new String[]{});
+		injector.getInstance(PrimaryServer.class);
+
+		ServiceGraph serviceGraph = injector.getInstance(ServiceGraph.class);
+		try {
+			serviceGraph.startFuture().get();
+
+			// server sockets of worker servers are bound once a primary server is started
+			InetSocketAddress localhost = new InetSocketAddress("localhost", PORT);
+			for (int i = 0; i < 10; i++) {
+				try (Socket socket = new Socket()) {
+					socket.connect(localhost);
+					socket.getOutputStream().write(encodeAscii("GET /abc HTTP1.1\r\nHost: localhost\r\nConnection: keep-alive\n\r\n"));
+					readAndAssert(socket.getInputStream(), "HTTP/1.1 200 OK\r\nConnection: keep-alive\r\nContent-Length: 13\r\n\r\nHello, world!");
+				}
+			}
+		} finally {
+			serviceGraph.stopFuture().get();
+		}
+	}
+
 	private static void readAndAssert(InputStream is, String expected) throws IOException {
 		byte[] bytes = new byte[expected.length()];
 